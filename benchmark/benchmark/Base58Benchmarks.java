@@ -0,0 +1,59 @@
+package benchmark;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import test.utils.LegacyBase58;
+import utils.Base58;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Fork(1)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class Base58Benchmarks {
+
+	// Signature length, as used in API and block references
+	private byte[] bytes = new byte[64];
+	private String encoded;
+	private byte[] output = new byte[64];
+
+	@Setup
+	public void setup() {
+		new Random(3).nextBytes(this.bytes);
+		this.encoded = Base58.encode(this.bytes);
+	}
+
+	@Benchmark
+	public String base58Encode() {
+		return Base58.encode(this.bytes);
+	}
+
+	@Benchmark
+	public boolean base58Decode() {
+		return Base58.decode(this.encoded, this.output);
+	}
+
+	@Benchmark
+	public String legacyBase58Encode() {
+		return LegacyBase58.encode(this.bytes);
+	}
+
+	@Benchmark
+	public byte[] legacyBase58Decode() {
+		return LegacyBase58.decode(this.encoded);
+	}
+
+}
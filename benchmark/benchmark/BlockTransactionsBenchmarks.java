@@ -0,0 +1,150 @@
+package benchmark;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import org.json.simple.JSONObject;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import data.block.BlockData;
+import data.block.BlockTransactionData;
+import data.transaction.PaymentTransactionData;
+import qora.block.BlockChain;
+import qora.crypto.Crypto;
+import repository.BlockRepository;
+import repository.DataException;
+import repository.Repository;
+import repository.RepositoryManager;
+import repository.TransactionRepository;
+import repository.hsqldb.HSQLDBRepositoryFactory;
+import settings.Settings;
+
+/**
+ * Looking up a confirmed transaction's block height and block, with BlockTransactions filled to various sizes.
+ * <p>
+ * Filling the largest size takes several minutes.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class BlockTransactionsBenchmarks {
+
+	private static final int TRANSACTIONS_PER_BLOCK = 100;
+	/** Number of transactions looked up, in turn, by benchmarks. */
+	private static final int LOOKUP_COUNT = 1024;
+
+	@Param({ "10000", "100000", "1000000" })
+	public int rowCount;
+
+	private Path databasePath;
+	private Repository repository;
+	private byte[][] lookupSignatures;
+	private int lookupIndex;
+
+	@Setup
+	public void setup() throws DataException, IOException {
+		// On disk, as BlockTransactions would be, rather than in memory
+		this.databasePath = Files.createTempDirectory("benchmark");
+		RepositoryManager.setRepositoryFactory(new HSQLDBRepositoryFactory("jdbc:hsqldb:file:" + this.databasePath.resolve("blockchain") + ";create=true"));
+		Settings.test(new JSONObject());
+
+		// This needs to be called outside of acquiring our own repository or it will deadlock
+		BlockChain.validate();
+
+		this.repository = RepositoryManager.getRepository();
+		BlockRepository blockRepository = this.repository.getBlockRepository();
+		TransactionRepository transactionRepository = this.repository.getTransactionRepository();
+
+		// Only row counts matter, so signatures are random rather than valid
+		Random random = new Random(0);
+		BlockData parentBlockData = blockRepository.getLastBlock();
+		byte[] publicKey = randomBytes(random, 32);
+		String recipient = Crypto.toAddress(randomBytes(random, 32));
+		BigDecimal amount = BigDecimal.ONE.setScale(8);
+
+		this.lookupSignatures = new byte[LOOKUP_COUNT][];
+		int lookupInterval = Math.max(1, this.rowCount / LOOKUP_COUNT);
+
+		for (int row = 0; row < this.rowCount; row += TRANSACTIONS_PER_BLOCK) {
+			int transactionCount = Math.min(TRANSACTIONS_PER_BLOCK, this.rowCount - row);
+			long timestamp = parentBlockData.getTimestamp() + 60_000;
+
+			BlockData blockData = new BlockData(1, parentBlockData.getSignature(), transactionCount, BigDecimal.ZERO.setScale(8), randomBytes(random, 64),
+					parentBlockData.getHeight() + 1, timestamp, BigDecimal.ONE.setScale(8), publicKey, randomBytes(random, 64), 0, BigDecimal.ZERO.setScale(8));
+
+			this.repository.setBatchWrites(true);
+			blockRepository.save(blockData);
+
+			for (int sequence = 0; sequence < transactionCount; ++sequence) {
+				byte[] signature = randomBytes(random, 64);
+				transactionRepository.save(new PaymentTransactionData(publicKey, recipient, amount, amount, timestamp, randomBytes(random, 64), signature));
+				blockRepository.save(new BlockTransactionData(blockData.getSignature(), sequence, signature, blockData.getHeight()));
+
+				int lookup = (row + sequence) / lookupInterval;
+				if ((row + sequence) % lookupInterval == 0 && lookup < LOOKUP_COUNT)
+					this.lookupSignatures[lookup] = signature;
+			}
+
+			this.repository.saveChanges();
+			parentBlockData = blockData;
+		}
+
+		// Fewer rows than lookups, so repeat some
+		for (int lookup = 0; lookup < LOOKUP_COUNT; ++lookup)
+			if (this.lookupSignatures[lookup] == null)
+				this.lookupSignatures[lookup] = this.lookupSignatures[lookup % this.rowCount];
+	}
+
+	@TearDown
+	public void tearDown() throws DataException, IOException {
+		this.repository.close();
+		RepositoryManager.closeRepositoryFactory();
+		Settings.test(new JSONObject());
+
+		try (Stream<Path> paths = Files.walk(this.databasePath)) {
+			paths.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+		}
+	}
+
+	private static byte[] randomBytes(Random random, int length) {
+		byte[] bytes = new byte[length];
+		random.nextBytes(bytes);
+		return bytes;
+	}
+
+	private byte[] nextLookupSignature() {
+		this.lookupIndex = (this.lookupIndex + 1) % LOOKUP_COUNT;
+		return this.lookupSignatures[this.lookupIndex];
+	}
+
+	@Benchmark
+	public int heightFromSignature() throws DataException {
+		return this.repository.getTransactionRepository().getHeightFromSignature(this.nextLookupSignature());
+	}
+
+	@Benchmark
+	public BlockData blockDataFromSignature() throws DataException {
+		return this.repository.getTransactionRepository().getBlockDataFromSignature(this.nextLookupSignature());
+	}
+
+}
@@ -0,0 +1,124 @@
+package benchmark;
+
+import java.math.BigDecimal;
+import java.util.concurrent.TimeUnit;
+
+import org.json.simple.JSONObject;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.google.common.hash.HashCode;
+
+import data.account.AccountBalanceData;
+import data.account.AccountData;
+import data.block.BlockData;
+import data.transaction.PaymentTransactionData;
+import qora.account.PrivateKeyAccount;
+import qora.account.PublicKeyAccount;
+import qora.assets.Asset;
+import qora.block.Block;
+import qora.block.BlockChain;
+import qora.transaction.PaymentTransaction;
+import qora.transaction.Transaction;
+import repository.AccountRepository;
+import repository.DataException;
+import repository.Repository;
+import repository.RepositoryManager;
+import repository.hsqldb.HSQLDBRepositoryFactory;
+import settings.Settings;
+
+/** Validation of a block of independent payments, using serial or speculative parallel transaction validation. */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class BlockValidationBenchmarks {
+
+	private static final String connectionUrl = "jdbc:hsqldb:mem:db/benchmark;create=true;close_result=true;sql.strict_exec=true;sql.enforce_names=true;sql.syntax_mys=true";
+
+	private static final byte[] generatorSeed = HashCode.fromString("0123456789abcdeffedcba98765432100123456789abcdeffedcba9876543210").asBytes();
+	private static final byte[] senderSeed = HashCode.fromString("0123456789abcdef0123456789abcdef0123456789abcdef0123456789abcdef").asBytes();
+	private static final byte[] recipientSeed = HashCode.fromString("fedcba9876543210fedcba9876543210fedcba9876543210fedcba9876543210").asBytes();
+
+	private static final int SENDER_COUNT = 200;
+
+	@Param({ "1", "4" })
+	public int threads;
+
+	private Repository repository;
+	private Block block;
+
+	@Setup
+	@SuppressWarnings("unchecked")
+	public void setup() throws DataException {
+		RepositoryManager.setRepositoryFactory(new HSQLDBRepositoryFactory(connectionUrl));
+
+		JSONObject settingsJSON = new JSONObject();
+		settingsJSON.put("transactionvalidationthreads", Long.valueOf(this.threads));
+		Settings.test(settingsJSON);
+
+		// This needs to be called outside of acquiring our own repository or it will deadlock
+		BlockChain.validate();
+
+		this.repository = RepositoryManager.getRepository();
+		AccountRepository accountRepository = this.repository.getAccountRepository();
+		BlockData parentBlockData = this.repository.getBlockRepository().fromHeight(1);
+
+		PrivateKeyAccount generator = new PrivateKeyAccount(this.repository, generatorSeed);
+		accountRepository.save(new AccountData(generator.getAddress(), generatorSeed));
+		accountRepository.save(new AccountBalanceData(generator.getAddress(), Asset.QORA, BigDecimal.valueOf(1_000_000_000L).setScale(8)));
+
+		// Each sender has their own balance, so payments don't depend on each other
+		String recipient = new PublicKeyAccount(this.repository, recipientSeed).getAddress();
+		this.block = new Block(this.repository, parentBlockData, generator);
+
+		for (int i = 0; i < SENDER_COUNT; ++i) {
+			byte[] seed = senderSeed.clone();
+			seed[0] = (byte) i;
+			seed[1] = (byte) (i >> 8);
+			PrivateKeyAccount sender = new PrivateKeyAccount(this.repository, seed);
+
+			accountRepository.save(new AccountData(sender.getAddress(), senderSeed));
+			accountRepository.save(new AccountBalanceData(sender.getAddress(), Asset.QORA, BigDecimal.valueOf(1_000_000L).setScale(8)));
+
+			PaymentTransactionData paymentData = new PaymentTransactionData(sender.getPublicKey(), recipient, BigDecimal.valueOf(1_000L).setScale(8),
+					BigDecimal.ONE, parentBlockData.getTimestamp() + 1_000, senderSeed);
+			Transaction payment = new PaymentTransaction(this.repository, paymentData);
+			payment.sign(sender);
+
+			this.block.addTransaction(paymentData);
+		}
+
+		this.block.sign();
+		this.repository.saveChanges();
+
+		if (this.block.isValid() != Block.ValidationResult.OK)
+			throw new IllegalStateException("Benchmark block is invalid");
+	}
+
+	@TearDown
+	public void tearDown() throws DataException {
+		this.repository.close();
+		RepositoryManager.closeRepositoryFactory();
+		Settings.test(new JSONObject());
+	}
+
+	@Benchmark
+	public Block.ValidationResult validateBlock() throws DataException {
+		// Validation discards repository changes afterwards, so same block can be validated repeatedly
+		return this.block.isValid();
+	}
+
+}
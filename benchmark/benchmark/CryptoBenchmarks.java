@@ -0,0 +1,118 @@
+package benchmark;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import qora.crypto.BrokenMD160;
+import qora.crypto.Ed25519;
+import test.utils.LegacyBrokenMD160;
+import utils.Pair;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Fork(1)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@SuppressWarnings("deprecation")
+public class CryptoBenchmarks {
+
+	/** Signatures by distinct keys, e.g. transactions in a block. */
+	@State(Scope.Thread)
+	public static class Ed25519Signatures {
+		@Param({ "1", "10", "100", "1000" })
+		public int count;
+
+		private byte[][] signatures;
+		private byte[][] messages;
+		private byte[][] publicKeys;
+
+		@Setup
+		public void setup() throws Exception {
+			this.signatures = new byte[this.count][];
+			this.messages = new byte[this.count][];
+			this.publicKeys = new byte[this.count][];
+
+			Random random = new Random(2);
+			for (int i = 0; i < this.count; ++i) {
+				byte[] seed = new byte[32];
+				random.nextBytes(seed);
+				Pair<byte[], byte[]> keyPair = Ed25519.createKeyPair(seed);
+
+				this.messages[i] = new byte[100 + i % 50];
+				random.nextBytes(this.messages[i]);
+				this.publicKeys[i] = keyPair.getB();
+				this.signatures[i] = Ed25519.sign(keyPair, this.messages[i]);
+			}
+		}
+	}
+
+	private byte[] brokenMD160Input;
+	private BrokenMD160 brokenMD160;
+
+	private byte[] signature;
+	private byte[] message;
+	private byte[] publicKey;
+
+	@Setup
+	public void setup() throws Exception {
+		// Public key length, as used for address derivation
+		this.brokenMD160Input = new byte[32];
+		new Random(5).nextBytes(this.brokenMD160Input);
+
+		this.brokenMD160 = new BrokenMD160();
+
+		byte[] seed = new byte[32];
+		new Random(3).nextBytes(seed);
+		Pair<byte[], byte[]> keyPair = Ed25519.createKeyPair(seed);
+
+		this.message = new byte[100];
+		new Random(4).nextBytes(this.message);
+		this.publicKey = keyPair.getB();
+		this.signature = Ed25519.sign(keyPair, this.message);
+	}
+
+	@Benchmark
+	public byte[] brokenMD160() {
+		this.brokenMD160.reset();
+		return this.brokenMD160.digest(this.brokenMD160Input);
+	}
+
+	@Benchmark
+	public byte[] legacyBrokenMD160() {
+		return new LegacyBrokenMD160().digest(this.brokenMD160Input);
+	}
+
+	/** Repeated public key, so decoded key is cached. Run with <tt>-prof gc</tt> to show allocation per call. */
+	@Benchmark
+	public boolean ed25519Verify() throws Exception {
+		return Ed25519.verify(this.signature, this.message, this.publicKey);
+	}
+
+	@Benchmark
+	@OutputTimeUnit(TimeUnit.MICROSECONDS)
+	public void ed25519VerifyIndividually(Ed25519Signatures batch, Blackhole blackhole) throws Exception {
+		for (int i = 0; i < batch.count; ++i)
+			blackhole.consume(Ed25519.verify(batch.signatures[i], batch.messages[i], batch.publicKeys[i]));
+	}
+
+	@Benchmark
+	@OutputTimeUnit(TimeUnit.MICROSECONDS)
+	public boolean[] ed25519VerifyBatch(Ed25519Signatures batch) throws Exception {
+		return Ed25519.verifyBatch(batch.signatures, batch.messages, batch.publicKeys);
+	}
+
+}
@@ -0,0 +1,106 @@
+package benchmark;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import qora.network.PeerConnection;
+import qora.network.PeerTransport;
+
+/**
+ * Messages sent over loopback between two transports. As sending waits once too much is queued, this is also the rate messages are received.
+ * <p>
+ * Run with <tt>-prof gc</tt> to show allocation per message.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Fork(1)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class NetworkBenchmarks {
+
+	private static final InetSocketAddress LOOPBACK = new InetSocketAddress(InetAddress.getLoopbackAddress(), 0);
+
+	@Param({ "100", "10000" })
+	public int dataLength;
+
+	private PeerTransport server;
+	private PeerTransport client;
+	private PeerConnection peer;
+	private ByteBuffer data;
+	private int id = 0;
+
+	@Setup
+	public void setup() throws IOException, InterruptedException {
+		CountDownLatch connected = new CountDownLatch(1);
+
+		this.server = new PeerTransport(new PeerTransport.Listener() {
+			@Override
+			public void onConnected(PeerConnection peer) {
+			}
+
+			@Override
+			public void onMessage(PeerConnection peer, int type, int id, ByteBuffer data) {
+			}
+
+			@Override
+			public void onDisconnected(PeerConnection peer, IOException cause) {
+			}
+		});
+
+		this.client = new PeerTransport(new PeerTransport.Listener() {
+			@Override
+			public void onConnected(PeerConnection peer) {
+				connected.countDown();
+			}
+
+			@Override
+			public void onMessage(PeerConnection peer, int type, int id, ByteBuffer data) {
+			}
+
+			@Override
+			public void onDisconnected(PeerConnection peer, IOException cause) {
+			}
+		});
+
+		this.server.start();
+		this.client.start();
+
+		this.peer = this.client.connect(this.server.listen(LOOPBACK));
+		if (!connected.await(10, TimeUnit.SECONDS))
+			throw new IOException("Couldn't connect over loopback");
+
+		this.data = ByteBuffer.allocateDirect(this.dataLength);
+		for (int i = 0; i < this.dataLength; ++i)
+			this.data.put(i, (byte) i);
+	}
+
+	@TearDown
+	public void tearDown() {
+		this.client.close();
+		this.server.close();
+	}
+
+	@Benchmark
+	public void send() throws IOException {
+		this.peer.send(9, true, ++this.id, this.data);
+	}
+
+}
@@ -0,0 +1,231 @@
+package benchmark;
+
+import java.math.BigDecimal;
+import java.util.concurrent.TimeUnit;
+
+import org.json.simple.JSONObject;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.google.common.hash.HashCode;
+
+import data.account.AccountBalanceData;
+import data.account.AccountData;
+import data.block.BlockData;
+import data.transaction.PaymentTransactionData;
+import qora.account.PrivateKeyAccount;
+import qora.account.PublicKeyAccount;
+import qora.assets.Asset;
+import qora.block.Block;
+import qora.block.BlockChain;
+import qora.transaction.PaymentTransaction;
+import qora.transaction.Transaction;
+import repository.ATRepository;
+import repository.AccountRepository;
+import repository.AssetRepository;
+import repository.BlockRepository;
+import repository.DataException;
+import repository.NameRepository;
+import repository.Repository;
+import repository.RepositoryManager;
+import repository.TransactionRepository;
+import repository.VotingRepository;
+import repository.hsqldb.HSQLDBATRepository;
+import repository.hsqldb.HSQLDBAssetRepository;
+import repository.hsqldb.HSQLDBBlockRepository;
+import repository.hsqldb.HSQLDBNameRepository;
+import repository.hsqldb.HSQLDBRepository;
+import repository.hsqldb.HSQLDBRepositoryFactory;
+import repository.hsqldb.HSQLDBVotingRepository;
+import repository.hsqldb.transaction.HSQLDBTransactionRepository;
+import settings.Settings;
+
+/**
+ * Processing then orphaning a block of payments, using a session's cached sub-repositories or fresh sub-repositories per call.
+ * <p>
+ * Run with <tt>-prof gc</tt> to compare allocation rates.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class RepositoryBenchmarks {
+
+	private static final String connectionUrl = "jdbc:hsqldb:mem:db/benchmark;create=true;close_result=true;sql.strict_exec=true;sql.enforce_names=true;sql.syntax_mys=true";
+
+	private static final byte[] generatorSeed = HashCode.fromString("0123456789abcdeffedcba98765432100123456789abcdeffedcba9876543210").asBytes();
+	private static final byte[] senderSeed = HashCode.fromString("0123456789abcdef0123456789abcdef0123456789abcdef0123456789abcdef").asBytes();
+	private static final byte[] recipientSeed = HashCode.fromString("fedcba9876543210fedcba9876543210fedcba9876543210fedcba9876543210").asBytes();
+
+	private static final int SENDER_COUNT = 20;
+
+	/**
+	 * Session whose sub-repository getters construct a new sub-repository per call, as before sub-repositories were cached.
+	 * <p>
+	 * Account repository is still the session's, as it holds the session's account cache.
+	 */
+	private static class FreshSubRepositories implements Repository {
+
+		private final HSQLDBRepository repository;
+
+		public FreshSubRepositories(HSQLDBRepository repository) {
+			this.repository = repository;
+		}
+
+		@Override
+		public ATRepository getATRepository() {
+			return new HSQLDBATRepository(this.repository);
+		}
+
+		@Override
+		public AccountRepository getAccountRepository() {
+			return this.repository.getAccountRepository();
+		}
+
+		@Override
+		public AssetRepository getAssetRepository() {
+			return new HSQLDBAssetRepository(this.repository);
+		}
+
+		@Override
+		public BlockRepository getBlockRepository() {
+			return new HSQLDBBlockRepository(this.repository);
+		}
+
+		@Override
+		public NameRepository getNameRepository() {
+			return new HSQLDBNameRepository(this.repository);
+		}
+
+		@Override
+		public TransactionRepository getTransactionRepository() {
+			return new HSQLDBTransactionRepository(this.repository);
+		}
+
+		@Override
+		public VotingRepository getVotingRepository() {
+			return new HSQLDBVotingRepository(this.repository);
+		}
+
+		@Override
+		public void setBatchWrites(boolean batchWrites) throws DataException {
+			this.repository.setBatchWrites(batchWrites);
+		}
+
+		@Override
+		public void saveChanges() throws DataException {
+			this.repository.saveChanges();
+		}
+
+		@Override
+		public void discardChanges() throws DataException {
+			this.repository.discardChanges();
+		}
+
+		@Override
+		public boolean hasUncommittedChanges() {
+			return this.repository.hasUncommittedChanges();
+		}
+
+		@Override
+		public void setBulkLoad(boolean bulkLoad) throws DataException {
+			this.repository.setBulkLoad(bulkLoad);
+		}
+
+		@Override
+		public void checkpoint() throws DataException {
+			this.repository.checkpoint();
+		}
+
+		@Override
+		public void close() throws DataException {
+			this.repository.close();
+		}
+
+		@Override
+		public void rebuild() throws DataException {
+			this.repository.rebuild();
+		}
+
+	}
+
+	@Param({ "true", "false" })
+	public boolean cachedSubRepositories;
+
+	private Repository repository;
+	private Block block;
+
+	@Setup
+	public void setup() throws DataException {
+		RepositoryManager.setRepositoryFactory(new HSQLDBRepositoryFactory(connectionUrl));
+		Settings.test(new JSONObject());
+
+		// This needs to be called outside of acquiring our own repository or it will deadlock
+		BlockChain.validate();
+
+		this.repository = RepositoryManager.getRepository();
+		if (!this.cachedSubRepositories)
+			this.repository = new FreshSubRepositories((HSQLDBRepository) this.repository);
+
+		AccountRepository accountRepository = this.repository.getAccountRepository();
+		BlockData parentBlockData = this.repository.getBlockRepository().fromHeight(1);
+
+		PrivateKeyAccount generator = new PrivateKeyAccount(this.repository, generatorSeed);
+		accountRepository.save(new AccountData(generator.getAddress(), generatorSeed));
+		accountRepository.save(new AccountBalanceData(generator.getAddress(), Asset.QORA, BigDecimal.valueOf(1_000_000_000L).setScale(8)));
+
+		String recipient = new PublicKeyAccount(this.repository, recipientSeed).getAddress();
+		this.block = new Block(this.repository, parentBlockData, generator);
+
+		for (int i = 0; i < SENDER_COUNT; ++i) {
+			byte[] seed = senderSeed.clone();
+			seed[0] = (byte) i;
+			PrivateKeyAccount sender = new PrivateKeyAccount(this.repository, seed);
+
+			accountRepository.save(new AccountData(sender.getAddress(), senderSeed));
+			accountRepository.save(new AccountBalanceData(sender.getAddress(), Asset.QORA, BigDecimal.valueOf(1_000_000L).setScale(8)));
+
+			PaymentTransactionData paymentData = new PaymentTransactionData(sender.getPublicKey(), recipient, BigDecimal.valueOf(1_000L).setScale(8),
+					BigDecimal.ONE, parentBlockData.getTimestamp() + 1_000, senderSeed);
+			Transaction payment = new PaymentTransaction(this.repository, paymentData);
+			payment.sign(sender);
+
+			this.block.addTransaction(paymentData);
+		}
+
+		this.block.sign();
+		this.repository.saveChanges();
+
+		if (this.block.isValid() != Block.ValidationResult.OK)
+			throw new IllegalStateException("Benchmark block is invalid");
+	}
+
+	@TearDown
+	public void tearDown() throws DataException {
+		this.repository.close();
+		RepositoryManager.closeRepositoryFactory();
+		Settings.test(new JSONObject());
+	}
+
+	@Benchmark
+	public void processAndOrphanBlock() throws DataException {
+		this.block.process();
+		this.block.orphan();
+
+		// Back to genesis block only, so same block can be processed repeatedly
+		this.repository.discardChanges();
+	}
+
+}
@@ -0,0 +1,55 @@
+package benchmark;
+
+import java.math.BigInteger;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import utils.UInt256;
+
+/** Forging delay calculation, i.e. hash divided by generator's target, as used when validating and generating blocks. */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Fork(1)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class UInt256Benchmarks {
+
+	private static final long GENERATING_BALANCE = 1_000_000L;
+
+	private byte[] hash = new byte[UInt256.BYTE_LENGTH];
+	private BigInteger unitTarget;
+	private UInt256 uintUnitTarget;
+
+	@Setup
+	public void setup() {
+		new Random(4).nextBytes(this.hash);
+
+		this.unitTarget = BigInteger.ONE.shiftLeft(215).add(BigInteger.valueOf(12345));
+		this.uintUnitTarget = UInt256.valueOf(this.unitTarget);
+	}
+
+	@Benchmark
+	public long bigIntegerForgingDelay() {
+		BigInteger target = this.unitTarget.multiply(BigInteger.valueOf(GENERATING_BALANCE));
+		return new BigInteger(1, this.hash).divide(target).longValue();
+	}
+
+	@Benchmark
+	public long uint256ForgingDelay() {
+		UInt256 target = this.uintUnitTarget.multiplyExact(GENERATING_BALANCE);
+		return UInt256.fromBytes(this.hash).divideSaturated(target);
+	}
+
+}
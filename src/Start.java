@@ -1,10 +1,12 @@
 
 import api.ApiClient;
 import api.ApiService;
+import repository.BlockStore;
 import repository.DataException;
 import repository.RepositoryFactory;
 import repository.RepositoryManager;
 import repository.hsqldb.HSQLDBRepositoryFactory;
+import settings.Settings;
 
 public class Start {
 
@@ -13,6 +15,7 @@ public class Start {
 	public static void main(String args[]) throws DataException {
 		RepositoryFactory repositoryFactory = new HSQLDBRepositoryFactory(connectionUrl);
 		RepositoryManager.setRepositoryFactory(repositoryFactory);
+		RepositoryManager.setBlockStore(new BlockStore(Settings.getInstance().getBlockStorePath()));
 
 		ApiService apiService = ApiService.getInstance();
 		apiService.start();
@@ -333,7 +333,7 @@ public class AddressesResource {
 		responses = {
 			@ApiResponse(
 				description = "the balance",
-				content = @Content(schema = @Schema(implementation = String.class)),
+				content = @Content(schema = @Schema(implementation = BigDecimal.class)),
 				extensions = {
 					@Extension(name = "translation", properties = {
 						@ExtensionProperty(name="description.key", value="success_response:description")
@@ -342,10 +342,21 @@ public class AddressesResource {
 			)
 		}
 	)
-	public String getGeneratingBalance(@PathParam("address") String address, @PathParam("confirmations") int confirmations) {
+	public BigDecimal getGeneratingBalance(@PathParam("address") String address, @PathParam("confirmations") int confirmations) {
 		Security.checkApiCallAllowed("GET addresses/balance", request);
 		
-		throw new UnsupportedOperationException();
+		if (!Crypto.isValidAddress(address))
+			throw this.apiErrorFactory.createError(ApiError.INVALID_ADDRESS);
+
+        try (final Repository repository = RepositoryManager.getRepository()) {
+			Account account = new Account(repository, address);
+			return account.getBalance(Asset.QORA, confirmations);
+			
+		} catch (ApiException e) {
+			throw e;
+		} catch (Exception e) {
+            throw this.apiErrorFactory.createError(ApiError.UNKNOWN, e);
+        }
 	}
 
 	@GET
@@ -20,8 +20,10 @@ import javax.ws.rs.core.Context;
 import javax.ws.rs.core.MediaType;
 import qora.block.Block;
 
+import repository.BlockStore;
 import repository.Repository;
 import repository.RepositoryManager;
+import transform.block.BlockTransformer;
 import utils.Base58;
 
 @Path("blocks")
@@ -513,4 +515,68 @@ public class BlocksResource {
             throw this.apiErrorFactory.createError(ApiError.UNKNOWN, e);
         }
 	}
+
+	@GET
+	@Path("/raw/{signature}")
+	@Operation(
+		description = "returns the serialized block that matches the given signature, encoded in Base58",
+		extensions = {
+			@Extension(name = "translation", properties = {
+				@ExtensionProperty(name="path", value="GET raw:signature"),
+				@ExtensionProperty(name="description.key", value="operation:description")
+			}),
+			@Extension(properties = {
+				@ExtensionProperty(name="apiErrors", value="[\"INVALID_SIGNATURE\", \"BLOCK_NO_EXISTS\"]", parseValue = true),
+			})
+		},
+		responses = {
+			@ApiResponse(
+				description = "the serialized block",
+				content = @Content(schema = @Schema(implementation = String.class)),
+				extensions = {
+					@Extension(name = "translation", properties = {
+						@ExtensionProperty(name="description.key", value="success_response:description")
+					})
+				}
+			)
+		}
+	)
+	public String getRawBlock(@PathParam("signature") String signature) {
+		Security.checkApiCallAllowed("GET blocks/raw", request);
+
+		// decode signature
+		byte[] signatureBytes;
+		try
+		{
+			signatureBytes = Base58.decode(signature);
+		}
+		catch(Exception e)
+		{
+			throw this.apiErrorFactory.createError(ApiError.INVALID_SIGNATURE, e);
+		}
+
+		try (final Repository repository = RepositoryManager.getRepository()) {
+			BlockData blockData = repository.getBlockRepository().fromSignature(signatureBytes);
+
+			// check if block exists
+			if(blockData == null)
+				throw this.apiErrorFactory.createError(ApiError.BLOCK_NO_EXISTS);
+
+			// use stored bytes if possible, otherwise serialize block
+			byte[] blockBytes = null;
+			BlockStore blockStore = RepositoryManager.getBlockStore();
+			if (blockStore != null)
+				blockBytes = blockStore.fromHeight(blockData.getHeight(), blockData.getSignature());
+
+			if (blockBytes == null)
+				blockBytes = BlockTransformer.toBytes(new Block(repository, blockData));
+
+			return Base58.encode(blockBytes);
+
+		} catch (ApiException e) {
+			throw e;
+		} catch (Exception e) {
+			throw this.apiErrorFactory.createError(ApiError.UNKNOWN, e);
+		}
+	}
 }
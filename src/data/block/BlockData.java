@@ -44,6 +44,23 @@ public class BlockData implements Serializable {
 			this.signature = null;
 	}
 
+	/** Shallow copy of <tt>other</tt>, e.g. so cached BlockData can be handed out without risk of modification. */
+	public BlockData(BlockData other) {
+		this.signature = other.signature;
+		this.version = other.version;
+		this.reference = other.reference;
+		this.transactionCount = other.transactionCount;
+		this.totalFees = other.totalFees;
+		this.transactionsSignature = other.transactionsSignature;
+		this.height = other.height;
+		this.timestamp = other.timestamp;
+		this.generatingBalance = other.generatingBalance;
+		this.generatorPublicKey = other.generatorPublicKey;
+		this.generatorSignature = other.generatorSignature;
+		this.atCount = other.atCount;
+		this.atFees = other.atFees;
+	}
+
 	public byte[] getSignature() {
 		return this.signature;
 	}
@@ -6,13 +6,15 @@ public class BlockTransactionData {
 	private byte[] blockSignature;
 	private int sequence;
 	private byte[] transactionSignature;
+	private int blockHeight;
 
 	// Constructors
 
-	public BlockTransactionData(byte[] blockSignature, int sequence, byte[] transactionSignature) {
+	public BlockTransactionData(byte[] blockSignature, int sequence, byte[] transactionSignature, int blockHeight) {
 		this.blockSignature = blockSignature;
 		this.sequence = sequence;
 		this.transactionSignature = transactionSignature;
+		this.blockHeight = blockHeight;
 	}
 
 	// Getters/setters
@@ -29,4 +31,8 @@ public class BlockTransactionData {
 		return this.transactionSignature;
 	}
 
+	public int getBlockHeight() {
+		return this.blockHeight;
+	}
+
 }
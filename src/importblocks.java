@@ -0,0 +1,70 @@
+import java.io.IOException;
+import java.nio.file.Paths;
+
+import qora.block.BlockChain;
+import qora.block.BlockImporter;
+import repository.BlockStore;
+import repository.DataException;
+import repository.RepositoryManager;
+import settings.Settings;
+
+public class importblocks {
+
+	public static void main(String[] args) {
+		if (args.length < 1 || args.length > 3) {
+			System.err.println("usage: importblocks block-dump [checkpoint-interval [legacy-AT-json]]");
+			System.err.println("example: importblocks blocks.dump " + BlockImporter.DEFAULT_CHECKPOINT_INTERVAL + " legacy-ATs.json");
+			System.err.println("checkpoint-interval is number of blocks per repository checkpoint, default " + BlockImporter.DEFAULT_CHECKPOINT_INTERVAL);
+			System.err.println("Blocks already in repository are skipped, so an interrupted import can be rerun with the same dump.");
+			System.exit(1);
+		}
+
+		int checkpointInterval = args.length > 1 ? Integer.parseInt(args[1]) : BlockImporter.DEFAULT_CHECKPOINT_INTERVAL;
+		if (checkpointInterval < 1) {
+			System.err.println("checkpoint-interval must be at least 1");
+			System.exit(1);
+		}
+
+		BlockImporter blockImporter = null;
+		try {
+			blockImporter = args.length > 2 ? new BlockImporter(Paths.get(args[2])) : new BlockImporter();
+		} catch (IOException e) {
+			System.err.println("Couldn't read legacy AT JSON file: " + e.getMessage());
+			System.exit(1);
+		}
+
+		try {
+			test.Common.setRepository();
+			RepositoryManager.setBlockStore(new BlockStore(Settings.getInstance().getBlockStorePath()));
+		} catch (DataException e) {
+			System.err.println("Couldn't connect to repository: " + e.getMessage());
+			System.exit(2);
+		}
+
+		try {
+			BlockChain.validate();
+		} catch (DataException e) {
+			System.err.println("Couldn't validate repository: " + e.getMessage());
+			System.exit(2);
+		}
+
+		long startTimestamp = System.currentTimeMillis();
+
+		try {
+			int importedCount = blockImporter.importBlocks(Paths.get(args[0]), checkpointInterval);
+
+			System.out.println("Imported " + importedCount + " blocks in " + (System.currentTimeMillis() - startTimestamp) / 1000 + " seconds");
+		} catch (IOException | DataException e) {
+			e.printStackTrace();
+		}
+
+		try {
+			test.Common.closeRepository();
+		} catch (DataException e) {
+			e.printStackTrace();
+		}
+
+		RepositoryManager.closeBlockStore();
+	}
+
+}
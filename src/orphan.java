@@ -1,9 +1,8 @@
-import data.block.BlockData;
-import qora.block.Block;
 import qora.block.BlockChain;
+import repository.BlockStore;
 import repository.DataException;
-import repository.Repository;
 import repository.RepositoryManager;
+import settings.Settings;
 
 public class orphan {
 
@@ -17,6 +16,7 @@ public class orphan {
 
 		try {
 			test.Common.setRepository();
+			RepositoryManager.setBlockStore(new BlockStore(Settings.getInstance().getBlockStorePath()));
 		} catch (DataException e) {
 			System.err.println("Couldn't connect to repository: " + e.getMessage());
 			System.exit(2);
@@ -29,15 +29,17 @@ public class orphan {
 			System.exit(2);
 		}
 
-		try (final Repository repository = RepositoryManager.getRepository()) {
-			for (int height = repository.getBlockRepository().getBlockchainHeight(); height > targetHeight; --height) {
-				System.out.println("Orphaning block " + height);
+		if (targetHeight < 1) {
+			System.err.println("new-blockchain-tip-height must be at least 1 as genesis block can't be orphaned");
+			System.exit(1);
+		}
+
+		long startTimestamp = System.currentTimeMillis();
 
-				BlockData blockData = repository.getBlockRepository().fromHeight(height);
-				Block block = new Block(repository, blockData);
-				block.orphan();
-				repository.saveChanges();
-			}
+		try {
+			int orphanCount = BlockChain.rollbackTo(targetHeight);
+
+			System.out.println("Orphaned " + orphanCount + " blocks in " + (System.currentTimeMillis() - startTimestamp) / 1000 + " seconds");
 		} catch (DataException e) {
 			e.printStackTrace();
 		}
@@ -47,6 +49,8 @@ public class orphan {
 		} catch (DataException e) {
 			e.printStackTrace();
 		}
+
+		RepositoryManager.closeBlockStore();
 	}
 
 }
@@ -12,6 +12,7 @@ import qora.assets.Asset;
 import qora.block.Block;
 import qora.block.BlockChain;
 import qora.transaction.Transaction;
+import repository.AccountRepository;
 import repository.BlockRepository;
 import repository.DataException;
 import repository.Repository;
@@ -43,6 +44,9 @@ public class Account {
 	 * Calculate current generating balance for this account.
 	 * <p>
 	 * This is the current confirmed balance minus amounts received in the last <code>BlockChain.BLOCK_RETARGET_INTERVAL</code> blocks.
+	 * <p>
+	 * Amounts received are summed from QORA receipts recorded during block processing, falling back to examining each block's transactions if any
+	 * block is from before receipts were recorded.
 	 * 
 	 * @throws DataException
 	 */
@@ -50,6 +54,18 @@ public class Account {
 		BigDecimal balance = this.getConfirmedBalance(Asset.QORA);
 
 		BlockRepository blockRepository = this.repository.getBlockRepository();
+		AccountRepository accountRepository = this.repository.getAccountRepository();
+
+		// Lowest block height to consider, as below. Genesis block is never considered.
+		int minHeight = Math.max(2, blockRepository.getBlockchainHeight() - BlockChain.BLOCK_RETARGET_INTERVAL + 2);
+
+		if (minHeight >= accountRepository.getQoraReceiptsStartHeight()) {
+			balance = balance.subtract(accountRepository.getQoraReceipts(this.accountData.getAddress(), minHeight));
+
+			// Do not go below 0
+			return balance.max(BigDecimal.ZERO);
+		}
+
 		BlockData blockData = blockRepository.getLastBlock();
 
 		for (int i = 1; i < BlockChain.BLOCK_RETARGET_INTERVAL && blockData != null && blockData.getHeight() > 1; ++i) {
@@ -79,9 +95,16 @@ public class Account {
 
 	public BigDecimal getBalance(long assetId, int confirmations) throws DataException {
 		// Simple case: we only need balance with 1 confirmation
-		if (confirmations == 1)
+		if (confirmations <= 1)
 			return this.getConfirmedBalance(assetId);
 
+		// Balance after block that has required number of confirmations, but never before genesis block
+		int height = Math.max(1, this.repository.getBlockRepository().getBlockchainHeight() - confirmations + 1);
+
+		BigDecimal historicBalance = this.repository.getAccountRepository().getBalanceAtHeight(this.accountData.getAddress(), assetId, height);
+		if (historicBalance != null)
+			return historicBalance;
+
 		/*
 		 * For a balance with more confirmations work back from last block, undoing transactions involving this account, until we have processed required number
 		 * of blocks.
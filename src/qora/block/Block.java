@@ -7,8 +7,17 @@ import java.math.BigDecimal;
 import java.math.BigInteger;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.function.BooleanSupplier;
 
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
@@ -26,15 +35,24 @@ import qora.assets.Asset;
 import qora.crypto.Crypto;
 import qora.transaction.GenesisTransaction;
 import qora.transaction.Transaction;
+import qora.transaction.Transaction.TransactionType;
 import repository.ATRepository;
+import repository.AccountRepository;
 import repository.BlockRepository;
+import repository.BlockStore;
 import repository.DataException;
 import repository.Repository;
+import repository.RepositoryManager;
+import repository.overlay.OverlayRepository;
+import repository.overlay.OverlayUnsupportedException;
+import settings.Settings;
 import transform.TransformationException;
 import transform.block.BlockTransformer;
 import transform.transaction.TransactionTransformer;
 import utils.Base58;
 import utils.NTP;
+import utils.Pair;
+import utils.UInt256;
 
 /*
  * Typical use-case scenarios:
@@ -67,6 +85,7 @@ public class Block {
 		PARENT_DOES_NOT_EXIST(11),
 		BLOCKCHAIN_NOT_EMPTY(12),
 		PARENT_HAS_EXISTING_CHILD(13),
+		CHECKPOINT_MISMATCH(14),
 		TIMESTAMP_OLDER_THAN_PARENT(20),
 		TIMESTAMP_IN_FUTURE(21),
 		TIMESTAMP_MS_INCORRECT(22),
@@ -100,6 +119,15 @@ public class Block {
 
 	// Other properties
 	private static final Logger LOGGER = LogManager.getLogger(Block.class);
+
+	/** Most recent generating balance and corresponding maximum target divided by base target. See {@link #calcUnitTarget(BigDecimal)}. */
+	private static volatile Pair<BigDecimal, UInt256> cachedUnitTarget;
+	private static final BigDecimal MAX_LONG_DECIMAL = BigDecimal.valueOf(Long.MAX_VALUE);
+
+	/** Shared pool for verifying signatures in parallel. */
+	private static ForkJoinPool signatureVerificationPool;
+	/** Shared pool for speculatively validating transactions in parallel. */
+	private static ForkJoinPool transactionValidationPool;
 	protected List<Transaction> transactions;
 
 	protected List<ATStateData> atStates;
@@ -108,6 +136,11 @@ public class Block {
 
 	protected BigDecimal cachedNextGeneratingBalance;
 
+	/** Changes made by processing transactions during successful {@link #isValid()}, for reuse by {@link #process()}, otherwise null. */
+	private OverlayRepository validatedChanges;
+	/** Signature of blockchain's last block when <tt>validatedChanges</tt> were made. */
+	private byte[] validatedParentSignature;
+
 	// Other useful constants
 	public static final int MAX_BLOCK_BYTES = 1048576;
 
@@ -299,8 +332,9 @@ public class Block {
 
 		// Perform calculation
 
-		// Navigate back to first block in previous interval:
-		// XXX: why can't we simply load using block height?
+		// Navigate back to first block in previous interval.
+		// Follow references, rather than loading by height, as this block might not be in the main chain.
+		// Recent blocks are cached by the repository so this doesn't normally need database access.
 		BlockRepository blockRepo = this.repository.getBlockRepository();
 		BlockData firstBlock = this.blockData;
 
@@ -348,26 +382,65 @@ public class Block {
 		return actualBlockTime;
 	}
 
-	private BigInteger calcGeneratorsTarget(Account nextBlockGenerator) throws DataException {
+	/**
+	 * Returns maximum target divided by base target for <tt>generatingBalance</tt>.
+	 * <p>
+	 * Generating balance only changes every BLOCK_RETARGET_INTERVAL blocks so the most recent result is cached.
+	 */
+	private static UInt256 calcUnitTarget(BigDecimal generatingBalance) {
+		Pair<BigDecimal, UInt256> cached = cachedUnitTarget;
+		if (cached != null && cached.getA().compareTo(generatingBalance) == 0)
+			return cached.getB();
+
 		// Start with 32-byte maximum integer representing all possible correct "guesses"
 		// Where a "correct guess" is an integer greater than the threshold represented by calcBlockHash()
-		byte[] targetBytes = new byte[32];
+		byte[] targetBytes = new byte[UInt256.BYTE_LENGTH];
 		Arrays.fill(targetBytes, Byte.MAX_VALUE);
 		BigInteger target = new BigInteger(1, targetBytes);
 
-		// Divide by next block's base target
+		// Divide by base target
 		// So if next block requires a higher generating balance then there are fewer remaining "correct guesses"
-		BigInteger baseTarget = BigInteger.valueOf(calcBaseTarget(calcNextBlockGeneratingBalance()));
-		target = target.divide(baseTarget);
+		target = target.divide(BigInteger.valueOf(calcBaseTarget(generatingBalance)));
+
+		UInt256 unitTarget = UInt256.valueOf(target);
+		cachedUnitTarget = new Pair<BigDecimal, UInt256>(generatingBalance, unitTarget);
+
+		return unitTarget;
+	}
+
+	/**
+	 * Returns generator's target, or null if target doesn't fit in 256 bits and so exceeds any hash.
+	 */
+	private UInt256 calcGeneratorsTarget(Account nextBlockGenerator) throws DataException {
+		UInt256 target = calcUnitTarget(calcNextBlockGeneratingBalance());
 
 		// Multiply by account's generating balance
 		// So the greater the account's generating balance then the greater the remaining "correct guesses"
-		target = target.multiply(nextBlockGenerator.getGeneratingBalance().toBigInteger());
+		BigDecimal generatingBalance = nextBlockGenerator.getGeneratingBalance();
 
-		return target;
+		// Unit target is at least 2^200 so a balance that doesn't fit in a long certainly makes target exceed 256 bits
+		if (generatingBalance.compareTo(MAX_LONG_DECIMAL) > 0)
+			return null;
+
+		return multiplyTarget(target, generatingBalance.longValue());
+	}
+
+	/** Returns <tt>target * multiplier</tt>, or null if result doesn't fit in 256 bits, where null <tt>target</tt> is also too big for 256 bits. */
+	private static UInt256 multiplyTarget(UInt256 target, long multiplier) {
+		if (multiplier == 0)
+			return UInt256.ZERO;
+
+		if (target == null)
+			return null;
+
+		try {
+			return target.multiplyExact(multiplier);
+		} catch (ArithmeticException e) {
+			return null;
+		}
 	}
 
-	private BigInteger calcBlockHash() {
+	private UInt256 calcBlockHash() {
 		byte[] hashData;
 
 		if (this.blockData.getVersion() < 3)
@@ -378,11 +451,11 @@ public class Block {
 		// Calculate 32-byte hash as pseudo-random, but deterministic, integer (unique to this generator for v3+ blocks)
 		byte[] hash = Crypto.digest(hashData);
 
-		// Convert hash to BigInteger form
-		return new BigInteger(1, hash);
+		// Convert hash to unsigned integer form
+		return UInt256.fromBytes(hash);
 	}
 
-	private BigInteger calcNextBlockHash(int nextBlockVersion, byte[] preVersion3GeneratorSignature, PublicKeyAccount nextBlockGenerator) {
+	private UInt256 calcNextBlockHash(int nextBlockVersion, byte[] preVersion3GeneratorSignature, PublicKeyAccount nextBlockGenerator) {
 		byte[] hashData;
 
 		if (nextBlockVersion < 3)
@@ -393,28 +466,32 @@ public class Block {
 		// Calculate 32-byte hash as pseudo-random, but deterministic, integer (unique to this generator for v3+ blocks)
 		byte[] hash = Crypto.digest(hashData);
 
-		// Convert hash to BigInteger form
-		return new BigInteger(1, hash);
+		// Convert hash to unsigned integer form
+		return UInt256.fromBytes(hash);
 	}
 
 	private long calcNextBlockTimestamp(int nextBlockVersion, byte[] nextBlockGeneratorSignature, PrivateKeyAccount nextBlockGenerator) throws DataException {
-		BigInteger hashValue = calcNextBlockHash(nextBlockVersion, nextBlockGeneratorSignature, nextBlockGenerator);
-		BigInteger target = calcGeneratorsTarget(nextBlockGenerator);
+		UInt256 hashValue = calcNextBlockHash(nextBlockVersion, nextBlockGeneratorSignature, nextBlockGenerator);
+		UInt256 target = calcGeneratorsTarget(nextBlockGenerator);
 
 		// If target is zero then generator has no balance so return longest value
-		if (target.compareTo(BigInteger.ZERO) == 0)
+		if (target != null && target.isZero())
 			return Long.MAX_VALUE;
 
 		// Use ratio of "correct guesses" to calculate minimum delay until this generator can forge a block
-		BigInteger seconds = hashValue.divide(target).add(BigInteger.ONE);
-
-		// Calculate next block timestamp using delay
-		BigInteger timestamp = seconds.multiply(BigInteger.valueOf(1000)).add(BigInteger.valueOf(this.blockData.getTimestamp()));
+		// (A target too big for 256 bits exceeds any hash so ratio is zero)
+		long ratio = target == null ? 0 : hashValue.divideSaturated(target);
 
 		// Limit timestamp to maximum long value
-		timestamp = timestamp.min(BigInteger.valueOf(Long.MAX_VALUE));
+		if (ratio >= Long.MAX_VALUE / 1000)
+			return Long.MAX_VALUE;
+
+		// Calculate next block timestamp using delay
+		long delay = (ratio + 1) * 1000;
+		if (delay > Long.MAX_VALUE - this.blockData.getTimestamp())
+			return Long.MAX_VALUE;
 
-		return timestamp.longValue();
+		return this.blockData.getTimestamp() + delay;
 	}
 
 	/**
@@ -610,32 +687,97 @@ public class Block {
 
 	public boolean isSignatureValid() {
 		try {
-			// Check generator's signature first
-			if (!this.generator.verify(this.blockData.getGeneratorSignature(), BlockTransformer.getBytesForGeneratorSignature(this.blockData)))
+			// Signatures don't depend on blockchain state so generator's and transactions' signatures can be checked in parallel
+			List<BooleanSupplier> verifications = new ArrayList<BooleanSupplier>();
+
+			byte[] generatorSignature = this.blockData.getGeneratorSignature();
+			byte[] generatorSignatureBytes = BlockTransformer.getBytesForGeneratorSignature(this.blockData);
+			verifications.add(() -> this.generator.verify(generatorSignature, generatorSignatureBytes));
+
+			// Fetch transactions from repository here as other threads can't use repository
+			for (Transaction transaction : this.getTransactions()) {
+				// For legacy blocks, AT-Transactions aren't included in block's transactions signature so aren't checked
+				if (this.blockData.getVersion() < 4 && transaction.getTransactionData().getType() == TransactionType.AT)
+					continue;
+
+				verifications.add(transaction::isSignatureValid);
+			}
+
+			if (!verifyAll(verifications))
 				return false;
 
-			// Check transactions signature
-			if (!this.generator.verify(this.blockData.getTransactionsSignature(), BlockTransformer.getBytesForTransactionsSignature(this)))
+			// Check transactions signature, without rechecking each transaction's signature
+			if (!this.generator.verify(this.blockData.getTransactionsSignature(), BlockTransformer.getBytesForTransactionsSignature(this, false)))
 				return false;
-		} catch (TransformationException e) {
+		} catch (TransformationException | DataException e) {
 			return false;
 		}
 
 		return true;
 	}
 
+	/**
+	 * Returns whether all verifications pass, running them in parallel if configured.
+	 * <p>
+	 * Parallelism is set by {@link Settings#getSignatureVerificationThreads()}.
+	 * 
+	 * @param verifications
+	 *            must not use repository
+	 * @return true if all verifications pass
+	 */
+	private static boolean verifyAll(List<BooleanSupplier> verifications) {
+		ForkJoinPool pool = getSignatureVerificationPool();
+
+		if (pool == null || verifications.size() < 2)
+			return verifications.stream().allMatch(BooleanSupplier::getAsBoolean);
+
+		try {
+			return pool.submit(() -> verifications.parallelStream().allMatch(BooleanSupplier::getAsBoolean)).get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new RuntimeException("Interrupted while verifying signatures", e);
+		} catch (ExecutionException e) {
+			throw new RuntimeException("Unable to verify signatures", e.getCause());
+		}
+	}
+
+	/** Returns shared signature verification pool, or null if verification should be single-threaded. */
+	private static synchronized ForkJoinPool getSignatureVerificationPool() {
+		int threads = Settings.getInstance().getSignatureVerificationThreads();
+
+		// (Re)create pool if settings have changed, e.g. during tests
+		if (signatureVerificationPool != null && signatureVerificationPool.getParallelism() != threads) {
+			signatureVerificationPool.shutdown();
+			signatureVerificationPool = null;
+		}
+
+		if (signatureVerificationPool == null && threads > 1)
+			signatureVerificationPool = new ForkJoinPool(threads);
+
+		return signatureVerificationPool;
+	}
+
 	/**
 	 * Returns whether Block is valid.
 	 * <p>
 	 * Performs various tests like checking for parent block, correct block timestamp, version, generating balance, etc.
 	 * <p>
+	 * Blocks at checkpoint heights must match checkpoint. Blocks known to lead to a checkpoint skip generating balance and generator checks, see
+	 * {@link BlockChain#isCheckpointed(byte[])}.
+	 * <p>
 	 * Checks block's transactions by testing their validity then processing them.<br>
 	 * Hence <b>calls repository.discardChanges()</b> before returning.
+	 * <p>
+	 * Where possible, transactions are processed into an {@link OverlayRepository} rather than the block's repository. If the block is valid then
+	 * the overlay's changes are kept so a following {@link #process()} can apply them instead of processing transactions again.
 	 * 
 	 * @return ValidationResult.OK if block is valid, or some other ValidationResult otherwise.
 	 * @throws DataException
 	 */
 	public ValidationResult isValid() throws DataException {
+		// Forget changes from any previous validation
+		this.validatedChanges = null;
+
 		// Check parent block exists
 		if (this.blockData.getReference() == null)
 			return ValidationResult.REFERENCE_MISSING;
@@ -668,27 +810,18 @@ public class Block {
 		if (this.blockData.getVersion() < 2 && this.blockData.getATCount() != 0)
 			return ValidationResult.FEATURE_NOT_YET_RELEASED;
 
-		// Check generating balance
-		if (this.blockData.getGeneratingBalance().compareTo(parentBlock.calcNextBlockGeneratingBalance()) != 0)
-			return ValidationResult.GENERATING_BALANCE_INCORRECT;
-
-		// Check generator is allowed to forge this block at this time
-		BigInteger hashValue = this.calcBlockHash();
-		BigInteger target = parentBlock.calcGeneratorsTarget(this.generator);
-
-		// Multiply target by guesses
-		long guesses = (this.blockData.getTimestamp() - parentBlockData.getTimestamp()) / 1000;
-		BigInteger lowerTarget = target.multiply(BigInteger.valueOf(guesses - 1));
-		target = target.multiply(BigInteger.valueOf(guesses));
-
-		// Generator's target must exceed block's hashValue threshold
-		if (hashValue.compareTo(target) >= 0)
-			return ValidationResult.GENERATOR_NOT_ACCEPTED;
-
-		// XXX Odd gen1 test: "CHECK IF FIRST BLOCK OF USER"
-		// Is the comment wrong? Does each second elapsed allows generator to test a new "target" window against hashValue?
-		if (hashValue.compareTo(lowerTarget) < 0)
-			return ValidationResult.GENERATOR_NOT_ACCEPTED;
+		// Block at checkpoint height must be checkpointed block
+		int height = parentBlockData.getHeight() + 1;
+		byte[] checkpointSignature = BlockChain.getCheckpointSignature(height);
+		if (checkpointSignature != null && !Arrays.equals(this.getSignature(), checkpointSignature))
+			return ValidationResult.CHECKPOINT_MISMATCH;
+
+		// Whether generator was allowed to forge block is settled for blocks leading to a checkpoint
+		if (!BlockChain.isCheckpointed(this.getSignature())) {
+			ValidationResult generatorResult = this.validateGenerator(parentBlock);
+			if (generatorResult != ValidationResult.OK)
+				return generatorResult;
+		}
 
 		// CIYAM ATs
 		if (this.blockData.getATCount() != 0) {
@@ -722,33 +855,30 @@ public class Block {
 
 		// Check transactions
 		try {
-			for (Transaction transaction : this.getTransactions()) {
-				// GenesisTransactions are not allowed (GenesisBlock overrides isValid() to allow them)
-				if (transaction instanceof GenesisTransaction)
-					return ValidationResult.GENESIS_TRANSACTIONS_INVALID;
-
-				// Check timestamp and deadline
-				if (transaction.getTransactionData().getTimestamp() > this.blockData.getTimestamp()
-						|| transaction.getDeadline() <= this.blockData.getTimestamp())
-					return ValidationResult.TRANSACTION_TIMESTAMP_INVALID;
-
-				// Check transaction is even valid
-				// NOTE: in Gen1 there was an extra block height passed to DeployATTransaction.isValid
-				Transaction.ValidationResult validationResult = transaction.isValid();
-				if (validationResult != Transaction.ValidationResult.OK) {
-					LOGGER.error("Error during transaction validation, tx " + Base58.encode(transaction.getTransactionData().getSignature()) + ": "
-							+ validationResult.name());
-					return ValidationResult.TRANSACTION_INVALID;
-				}
+			List<Transaction> transactions = this.getTransactions();
 
-				// Process transaction to make sure other transactions validate properly
-				try {
-					transaction.process();
-				} catch (Exception e) {
-					LOGGER.error("Exception during transaction validation, tx " + Base58.encode(transaction.getTransactionData().getSignature()), e);
-					e.printStackTrace();
-					return ValidationResult.TRANSACTION_PROCESSING_FAILED;
-				}
+			// Results for transactions that could be validated ahead of time, in parallel, otherwise null
+			Transaction.ValidationResult[] speculativeResults = this.validateIndependentTransactions(transactions);
+
+			// Process transactions into an overlay so we don't write to repository and can reuse the changes in process()
+			OverlayRepository overlayRepository = new OverlayRepository(this.repository);
+
+			ValidationResult transactionsResult;
+			try {
+				transactionsResult = this.validateTransactions(overlayRepository, transactions, speculativeResults);
+			} catch (OverlayUnsupportedException e) {
+				// Some transaction needs something the overlay can't do, e.g. issuing an asset, so validate the old way
+				LOGGER.debug("Falling back to validating block transactions using repository: " + e.getMessage());
+				overlayRepository = null;
+				transactionsResult = this.validateTransactions(this.repository, transactions, speculativeResults);
+			}
+
+			if (transactionsResult != ValidationResult.OK)
+				return transactionsResult;
+
+			if (overlayRepository != null) {
+				this.validatedChanges = overlayRepository;
+				this.validatedParentSignature = parentBlockData.getSignature();
 			}
 		} catch (DataException e) {
 			return ValidationResult.TRANSACTION_TIMESTAMP_INVALID;
@@ -768,6 +898,200 @@ public class Block {
 		return ValidationResult.OK;
 	}
 
+	/**
+	 * Checks block's generating balance and that block's generator was allowed to forge block at block's timestamp.
+	 * 
+	 * @param parentBlock
+	 * @return ValidationResult.OK if generator is valid, or some other ValidationResult otherwise.
+	 * @throws DataException
+	 */
+	private ValidationResult validateGenerator(Block parentBlock) throws DataException {
+		// Check generating balance
+		if (this.blockData.getGeneratingBalance().compareTo(parentBlock.calcNextBlockGeneratingBalance()) != 0)
+			return ValidationResult.GENERATING_BALANCE_INCORRECT;
+
+		// Check generator is allowed to forge this block at this time
+		UInt256 hashValue = this.calcBlockHash();
+		UInt256 target = parentBlock.calcGeneratorsTarget(this.generator);
+
+		// Multiply target by guesses
+		long guesses = (this.blockData.getTimestamp() - parentBlock.getBlockData().getTimestamp()) / 1000;
+
+		// No guesses means zero target, which no hash is below
+		if (guesses < 1)
+			return ValidationResult.GENERATOR_NOT_ACCEPTED;
+
+		// Null targets are too big for 256 bits and so exceed any hash
+		UInt256 lowerTarget = multiplyTarget(target, guesses - 1);
+		target = multiplyTarget(target, guesses);
+
+		// Generator's target must exceed block's hashValue threshold
+		if (target != null && hashValue.compareTo(target) >= 0)
+			return ValidationResult.GENERATOR_NOT_ACCEPTED;
+
+		// XXX Odd gen1 test: "CHECK IF FIRST BLOCK OF USER"
+		// Is the comment wrong? Does each second elapsed allows generator to test a new "target" window against hashValue?
+		if (lowerTarget == null || hashValue.compareTo(lowerTarget) < 0)
+			return ValidationResult.GENERATOR_NOT_ACCEPTED;
+
+		return ValidationResult.OK;
+	}
+
+	/**
+	 * Checks block's transactions by testing their validity then processing them, in block order, using <tt>repository</tt>.
+	 * <p>
+	 * If <tt>repository</tt> isn't this block's repository then transactions are rebound to it first.
+	 * 
+	 * @param repository
+	 * @param transactions
+	 * @param speculativeResults
+	 *            from {@link #validateIndependentTransactions(List)}, can be null
+	 * @return ValidationResult.OK if transactions are valid, or some other ValidationResult otherwise.
+	 * @throws DataException
+	 * @throws OverlayUnsupportedException
+	 *             if <tt>repository</tt> is an overlay that can't handle a transaction
+	 */
+	private ValidationResult validateTransactions(Repository repository, List<Transaction> transactions, Transaction.ValidationResult[] speculativeResults)
+			throws DataException {
+		for (int i = 0; i < transactions.size(); ++i) {
+			Transaction transaction = transactions.get(i);
+
+			// GenesisTransactions are not allowed (GenesisBlock overrides isValid() to allow them)
+			if (transaction instanceof GenesisTransaction)
+				return ValidationResult.GENESIS_TRANSACTIONS_INVALID;
+
+			// Check timestamp and deadline
+			if (transaction.getTransactionData().getTimestamp() > this.blockData.getTimestamp()
+					|| transaction.getDeadline() <= this.blockData.getTimestamp())
+				return ValidationResult.TRANSACTION_TIMESTAMP_INVALID;
+
+			if (repository != this.repository)
+				transaction = Transaction.fromData(repository, transaction.getTransactionData());
+
+			// Check transaction is even valid
+			// NOTE: in Gen1 there was an extra block height passed to DeployATTransaction.isValid
+			Transaction.ValidationResult validationResult = speculativeResults != null ? speculativeResults[i] : null;
+			if (validationResult == null)
+				validationResult = transaction.isValid();
+
+			if (validationResult != Transaction.ValidationResult.OK) {
+				LOGGER.error("Error during transaction validation, tx " + Base58.encode(transaction.getTransactionData().getSignature()) + ": "
+						+ validationResult.name());
+				return ValidationResult.TRANSACTION_INVALID;
+			}
+
+			// Process transaction to make sure other transactions validate properly
+			try {
+				transaction.process();
+			} catch (OverlayUnsupportedException e) {
+				// Let caller fall back to not using overlay
+				throw e;
+			} catch (Exception e) {
+				LOGGER.error("Exception during transaction validation, tx " + Base58.encode(transaction.getTransactionData().getSignature()), e);
+				e.printStackTrace();
+				return ValidationResult.TRANSACTION_PROCESSING_FAILED;
+			}
+		}
+
+		return ValidationResult.OK;
+	}
+
+	/**
+	 * Speculatively validate, in parallel, transactions whose validity can't be affected by earlier transactions in this block.
+	 * <p>
+	 * A transaction is independent if none of the state it reads during validation is modified by any earlier transaction in the block, so
+	 * validating it against the pre-block state gives the same result as validating it after processing earlier transactions. Dependent
+	 * transactions are left for serial validation. See {@link Transaction#getReadStateKeys()} and {@link Transaction#getWrittenStateKeys()}.
+	 * <p>
+	 * Each thread validates using its own repository session, which only sees saved changes, so this is skipped if our repository has unsaved
+	 * changes. Parallelism is set by {@link Settings#getTransactionValidationThreads()}.
+	 * 
+	 * @param transactions
+	 * @return validation results indexed as <tt>transactions</tt>, with null for transactions needing serial validation, or null if skipped
+	 * @throws DataException
+	 */
+	private Transaction.ValidationResult[] validateIndependentTransactions(List<Transaction> transactions) throws DataException {
+		ForkJoinPool pool = getTransactionValidationPool();
+		if (pool == null || transactions.size() < 2 || this.repository.hasUncommittedChanges())
+			return null;
+
+		// Find independent transactions, in block order
+		List<Integer> independentIndexes = new ArrayList<Integer>();
+		Set<String> writtenKeys = new HashSet<String>();
+
+		for (int i = 0; i < transactions.size(); ++i) {
+			Transaction transaction = transactions.get(i);
+
+			Set<String> readKeys = transaction.getReadStateKeys();
+			if (readKeys != null && Collections.disjoint(readKeys, writtenKeys))
+				independentIndexes.add(i);
+
+			Set<String> transactionWrittenKeys = transaction.getWrittenStateKeys();
+			// If we can't tell what this transaction modifies then all later transactions are dependent
+			if (transactionWrittenKeys == null)
+				break;
+
+			writtenKeys.addAll(transactionWrittenKeys);
+		}
+
+		if (independentIndexes.size() < 2)
+			return null;
+
+		// Split independent transactions between threads, each using its own repository session
+		Transaction.ValidationResult[] results = new Transaction.ValidationResult[transactions.size()];
+		int threadCount = Math.min(pool.getParallelism(), independentIndexes.size());
+		List<Callable<Void>> tasks = new ArrayList<Callable<Void>>();
+
+		for (int t = 0; t < threadCount; ++t) {
+			List<Integer> taskIndexes = independentIndexes.subList(t * independentIndexes.size() / threadCount,
+					(t + 1) * independentIndexes.size() / threadCount);
+
+			tasks.add(() -> {
+				try (final Repository repository = RepositoryManager.getRepository()) {
+					for (int index : taskIndexes) {
+						Transaction transaction = Transaction.fromData(repository, transactions.get(index).getTransactionData());
+						results[index] = transaction.isValid();
+					}
+
+					repository.discardChanges();
+				} catch (DataException | RuntimeException e) {
+					// Leave remaining transactions for serial validation, which will encounter the same problem if it isn't transient
+					LOGGER.debug("Speculative transaction validation failed", e);
+				}
+
+				return null;
+			});
+		}
+
+		try {
+			for (Future<Void> future : pool.invokeAll(tasks))
+				future.get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new DataException("Interrupted while validating transactions", e);
+		} catch (ExecutionException e) {
+			throw new DataException("Unable to validate transactions", e.getCause());
+		}
+
+		return results;
+	}
+
+	/** Returns shared transaction validation pool, or null if validation should be serial. */
+	private static synchronized ForkJoinPool getTransactionValidationPool() {
+		int threads = Settings.getInstance().getTransactionValidationThreads();
+
+		// (Re)create pool if settings have changed, e.g. during tests
+		if (transactionValidationPool != null && transactionValidationPool.getParallelism() != threads) {
+			transactionValidationPool.shutdown();
+			transactionValidationPool = null;
+		}
+
+		if (transactionValidationPool == null && threads > 1)
+			transactionValidationPool = new ForkJoinPool(threads);
+
+		return transactionValidationPool;
+	}
+
 	/**
 	 * Execute CIYAM ATs for this block.
 	 * <p>
@@ -807,11 +1131,30 @@ public class Block {
 	}
 
 	public void process() throws DataException {
+		// Batch up the many small writes (transactions, payments, block-transaction links) made while processing
+		this.repository.setBatchWrites(true);
+
+		// Changes from validation are only usable if nothing has changed since
+		BlockData latestBlockData = this.repository.getBlockRepository().getLastBlock();
+		OverlayRepository validatedChanges = this.validatedChanges;
+		this.validatedChanges = null;
+
+		if (validatedChanges != null && (latestBlockData == null || !Arrays.equals(latestBlockData.getSignature(), this.validatedParentSignature)
+				|| this.repository.hasUncommittedChanges()))
+			validatedChanges = null;
+
+		// Record balance changes made by this block
+		AccountRepository accountRepository = this.repository.getAccountRepository();
+		accountRepository.startBalanceHistory();
+
 		// Process transactions (we'll link them to this block after saving the block itself)
 		// AT-generated transactions are already added to our transactions so no special handling is needed here.
 		List<Transaction> transactions = this.getTransactions();
-		for (Transaction transaction : transactions)
-			transaction.process();
+		if (validatedChanges != null)
+			validatedChanges.apply();
+		else
+			for (Transaction transaction : transactions)
+				transaction.process();
 
 		// If fees are non-zero then add fees to generator's balance
 		BigDecimal blockFee = this.blockData.getTotalFees();
@@ -829,27 +1172,72 @@ public class Block {
 			atRepository.save(atState);
 		}
 
-		// Link block into blockchain by fetching signature of highest block and setting that as our reference
-		int blockchainHeight = this.repository.getBlockRepository().getBlockchainHeight();
-		BlockData latestBlockData = this.repository.getBlockRepository().fromHeight(blockchainHeight);
-		if (latestBlockData != null)
+		// Link block into blockchain using signature of highest block as our reference
+		int blockchainHeight = 0;
+		if (latestBlockData != null) {
 			this.blockData.setReference(latestBlockData.getSignature());
+			blockchainHeight = latestBlockData.getHeight();
+		}
 
 		this.blockData.setHeight(blockchainHeight + 1);
 		this.repository.getBlockRepository().save(this.blockData);
 
+		// Keep block's serialized form so it can be served without re-serializing
+		BlockStore blockStore = RepositoryManager.getBlockStore();
+		if (blockStore != null)
+			try {
+				blockStore.save(this.blockData.getHeight(), this.blockData.getSignature(), BlockTransformer.toBytes(this));
+			} catch (TransformationException e) {
+				throw new DataException("Unable to serialize block for block store", e);
+			}
+
 		// Link transactions to this block, thus removing them from unconfirmed transactions list.
 		for (int sequence = 0; sequence < transactions.size(); ++sequence) {
 			Transaction transaction = transactions.get(sequence);
 
 			// Link transaction to this block
 			BlockTransactionData blockTransactionData = new BlockTransactionData(this.getSignature(), sequence,
-					transaction.getTransactionData().getSignature());
+					transaction.getTransactionData().getSignature(), this.blockData.getHeight());
 			this.repository.getBlockRepository().save(blockTransactionData);
 		}
+
+		// Record QORA received by each account, for generating balance calculations
+		this.saveQoraReceipts(transactions);
+
+		accountRepository.saveBalanceHistory(this.blockData.getHeight());
+
+		// Flush any remaining batched writes
+		this.repository.setBatchWrites(false);
 	}
 
 	public void orphan() throws DataException {
+		this.orphanExceptHistory();
+
+		// Delete ATStateData for this height
+		this.repository.getATRepository().deleteATStates(this.blockData.getHeight());
+
+		// Delete QORA receipts for this height
+		this.repository.getAccountRepository().deleteQoraReceipts(this.blockData.getHeight());
+
+		// Delete balance history for this height
+		this.repository.getAccountRepository().deleteBalanceHistory(this.blockData.getHeight());
+
+		// Remove this and any following blocks from block store
+		BlockStore blockStore = RepositoryManager.getBlockStore();
+		if (blockStore != null)
+			blockStore.truncate(this.blockData.getHeight());
+	}
+
+	/**
+	 * Orphans block, except for deleting AT states, QORA receipts and balance history at block's height, and removing block from block store.
+	 * <p>
+	 * Nothing used while orphaning reads those, so when orphaning many blocks they can be dealt with for all blocks at once. See
+	 * {@link BlockChain#rollbackTo(int)}.
+	 * 
+	 * @throws DataException
+	 */
+	// NB: no visibility modifier so only callable from within same package
+	void orphanExceptHistory() throws DataException {
 		// Orphan transactions in reverse order, and unlink them from this block
 		// AT-generated transactions are already added to our transactions so no special handling is needed here.
 		List<Transaction> transactions = this.getTransactions();
@@ -858,7 +1246,7 @@ public class Block {
 			transaction.orphan();
 
 			BlockTransactionData blockTransactionData = new BlockTransactionData(this.getSignature(), sequence,
-					transaction.getTransactionData().getSignature());
+					transaction.getTransactionData().getSignature(), this.blockData.getHeight());
 			this.repository.getBlockRepository().delete(blockTransactionData);
 		}
 
@@ -867,19 +1255,48 @@ public class Block {
 		if (blockFee.compareTo(BigDecimal.ZERO) > 0)
 			this.generator.setConfirmedBalance(Asset.QORA, this.generator.getConfirmedBalance(Asset.QORA).subtract(blockFee));
 
-		// Return AT fees and delete AT states from repository
-		ATRepository atRepository = this.repository.getATRepository();
+		// Return AT fees
 		for (ATStateData atState : this.getATStates()) {
 			Account atAccount = new Account(this.repository, atState.getATAddress());
 
 			// Return AT-generated fees to AT accounts
 			atAccount.setConfirmedBalance(Asset.QORA, atAccount.getConfirmedBalance(Asset.QORA).add(atState.getFees()));
 		}
-		// Delete ATStateData for this height
-		atRepository.deleteATStates(this.blockData.getHeight());
 
 		// Delete block from blockchain
 		this.repository.getBlockRepository().delete(this.blockData);
 	}
 
+	/**
+	 * Record, per account, total of positive QORA amounts from this block's transactions.
+	 * <p>
+	 * Used by {@link Account#getGeneratingBalance()} instead of re-examining recent blocks' transactions.
+	 * 
+	 * @param transactions
+	 * @throws DataException
+	 */
+	private void saveQoraReceipts(List<Transaction> transactions) throws DataException {
+		Map<String, BigDecimal> receipts = new LinkedHashMap<String, BigDecimal>();
+
+		for (Transaction transaction : transactions) {
+			// Only recipients can receive QORA. Check each address once as getAmount() already totals per transaction.
+			Set<String> checkedAddresses = new HashSet<String>();
+
+			for (Account recipient : transaction.getRecipientAccounts()) {
+				if (!checkedAddresses.add(recipient.getAddress()))
+					continue;
+
+				BigDecimal amount = transaction.getAmount(recipient);
+
+				// Positive amounts only
+				if (amount.compareTo(BigDecimal.ZERO) > 0)
+					receipts.merge(recipient.getAddress(), amount, BigDecimal::add);
+			}
+		}
+
+		AccountRepository accountRepository = this.repository.getAccountRepository();
+		for (Map.Entry<String, BigDecimal> receipt : receipts.entrySet())
+			accountRepository.saveQoraReceipt(receipt.getKey(), this.blockData.getHeight(), receipt.getValue());
+	}
+
 }
@@ -1,12 +1,19 @@
 package qora.block;
 
 import java.math.BigDecimal;
+import java.nio.ByteBuffer;
 import java.sql.SQLException;
+import java.util.Collections;
+import java.util.Set;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
 
 import data.assets.AssetData;
 import data.block.BlockData;
 import qora.assets.Asset;
 import repository.BlockRepository;
+import repository.BlockStore;
 import repository.DataException;
 import repository.Repository;
 import repository.RepositoryManager;
@@ -18,6 +25,8 @@ import settings.Settings;
  */
 public class BlockChain {
 
+	private static final Logger LOGGER = LogManager.getLogger(BlockChain.class);
+
 	/** Minimum Qora balance for use in calculations. */
 	public static final BigDecimal MIN_BALANCE = BigDecimal.valueOf(1L).setScale(8);
 	/** Maximum Qora balance. */
@@ -30,6 +39,8 @@ public class BlockChain {
 	public static final long MAX_BLOCK_TIME = 300;
 	/** Maximum acceptable timestamp disagreement offset in milliseconds. */
 	public static final long BLOCK_TIMESTAMP_MARGIN = 500L;
+	/** Number of blocks orphaned between progress reports in {@link #rollbackTo(int)}. */
+	private static final int ROLLBACK_PROGRESS_INTERVAL = 100;
 
 	// Various release timestamps / block heights
 	private static final int MESSAGE_RELEASE_HEIGHT = 99000;
@@ -45,6 +56,104 @@ public class BlockChain {
 	private static final long ARBITRARY_TRANSACTION_V2_TIMESTAMP = 1552500000000L; // 2019-03-13T18:00:00+00:00 // Future Qora v2 ARBITRARY transactions
 	private static final long DEPLOY_AT_V2_TIMESTAMP = 1552500000000L; // 2019-03-13T18:00:00+00:00 // Future Qora v2 DEPLOY AT transactions
 
+	/** Signatures of blocks known to lead to a checkpoint, see {@link #setCheckpointedChain(Set)}. */
+	private static volatile Set<ByteBuffer> checkpointedChain = Collections.emptySet();
+
+	/**
+	 * Returns whether block with <tt>signature</tt> is known to lead to a checkpoint in {@link Settings#getCheckpoints()}.
+	 * <p>
+	 * For such blocks, {@link Block#isValid()} skips the costly checks of whether their generators were allowed to forge them, i.e. generating
+	 * balance and forging target. Block and transaction signatures are still checked, as are transactions themselves, so block contents can't be
+	 * forged.
+	 * <p>
+	 * Blocks only lead to a checkpoint once their reference chain has been followed to the checkpoint's signature, e.g. by
+	 * {@link BlockImporter#scanCheckpointedChain(java.io.InputStream)}. As each block's generator signature covers its reference, a validly signed
+	 * block from a different chain can't lead to a checkpoint, so still gets full checks.
+	 * <p>
+	 * Checkpoints must come from a trusted source, e.g. a fully validated node.
+	 * 
+	 * @param signature
+	 *            block's signature
+	 * @return true if block can be validated with fewer checks
+	 */
+	public static boolean isCheckpointed(byte[] signature) {
+		return checkpointedChain.contains(ByteBuffer.wrap(signature));
+	}
+
+	/**
+	 * Sets signatures of blocks whose reference chain has been followed to a checkpoint, replacing any previous ones.
+	 * 
+	 * @param signatures
+	 *            block signatures, wrapped, or empty set to validate all blocks with full checks
+	 */
+	public static void setCheckpointedChain(Set<ByteBuffer> signatures) {
+		checkpointedChain = signatures;
+	}
+
+	/**
+	 * Returns signature that block at <tt>height</tt> must have, or null if <tt>height</tt> isn't a checkpoint.
+	 * 
+	 * @param height
+	 * @return signature, or null
+	 */
+	public static byte[] getCheckpointSignature(int height) {
+		return Settings.getInstance().getCheckpoints().get(height);
+	}
+
+	/**
+	 * Orphans blocks above <tt>height</tt>, e.g. to rewind past a bad fork, saving changes once at the end.
+	 * <p>
+	 * Blocks are orphaned highest first as with {@link Block#orphan()}, but AT states, QORA receipts and balance history are deleted for all
+	 * orphaned blocks at once afterwards. Using one repository transaction also means each account's balances are only read once.
+	 * <p>
+	 * If orphaning fails then no changes are saved. Orphaned blocks are only removed from the block store once changes are saved.
+	 * 
+	 * @param height
+	 *            height of new last block, at least 1 as genesis block can't be orphaned
+	 * @return number of blocks orphaned
+	 * @throws DataException
+	 */
+	public static int rollbackTo(int height) throws DataException {
+		if (height < 1)
+			throw new IllegalArgumentException("Genesis block can't be orphaned");
+
+		try (final Repository repository = RepositoryManager.getRepository()) {
+			try {
+				BlockRepository blockRepository = repository.getBlockRepository();
+				int blockchainHeight = blockRepository.getBlockchainHeight();
+				int orphanCount = 0;
+
+				for (int blockHeight = blockchainHeight; blockHeight > height; --blockHeight) {
+					BlockData blockData = blockRepository.fromHeight(blockHeight);
+					new Block(repository, blockData).orphanExceptHistory();
+
+					if (++orphanCount % ROLLBACK_PROGRESS_INTERVAL == 0)
+						LOGGER.info(String.format("Orphaned down to height %d: %d of %d blocks", blockHeight, orphanCount, blockchainHeight - height));
+				}
+
+				if (orphanCount == 0)
+					return 0;
+
+				// Delete history for all orphaned blocks at once
+				repository.getATRepository().deleteATStatesAbove(height);
+				repository.getAccountRepository().deleteQoraReceiptsAbove(height);
+				repository.getAccountRepository().deleteBalanceHistoryAbove(height);
+
+				repository.saveChanges();
+
+				// Only remove orphaned blocks from block store once orphaning is saved, so block store doesn't lose blocks repository still has
+				BlockStore blockStore = RepositoryManager.getBlockStore();
+				if (blockStore != null)
+					blockStore.truncate(height + 1);
+
+				return orphanCount;
+			} finally {
+				// Drop changes if orphaning failed
+				repository.discardChanges();
+			}
+		}
+	}
+
 	/**
 	 * Some sort start-up/initialization/checking method.
 	 * 
@@ -0,0 +1,399 @@
+package qora.block;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedReader;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.json.simple.JSONArray;
+import org.json.simple.JSONObject;
+import org.json.simple.JSONValue;
+import org.json.simple.parser.ParseException;
+
+import com.google.common.hash.HashCode;
+import com.google.common.primitives.Bytes;
+
+import data.at.ATData;
+import data.at.ATStateData;
+import data.block.BlockData;
+import data.transaction.ATTransactionData;
+import data.transaction.TransactionData;
+import qora.assets.Asset;
+import qora.block.Block.ValidationResult;
+import qora.crypto.Crypto;
+import repository.DataException;
+import repository.Repository;
+import repository.RepositoryManager;
+import settings.Settings;
+import transform.TransformationException;
+import transform.block.BlockTransformer;
+import transform.transaction.ATTransactionTransformer;
+import utils.Base58;
+import utils.Pair;
+import utils.Triple;
+
+/**
+ * Imports serialized blocks, e.g. from a v1 peer or a local block dump.
+ * <p>
+ * A block dump is a sequence of blocks in blockchain order, each serialized by {@link BlockTransformer#toBytes(Block)} and preceded by its length
+ * as a big-endian int.
+ * <p>
+ * Blocks from v1 nodes don't include AT transactions and fees, so these can be supplied separately as legacy AT JSON.
+ */
+public class BlockImporter {
+
+	private static final Logger LOGGER = LogManager.getLogger(BlockImporter.class);
+
+	public static final int DEFAULT_CHECKPOINT_INTERVAL = 500;
+
+	/** Legacy AT fees, keyed by AT address and block height. */
+	private final Map<Pair<String, Integer>, BigDecimal> legacyATFees;
+	/** Legacy AT transactions, keyed by block height. */
+	private final Map<Integer, List<TransactionData>> legacyATTransactions;
+
+	/** Importer for blocks with no legacy ATs. */
+	public BlockImporter() {
+		this.legacyATFees = Collections.emptyMap();
+		this.legacyATTransactions = Collections.emptyMap();
+	}
+
+	/**
+	 * Importer using legacy AT transactions and fees from JSON file.
+	 *
+	 * @param legacyATPath
+	 * @throws IOException
+	 *             if JSON file can't be read or parsed
+	 */
+	public BlockImporter(Path legacyATPath) throws IOException {
+		this.legacyATFees = new HashMap<Pair<String, Integer>, BigDecimal>();
+		this.legacyATTransactions = new HashMap<Integer, List<TransactionData>>();
+
+		JSONArray json = null;
+
+		try (BufferedReader in = Files.newBufferedReader(legacyATPath)) {
+			json = (JSONArray) JSONValue.parseWithException(in);
+		} catch (ParseException e) {
+			throw new IOException("Couldn't parse legacy AT JSON file", e);
+		}
+
+		for (Object o : json) {
+			JSONObject entry = (JSONObject) o;
+
+			int height = Integer.parseInt((String) entry.get("height"));
+			long timestamp = (Long) entry.get("timestamp");
+
+			JSONArray transactionEntries = (JSONArray) entry.get("transactions");
+
+			List<TransactionData> transactions = new ArrayList<TransactionData>();
+
+			for (Object t : transactionEntries) {
+				JSONObject transactionEntry = (JSONObject) t;
+
+				String recipient = (String) transactionEntry.get("recipient");
+				String sender = (String) transactionEntry.get("sender");
+				BigDecimal amount = new BigDecimal((String) transactionEntry.get("amount")).setScale(8);
+
+				if (recipient.equals("1111111111111111111111111")) {
+					// fee
+					this.legacyATFees.put(new Pair<String, Integer>(sender, height), amount);
+				} else {
+					// Actual AT Transaction
+					String messageString = (String) transactionEntry.get("message");
+					byte[] message = messageString.isEmpty() ? new byte[0] : HashCode.fromString(messageString).asBytes();
+					int sequence = ((Long) transactionEntry.get("seq")).intValue();
+					byte[] reference = Base58.decode((String) transactionEntry.get("reference"));
+
+					// reference is AT's deploy tx signature
+					// sender's public key is genesis account
+					// zero fee
+					// timestamp is block's timestamp
+					// signature = duplicated hash of transaction data
+
+					BigDecimal fee = BigDecimal.ZERO.setScale(8);
+
+					TransactionData transactionData = new ATTransactionData(sender, recipient, amount, Asset.QORA, message, fee, timestamp, reference);
+					byte[] digest;
+					try {
+						digest = Crypto.digest(ATTransactionTransformer.toBytes(transactionData));
+						byte[] signature = Bytes.concat(digest, digest);
+
+						transactionData = new ATTransactionData(sender, recipient, amount, Asset.QORA, message, fee, timestamp, reference, signature);
+					} catch (TransformationException e) {
+						throw new RuntimeException("Couldn't transform AT Transaction into bytes", e);
+					}
+
+					if (sequence > transactions.size())
+						transactions.add(transactionData);
+					else
+						transactions.add(sequence, transactionData);
+				}
+			}
+
+			if (!transactions.isEmpty())
+				this.legacyATTransactions.put(height, transactions);
+		}
+	}
+
+	/**
+	 * Returns block from serialized bytes, including any legacy AT transactions and fees.
+	 *
+	 * @param repository
+	 * @param blockBytes
+	 * @param height
+	 *            block's height, for matching AT states and legacy ATs
+	 * @return Block
+	 * @throws TransformationException
+	 *             if bytes can't be parsed
+	 * @throws DataException
+	 */
+	public Block toBlock(Repository repository, byte[] blockBytes, int height) throws TransformationException, DataException {
+		return this.toBlock(repository, BlockTransformer.fromBytes(blockBytes), height);
+	}
+
+	private Block toBlock(Repository repository, Triple<BlockData, List<TransactionData>, List<ATStateData>> blockInfo, int height) throws DataException {
+		BlockData blockData = blockInfo.getA();
+
+		// Adjust AT state data to include fees
+		List<ATStateData> atStates = new ArrayList<ATStateData>();
+		for (ATStateData atState : blockInfo.getC()) {
+			BigDecimal fees = this.legacyATFees.get(new Pair<String, Integer>(atState.getATAddress(), height));
+			if (fees == null)
+				fees = atState.getFees();
+
+			ATData atData = repository.getATRepository().fromATAddress(atState.getATAddress());
+
+			atStates.add(new ATStateData(atState.getATAddress(), height, atData.getCreation(), null, atState.getStateHash(), fees));
+		}
+
+		// AT-Transaction injection goes here!
+		List<TransactionData> transactions = blockInfo.getB();
+		List<TransactionData> atTransactions = this.legacyATTransactions.get(height);
+		if (atTransactions != null) {
+			transactions.addAll(0, atTransactions);
+			blockData.setTransactionCount(blockData.getTransactionCount() + atTransactions.size());
+		}
+
+		return new Block(repository, blockData, transactions, atStates);
+	}
+
+	/**
+	 * Validates and processes blocks from block dump, stopping at end of dump.
+	 * <p>
+	 * Repository is put into bulk-load mode, so saving each block is cheap but isn't durable until a checkpoint, made every <tt>checkpointInterval</tt>
+	 * blocks. Secondary indexes are rebuilt at the end.
+	 * <p>
+	 * Each block is saved before the next is validated, as {@link Block#isValid()} discards unsaved changes.
+	 * <p>
+	 * Dump blocks already in the repository are skipped, so an interrupted import can be restarted with the same dump. Blocks are then imported from
+	 * the one following the repository's last block.
+	 *
+	 * @param in
+	 *            block dump
+	 * @param checkpointInterval
+	 *            number of blocks per repository checkpoint
+	 * @return number of blocks imported
+	 * @throws IOException
+	 *             if block dump can't be read or is truncated
+	 * @throws DataException
+	 *             if a block is invalid or doesn't follow the repository's last block, or repository fails
+	 */
+	public int importBlocks(InputStream in, int checkpointInterval) throws IOException, DataException {
+		DataInputStream dump = new DataInputStream(new BufferedInputStream(in));
+
+		int importedCount = 0;
+
+		try (final Repository repository = RepositoryManager.getRepository()) {
+			repository.setBulkLoad(true);
+
+			try {
+				BlockData lastBlockData = repository.getBlockRepository().getLastBlock();
+				int uncheckpointedCount = 0;
+				long startTimestamp = System.currentTimeMillis();
+				byte[] blockBytes;
+
+				while ((blockBytes = readBlockBytes(dump)) != null) {
+					int height = lastBlockData.getHeight() + 1;
+
+					Triple<BlockData, List<TransactionData>, List<ATStateData>> blockInfo;
+					try {
+						blockInfo = BlockTransformer.fromBytes(blockBytes);
+					} catch (TransformationException e) {
+						throw new DataException("Couldn't parse block from dump", e);
+					}
+
+					BlockData blockData = blockInfo.getA();
+
+					if (!Arrays.equals(blockData.getReference(), lastBlockData.getSignature())) {
+						// Already imported?
+						if (repository.getBlockRepository().fromSignature(blockData.getSignature()) != null)
+							continue;
+
+						throw new DataException("Block from dump doesn't follow last block at height " + lastBlockData.getHeight());
+					}
+
+					Block block = this.toBlock(repository, blockInfo, height);
+
+					if (!block.isSignatureValid())
+						throw new DataException("Invalid block signature at height " + height);
+
+					ValidationResult result = block.isValid();
+					if (result != ValidationResult.OK)
+						throw new DataException("Invalid block at height " + height + ", validation result: " + result.name());
+
+					block.process();
+					repository.saveChanges();
+
+					lastBlockData = blockData;
+					++importedCount;
+
+					// In bulk-load mode, saved changes aren't durable until checkpoint, so an interrupted import restarts from here
+					if (++uncheckpointedCount >= checkpointInterval) {
+						repository.checkpoint();
+						uncheckpointedCount = 0;
+
+						long elapsed = Math.max(1, System.currentTimeMillis() - startTimestamp);
+						LOGGER.info(String.format("Imported up to height %d: %d blocks, %.1f blocks/sec", height, importedCount, importedCount * 1000.0 / elapsed));
+					}
+				}
+
+				if (uncheckpointedCount > 0)
+					repository.checkpoint();
+			} finally {
+				// Discard any partially imported block, then rebuild secondary indexes
+				repository.discardChanges();
+
+				LOGGER.info("Rebuilding secondary indexes");
+				repository.setBulkLoad(false);
+			}
+		}
+
+		return importedCount;
+	}
+
+	/**
+	 * Scans block dump, then imports blocks from it, validating blocks that lead to a checkpoint with fewer checks.
+	 * <p>
+	 * See {@link #scanCheckpointedChain(InputStream)} and {@link #importBlocks(InputStream, int)}.
+	 *
+	 * @param dumpPath
+	 *            block dump
+	 * @param checkpointInterval
+	 *            number of blocks per repository checkpoint
+	 * @return number of blocks imported
+	 * @throws IOException
+	 *             if block dump can't be read or is truncated
+	 * @throws DataException
+	 *             if a block is invalid or doesn't follow the repository's last block, or repository fails
+	 */
+	public int importBlocks(Path dumpPath, int checkpointInterval) throws IOException, DataException {
+		try (InputStream in = Files.newInputStream(dumpPath)) {
+			int checkpointedCount = scanCheckpointedChain(in);
+			LOGGER.info("Found " + checkpointedCount + " blocks leading to a checkpoint");
+		}
+
+		try (InputStream in = Files.newInputStream(dumpPath)) {
+			return this.importBlocks(in, checkpointInterval);
+		} finally {
+			BlockChain.setCheckpointedChain(Collections.emptySet());
+		}
+	}
+
+	/**
+	 * Follows reference chain through block dump, passing signatures of blocks that lead to a checkpoint to
+	 * {@link BlockChain#setCheckpointedChain(Set)}.
+	 * <p>
+	 * A block leads to a checkpoint if the following blocks in the dump each reference the one before, up to a block with a checkpoint's signature.
+	 * Only block references and signatures are read, so the scan is quick, but it doesn't validate blocks.
+	 *
+	 * @param in
+	 *            block dump
+	 * @return number of blocks leading to a checkpoint, including checkpointed blocks
+	 * @throws IOException
+	 *             if block dump can't be read or is truncated
+	 * @throws DataException
+	 *             if a block can't be parsed
+	 */
+	public static int scanCheckpointedChain(InputStream in) throws IOException, DataException {
+		DataInputStream dump = new DataInputStream(new BufferedInputStream(in));
+
+		Set<ByteBuffer> checkpointSignatures = new HashSet<ByteBuffer>();
+		for (byte[] checkpointSignature : Settings.getInstance().getCheckpoints().values())
+			checkpointSignatures.add(ByteBuffer.wrap(checkpointSignature));
+
+		Set<ByteBuffer> checkpointedChain = new HashSet<ByteBuffer>();
+		// Signatures of linked blocks since last checkpoint or break in reference chain
+		List<ByteBuffer> linkedSignatures = new ArrayList<ByteBuffer>();
+		byte[] previousSignature = null;
+		byte[] blockBytes;
+
+		// Stop once all checkpoints found, as later blocks can't lead to one
+		while (!checkpointSignatures.isEmpty() && (blockBytes = readBlockBytes(dump)) != null) {
+			Pair<byte[], byte[]> referenceAndSignature;
+			try {
+				referenceAndSignature = BlockTransformer.getReferenceAndSignature(blockBytes);
+			} catch (TransformationException e) {
+				throw new DataException("Couldn't parse block from dump", e);
+			}
+
+			if (!Arrays.equals(referenceAndSignature.getA(), previousSignature))
+				linkedSignatures.clear();
+
+			previousSignature = referenceAndSignature.getB();
+			ByteBuffer signature = ByteBuffer.wrap(previousSignature);
+			linkedSignatures.add(signature);
+
+			if (checkpointSignatures.remove(signature)) {
+				checkpointedChain.addAll(linkedSignatures);
+				linkedSignatures.clear();
+			}
+		}
+
+		BlockChain.setCheckpointedChain(checkpointedChain);
+
+		return checkpointedChain.size();
+	}
+
+	/** Returns next block's bytes from dump, or null at end of dump. */
+	private static byte[] readBlockBytes(DataInputStream dump) throws IOException {
+		// End of dump is only allowed between blocks
+		int firstByte = dump.read();
+		if (firstByte == -1)
+			return null;
+
+		int length;
+		try {
+			length = (firstByte << 24) | (dump.readUnsignedByte() << 16) | (dump.readUnsignedByte() << 8) | dump.readUnsignedByte();
+		} catch (EOFException e) {
+			throw new IOException("Truncated block length in dump", e);
+		}
+
+		if (length < 0 || length > Block.MAX_BLOCK_BYTES)
+			throw new IOException("Bad block length " + length + " in dump");
+
+		byte[] blockBytes = new byte[length];
+		try {
+			dump.readFully(blockBytes);
+		} catch (EOFException e) {
+			throw new IOException("Truncated block in dump", e);
+		}
+
+		return blockBytes;
+	}
+
+}
@@ -1,9 +1,14 @@
 package qora.crypto;
 
+import java.nio.ByteBuffer;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
 import java.util.Arrays;
 
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
+
 import qora.account.Account;
 import utils.Base58;
 
@@ -12,6 +17,25 @@ public class Crypto {
 	public static final byte ADDRESS_VERSION = 58;
 	public static final byte AT_ADDRESS_VERSION = 23;
 
+	/** Number of public key to address mappings to keep. */
+	private static final int ADDRESS_CACHE_SIZE = 10_000;
+
+	/** Addresses keyed by public key, as address derivation is relatively expensive and the same accounts recur frequently. */
+	private static final Cache<ByteBuffer, String> addressCache = CacheBuilder.newBuilder().maximumSize(ADDRESS_CACHE_SIZE).recordStats().build();
+
+	/** Per-thread SHA-256 digest, null if SHA-256 algorithm can't be accessed. */
+	private static final ThreadLocal<MessageDigest> sha256 = ThreadLocal.withInitial(() -> {
+		try {
+			return MessageDigest.getInstance("SHA-256");
+		} catch (NoSuchAlgorithmException e) {
+			return null;
+		}
+	});
+
+	/** Per-thread BROKEN RIPEMD160, reset before each use. */
+	@SuppressWarnings("deprecation")
+	private static final ThreadLocal<BrokenMD160> brokenMD160 = ThreadLocal.withInitial(BrokenMD160::new);
+
 	/**
 	 * Returns 32-byte SHA-256 digest of message passed in input.
 	 * 
@@ -23,13 +47,13 @@ public class Crypto {
 		if (input == null)
 			return null;
 
-		try {
-			// SHA2-256
-			MessageDigest sha256 = MessageDigest.getInstance("SHA-256");
-			return sha256.digest(input);
-		} catch (NoSuchAlgorithmException e) {
+		// SHA2-256
+		MessageDigest sha256 = Crypto.sha256.get();
+		if (sha256 == null)
 			return null;
-		}
+
+		// digest() also resets, ready for next use
+		return sha256.digest(input);
 	}
 
 	/**
@@ -49,7 +73,8 @@ public class Crypto {
 		byte[] inputHash = digest(input);
 
 		// Use BROKEN RIPEMD160 to create shorter address
-		BrokenMD160 brokenMD160 = new BrokenMD160();
+		BrokenMD160 brokenMD160 = Crypto.brokenMD160.get();
+		brokenMD160.reset();
 		inputHash = brokenMD160.digest(inputHash);
 
 		// Create address data using above hash and addressVersion (prepended)
@@ -70,7 +95,23 @@ public class Crypto {
 	}
 
 	public static String toAddress(byte[] publicKey) {
-		return toAddress(ADDRESS_VERSION, publicKey);
+		String address = addressCache.getIfPresent(ByteBuffer.wrap(publicKey));
+		if (address != null)
+			return address;
+
+		address = toAddress(ADDRESS_VERSION, publicKey);
+
+		// Copy public key as caller might modify their array
+		addressCache.put(ByteBuffer.wrap(publicKey.clone()), address);
+
+		return address;
+	}
+
+	/**
+	 * Returns statistics, e.g. hit rate, for public key to address cache used by {@link #toAddress(byte[])}.
+	 */
+	public static CacheStats getAddressCacheStats() {
+		return addressCache.stats();
 	}
 
 	public static String toATAddress(byte[] signature) {
@@ -78,17 +119,10 @@ public class Crypto {
 	}
 
 	public static boolean isValidAddress(String address) {
-		byte[] addressBytes;
-
-		try {
-			// Attempt Base58 decoding
-			addressBytes = Base58.decode(address);
-		} catch (NumberFormatException e) {
-			return false;
-		}
+		byte[] addressBytes = new byte[Account.ADDRESS_LENGTH];
 
-		// Check address length
-		if (addressBytes.length != Account.ADDRESS_LENGTH)
+		// Attempt Base58 decoding, which also checks address length
+		if (!Base58.decode(address, addressBytes))
 			return false;
 
 		// Check by address type
@@ -2,6 +2,13 @@ package qora.crypto;
 
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
+import java.nio.ByteBuffer;
+import java.security.SecureRandom;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
 
 import org.whispersystems.curve25519.java.*;
 
@@ -91,43 +98,507 @@ public class Ed25519 {
 		return shared_secret;
 	}
 	
-	public static boolean verify(byte[] signature, byte[] message, byte[] publicKey) throws Exception
+	/** Number of decoded public keys to keep, as forger and sender keys recur frequently. */
+	private static final int PUBLIC_KEY_CACHE_SIZE = 1024;
+
+	/** Decoded public keys, as odd multiples of -A ready for scalar multiplication, least recently used first. */
+	@SuppressWarnings("serial")
+	private static final Map<ByteBuffer, ge_cached[]> publicKeyCache = Collections.synchronizedMap(new LinkedHashMap<ByteBuffer, ge_cached[]>(
+			PUBLIC_KEY_CACHE_SIZE * 4 / 3, 0.75f, true) {
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<ByteBuffer, ge_cached[]> eldest) {
+			return this.size() > PUBLIC_KEY_CACHE_SIZE;
+		}
+	});
+
+	/** 2 * d */
+	private static final int[] D2 = {
+		-21827239,-5839606,-30745221,13898782,229458,15978800,-12551817,-6495438,29715968,9444199
+	};
+
+	/** Odd multiples of base point B: B,3B,5B,...,15B */
+	private static final ge_precomp[] BASE_MULTIPLES = new ge_precomp[8];
+
+	private static final SecureRandom BATCH_RANDOM = new SecureRandom();
+	private static final byte[] SCALAR_ZERO = new byte[32];
+	private static final byte[] SCALAR_ONE = new byte[32];
+	private static final byte[] ENCODED_IDENTITY = new byte[32];
+	/** Group order l = 2^252 + 27742317777372353535851937790883648493, little-endian */
+	private static final byte[] GROUP_ORDER = {
+		(byte) 0xed, (byte) 0xd3, (byte) 0xf5, (byte) 0x5c, (byte) 0x1a, (byte) 0x63, (byte) 0x12, (byte) 0x58,
+		(byte) 0xd6, (byte) 0x9c, (byte) 0xf7, (byte) 0xa2, (byte) 0xde, (byte) 0xf9, (byte) 0xde, (byte) 0x14,
+		0, 0, 0, 0, 0, 0, 0, 0,
+		0, 0, 0, 0, 0, 0, 0, (byte) 0x10
+	};
+	private static final ge_p3 BASE_POINT = new ge_p3();
+
+	static {
+		SCALAR_ONE[0] = 1;
+		ENCODED_IDENTITY[0] = 1;
+		ge_scalarmult_base.ge_scalarmult_base(BASE_POINT, SCALAR_ONE);
+
+		// Odd multiples of B, in affine form for mixed addition
+		ge_p1p1 t = new ge_p1p1();
+		ge_p3 B2 = new ge_p3();
+		ge_p3 multiple = new ge_p3();
+		ge_cached cached = new ge_cached();
+		int[] recip = new int[10];
+		int[] x = new int[10];
+		int[] y = new int[10];
+
+		ge_p3_dbl.ge_p3_dbl(t, BASE_POINT);
+		ge_p1p1_to_p3.ge_p1p1_to_p3(B2, t);
+		copy(multiple, BASE_POINT);
+
+		for (int i = 0; i < 8; ++i) {
+			if (i > 0) {
+				ge_p3_to_cached.ge_p3_to_cached(cached, multiple);
+				ge_add.ge_add(t, B2, cached);
+				ge_p1p1_to_p3.ge_p1p1_to_p3(multiple, t);
+			}
+
+			fe_invert.fe_invert(recip, multiple.Z);
+			fe_mul.fe_mul(x, multiple.X, recip);
+			fe_mul.fe_mul(y, multiple.Y, recip);
+
+			ge_precomp precomp = new ge_precomp();
+			fe_add.fe_add(precomp.yplusx, y, x);
+			fe_sub.fe_sub(precomp.yminusx, y, x);
+			fe_mul.fe_mul(precomp.xy2d, x, y);
+			fe_mul.fe_mul(precomp.xy2d, precomp.xy2d, D2);
+
+			BASE_MULTIPLES[i] = precomp;
+		}
+	}
+
+	private static void copy(ge_p3 r, ge_p3 p)
 	{
-		byte[] h  = new byte[64];
-		byte[] checker  = new byte[32];
-	    
-		ge_p3 A = new ge_p3();
-	    ge_p2 R = new ge_p2();
+		fe_copy.fe_copy(r.X, p.X);
+		fe_copy.fe_copy(r.Y, p.Y);
+		fe_copy.fe_copy(r.Z, p.Z);
+		fe_copy.fe_copy(r.T, p.T);
+	}
+
+	/** Per-thread scratch space so verification doesn't allocate. */
+	private static class VerifyScratch {
+		private final MessageDigest sha512;
+		private final byte[] h = new byte[64];
+		private final byte[] sm32 = new byte[32];
+		private final byte[] checker = new byte[32];
+		private final byte[] hSlide = new byte[256];
+		private final byte[] sSlide = new byte[256];
+		private final ge_p2 R = new ge_p2();
+		private final ge_p1p1 t = new ge_p1p1();
+		private final ge_p3 u = new ge_p3();
+		private final int[] t0 = new int[10];
+
+		private VerifyScratch() {
+			try {
+				this.sha512 = MessageDigest.getInstance("SHA-512");
+			} catch (NoSuchAlgorithmException e) {
+				throw new AssertionError(e);
+			}
+		}
+	}
 
+	private static final ThreadLocal<VerifyScratch> verifyScratch = ThreadLocal.withInitial(VerifyScratch::new);
+
+	public static boolean verify(byte[] signature, byte[] message, byte[] publicKey) throws Exception
+	{
 	    if ((signature[63] & 224) != 0) { 
 	    	return false;
 	    }
-	   
-	    if (ge_frombytes.ge_frombytes_negate_vartime(A, publicKey) != 0) {
+
+	    ge_cached[] Ai = getPublicKeyMultiples(publicKey);
+	    if (Ai == null) {
 	        return false;
 	    }
 
-	    MessageDigest sha512 = MessageDigest.getInstance("SHA-512");
-	    
+	    VerifyScratch scratch = verifyScratch.get();
+
+	    MessageDigest sha512 = scratch.sha512;
 		sha512.update(signature, 0, 32);
 		sha512.update(publicKey, 0, 32);
 		sha512.update(message, 0, message.length);
-		
-		h = sha512.digest();
-	    
-	    sc_reduce.sc_reduce(h);
-	    
-	    byte[] sm32 = new byte[32];
-        System.arraycopy(signature, 32, sm32, 0, 32);
-        
-	    ge_double_scalarmult.ge_double_scalarmult_vartime(R, h, A, sm32);
-	    ge_tobytes.ge_tobytes(checker, R);
+		sha512.digest(scratch.h, 0, 64);
 
-	    Boolean result = CryptoBytes.ConstantTimeEquals(checker, 0, signature, 0, 32);
-	    
-	    return result;		
+	    sc_reduce.sc_reduce(scratch.h);
+
+	    System.arraycopy(signature, 32, scratch.sm32, 0, 32);
+
+	    double_scalarmult_vartime(scratch, Ai);
+	    ge_tobytes.ge_tobytes(scratch.checker, scratch.R);
+
+	    return CryptoBytes.ConstantTimeEquals(scratch.checker, 0, signature, 0, 32);
 	}
-	
+
+	/**
+	 * Returns odd multiples of -A for public key A, decoding and caching them if necessary.
+	 * 
+	 * @return -A,-3A,...,-15A, or null if public key is invalid
+	 */
+	private static ge_cached[] getPublicKeyMultiples(byte[] publicKey)
+	{
+		ge_cached[] Ai = publicKeyCache.get(ByteBuffer.wrap(publicKey));
+		if (Ai != null)
+			return Ai;
+
+		ge_p3 A = new ge_p3();
+		if (ge_frombytes.ge_frombytes_negate_vartime(A, publicKey) != 0)
+			return null;
+
+		Ai = new ge_cached[8];
+		ge_p1p1 t = new ge_p1p1();
+		ge_p3 u = new ge_p3();
+		ge_p3 A2 = new ge_p3();
+
+		Ai[0] = new ge_cached();
+		ge_p3_to_cached.ge_p3_to_cached(Ai[0], A);
+		ge_p3_dbl.ge_p3_dbl(t, A);
+		ge_p1p1_to_p3.ge_p1p1_to_p3(A2, t);
+
+		for (int i = 1; i < 8; ++i) {
+			Ai[i] = new ge_cached();
+			ge_add.ge_add(t, A2, Ai[i - 1]);
+			ge_p1p1_to_p3.ge_p1p1_to_p3(u, t);
+			ge_p3_to_cached.ge_p3_to_cached(Ai[i], u);
+		}
+
+		// Copy key as caller might modify their array
+		publicKeyCache.put(ByteBuffer.wrap(publicKey.clone()), Ai);
+
+		return Ai;
+	}
+
+	/**
+	 * scratch.R = scratch.h * A + scratch.sm32 * B, as per ge_double_scalarmult_vartime but using cached multiples of A and scratch space.
+	 */
+	private static void double_scalarmult_vartime(VerifyScratch scratch, ge_cached[] Ai)
+	{
+		byte[] aslide = scratch.hSlide;
+		byte[] bslide = scratch.sSlide;
+		ge_p2 r = scratch.R;
+		ge_p1p1 t = scratch.t;
+		ge_p3 u = scratch.u;
+		int[] t0 = scratch.t0;
+		int i;
+
+		ge_double_scalarmult.slide(aslide, scratch.h);
+		ge_double_scalarmult.slide(bslide, scratch.sm32);
+
+		ge_p2_0.ge_p2_0(r);
+
+		for (i = 255; i >= 0; --i) {
+			if (aslide[i] != 0 || bslide[i] != 0) break;
+		}
+
+		for (; i >= 0; --i) {
+			p2_dbl(t, r, t0);
+
+			if (aslide[i] > 0) {
+				ge_p1p1_to_p3.ge_p1p1_to_p3(u, t);
+				add(t, u, Ai[aslide[i] / 2], t0);
+			} else if (aslide[i] < 0) {
+				ge_p1p1_to_p3.ge_p1p1_to_p3(u, t);
+				sub(t, u, Ai[(-aslide[i]) / 2], t0);
+			}
+
+			if (bslide[i] > 0) {
+				ge_p1p1_to_p3.ge_p1p1_to_p3(u, t);
+				madd(t, u, BASE_MULTIPLES[bslide[i] / 2], t0);
+			} else if (bslide[i] < 0) {
+				ge_p1p1_to_p3.ge_p1p1_to_p3(u, t);
+				msub(t, u, BASE_MULTIPLES[(-bslide[i]) / 2], t0);
+			}
+
+			ge_p1p1_to_p2.ge_p1p1_to_p2(r, t);
+		}
+	}
+
+	// Copies of ge_p2_dbl, ge_add, ge_sub, ge_madd and ge_msub using caller-supplied temporary instead of allocating
+
+	/** r = 2 * p */
+	private static void p2_dbl(ge_p1p1 r, ge_p2 p, int[] t0)
+	{
+		fe_sq.fe_sq(r.X, p.X);
+		fe_sq.fe_sq(r.Z, p.Y);
+		fe_sq2.fe_sq2(r.T, p.Z);
+		fe_add.fe_add(r.Y, p.X, p.Y);
+		fe_sq.fe_sq(t0, r.Y);
+		fe_add.fe_add(r.Y, r.Z, r.X);
+		fe_sub.fe_sub(r.Z, r.Z, r.X);
+		fe_sub.fe_sub(r.X, t0, r.Y);
+		fe_sub.fe_sub(r.T, r.T, r.Z);
+	}
+
+	/** r = p + q */
+	private static void add(ge_p1p1 r, ge_p3 p, ge_cached q, int[] t0)
+	{
+		fe_add.fe_add(r.X, p.Y, p.X);
+		fe_sub.fe_sub(r.Y, p.Y, p.X);
+		fe_mul.fe_mul(r.Z, r.X, q.YplusX);
+		fe_mul.fe_mul(r.Y, r.Y, q.YminusX);
+		fe_mul.fe_mul(r.T, q.T2d, p.T);
+		fe_mul.fe_mul(r.X, p.Z, q.Z);
+		fe_add.fe_add(t0, r.X, r.X);
+		fe_sub.fe_sub(r.X, r.Z, r.Y);
+		fe_add.fe_add(r.Y, r.Z, r.Y);
+		fe_add.fe_add(r.Z, t0, r.T);
+		fe_sub.fe_sub(r.T, t0, r.T);
+	}
+
+	/** r = p - q */
+	private static void sub(ge_p1p1 r, ge_p3 p, ge_cached q, int[] t0)
+	{
+		fe_add.fe_add(r.X, p.Y, p.X);
+		fe_sub.fe_sub(r.Y, p.Y, p.X);
+		fe_mul.fe_mul(r.Z, r.X, q.YminusX);
+		fe_mul.fe_mul(r.Y, r.Y, q.YplusX);
+		fe_mul.fe_mul(r.T, q.T2d, p.T);
+		fe_mul.fe_mul(r.X, p.Z, q.Z);
+		fe_add.fe_add(t0, r.X, r.X);
+		fe_sub.fe_sub(r.X, r.Z, r.Y);
+		fe_add.fe_add(r.Y, r.Z, r.Y);
+		fe_sub.fe_sub(r.Z, t0, r.T);
+		fe_add.fe_add(r.T, t0, r.T);
+	}
+
+	/** r = p + q */
+	private static void madd(ge_p1p1 r, ge_p3 p, ge_precomp q, int[] t0)
+	{
+		fe_add.fe_add(r.X, p.Y, p.X);
+		fe_sub.fe_sub(r.Y, p.Y, p.X);
+		fe_mul.fe_mul(r.Z, r.X, q.yplusx);
+		fe_mul.fe_mul(r.Y, r.Y, q.yminusx);
+		fe_mul.fe_mul(r.T, q.xy2d, p.T);
+		fe_add.fe_add(t0, p.Z, p.Z);
+		fe_sub.fe_sub(r.X, r.Z, r.Y);
+		fe_add.fe_add(r.Y, r.Z, r.Y);
+		fe_add.fe_add(r.Z, t0, r.T);
+		fe_sub.fe_sub(r.T, t0, r.T);
+	}
+
+	/** r = p - q */
+	private static void msub(ge_p1p1 r, ge_p3 p, ge_precomp q, int[] t0)
+	{
+		fe_add.fe_add(r.X, p.Y, p.X);
+		fe_sub.fe_sub(r.Y, p.Y, p.X);
+		fe_mul.fe_mul(r.Z, r.X, q.yminusx);
+		fe_mul.fe_mul(r.Y, r.Y, q.yplusx);
+		fe_mul.fe_mul(r.T, q.xy2d, p.T);
+		fe_add.fe_add(t0, p.Z, p.Z);
+		fe_sub.fe_sub(r.X, r.Z, r.Y);
+		fe_add.fe_add(r.Y, r.Z, r.Y);
+		fe_sub.fe_sub(r.Z, t0, r.T);
+		fe_add.fe_add(r.T, t0, r.T);
+	}
+
+	/**
+	 * Verifies a batch of signatures, returning per-signature results as would be returned by {@link #verify(byte[], byte[], byte[])}.
+	 * <p>
+	 * Uses randomized batch verification: picks random 128-bit <tt>z[i]</tt> and checks
+	 * <tt>(&Sigma; z[i]&middot;s[i])&middot;B - &Sigma; z[i]&middot;R[i] - &Sigma; (z[i]&middot;h[i])&middot;A[i] = 0</tt> using a single
+	 * multi-scalar multiplication, sharing the 256 point doublings that individual verification would repeat per signature. If the batch equation
+	 * fails then each signature is verified individually to locate failures.
+	 * <p>
+	 * Like {@link #verify(byte[], byte[], byte[])}, the check isn't multiplied by the cofactor. So if any R[i] or A[i] has a small-order
+	 * component, which can't happen for honestly generated keys and signatures, a batch including a bad signature could pass with probability up
+	 * to 1/2. Such batches are verified individually instead, so results always match {@link #verify(byte[], byte[], byte[])}.
+	 * 
+	 * @param signatures
+	 * @param messages
+	 * @param publicKeys
+	 * @return array of results, in same order as <tt>signatures</tt>
+	 * @throws Exception
+	 */
+	public static boolean[] verifyBatch(byte[][] signatures, byte[][] messages, byte[][] publicKeys) throws Exception
+	{
+		int count = signatures.length;
+		if (messages.length != count || publicKeys.length != count)
+			throw new IllegalArgumentException("Batch arrays must be the same length");
+
+		boolean[] results = new boolean[count];
+
+		// No benefit batching a single signature
+		if (count > 1 && verifyBatchEquation(signatures, messages, publicKeys)) {
+			Arrays.fill(results, true);
+			return results;
+		}
+
+		for (int i = 0; i < count; ++i)
+			results[i] = verify(signatures[i], messages[i], publicKeys[i]);
+
+		return results;
+	}
+
+	private static boolean verifyBatchEquation(byte[][] signatures, byte[][] messages, byte[][] publicKeys) throws NoSuchAlgorithmException
+	{
+		int count = signatures.length;
+
+		// Points are -R[i] and -A[i] for each signature, then B
+		ge_p3[] points = new ge_p3[2 * count + 1];
+		byte[][] scalars = new byte[2 * count + 1][];
+		byte[] sumZS = new byte[32];
+
+		MessageDigest sha512 = MessageDigest.getInstance("SHA-512");
+		byte[] random = new byte[16];
+
+		// Public keys often recur within a batch, so only decode and check each once
+		Map<ByteBuffer, ge_p3> decodedPublicKeys = new HashMap<ByteBuffer, ge_p3>();
+
+		for (int i = 0; i < count; ++i) {
+			byte[] signature = signatures[i];
+			byte[] publicKey = publicKeys[i];
+
+			if ((signature[63] & 224) != 0)
+				return false;
+
+			// Individual verification compares encoded R so only accepts canonical encodings
+			if (!isCanonicalEncoding(signature))
+				return false;
+
+			ge_p3 minusR = new ge_p3();
+			if (ge_frombytes.ge_frombytes_negate_vartime(minusR, signature) != 0)
+				return false;
+
+			// x = 0 has no negative form
+			if (fe_isnonzero.fe_isnonzero(minusR.X) == 0 && (signature[31] & 0x80) != 0)
+				return false;
+
+			// Small-order component wouldn't necessarily be cancelled out by random z[i]
+			if (!isTorsionFree(minusR))
+				return false;
+
+			ge_p3 minusA = decodedPublicKeys.get(ByteBuffer.wrap(publicKey));
+			if (minusA == null) {
+				minusA = new ge_p3();
+				if (ge_frombytes.ge_frombytes_negate_vartime(minusA, publicKey) != 0 || !isTorsionFree(minusA))
+					return false;
+
+				decodedPublicKeys.put(ByteBuffer.wrap(publicKey), minusA);
+			}
+
+			sha512.update(signature, 0, 32);
+			sha512.update(publicKey, 0, 32);
+			sha512.update(messages[i], 0, messages[i].length);
+			byte[] h = sha512.digest();
+			sc_reduce.sc_reduce(h);
+
+			byte[] z = new byte[32];
+			BATCH_RANDOM.nextBytes(random);
+			System.arraycopy(random, 0, z, 0, random.length);
+
+			byte[] zh = new byte[32];
+			sc_muladd.sc_muladd(zh, z, h, SCALAR_ZERO);
+
+			byte[] s = Arrays.copyOfRange(signature, 32, 64);
+			sc_muladd.sc_muladd(sumZS, z, s, sumZS);
+
+			points[2 * i] = minusR;
+			scalars[2 * i] = z;
+			points[2 * i + 1] = minusA;
+			scalars[2 * i + 1] = zh;
+		}
+
+		points[2 * count] = BASE_POINT;
+		scalars[2 * count] = sumZS;
+
+		ge_p2 result = new ge_p2();
+		ge_multi_scalarmult_vartime(result, scalars, points);
+
+		byte[] checker = new byte[32];
+		ge_tobytes.ge_tobytes(checker, result);
+
+		return Arrays.equals(checker, ENCODED_IDENTITY);
+	}
+
+	/** Returns whether point is in prime-order subgroup, i.e. l * P is identity. */
+	private static boolean isTorsionFree(ge_p3 P)
+	{
+		ge_p2 lP = new ge_p2();
+		ge_double_scalarmult.ge_double_scalarmult_vartime(lP, GROUP_ORDER, P, SCALAR_ZERO);
+
+		byte[] encoded = new byte[32];
+		ge_tobytes.ge_tobytes(encoded, lP);
+
+		return Arrays.equals(encoded, ENCODED_IDENTITY);
+	}
+
+	/** Returns whether encoded point's y-coordinate is less than field prime 2^255 - 19. */
+	private static boolean isCanonicalEncoding(byte[] encoded)
+	{
+		if ((encoded[31] & 0x7f) != 0x7f)
+			return true;
+
+		for (int i = 30; i > 0; --i)
+			if ((encoded[i] & 0xff) != 0xff)
+				return true;
+
+		return (encoded[0] & 0xff) < 0xed;
+	}
+
+	/**
+	 * r = &Sigma; scalars[i] * points[i], using interleaved sliding windows as per ge_double_scalarmult_vartime.
+	 */
+	private static void ge_multi_scalarmult_vartime(ge_p2 r, byte[][] scalars, ge_p3[] points)
+	{
+		int count = points.length;
+
+		byte[][] slides = new byte[count][256];
+		ge_cached[][] tables = new ge_cached[count][]; /* P,3P,5P,7P,9P,11P,13P,15P for each point */
+
+		ge_p1p1 t = new ge_p1p1();
+		ge_p3 u = new ge_p3();
+		ge_p3 P2 = new ge_p3();
+
+		int top = -1;
+
+		for (int j = 0; j < count; ++j) {
+			ge_double_scalarmult.slide(slides[j], scalars[j]);
+
+			ge_cached[] table = new ge_cached[8];
+			table[0] = new ge_cached();
+			ge_p3_to_cached.ge_p3_to_cached(table[0], points[j]);
+			ge_p3_dbl.ge_p3_dbl(t, points[j]);
+			ge_p1p1_to_p3.ge_p1p1_to_p3(P2, t);
+
+			for (int k = 1; k < 8; ++k) {
+				table[k] = new ge_cached();
+				ge_add.ge_add(t, P2, table[k - 1]);
+				ge_p1p1_to_p3.ge_p1p1_to_p3(u, t);
+				ge_p3_to_cached.ge_p3_to_cached(table[k], u);
+			}
+
+			tables[j] = table;
+
+			for (int i = 255; i > top; --i)
+				if (slides[j][i] != 0) {
+					top = i;
+					break;
+				}
+		}
+
+		ge_p2_0.ge_p2_0(r);
+
+		for (int i = top; i >= 0; --i) {
+			ge_p2_dbl.ge_p2_dbl(t, r);
+
+			for (int j = 0; j < count; ++j) {
+				byte digit = slides[j][i];
+
+				if (digit > 0) {
+					ge_p1p1_to_p3.ge_p1p1_to_p3(u, t);
+					ge_add.ge_add(t, u, tables[j][digit / 2]);
+				} else if (digit < 0) {
+					ge_p1p1_to_p3.ge_p1p1_to_p3(u, t);
+					ge_sub.ge_sub(t, u, tables[j][(-digit) / 2]);
+				}
+			}
+
+			ge_p1p1_to_p2.ge_p1p1_to_p2(r, t);
+		}
+	}
+
 	public static byte[] sign(Pair<byte[],byte[]> keyPair, byte[] message) throws NoSuchAlgorithmException
 	{
 		byte[] private_key = keyPair.getA();
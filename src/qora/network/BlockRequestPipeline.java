@@ -0,0 +1,170 @@
+package qora.network;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Queue;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import utils.Pair;
+
+/**
+ * Pipelined block downloading from a v1 peer.
+ * <p>
+ * Up to <tt>window</tt> GET_BLOCK requests are kept outstanding, each tagged with a sequence number in blockchain order. BLOCK responses are matched
+ * to requests by message id, with unknown ids discarded, and buffered until all earlier blocks have been received. Blocks are then passed, in order,
+ * to the listener. So network latency can overlap block processing.
+ * <p>
+ * The window counts blocks requested but not yet processed, including any in flight or buffered, so callers must call {@link #blockProcessed()}
+ * once each block passed to the listener has been processed.
+ * <p>
+ * Not thread-safe, apart from {@link #blockProcessed()} and {@link #getUnprocessedCount()}, so callers must synchronize other calls.
+ */
+public class BlockRequestPipeline {
+
+	private static final Logger LOGGER = LogManager.getLogger(BlockRequestPipeline.class);
+
+	public static final int GET_BLOCK_TYPE = 6;
+	public static final int BLOCK_TYPE = 7;
+
+	private static final int MAX_MESSAGE_ID = 1000000;
+
+	public interface Listener {
+
+		/**
+		 * Called, in blockchain order, for each received block once all earlier blocks have been received.
+		 *
+		 * @param claimedHeight
+		 *            height claimed by peer, which can't be trusted
+		 * @param blockBytes
+		 */
+		public void onBlockReady(int claimedHeight, byte[] blockBytes);
+
+	}
+
+	private final int window;
+	private final Listener listener;
+
+	/** Signatures of blocks still to be requested, in blockchain order. */
+	private final Queue<byte[]> pendingSignatures = new ArrayDeque<byte[]>();
+	/** Signature of most recently requested block, so following signatures can be requested before it's processed. */
+	private byte[] lastRequestedSignature = null;
+
+	/** Outstanding GET_BLOCK requests: message id to block sequence number. */
+	private final Map<Integer, Integer> inFlightRequests = new HashMap<Integer, Integer>();
+	private int nextRequestSequence = 0;
+	/** Received blocks waiting for earlier blocks: block sequence number to claimed height and block bytes. */
+	private final TreeMap<Integer, Pair<Integer, byte[]>> receivedBlocks = new TreeMap<Integer, Pair<Integer, byte[]>>();
+	private int nextReadySequence = 0;
+	/** Blocks requested but not yet processed, including any in flight, buffered or being processed. */
+	private final AtomicInteger unprocessedCount = new AtomicInteger();
+
+	/**
+	 * @param window
+	 *            maximum number of blocks requested but not yet processed
+	 * @param listener
+	 */
+	public BlockRequestPipeline(int window, Listener listener) {
+		if (window < 1)
+			throw new IllegalArgumentException("Window must be at least 1");
+
+		this.window = window;
+		this.listener = listener;
+	}
+
+	/** Adds signature of next block to request. */
+	public void addSignature(byte[] signature) {
+		this.pendingSignatures.add(signature);
+	}
+
+	/** Returns whether there are signatures of blocks not yet requested. */
+	public boolean hasPendingSignatures() {
+		return !this.pendingSignatures.isEmpty();
+	}
+
+	/** Returns signature of most recently requested block, or null if none requested yet. */
+	public byte[] getLastRequestedSignature() {
+		return this.lastRequestedSignature;
+	}
+
+	/**
+	 * Sends GET_BLOCK requests to peer until window is full or there are no more signatures.
+	 *
+	 * @param peer
+	 * @return number of requests sent
+	 * @throws IOException
+	 */
+	public int fillWindow(PeerConnection peer) throws IOException {
+		int requestCount = 0;
+
+		while (!this.pendingSignatures.isEmpty() && this.unprocessedCount.get() < this.window) {
+			byte[] signature = this.pendingSignatures.remove();
+
+			int messageId;
+			do
+				messageId = (int) ((Math.random() * MAX_MESSAGE_ID) + 1);
+			while (this.inFlightRequests.containsKey(messageId));
+
+			this.inFlightRequests.put(messageId, this.nextRequestSequence++);
+			this.unprocessedCount.incrementAndGet();
+			this.lastRequestedSignature = signature;
+
+			LOGGER.trace("Requesting block with message id " + messageId + "...");
+			peer.send(GET_BLOCK_TYPE, true, messageId, ByteBuffer.wrap(signature));
+			++requestCount;
+		}
+
+		return requestCount;
+	}
+
+	/**
+	 * Handles BLOCK message from peer, passing any blocks that are now in order to listener.
+	 *
+	 * @param id
+	 *            message id
+	 * @param data
+	 *            claimed height then block bytes, only valid during this call
+	 * @return false if message id doesn't match an outstanding request, so message was discarded
+	 */
+	public boolean onBlock(int id, ByteBuffer data) {
+		Integer sequence = this.inFlightRequests.remove(id);
+		if (sequence == null)
+			return false;
+
+		int claimedHeight = data.getInt();
+
+		LOGGER.trace("Received block allegedly at height " + claimedHeight);
+
+		// Copy out of transport's buffer, as block is processed later
+		byte[] blockBytes = new byte[data.remaining()];
+		data.get(blockBytes);
+
+		this.receivedBlocks.put(sequence, new Pair<Integer, byte[]>(claimedHeight, blockBytes));
+
+		while (!this.receivedBlocks.isEmpty() && this.receivedBlocks.firstKey() == this.nextReadySequence) {
+			Pair<Integer, byte[]> receivedBlock = this.receivedBlocks.pollFirstEntry().getValue();
+			++this.nextReadySequence;
+
+			this.listener.onBlockReady(receivedBlock.getA(), receivedBlock.getB());
+		}
+
+		return true;
+	}
+
+	/** Frees a place in window, once a block passed to listener has been processed. Can be called from any thread. */
+	public void blockProcessed() {
+		this.unprocessedCount.decrementAndGet();
+	}
+
+	/** Returns number of blocks requested but not yet processed. Can be called from any thread. */
+	public int getUnprocessedCount() {
+		return this.unprocessedCount.get();
+	}
+
+}
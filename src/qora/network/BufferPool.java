@@ -0,0 +1,54 @@
+package qora.network;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.Deque;
+
+/**
+ * Pool of same-sized direct ByteBuffers.
+ * <p>
+ * Direct buffers are expensive to allocate and are only freed by garbage collection, so they are recycled instead. Socket channels read and write
+ * direct buffers without an extra copy into a temporary direct buffer, which the JDK does for heap buffers.
+ */
+public class BufferPool {
+
+	private final int bufferSize;
+	private final int maxPooledBuffers;
+
+	// ArrayDeque, not a concurrent queue, so releasing a buffer doesn't allocate a queue node
+	private final Deque<ByteBuffer> buffers = new ArrayDeque<ByteBuffer>();
+
+	public BufferPool(int bufferSize, int maxPooledBuffers) {
+		this.bufferSize = bufferSize;
+		this.maxPooledBuffers = maxPooledBuffers;
+	}
+
+	public int getBufferSize() {
+		return this.bufferSize;
+	}
+
+	/** Returns cleared buffer, from pool if possible. */
+	public ByteBuffer acquire() {
+		synchronized (this.buffers) {
+			ByteBuffer buffer = this.buffers.pollFirst();
+			if (buffer != null)
+				return buffer;
+		}
+
+		return ByteBuffer.allocateDirect(this.bufferSize);
+	}
+
+	/** Returns buffer to pool, unless pool is full. Caller must not use buffer afterwards. */
+	public void release(ByteBuffer buffer) {
+		if (buffer.capacity() != this.bufferSize || !buffer.isDirect())
+			throw new IllegalArgumentException("Buffer doesn't belong to this pool");
+
+		buffer.clear();
+
+		synchronized (this.buffers) {
+			if (this.buffers.size() < this.maxPooledBuffers)
+				this.buffers.addFirst(buffer);
+		}
+	}
+
+}
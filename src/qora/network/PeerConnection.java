@@ -0,0 +1,434 @@
+package qora.network;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.SocketChannel;
+import java.security.DigestException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayDeque;
+import java.util.Deque;
+
+/**
+ * Connection to a single peer, served by a {@link PeerTransport}.
+ * <p>
+ * Messages are framed directly into, and parsed directly out of, pooled direct buffers:
+ *
+ * <pre>
+ * magic (4 bytes) | type (int) | has-id (1 byte) | [id (int)] | data length (int) | [checksum (4 bytes) | data]
+ * </pre>
+ *
+ * where checksum is the first 4 bytes of the SHA-256 digest of data, and is only present, along with data, if data length is non-zero.
+ */
+public class PeerConnection {
+
+	public static final int MAGIC = 0x12345678;
+
+	private static final int MAGIC_LENGTH = 4;
+	private static final int TYPE_LENGTH = 4;
+	private static final int HAS_ID_LENGTH = 1;
+	private static final int ID_LENGTH = 4;
+	private static final int DATA_SIZE_LENGTH = 4;
+	private static final int CHECKSUM_LENGTH = 4;
+
+	public static final int MAX_HEADER_LENGTH = MAGIC_LENGTH + TYPE_LENGTH + HAS_ID_LENGTH + ID_LENGTH + DATA_SIZE_LENGTH + CHECKSUM_LENGTH;
+	public static final int MAX_DATA_SIZE = 2 * 1024 * 1024; // 2MB
+	public static final int MAX_FRAME_LENGTH = MAX_HEADER_LENGTH + MAX_DATA_SIZE;
+
+	/** Message id passed to listener when message has no id. */
+	public static final int NO_ID = -1;
+
+	/** Senders (other than transport thread) wait while this many bytes are queued. */
+	private static final int MAX_QUEUED_BYTES = 4 * 1024 * 1024; // 4MB
+
+	private final PeerTransport transport;
+	private final SocketChannel channel;
+	private final InetSocketAddress address;
+	private SelectionKey selectionKey;
+
+	// Only accessed by transport thread
+	private ByteBuffer readBuffer;
+	private final MessageDigest receiveDigest;
+	private final byte[] receiveChecksum;
+
+	// Guarded by 'this'
+	private final Deque<ByteBuffer> writeBuffers = new ArrayDeque<ByteBuffer>();
+	private int queuedBytes = 0;
+	private boolean isConnected = false;
+	private boolean isClosed = false;
+	private final MessageDigest sendDigest;
+	private final byte[] sendChecksum;
+
+	// NB: no visibility modifier so only callable from within same package
+	PeerConnection(PeerTransport transport, SocketChannel channel, InetSocketAddress address) {
+		this.transport = transport;
+		this.channel = channel;
+		this.address = address;
+
+		try {
+			this.receiveDigest = MessageDigest.getInstance("SHA-256");
+			this.sendDigest = MessageDigest.getInstance("SHA-256");
+		} catch (NoSuchAlgorithmException e) {
+			throw new RuntimeException("SHA-256 message digest not available");
+		}
+
+		this.receiveChecksum = new byte[this.receiveDigest.getDigestLength()];
+		this.sendChecksum = new byte[this.sendDigest.getDigestLength()];
+	}
+
+	public InetSocketAddress getAddress() {
+		return this.address;
+	}
+
+	public synchronized boolean isClosed() {
+		return this.isClosed;
+	}
+
+	/**
+	 * Frames and sends message to peer.
+	 * <p>
+	 * Data, from its position to its limit, is checksummed and copied straight into pooled direct buffers, without intermediate arrays. Data's position
+	 * is left unchanged.
+	 * <p>
+	 * If too much is already queued for this peer then waits for some to be sent, unless called by transport thread, e.g. from a listener callback.
+	 *
+	 * @param type
+	 * @param hasId
+	 * @param id
+	 *            only sent if <tt>hasId</tt>
+	 * @param data
+	 *            can be null for no data
+	 * @throws IOException
+	 *             if connection is closed, or fails
+	 */
+	public void send(int type, boolean hasId, int id, ByteBuffer data) throws IOException {
+		int dataSize = data == null ? 0 : data.remaining();
+		if (dataSize > MAX_DATA_SIZE)
+			throw new IllegalArgumentException("Message data too big: " + dataSize + " bytes");
+
+		synchronized (this) {
+			if (!this.transport.isTransportThread())
+				while (this.queuedBytes > MAX_QUEUED_BYTES && !this.isClosed)
+					try {
+						this.wait();
+					} catch (InterruptedException e) {
+						Thread.currentThread().interrupt();
+						throw new IOException("Interrupted while waiting to send");
+					}
+
+			if (this.isClosed)
+				throw new IOException("Connection to peer " + this.address + " is closed");
+
+			// Header, which is never split across buffers
+			ByteBuffer buffer = this.getWriteBuffer(MAX_HEADER_LENGTH);
+			int headerStart = buffer.position();
+
+			buffer.putInt(MAGIC);
+			buffer.putInt(type);
+			buffer.put((byte) (hasId ? 1 : 0));
+
+			if (hasId)
+				buffer.putInt(id);
+
+			buffer.putInt(dataSize);
+
+			if (dataSize > 0) {
+				// Checksum straight from caller's buffer
+				int dataStart = data.position();
+				this.sendDigest.update(data);
+				data.position(dataStart);
+				buffer.put(digestInto(this.sendDigest, this.sendChecksum), 0, CHECKSUM_LENGTH);
+			}
+
+			this.queuedBytes += buffer.position() - headerStart;
+
+			// Data, which can be split across buffers
+			if (dataSize > 0) {
+				int dataStart = data.position();
+				int dataLimit = data.limit();
+
+				while (data.position() < dataLimit) {
+					buffer = this.getWriteBuffer(1);
+					int chunkLength = Math.min(buffer.remaining(), dataLimit - data.position());
+
+					data.limit(data.position() + chunkLength);
+					buffer.put(data);
+					data.limit(dataLimit);
+				}
+
+				data.position(dataStart);
+				this.queuedBytes += dataSize;
+			}
+
+			// Not connected yet? Transport will flush once connected
+			if (!this.isConnected)
+				return;
+
+			try {
+				if (!this.flush())
+					this.transport.enableWrites(this);
+			} catch (IOException e) {
+				this.transport.close(this, e);
+				throw e;
+			}
+		}
+	}
+
+	/** Closes connection, from any thread. Listener is notified by transport thread. */
+	public void close() {
+		this.transport.close(this, null);
+	}
+
+	@Override
+	public String toString() {
+		return "peer " + this.address;
+	}
+
+	// Called by transport
+
+	SocketChannel getChannel() {
+		return this.channel;
+	}
+
+	SelectionKey getSelectionKey() {
+		return this.selectionKey;
+	}
+
+	void setSelectionKey(SelectionKey selectionKey) {
+		this.selectionKey = selectionKey;
+	}
+
+	/** Marks connection as established. Returns whether there are already queued messages to send. */
+	synchronized boolean onConnected() {
+		this.isConnected = true;
+		return this.queuedBytes > 0;
+	}
+
+	/** Marks connection as closed and returns all buffers to pools. Returns false if already closed. */
+	boolean onClosed() {
+		synchronized (this) {
+			if (this.isClosed)
+				return false;
+
+			this.isClosed = true;
+
+			for (ByteBuffer buffer : this.writeBuffers)
+				this.transport.getSmallBufferPool().release(buffer);
+
+			this.writeBuffers.clear();
+			this.queuedBytes = 0;
+
+			// Wake any blocked senders
+			this.notifyAll();
+		}
+
+		if (this.readBuffer != null) {
+			this.releaseReadBuffer(this.readBuffer);
+			this.readBuffer = null;
+		}
+
+		return true;
+	}
+
+	/**
+	 * Writes as much queued data as possible to channel.
+	 *
+	 * @return true if all queued data was written
+	 * @throws IOException
+	 */
+	synchronized boolean flush() throws IOException {
+		while (!this.writeBuffers.isEmpty()) {
+			ByteBuffer buffer = this.writeBuffers.peekFirst();
+
+			buffer.flip();
+			int bytesWritten = this.channel.write(buffer);
+			this.queuedBytes -= bytesWritten;
+
+			if (buffer.hasRemaining()) {
+				// Socket send buffer is full
+				buffer.compact();
+				break;
+			}
+
+			// Keep last buffer for next message
+			if (this.writeBuffers.size() == 1) {
+				buffer.clear();
+				break;
+			}
+
+			this.transport.getSmallBufferPool().release(this.writeBuffers.pollFirst());
+		}
+
+		if (this.queuedBytes <= MAX_QUEUED_BYTES)
+			this.notifyAll();
+
+		return this.queuedBytes == 0;
+	}
+
+	/**
+	 * Reads from channel and passes each complete message to listener.
+	 * <p>
+	 * Data passed to listener is a view into this connection's read buffer, so is only valid during the callback.
+	 *
+	 * @return false if peer closed connection
+	 * @throws IOException
+	 *             if read fails or peer sent malformed message
+	 */
+	boolean read(PeerTransport.Listener listener) throws IOException {
+		if (this.readBuffer == null)
+			this.readBuffer = this.transport.getSmallBufferPool().acquire();
+
+		int bytesRead = this.channel.read(this.readBuffer);
+		if (bytesRead == -1)
+			return false;
+
+		this.readBuffer.flip();
+
+		int frameLength;
+		while ((frameLength = this.parseMessage(listener)) == 0)
+			if (this.isClosed())
+				return true;
+
+		if (frameLength > this.readBuffer.capacity()) {
+			// Message too big for small buffer, so move partial message into a large buffer
+			ByteBuffer largeBuffer = this.transport.getLargeBufferPool().acquire();
+			largeBuffer.put(this.readBuffer);
+			this.releaseReadBuffer(this.readBuffer);
+			this.readBuffer = largeBuffer;
+			return true;
+		}
+
+		if (this.readBuffer.capacity() != this.transport.getSmallBufferPool().getBufferSize()
+				&& this.readBuffer.remaining() <= this.transport.getSmallBufferPool().getBufferSize()) {
+			// Large message processed and what remains fits into a small buffer
+			ByteBuffer smallBuffer = this.transport.getSmallBufferPool().acquire();
+			smallBuffer.put(this.readBuffer);
+			this.releaseReadBuffer(this.readBuffer);
+			this.readBuffer = smallBuffer;
+			return true;
+		}
+
+		if (this.readBuffer.position() == 0) {
+			// Nothing consumed, so avoid copying partial message back to start of buffer
+			this.readBuffer.position(this.readBuffer.limit());
+			this.readBuffer.limit(this.readBuffer.capacity());
+		} else {
+			this.readBuffer.compact();
+		}
+
+		return true;
+	}
+
+	/**
+	 * Parses message at read buffer's position, and if complete, passes it to listener and advances read buffer's position past it.
+	 *
+	 * @return 0 if a message was processed, otherwise length of incomplete message if known, or -1
+	 * @throws IOException
+	 *             if message is malformed
+	 */
+	private int parseMessage(PeerTransport.Listener listener) throws IOException {
+		ByteBuffer buffer = this.readBuffer;
+		int start = buffer.position();
+		int end = buffer.limit();
+
+		int offset = start + MAGIC_LENGTH + TYPE_LENGTH + HAS_ID_LENGTH;
+		if (offset > end)
+			return -1;
+
+		if (buffer.getInt(start) != MAGIC)
+			throw new IOException("Bad magic from " + this);
+
+		int type = buffer.getInt(start + MAGIC_LENGTH);
+
+		int id = NO_ID;
+		if (buffer.get(start + MAGIC_LENGTH + TYPE_LENGTH) == (byte) 1) {
+			if (offset + ID_LENGTH > end)
+				return -1;
+
+			id = buffer.getInt(offset);
+			offset += ID_LENGTH;
+		}
+
+		if (offset + DATA_SIZE_LENGTH > end)
+			return -1;
+
+		int dataSize = buffer.getInt(offset);
+		offset += DATA_SIZE_LENGTH;
+
+		if (dataSize < 0 || dataSize > MAX_DATA_SIZE)
+			throw new IOException("Bad data length " + dataSize + " from " + this);
+
+		int checksum = 0;
+		if (dataSize > 0) {
+			if (offset + CHECKSUM_LENGTH > end)
+				return -1;
+
+			checksum = buffer.getInt(offset);
+			offset += CHECKSUM_LENGTH;
+		}
+
+		int dataEnd = offset + dataSize;
+		if (dataEnd > end)
+			return dataEnd - start;
+
+		// Checksum and pass data in place, without copying
+		buffer.limit(dataEnd);
+		buffer.position(offset);
+
+		if (dataSize > 0) {
+			this.receiveDigest.update(buffer);
+			byte[] digest = digestInto(this.receiveDigest, this.receiveChecksum);
+
+			int expectedChecksum = (digest[0] & 0xff) << 24 | (digest[1] & 0xff) << 16 | (digest[2] & 0xff) << 8 | (digest[3] & 0xff);
+			if (checksum != expectedChecksum)
+				throw new IOException("Bad checksum from " + this);
+
+			buffer.position(offset);
+		}
+
+		try {
+			listener.onMessage(this, type, id, buffer);
+		} finally {
+			// Listener might have moved position or limit, or even closed connection
+			if (this.readBuffer == buffer) {
+				buffer.limit(end);
+				buffer.position(dataEnd);
+			}
+		}
+
+		return 0;
+	}
+
+	/** Returns write buffer with at least <tt>length</tt> bytes free, adding one to queue if need be. */
+	private ByteBuffer getWriteBuffer(int length) {
+		ByteBuffer buffer = this.writeBuffers.peekLast();
+
+		if (buffer == null || buffer.remaining() < length) {
+			buffer = this.transport.getSmallBufferPool().acquire();
+			this.writeBuffers.addLast(buffer);
+		}
+
+		return buffer;
+	}
+
+	private void releaseReadBuffer(ByteBuffer buffer) {
+		if (buffer.capacity() == this.transport.getSmallBufferPool().getBufferSize())
+			this.transport.getSmallBufferPool().release(buffer);
+		else
+			this.transport.getLargeBufferPool().release(buffer);
+	}
+
+	/** Completes digest into preallocated output array, avoiding allocation of a new digest array. */
+	private static byte[] digestInto(MessageDigest digest, byte[] output) {
+		try {
+			digest.digest(output, 0, output.length);
+		} catch (DigestException e) {
+			throw new RuntimeException("Unable to complete message digest", e);
+		}
+
+		return output;
+	}
+
+}
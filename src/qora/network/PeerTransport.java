@@ -0,0 +1,381 @@
+package qora.network;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedSelectorException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Non-blocking peer transport, serving any number of peer connections from a single thread.
+ * <p>
+ * Outgoing and incoming connections are supported. Messages are framed using the existing wire format (see {@link PeerConnection}) directly from/to
+ * pooled direct buffers, so steady-state messaging doesn't allocate.
+ * <p>
+ * Listener callbacks are made by the transport thread, so should be quick. Messages can be sent from any thread.
+ */
+public class PeerTransport implements Runnable, AutoCloseable {
+
+	private static final Logger LOGGER = LogManager.getLogger(PeerTransport.class);
+
+	public interface Listener {
+
+		/** Called when connection to/from peer is established. */
+		public void onConnected(PeerConnection peer);
+
+		/**
+		 * Called for each complete, checksum-verified message.
+		 * <p>
+		 * <tt>data</tt>, from its position to its limit, is a view into the connection's read buffer so is only valid during this call. Copy anything
+		 * that's needed afterwards.
+		 *
+		 * @param peer
+		 * @param type
+		 * @param id
+		 *            message id, or {@link PeerConnection#NO_ID}
+		 * @param data
+		 */
+		public void onMessage(PeerConnection peer, int type, int id, ByteBuffer data);
+
+		/**
+		 * Called when connection is closed, or fails to connect.
+		 *
+		 * @param peer
+		 * @param cause
+		 *            null if closed by us
+		 */
+		public void onDisconnected(PeerConnection peer, IOException cause);
+
+	}
+
+	private static final int SMALL_BUFFER_SIZE = 64 * 1024; // 64KB
+	private static final int MAX_POOLED_SMALL_BUFFERS = 64;
+	private static final int MAX_POOLED_LARGE_BUFFERS = 4;
+
+	private final Listener listener;
+	private final Selector selector;
+	private final BufferPool smallBufferPool;
+	private final BufferPool largeBufferPool;
+
+	/** Work that must be done by transport thread, e.g. registering channels with selector. */
+	private final Queue<Runnable> pendingTasks = new ConcurrentLinkedQueue<Runnable>();
+	private final List<ServerSocketChannel> serverChannels = new ArrayList<ServerSocketChannel>();
+
+	private Thread thread;
+	private volatile boolean isRunning = false;
+
+	public PeerTransport(Listener listener) throws IOException {
+		this.listener = listener;
+		this.selector = Selector.open();
+		this.smallBufferPool = new BufferPool(SMALL_BUFFER_SIZE, MAX_POOLED_SMALL_BUFFERS);
+		this.largeBufferPool = new BufferPool(PeerConnection.MAX_FRAME_LENGTH, MAX_POOLED_LARGE_BUFFERS);
+	}
+
+	/** Starts transport thread. */
+	public synchronized void start() {
+		if (this.thread != null)
+			throw new IllegalStateException("Peer transport already started");
+
+		this.isRunning = true;
+		this.thread = new Thread(this, "Peer transport");
+		this.thread.setDaemon(true);
+		this.thread.start();
+	}
+
+	/**
+	 * Listens for incoming connections.
+	 *
+	 * @param address
+	 *            use port 0 for any free port
+	 * @return actual bound address
+	 * @throws IOException
+	 */
+	public InetSocketAddress listen(InetSocketAddress address) throws IOException {
+		ServerSocketChannel serverChannel = ServerSocketChannel.open();
+		serverChannel.configureBlocking(false);
+		serverChannel.setOption(StandardSocketOptions.SO_REUSEADDR, true);
+		serverChannel.bind(address);
+
+		synchronized (this.serverChannels) {
+			this.serverChannels.add(serverChannel);
+		}
+
+		this.execute(() -> {
+			try {
+				serverChannel.register(this.selector, SelectionKey.OP_ACCEPT);
+			} catch (IOException e) {
+				LOGGER.error("Unable to listen on " + address, e);
+			}
+		});
+
+		return (InetSocketAddress) serverChannel.getLocalAddress();
+	}
+
+	/**
+	 * Starts connecting to peer.
+	 * <p>
+	 * Listener's {@link Listener#onConnected(PeerConnection)} or {@link Listener#onDisconnected(PeerConnection, IOException)} is called when
+	 * connection attempt completes. Messages can be sent before then, and are queued until connected.
+	 *
+	 * @param address
+	 * @return peer connection
+	 * @throws IOException
+	 */
+	public PeerConnection connect(InetSocketAddress address) throws IOException {
+		SocketChannel channel = SocketChannel.open();
+		configure(channel);
+
+		PeerConnection peer = new PeerConnection(this, channel, address);
+
+		boolean isConnected = channel.connect(address);
+
+		this.execute(() -> this.register(peer, isConnected));
+
+		return peer;
+	}
+
+	/** Stops transport thread and closes all connections. */
+	@Override
+	public void close() {
+		Thread thread;
+		synchronized (this) {
+			thread = this.thread;
+			this.isRunning = false;
+		}
+
+		this.selector.wakeup();
+
+		if (thread != null && thread != Thread.currentThread())
+			try {
+				thread.join();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+
+		// Transport thread closes everything when it exits, but might not have been started
+		if (thread == null)
+			this.closeAll();
+	}
+
+	@Override
+	public void run() {
+		try {
+			while (this.isRunning) {
+				this.selector.select();
+
+				Runnable task;
+				while ((task = this.pendingTasks.poll()) != null)
+					task.run();
+
+				Iterator<SelectionKey> iterator = this.selector.selectedKeys().iterator();
+				while (iterator.hasNext()) {
+					SelectionKey key = iterator.next();
+					iterator.remove();
+
+					if (!key.isValid())
+						continue;
+
+					if (key.isAcceptable()) {
+						this.accept((ServerSocketChannel) key.channel());
+						continue;
+					}
+
+					this.service((PeerConnection) key.attachment(), key);
+				}
+			}
+		} catch (IOException | ClosedSelectorException e) {
+			LOGGER.error("Peer transport failed", e);
+		} finally {
+			this.closeAll();
+		}
+	}
+
+	// Called by peer connections
+
+	BufferPool getSmallBufferPool() {
+		return this.smallBufferPool;
+	}
+
+	BufferPool getLargeBufferPool() {
+		return this.largeBufferPool;
+	}
+
+	boolean isTransportThread() {
+		return Thread.currentThread() == this.thread;
+	}
+
+	/** Asks transport thread to write remaining queued data when peer's channel is writable. */
+	void enableWrites(PeerConnection peer) {
+		SelectionKey key = peer.getSelectionKey();
+		if (key == null || !key.isValid())
+			return;
+
+		key.interestOps(key.interestOps() | SelectionKey.OP_WRITE);
+
+		if (!this.isTransportThread())
+			this.selector.wakeup();
+	}
+
+	/** Closes peer connection, notifying listener, from any thread. */
+	void close(PeerConnection peer, IOException cause) {
+		if (this.isTransportThread())
+			this.closeConnection(peer, cause);
+		else
+			this.execute(() -> this.closeConnection(peer, cause));
+	}
+
+	// Transport thread
+
+	private void execute(Runnable task) {
+		this.pendingTasks.add(task);
+		this.selector.wakeup();
+	}
+
+	private static void configure(SocketChannel channel) throws IOException {
+		channel.configureBlocking(false);
+		channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+		channel.setOption(StandardSocketOptions.SO_KEEPALIVE, true);
+	}
+
+	private void register(PeerConnection peer, boolean isConnected) {
+		try {
+			SelectionKey key = peer.getChannel().register(this.selector, isConnected ? SelectionKey.OP_READ : SelectionKey.OP_CONNECT, peer);
+			peer.setSelectionKey(key);
+
+			if (isConnected)
+				this.onConnected(peer);
+		} catch (IOException e) {
+			this.closeConnection(peer, e);
+		}
+	}
+
+	private void accept(ServerSocketChannel serverChannel) {
+		SocketChannel channel = null;
+
+		try {
+			channel = serverChannel.accept();
+			if (channel == null)
+				return;
+
+			configure(channel);
+
+			PeerConnection peer = new PeerConnection(this, channel, (InetSocketAddress) channel.getRemoteAddress());
+			peer.setSelectionKey(channel.register(this.selector, SelectionKey.OP_READ, peer));
+
+			this.onConnected(peer);
+		} catch (IOException e) {
+			LOGGER.info("Unable to accept incoming connection", e);
+
+			if (channel != null)
+				try {
+					channel.close();
+				} catch (IOException e2) {
+					// Already failed
+				}
+		}
+	}
+
+	private void onConnected(PeerConnection peer) throws IOException {
+		boolean hasQueuedMessages = peer.onConnected();
+
+		try {
+			this.listener.onConnected(peer);
+		} catch (RuntimeException e) {
+			LOGGER.error("Listener failed on connection to " + peer, e);
+			this.closeConnection(peer, null);
+			return;
+		}
+
+		if (hasQueuedMessages && !peer.flush())
+			this.enableWrites(peer);
+	}
+
+	private void service(PeerConnection peer, SelectionKey key) {
+		try {
+			if (key.isConnectable()) {
+				peer.getChannel().finishConnect();
+				key.interestOps(SelectionKey.OP_READ);
+				this.onConnected(peer);
+			}
+
+			if (key.isValid() && key.isWritable()) {
+				// Stop waiting for writability once everything is sent
+				synchronized (peer) {
+					if (peer.flush())
+						key.interestOps(key.interestOps() & ~SelectionKey.OP_WRITE);
+				}
+			}
+
+			if (key.isValid() && key.isReadable() && !peer.read(this.listener))
+				this.closeConnection(peer, new IOException("Connection closed by " + peer));
+		} catch (IOException e) {
+			this.closeConnection(peer, e);
+		} catch (RuntimeException e) {
+			LOGGER.error("Listener failed on message from " + peer, e);
+			this.closeConnection(peer, null);
+		}
+	}
+
+	private void closeConnection(PeerConnection peer, IOException cause) {
+		if (!peer.onClosed())
+			return;
+
+		SelectionKey key = peer.getSelectionKey();
+		if (key != null)
+			key.cancel();
+
+		try {
+			peer.getChannel().close();
+		} catch (IOException e) {
+			// We're closing anyway
+		}
+
+		try {
+			this.listener.onDisconnected(peer, cause);
+		} catch (RuntimeException e) {
+			LOGGER.error("Listener failed on disconnection from " + peer, e);
+		}
+	}
+
+	private void closeAll() {
+		// Run any outstanding registrations so their connections are closed too
+		Runnable task;
+		while ((task = this.pendingTasks.poll()) != null)
+			task.run();
+
+		if (this.selector.isOpen())
+			for (SelectionKey key : this.selector.keys())
+				if (key.attachment() instanceof PeerConnection)
+					this.closeConnection((PeerConnection) key.attachment(), null);
+
+		synchronized (this.serverChannels) {
+			for (ServerSocketChannel serverChannel : this.serverChannels)
+				try {
+					serverChannel.close();
+				} catch (IOException e) {
+					// We're closing anyway
+				}
+
+			this.serverChannels.clear();
+		}
+
+		try {
+			this.selector.close();
+		} catch (IOException e) {
+			// We're closing anyway
+		}
+	}
+
+}
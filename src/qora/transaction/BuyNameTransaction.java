@@ -4,6 +4,7 @@ import java.math.BigDecimal;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
+import java.util.Set;
 
 import com.google.common.base.Utf8;
 
@@ -64,6 +65,16 @@ public class BuyNameTransaction extends Transaction {
 		return amount;
 	}
 
+	@Override
+	public Set<String> getReadStateKeys() throws DataException {
+		return this.getCreatorStateKeys(nameStateKey(buyNameTransactionData.getName()));
+	}
+
+	@Override
+	public Set<String> getWrittenStateKeys() throws DataException {
+		return this.getCreatorAndRecipientStateKeys(nameStateKey(buyNameTransactionData.getName()));
+	}
+
 	// Navigation
 
 	public Account getBuyer() throws DataException {
@@ -4,6 +4,7 @@ import java.math.BigDecimal;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.Set;
 
 import data.assets.OrderData;
 import data.transaction.CancelOrderTransactionData;
@@ -52,6 +53,16 @@ public class CancelOrderTransaction extends Transaction {
 		return amount;
 	}
 
+	@Override
+	public Set<String> getReadStateKeys() throws DataException {
+		return this.getCreatorStateKeys(orderStateKey(cancelOrderTransactionData.getOrderId()));
+	}
+
+	@Override
+	public Set<String> getWrittenStateKeys() throws DataException {
+		return this.getCreatorAndRecipientStateKeys(orderStateKey(cancelOrderTransactionData.getOrderId()));
+	}
+
 	// Navigation
 
 	@Override
@@ -4,6 +4,7 @@ import java.math.BigDecimal;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.Set;
 
 import com.google.common.base.Utf8;
 
@@ -58,6 +59,16 @@ public class CancelSellNameTransaction extends Transaction {
 		return amount;
 	}
 
+	@Override
+	public Set<String> getReadStateKeys() throws DataException {
+		return this.getCreatorStateKeys(nameStateKey(cancelSellNameTransactionData.getName()));
+	}
+
+	@Override
+	public Set<String> getWrittenStateKeys() throws DataException {
+		return this.getCreatorAndRecipientStateKeys(nameStateKey(cancelSellNameTransactionData.getName()));
+	}
+
 	// Navigation
 
 	public Account getOwner() throws DataException {
@@ -5,6 +5,7 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
+import java.util.Set;
 
 import com.google.common.base.Utf8;
 
@@ -64,6 +65,16 @@ public class CreatePollTransaction extends Transaction {
 		return amount;
 	}
 
+	@Override
+	public Set<String> getReadStateKeys() throws DataException {
+		return this.getCreatorStateKeys(pollStateKey(createPollTransactionData.getPollName()));
+	}
+
+	@Override
+	public Set<String> getWrittenStateKeys() throws DataException {
+		return this.getCreatorAndRecipientStateKeys(pollStateKey(createPollTransactionData.getPollName()));
+	}
+
 	// Navigation
 
 	@Override
@@ -4,8 +4,8 @@ import java.io.UnsupportedEncodingException;
 import java.math.BigDecimal;
 import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
-import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
 
 import com.google.common.base.Utf8;
@@ -45,7 +45,8 @@ public class DeployATTransaction extends Transaction {
 
 	@Override
 	public List<Account> getRecipientAccounts() throws DataException {
-		return new ArrayList<Account>();
+		// AT account receives initial amount
+		return Collections.singletonList(this.getATAccount());
 	}
 
 	@Override
@@ -4,6 +4,7 @@ import java.math.BigDecimal;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
+import java.util.Set;
 
 import data.PaymentData;
 import data.transaction.MessageTransactionData;
@@ -72,6 +73,16 @@ public class MessageTransaction extends Transaction {
 		return amount;
 	}
 
+	@Override
+	public Set<String> getReadStateKeys() throws DataException {
+		return this.getCreatorStateKeys();
+	}
+
+	@Override
+	public Set<String> getWrittenStateKeys() throws DataException {
+		return this.getCreatorAndRecipientStateKeys();
+	}
+
 	// Navigation
 
 	public Account getSender() throws DataException {
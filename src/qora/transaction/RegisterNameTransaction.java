@@ -4,6 +4,7 @@ import java.math.BigDecimal;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
+import java.util.Set;
 
 import com.google.common.base.Utf8;
 
@@ -61,6 +62,16 @@ public class RegisterNameTransaction extends Transaction {
 		return amount;
 	}
 
+	@Override
+	public Set<String> getReadStateKeys() throws DataException {
+		return this.getCreatorStateKeys(nameStateKey(registerNameTransactionData.getName()));
+	}
+
+	@Override
+	public Set<String> getWrittenStateKeys() throws DataException {
+		return this.getCreatorAndRecipientStateKeys(nameStateKey(registerNameTransactionData.getName()));
+	}
+
 	// Navigation
 
 	public Account getRegistrant() throws DataException {
@@ -2,8 +2,11 @@ package qora.transaction;
 
 import java.math.BigDecimal;
 import java.math.MathContext;
+import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 import static java.util.Arrays.stream;
 import static java.util.stream.Collectors.toMap;
@@ -19,6 +22,7 @@ import repository.Repository;
 import settings.Settings;
 import transform.TransformationException;
 import transform.transaction.TransactionTransformer;
+import utils.Base58;
 
 public abstract class Transaction {
 
@@ -329,6 +333,64 @@ public abstract class Transaction {
 	 */
 	public abstract BigDecimal getAmount(Account account) throws DataException;
 
+	/**
+	 * Returns keys identifying blockchain state, e.g. accounts or names, read by {@link #isValid()}.
+	 * <p>
+	 * Used, with {@link #getWrittenStateKeys()}, to find transactions in a block whose validity can't be affected by earlier transactions in the same
+	 * block.
+	 * 
+	 * @return keys, or null if not known in advance
+	 * @throws DataException
+	 */
+	public Set<String> getReadStateKeys() throws DataException {
+		return null;
+	}
+
+	/**
+	 * Returns keys identifying blockchain state, e.g. accounts or names, modified by {@link #process()}.
+	 * 
+	 * @return keys, or null if not known in advance, e.g. due to asset order matching
+	 * @throws DataException
+	 * @see #getReadStateKeys()
+	 */
+	public Set<String> getWrittenStateKeys() throws DataException {
+		return null;
+	}
+
+	/** Returns state key for creator's account plus <tt>otherKeys</tt>. */
+	protected Set<String> getCreatorStateKeys(String... otherKeys) throws DataException {
+		Set<String> keys = new HashSet<String>();
+		keys.add(accountStateKey(this.getCreator().getAddress()));
+		Collections.addAll(keys, otherKeys);
+		return keys;
+	}
+
+	/** Returns state keys for creator's and recipients' accounts plus <tt>otherKeys</tt>. */
+	protected Set<String> getCreatorAndRecipientStateKeys(String... otherKeys) throws DataException {
+		Set<String> keys = this.getCreatorStateKeys(otherKeys);
+
+		for (Account recipient : this.getRecipientAccounts())
+			keys.add(accountStateKey(recipient.getAddress()));
+
+		return keys;
+	}
+
+	protected static String accountStateKey(String address) {
+		return "account:" + address;
+	}
+
+	protected static String nameStateKey(String name) {
+		return "name:" + name;
+	}
+
+	protected static String pollStateKey(String pollName) {
+		return "poll:" + pollName;
+	}
+
+	protected static String orderStateKey(byte[] orderId) {
+		return "order:" + Base58.encode(orderId);
+	}
+
 	// Navigation
 
 	/**
@@ -29,4 +29,7 @@ public interface ATRepository {
 	/** Delete state data for all ATs at this height */
 	public void deleteATStates(int height) throws DataException;
 
+	/** Delete state data for all ATs above this height, e.g. when orphaning many blocks */
+	public void deleteATStatesAbove(int height) throws DataException;
+
 }
@@ -1,5 +1,7 @@
 package repository;
 
+import java.math.BigDecimal;
+
 import data.account.AccountBalanceData;
 import data.account.AccountData;
 
@@ -23,4 +25,97 @@ public interface AccountRepository {
 
 	public void delete(String address, long assetId) throws DataException;
 
+	// Balance history
+
+	/**
+	 * Start recording which balances change, and their values beforehand, e.g. when starting to process a block.
+	 * 
+	 * @throws DataException
+	 */
+	public void startBalanceHistory() throws DataException;
+
+	/**
+	 * Save history for balances changed since {@link #startBalanceHistory()} as belonging to block at given height, then stop recording.
+	 * 
+	 * @param height
+	 * @throws DataException
+	 */
+	public void saveBalanceHistory(int height) throws DataException;
+
+	/**
+	 * Delete all balance history for block at given height, e.g. when orphaning block.
+	 * 
+	 * @param height
+	 * @throws DataException
+	 */
+	public void deleteBalanceHistory(int height) throws DataException;
+
+	/**
+	 * Delete all balance history for blocks above given height, e.g. when orphaning many blocks.
+	 * 
+	 * @param height
+	 * @throws DataException
+	 */
+	public void deleteBalanceHistoryAbove(int height) throws DataException;
+
+	/**
+	 * Returns account's balance as it was after block at given height was processed.
+	 * 
+	 * @param address
+	 * @param assetId
+	 * @param height
+	 * @return balance (zero if account had no balance), or null if history isn't available for that height
+	 * @throws DataException
+	 */
+	public BigDecimal getBalanceAtHeight(String address, long assetId, int height) throws DataException;
+
+	// QORA receipts, for generating balance
+
+	/**
+	 * Record QORA received by account in block at given height.
+	 * 
+	 * @param address
+	 * @param height
+	 * @param amount
+	 *            total of positive QORA amounts from block's transactions involving account
+	 * @throws DataException
+	 */
+	public void saveQoraReceipt(String address, int height, BigDecimal amount) throws DataException;
+
+	/**
+	 * Delete all QORA receipts for block at given height, e.g. when orphaning block.
+	 * 
+	 * @param height
+	 * @throws DataException
+	 */
+	public void deleteQoraReceipts(int height) throws DataException;
+
+	/**
+	 * Delete all QORA receipts for blocks above given height, e.g. when orphaning many blocks.
+	 * 
+	 * @param height
+	 * @throws DataException
+	 */
+	public void deleteQoraReceiptsAbove(int height) throws DataException;
+
+	/**
+	 * Returns total QORA received by account in blocks at, or above, given height.
+	 * 
+	 * @param address
+	 * @param minHeight
+	 * @return total received, or zero if none
+	 * @throws DataException
+	 */
+	public BigDecimal getQoraReceipts(String address, int minHeight) throws DataException;
+
+	/**
+	 * Returns lowest block height from which QORA receipts have been recorded.
+	 * <p>
+	 * Receipts for blocks below this height, e.g. processed before receipts were introduced, are not available.
+	 * 
+	 * @return height
+	 * @throws DataException
+	 */
+	public int getQoraReceiptsStartHeight() throws DataException;
+
 }
@@ -23,6 +23,15 @@ public interface BlockRepository {
 	 */
 	public int getHeightFromSignature(byte[] signature) throws DataException;
 
+	/**
+	 * Return block containing transaction with given signature.
+	 * 
+	 * @param transactionSignature
+	 * @return block's data, or null if transaction is not in a block (e.g. unconfirmed).
+	 * @throws DataException
+	 */
+	public BlockData fromTransactionSignature(byte[] transactionSignature) throws DataException;
+
 	/**
 	 * Return highest block height from repository.
 	 * 
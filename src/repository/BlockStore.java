@@ -0,0 +1,305 @@
+package repository;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only store of serialized blocks, so blocks can be served as-is without reloading them from repository and re-serializing.
+ * <p>
+ * Blocks are stored consecutively by height in memory-mapped segment files, each record being:
+ * <ul>
+ * <li>height (int)</li>
+ * <li>block length (int)</li>
+ * <li>CRC32 of signature and block bytes (int)</li>
+ * <li>signature length (int)</li>
+ * <li>signature</li>
+ * <li>block bytes</li>
+ * </ul>
+ * A zero height marks the end of a segment's records. The height to (segment, offset) index is kept in memory and rebuilt from segment headers
+ * when the store is opened.
+ * <p>
+ * Block store isn't part of repository transactions, e.g. a block might be stored but its repository changes then discarded. So blocks are only
+ * returned if their signature matches that requested, and storing a block at a height already stored replaces that block and all following
+ * blocks. Similarly, blocks might be removed by orphaning that is then discarded, so heights can be skipped, leaving them not stored.
+ */
+public class BlockStore implements AutoCloseable {
+
+	public static final int DEFAULT_SEGMENT_SIZE = 64 * 1024 * 1024;
+
+	private static final int HEADER_LENGTH = 16;
+	/** Location of heights skipped over, see {@link #save(int, byte[], byte[])}. */
+	private static final long NOT_STORED = -1L;
+	private static final String SEGMENT_FILENAME_FORMAT = "blocks-%05d.dat";
+
+	private final Path directory;
+	private final int segmentSize;
+
+	private final List<MappedByteBuffer> segments = new ArrayList<MappedByteBuffer>();
+
+	/**
+	 * Location of each stored block, indexed by height minus <tt>firstHeight</tt>, as segment index in high int and offset in low int, or
+	 * <tt>NOT_STORED</tt>.
+	 */
+	private long[] locations = new long[1024];
+	/** Height of first stored block, only valid if <tt>blockCount</tt> is non-zero. */
+	private int firstHeight = 0;
+	/** Number of heights from <tt>firstHeight</tt> up to and including highest stored block. */
+	private int blockCount = 0;
+
+	/** Where next record will be written. */
+	private int writeSegmentIndex = 0;
+	private int writeOffset = 0;
+
+	public BlockStore(Path directory) throws DataException {
+		this(directory, DEFAULT_SEGMENT_SIZE);
+	}
+
+	public BlockStore(Path directory, int segmentSize) throws DataException {
+		this.directory = directory;
+		this.segmentSize = segmentSize;
+
+		try {
+			Files.createDirectories(directory);
+			this.load();
+		} catch (IOException e) {
+			throw new DataException("Unable to open block store", e);
+		}
+	}
+
+	/**
+	 * Rebuilds index from existing segments, discarding any records following an incomplete or out-of-sequence record.
+	 * <p>
+	 * Record heights must increase, but can skip heights.
+	 *
+	 * @throws IOException
+	 */
+	private void load() throws IOException {
+		for (int segmentIndex = 0; Files.exists(this.getSegmentPath(segmentIndex)); ++segmentIndex) {
+			MappedByteBuffer segment = this.getSegment(segmentIndex);
+
+			this.writeSegmentIndex = segmentIndex;
+			this.writeOffset = 0;
+
+			while (this.writeOffset + HEADER_LENGTH <= segment.capacity()) {
+				int height = segment.getInt(this.writeOffset);
+				if (height == 0)
+					break;
+
+				int blockLength = segment.getInt(this.writeOffset + 4);
+				int signatureLength = segment.getInt(this.writeOffset + 12);
+
+				boolean isValid = height > 0 && (this.blockCount == 0 || height >= this.firstHeight + this.blockCount) && blockLength > 0
+						&& signatureLength > 0 && (long) this.writeOffset + HEADER_LENGTH + signatureLength + blockLength <= segment.capacity();
+
+				if (!isValid) {
+					// Discard this and any following records
+					segment.putInt(this.writeOffset, 0);
+					this.deleteSegmentsAfter(segmentIndex);
+					return;
+				}
+
+				this.addLocation(height, segmentIndex, this.writeOffset);
+				this.writeOffset += HEADER_LENGTH + signatureLength + blockLength;
+			}
+		}
+	}
+
+	/**
+	 * Stores block's serialized bytes.
+	 * <p>
+	 * Any blocks already stored at or above <tt>height</tt> are replaced. If <tt>height</tt> is beyond the highest stored block, e.g. because
+	 * blocks were removed by orphaning that was then discarded, then the heights in between are left not stored.
+	 *
+	 * @param height
+	 * @param signature
+	 * @param blockBytes
+	 * @throws DataException
+	 */
+	public synchronized void save(int height, byte[] signature, byte[] blockBytes) throws DataException {
+		if (this.blockCount > 0 && height < this.firstHeight + this.blockCount)
+			this.truncate(height);
+
+		int recordLength = HEADER_LENGTH + signature.length + blockBytes.length;
+
+		try {
+			MappedByteBuffer segment = this.getSegment(this.writeSegmentIndex);
+
+			// Start new segment if record doesn't fit, leaving zero height to mark end of this segment's records
+			if (this.writeOffset + recordLength > segment.capacity()) {
+				if (this.writeOffset == 0)
+					throw new DataException("Block too large for block store segment");
+
+				++this.writeSegmentIndex;
+				this.writeOffset = 0;
+				segment = this.getSegment(this.writeSegmentIndex);
+			}
+
+			CRC32 crc = new CRC32();
+			crc.update(signature);
+			crc.update(blockBytes);
+
+			ByteBuffer record = segment.duplicate();
+			record.position(this.writeOffset + HEADER_LENGTH);
+			record.put(signature);
+			record.put(blockBytes);
+
+			// Make sure any stale record following this one isn't mistaken for a valid record
+			int nextOffset = this.writeOffset + recordLength;
+			if (nextOffset + HEADER_LENGTH <= segment.capacity())
+				segment.putInt(nextOffset, 0);
+
+			// Height written last as it marks record as present
+			segment.putInt(this.writeOffset + 4, blockBytes.length);
+			segment.putInt(this.writeOffset + 8, (int) crc.getValue());
+			segment.putInt(this.writeOffset + 12, signature.length);
+			segment.putInt(this.writeOffset, height);
+		} catch (IOException e) {
+			throw new DataException("Unable to save block to block store", e);
+		}
+
+		this.addLocation(height, this.writeSegmentIndex, this.writeOffset);
+		this.writeOffset += recordLength;
+	}
+
+	/**
+	 * Returns stored block's serialized bytes, if stored block at <tt>height</tt> has matching <tt>signature</tt>.
+	 *
+	 * @param height
+	 * @param signature
+	 * @return block bytes, or null if not stored
+	 */
+	public synchronized byte[] fromHeight(int height, byte[] signature) {
+		if (this.blockCount == 0 || height < this.firstHeight || height >= this.firstHeight + this.blockCount)
+			return null;
+
+		long location = this.locations[height - this.firstHeight];
+		if (location == NOT_STORED)
+			return null;
+
+		MappedByteBuffer segment = this.segments.get((int) (location >>> 32));
+		int offset = (int) location;
+
+		int blockLength = segment.getInt(offset + 4);
+		int checksum = segment.getInt(offset + 8);
+		int signatureLength = segment.getInt(offset + 12);
+
+		ByteBuffer record = segment.duplicate();
+		record.position(offset + HEADER_LENGTH);
+
+		byte[] storedSignature = new byte[signatureLength];
+		record.get(storedSignature);
+		if (!Arrays.equals(storedSignature, signature))
+			return null;
+
+		byte[] blockBytes = new byte[blockLength];
+		record.get(blockBytes);
+
+		// Guard against record damaged by crash while writing
+		CRC32 crc = new CRC32();
+		crc.update(storedSignature);
+		crc.update(blockBytes);
+		if ((int) crc.getValue() != checksum)
+			return null;
+
+		return blockBytes;
+	}
+
+	/**
+	 * Removes stored blocks at or above <tt>height</tt>, e.g. when orphaning.
+	 *
+	 * @param height
+	 * @throws DataException
+	 */
+	public synchronized void truncate(int height) throws DataException {
+		if (this.blockCount == 0 || height >= this.firstHeight + this.blockCount)
+			return;
+
+		height = Math.max(height, this.firstHeight);
+
+		// Next record is written in place of first stored block being removed, which exists as highest block is always stored
+		int index = height - this.firstHeight;
+		while (this.locations[index] == NOT_STORED)
+			++index;
+
+		long location = this.locations[index];
+		this.writeSegmentIndex = (int) (location >>> 32);
+		this.writeOffset = (int) location;
+
+		// Highest remaining block must be stored, so drop any skipped heights below removed blocks too
+		this.blockCount = height - this.firstHeight;
+		while (this.blockCount > 0 && this.locations[this.blockCount - 1] == NOT_STORED)
+			--this.blockCount;
+
+		this.segments.get(this.writeSegmentIndex).putInt(this.writeOffset, 0);
+
+		try {
+			this.deleteSegmentsAfter(this.writeSegmentIndex);
+		} catch (IOException e) {
+			throw new DataException("Unable to truncate block store", e);
+		}
+	}
+
+	/** Writes stored blocks to disk and closes store. */
+	@Override
+	public synchronized void close() {
+		for (MappedByteBuffer segment : this.segments)
+			segment.force();
+
+		// Mappings are released when buffers are garbage-collected
+		this.segments.clear();
+		this.blockCount = 0;
+	}
+
+	/** Records location of block at <tt>height</tt>, which must be above highest stored block, marking any skipped heights as not stored. */
+	private void addLocation(int height, int segmentIndex, int offset) {
+		if (this.blockCount == 0)
+			this.firstHeight = height;
+
+		int index = height - this.firstHeight;
+
+		if (index >= this.locations.length)
+			this.locations = Arrays.copyOf(this.locations, Math.max(this.locations.length * 2, index + 1));
+
+		Arrays.fill(this.locations, this.blockCount, index, NOT_STORED);
+		this.locations[index] = ((long) segmentIndex << 32) | (offset & 0xffffffffL);
+		this.blockCount = index + 1;
+	}
+
+	private Path getSegmentPath(int segmentIndex) {
+		return this.directory.resolve(String.format(SEGMENT_FILENAME_FORMAT, segmentIndex));
+	}
+
+	/** Returns mapped segment, mapping existing file or creating new segment as needed. */
+	private MappedByteBuffer getSegment(int segmentIndex) throws IOException {
+		if (segmentIndex < this.segments.size())
+			return this.segments.get(segmentIndex);
+
+		try (FileChannel channel = FileChannel.open(this.getSegmentPath(segmentIndex), StandardOpenOption.CREATE, StandardOpenOption.READ,
+				StandardOpenOption.WRITE)) {
+			// Existing segments keep their size, otherwise file is extended to segment size
+			long size = channel.size() > 0 ? channel.size() : this.segmentSize;
+
+			MappedByteBuffer segment = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+			this.segments.add(segment);
+			return segment;
+		}
+	}
+
+	private void deleteSegmentsAfter(int segmentIndex) throws IOException {
+		while (this.segments.size() > segmentIndex + 1)
+			this.segments.remove(this.segments.size() - 1);
+
+		for (int i = segmentIndex + 1; Files.deleteIfExists(this.getSegmentPath(i)); ++i)
+			;
+	}
+
+}
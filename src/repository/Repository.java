@@ -16,10 +16,51 @@ public interface Repository extends AutoCloseable {
 
 	public VotingRepository getVotingRepository();
 
+	/**
+	 * Enable/disable batching of repository writes.
+	 * <p>
+	 * Pending batched writes are always flushed before any dependent read, by {@link #saveChanges()},
+	 * or when batching is disabled. {@link #discardChanges()} drops any pending batched writes and disables batching.
+	 * 
+	 * @param batchWrites
+	 * @throws DataException
+	 */
+	public void setBatchWrites(boolean batchWrites) throws DataException;
+
 	public void saveChanges() throws DataException;
 
 	public void discardChanges() throws DataException;
 
+	/**
+	 * Returns whether this session has changes that haven't been saved yet.
+	 * <p>
+	 * Other sessions can't see such changes, and might have to wait for them to be saved or discarded.
+	 * 
+	 * @return true if there are unsaved changes
+	 */
+	public boolean hasUncommittedChanges();
+
+	/**
+	 * Enable/disable bulk-load mode, for importing many blocks quickly.
+	 * <p>
+	 * In bulk-load mode, saved changes are only guaranteed to survive a crash once {@link #checkpoint()} has been called, and secondary indexes
+	 * that aren't needed to process blocks are dropped. Disabling bulk-load mode rebuilds those indexes and restores normal durability.
+	 * <p>
+	 * Bulk-load mode applies to the whole repository, not just this session, and can only be changed when there are no unsaved changes. If
+	 * bulk-load mode is never disabled, e.g. due to a crash, then it is disabled when the repository is next opened.
+	 * 
+	 * @param bulkLoad
+	 * @throws DataException
+	 */
+	public void setBulkLoad(boolean bulkLoad) throws DataException;
+
+	/**
+	 * Makes all saved changes durable, e.g. by writing database files to disk.
+	 * 
+	 * @throws DataException
+	 */
+	public void checkpoint() throws DataException;
+
 	@Override
 	public void close() throws DataException;
 
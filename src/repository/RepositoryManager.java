@@ -3,6 +3,7 @@ package repository;
 public abstract class RepositoryManager {
 
 	private static RepositoryFactory repositoryFactory = null;
+	private static BlockStore blockStore = null;
 
 	public static void setRepositoryFactory(RepositoryFactory newRepositoryFactory) {
 		repositoryFactory = newRepositoryFactory;
@@ -20,4 +21,21 @@ public abstract class RepositoryManager {
 		repositoryFactory = null;
 	}
 
+	public static void setBlockStore(BlockStore newBlockStore) {
+		blockStore = newBlockStore;
+	}
+
+	/** Returns store of serialized blocks, or null if blocks aren't being stored. */
+	public static BlockStore getBlockStore() {
+		return blockStore;
+	}
+
+	public static void closeBlockStore() {
+		if (blockStore == null)
+			return;
+
+		blockStore.close();
+		blockStore = null;
+	}
+
 }
@@ -1,5 +1,7 @@
 package repository;
 
+import java.util.List;
+
 import data.transaction.TransactionData;
 import data.block.BlockData;
 
@@ -13,6 +15,17 @@ public interface TransactionRepository {
 
 	public BlockData getBlockDataFromSignature(byte[] signature) throws DataException;
 
+	/**
+	 * Returns all transactions in block, in block order.
+	 * <p>
+	 * Uses a fixed number of queries regardless of block size: one for common transaction info plus one per transaction type present.
+	 * 
+	 * @param blockSignature
+	 * @return list of transactions, empty if none found
+	 * @throws DataException
+	 */
+	public List<TransactionData> fromBlockSignature(byte[] blockSignature) throws DataException;
+
 	public void save(TransactionData transactionData) throws DataException;
 
 	public void delete(TransactionData transactionData) throws DataException;
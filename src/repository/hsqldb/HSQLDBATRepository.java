@@ -164,4 +164,13 @@ public class HSQLDBATRepository implements ATRepository {
 		}
 	}
 
+	@Override
+	public void deleteATStatesAbove(int height) throws DataException {
+		try {
+			this.repository.delete("ATStates", "height > ?", height);
+		} catch (SQLException e) {
+			throw new DataException("Unable to delete AT states from repository", e);
+		}
+	}
+
 }
@@ -3,16 +3,62 @@ package repository.hsqldb;
 import java.math.BigDecimal;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.util.HashMap;
+import java.util.Map;
 
 import data.account.AccountBalanceData;
 import data.account.AccountData;
 import repository.AccountRepository;
 import repository.DataException;
 
+/**
+ * Account repository with write-behind cache.
+ * <p>
+ * Account references and balances are cached for the duration of the current repository transaction. Reads are served from cache where possible and
+ * writes are coalesced so only the net changes are written to the database, via {@link #flushCache()}, when the repository saves changes.
+ * <p>
+ * Cache is dropped, via {@link #clearCache()}, when the repository saves or discards changes.
+ */
 public class HSQLDBAccountRepository implements AccountRepository {
 
+	/** Cached account state. Null <tt>accountData</tt> means account is known not to exist. */
+	private static class CachedAccount {
+		private AccountData accountData;
+		private boolean isDirty;
+
+		private CachedAccount(AccountData accountData, boolean isDirty) {
+			this.accountData = accountData;
+			this.isDirty = isDirty;
+		}
+	}
+
+	/** Cached balance state. Null <tt>balance</tt> means balance is known not to exist. */
+	private static class CachedBalance {
+		private BigDecimal balance;
+		private boolean isDirty;
+
+		private CachedBalance(BigDecimal balance, boolean isDirty) {
+			this.balance = balance;
+			this.isDirty = isDirty;
+		}
+	}
+
 	protected HSQLDBRepository repository;
 
+	/** Cached accounts, keyed by address. */
+	private final Map<String, CachedAccount> accountCache = new HashMap<String, CachedAccount>();
+	/** Cached balances, keyed by address then asset ID. */
+	private final Map<String, Map<Long, CachedBalance>> balanceCache = new HashMap<String, Map<Long, CachedBalance>>();
+
+	/** Balances before their first change since {@link #startBalanceHistory()}, keyed by address then asset ID. Null if not recording. */
+	private Map<String, Map<Long, BigDecimal>> previousBalances = null;
+
+	private Integer balanceHistoryStartHeight = null;
+	private Integer qoraReceiptsStartHeight = null;
+
+	private long cacheHits = 0;
+	private long cacheMisses = 0;
+
 	public HSQLDBAccountRepository(HSQLDBRepository repository) {
 		this.repository = repository;
 	}
@@ -21,46 +67,46 @@ public class HSQLDBAccountRepository implements AccountRepository {
 
 	@Override
 	public void create(String address) throws DataException {
-		HSQLDBSaver saveHelper = new HSQLDBSaver("Accounts");
+		CachedAccount cachedAccount = this.getCachedAccount(address);
 
-		saveHelper.bind("account", address);
+		// Already exists?
+		if (cachedAccount.accountData != null)
+			return;
 
-		try {
-			saveHelper.execute(this.repository);
-		} catch (SQLException e) {
-			throw new DataException("Unable to create account in repository", e);
-		}
+		cachedAccount.accountData = new AccountData(address);
+		cachedAccount.isDirty = true;
 	}
 
 	@Override
 	public AccountData getAccount(String address) throws DataException {
-		try (ResultSet resultSet = this.repository.checkedExecute("SELECT reference FROM Accounts WHERE account = ?", address)) {
-			if (resultSet == null)
-				return null;
+		CachedAccount cachedAccount = this.getCachedAccount(address);
+		if (cachedAccount.accountData == null)
+			return null;
 
-			return new AccountData(address, resultSet.getBytes(1));
-		} catch (SQLException e) {
-			throw new DataException("Unable to fetch account info from repository", e);
-		}
+		// Return copy so caller can't modify cached state
+		return new AccountData(address, cachedAccount.accountData.getReference());
 	}
 
 	@Override
 	public void save(AccountData accountData) throws DataException {
-		HSQLDBSaver saveHelper = new HSQLDBSaver("Accounts");
-
-		saveHelper.bind("account", accountData.getAddress()).bind("reference", accountData.getReference());
-
-		try {
-			saveHelper.execute(this.repository);
-		} catch (SQLException e) {
-			throw new DataException("Unable to save account info into repository", e);
-		}
+		// Cache copy so caller can't modify cached state
+		this.accountCache.put(accountData.getAddress(), new CachedAccount(new AccountData(accountData.getAddress(), accountData.getReference()), true));
 	}
 
 	@Override
 	public void delete(String address) throws DataException {
+		// Pending changes for this account are superseded
+		this.accountCache.put(address, new CachedAccount(null, false));
+
 		// NOTE: Account balances are deleted automatically by the database thanks to "ON DELETE CASCADE" in AccountBalances' FOREIGN KEY
 		// definition.
+		Map<Long, CachedBalance> cachedBalances = this.balanceCache.get(address);
+		if (cachedBalances != null)
+			for (CachedBalance cachedBalance : cachedBalances.values()) {
+				cachedBalance.balance = null;
+				cachedBalance.isDirty = false;
+			}
+
 		try {
 			this.repository.delete("Accounts", "account = ?", address);
 		} catch (SQLException e) {
@@ -68,43 +114,353 @@ public class HSQLDBAccountRepository implements AccountRepository {
 		}
 	}
 
+	private CachedAccount getCachedAccount(String address) throws DataException {
+		CachedAccount cachedAccount = this.accountCache.get(address);
+		if (cachedAccount != null) {
+			++this.cacheHits;
+			return cachedAccount;
+		}
+
+		++this.cacheMisses;
+
+		try (ResultSet resultSet = this.repository.checkedExecute("SELECT reference FROM Accounts WHERE account = ?", address)) {
+			AccountData accountData = resultSet == null ? null : new AccountData(address, resultSet.getBytes(1));
+
+			cachedAccount = new CachedAccount(accountData, false);
+			this.accountCache.put(address, cachedAccount);
+
+			return cachedAccount;
+		} catch (SQLException e) {
+			throw new DataException("Unable to fetch account info from repository", e);
+		}
+	}
+
 	// Account balances
 
 	@Override
 	public AccountBalanceData getBalance(String address, long assetId) throws DataException {
+		CachedBalance cachedBalance = this.getCachedBalance(address, assetId);
+		if (cachedBalance.balance == null)
+			return null;
+
+		return new AccountBalanceData(address, assetId, cachedBalance.balance);
+	}
+
+	@Override
+	public void save(AccountBalanceData accountBalanceData) throws DataException {
+		this.recordPreviousBalance(accountBalanceData.getAddress(), accountBalanceData.getAssetId());
+
+		this.getCachedBalances(accountBalanceData.getAddress()).put(accountBalanceData.getAssetId(), new CachedBalance(accountBalanceData.getBalance(), true));
+	}
+
+	@Override
+	public void delete(String address, long assetId) throws DataException {
+		this.recordPreviousBalance(address, assetId);
+
+		// Pending change for this balance is superseded
+		this.getCachedBalances(address).put(assetId, new CachedBalance(null, false));
+
+		try {
+			this.repository.delete("AccountBalances", "account = ? and asset_id = ?", address, assetId);
+		} catch (SQLException e) {
+			throw new DataException("Unable to delete account balance from repository", e);
+		}
+	}
+
+	private Map<Long, CachedBalance> getCachedBalances(String address) {
+		Map<Long, CachedBalance> cachedBalances = this.balanceCache.get(address);
+
+		if (cachedBalances == null) {
+			cachedBalances = new HashMap<Long, CachedBalance>();
+			this.balanceCache.put(address, cachedBalances);
+		}
+
+		return cachedBalances;
+	}
+
+	private CachedBalance getCachedBalance(String address, long assetId) throws DataException {
+		Map<Long, CachedBalance> cachedBalances = this.getCachedBalances(address);
+
+		CachedBalance cachedBalance = cachedBalances.get(assetId);
+		if (cachedBalance != null) {
+			++this.cacheHits;
+			return cachedBalance;
+		}
+
+		++this.cacheMisses;
+
 		try (ResultSet resultSet = this.repository.checkedExecute("SELECT balance FROM AccountBalances WHERE account = ? and asset_id = ?", address, assetId)) {
-			if (resultSet == null)
-				return null;
+			BigDecimal balance = resultSet == null ? null : resultSet.getBigDecimal(1).setScale(8);
 
-			BigDecimal balance = resultSet.getBigDecimal(1).setScale(8);
+			cachedBalance = new CachedBalance(balance, false);
+			cachedBalances.put(assetId, cachedBalance);
 
-			return new AccountBalanceData(address, assetId, balance);
+			return cachedBalance;
 		} catch (SQLException e) {
 			throw new DataException("Unable to fetch account balance from repository", e);
 		}
 	}
 
+	// Balance history
+
+	@Override
+	public void startBalanceHistory() throws DataException {
+		this.previousBalances = new HashMap<String, Map<Long, BigDecimal>>();
+	}
+
 	@Override
-	public void save(AccountBalanceData accountBalanceData) throws DataException {
-		HSQLDBSaver saveHelper = new HSQLDBSaver("AccountBalances");
+	public void saveBalanceHistory(int height) throws DataException {
+		if (this.previousBalances == null)
+			return;
+
+		for (Map.Entry<String, Map<Long, BigDecimal>> addressEntry : this.previousBalances.entrySet())
+			for (Map.Entry<Long, BigDecimal> assetEntry : addressEntry.getValue().entrySet()) {
+				BigDecimal previousBalance = assetEntry.getValue();
 
-		saveHelper.bind("account", accountBalanceData.getAddress()).bind("asset_id", accountBalanceData.getAssetId()).bind("balance",
-				accountBalanceData.getBalance());
+				BigDecimal balance = this.getCachedBalance(addressEntry.getKey(), assetEntry.getKey()).balance;
+				if (balance == null)
+					balance = BigDecimal.ZERO.setScale(8);
+
+				// Skip balances that ended up unchanged
+				if (balance.compareTo(previousBalance) == 0)
+					continue;
+
+				HSQLDBSaver saveHelper = new HSQLDBSaver("AccountBalanceHistory");
+
+				saveHelper.bind("account", addressEntry.getKey()).bind("asset_id", assetEntry.getKey()).bind("height", height)
+						.bind("previous_balance", previousBalance).bind("balance", balance);
+
+				try {
+					saveHelper.execute(this.repository);
+				} catch (SQLException e) {
+					throw new DataException("Unable to save account balance history into repository", e);
+				}
+			}
+
+		this.previousBalances = null;
+	}
+
+	@Override
+	public void deleteBalanceHistory(int height) throws DataException {
+		try {
+			this.repository.delete("AccountBalanceHistory", "height = ?", height);
+		} catch (SQLException e) {
+			throw new DataException("Unable to delete account balance history from repository", e);
+		}
+	}
+
+	@Override
+	public void deleteBalanceHistoryAbove(int height) throws DataException {
+		try {
+			this.repository.delete("AccountBalanceHistory", "height > ?", height);
+		} catch (SQLException e) {
+			throw new DataException("Unable to delete account balance history from repository", e);
+		}
+	}
+
+	@Override
+	public BigDecimal getBalanceAtHeight(String address, long assetId, int height) throws DataException {
+		// History before this height is incomplete
+		if (height < this.getBalanceHistoryStartHeight() - 1)
+			return null;
+
+		// Balance after block at height is the balance before the next change, if any
+		try (ResultSet resultSet = this.repository.checkedExecute(
+				"SELECT previous_balance FROM AccountBalanceHistory WHERE account = ? AND asset_id = ? AND height > ? ORDER BY height ASC LIMIT 1", address,
+				assetId, height)) {
+			if (resultSet != null)
+				return resultSet.getBigDecimal(1).setScale(8);
+		} catch (SQLException e) {
+			throw new DataException("Unable to fetch account balance history from repository", e);
+		}
+
+		// No changes since so current balance applies
+		BigDecimal balance = this.getCachedBalance(address, assetId).balance;
+		if (balance == null)
+			return BigDecimal.ZERO.setScale(8);
+
+		return balance;
+	}
+
+	private int getBalanceHistoryStartHeight() throws DataException {
+		// Never changes once set by database update so only fetch once
+		if (this.balanceHistoryStartHeight == null)
+			try (ResultSet resultSet = this.repository.checkedExecute("SELECT start_height FROM AccountBalanceHistoryInfo")) {
+				if (resultSet == null)
+					throw new DataException("Missing account balance history info in repository");
+
+				this.balanceHistoryStartHeight = resultSet.getInt(1);
+			} catch (SQLException e) {
+				throw new DataException("Unable to fetch account balance history info from repository", e);
+			}
+
+		return this.balanceHistoryStartHeight;
+	}
+
+	/** If recording balance history, remember balance before its first change. */
+	private void recordPreviousBalance(String address, long assetId) throws DataException {
+		if (this.previousBalances == null)
+			return;
+
+		Map<Long, BigDecimal> previousAssetBalances = this.previousBalances.get(address);
+		if (previousAssetBalances == null) {
+			previousAssetBalances = new HashMap<Long, BigDecimal>();
+			this.previousBalances.put(address, previousAssetBalances);
+		} else if (previousAssetBalances.containsKey(assetId)) {
+			return;
+		}
+
+		BigDecimal previousBalance = this.getCachedBalance(address, assetId).balance;
+		previousAssetBalances.put(assetId, previousBalance == null ? BigDecimal.ZERO.setScale(8) : previousBalance);
+	}
+
+	// QORA receipts, for generating balance
+
+	@Override
+	public void saveQoraReceipt(String address, int height, BigDecimal amount) throws DataException {
+		HSQLDBSaver saveHelper = new HSQLDBSaver("AccountQoraReceipts");
+
+		saveHelper.bind("account", address).bind("height", height).bind("amount", amount);
 
 		try {
 			saveHelper.execute(this.repository);
 		} catch (SQLException e) {
-			throw new DataException("Unable to save account balance into repository", e);
+			throw new DataException("Unable to save account QORA receipt into repository", e);
 		}
 	}
 
 	@Override
-	public void delete(String address, long assetId) throws DataException {
+	public void deleteQoraReceipts(int height) throws DataException {
 		try {
-			this.repository.delete("AccountBalances", "account = ? and asset_id = ?", address, assetId);
+			this.repository.delete("AccountQoraReceipts", "height = ?", height);
 		} catch (SQLException e) {
-			throw new DataException("Unable to delete account balance from repository", e);
+			throw new DataException("Unable to delete account QORA receipts from repository", e);
 		}
 	}
 
+	@Override
+	public void deleteQoraReceiptsAbove(int height) throws DataException {
+		try {
+			this.repository.delete("AccountQoraReceipts", "height > ?", height);
+		} catch (SQLException e) {
+			throw new DataException("Unable to delete account QORA receipts from repository", e);
+		}
+	}
+
+	@Override
+	public BigDecimal getQoraReceipts(String address, int minHeight) throws DataException {
+		try (ResultSet resultSet = this.repository.checkedExecute("SELECT SUM(amount) FROM AccountQoraReceipts WHERE account = ? AND height >= ?", address,
+				minHeight)) {
+			if (resultSet == null)
+				return BigDecimal.ZERO.setScale(8);
+
+			BigDecimal amount = resultSet.getBigDecimal(1);
+			if (amount == null)
+				return BigDecimal.ZERO.setScale(8);
+
+			return amount.setScale(8);
+		} catch (SQLException e) {
+			throw new DataException("Unable to fetch account QORA receipts from repository", e);
+		}
+	}
+
+	@Override
+	public int getQoraReceiptsStartHeight() throws DataException {
+		// Never changes once set by database update so only fetch once
+		if (this.qoraReceiptsStartHeight == null)
+			try (ResultSet resultSet = this.repository.checkedExecute("SELECT start_height FROM AccountQoraReceiptsInfo")) {
+				if (resultSet == null)
+					throw new DataException("Missing account QORA receipts info in repository");
+
+				this.qoraReceiptsStartHeight = resultSet.getInt(1);
+			} catch (SQLException e) {
+				throw new DataException("Unable to fetch account QORA receipts info from repository", e);
+			}
+
+		return this.qoraReceiptsStartHeight;
+	}
+
+	// Cache management
+
+	/**
+	 * Write cached account changes to database.
+	 * <p>
+	 * Accounts are written before balances to satisfy AccountBalances' FOREIGN KEY.
+	 * 
+	 * @throws DataException
+	 */
+	// NB: no visibility modifier so only callable from within same package
+	void flushCache() throws DataException {
+		for (CachedAccount cachedAccount : this.accountCache.values()) {
+			if (!cachedAccount.isDirty)
+				continue;
+
+			HSQLDBSaver saveHelper = new HSQLDBSaver("Accounts");
+
+			saveHelper.bind("account", cachedAccount.accountData.getAddress()).bind("reference", cachedAccount.accountData.getReference());
+
+			try {
+				saveHelper.execute(this.repository);
+			} catch (SQLException e) {
+				throw new DataException("Unable to save account info into repository", e);
+			}
+
+			cachedAccount.isDirty = false;
+		}
+
+		for (Map.Entry<String, Map<Long, CachedBalance>> addressEntry : this.balanceCache.entrySet())
+			for (Map.Entry<Long, CachedBalance> assetEntry : addressEntry.getValue().entrySet()) {
+				CachedBalance cachedBalance = assetEntry.getValue();
+				if (!cachedBalance.isDirty)
+					continue;
+
+				HSQLDBSaver saveHelper = new HSQLDBSaver("AccountBalances");
+
+				saveHelper.bind("account", addressEntry.getKey()).bind("asset_id", assetEntry.getKey()).bind("balance", cachedBalance.balance);
+
+				try {
+					saveHelper.execute(this.repository);
+				} catch (SQLException e) {
+					throw new DataException("Unable to save account balance into repository", e);
+				}
+
+				cachedBalance.isDirty = false;
+			}
+	}
+
+	/**
+	 * Returns whether cache holds account changes not yet written to database.
+	 */
+	// NB: no visibility modifier so only callable from within same package
+	boolean hasCachedChanges() {
+		for (CachedAccount cachedAccount : this.accountCache.values())
+			if (cachedAccount.isDirty)
+				return true;
+
+		for (Map<Long, CachedBalance> assetBalances : this.balanceCache.values())
+			for (CachedBalance cachedBalance : assetBalances.values())
+				if (cachedBalance.isDirty)
+					return true;
+
+		return false;
+	}
+
+	/**
+	 * Drop all cached account state, including unwritten changes.
+	 */
+	// NB: no visibility modifier so only callable from within same package
+	void clearCache() {
+		this.accountCache.clear();
+		this.balanceCache.clear();
+		this.previousBalances = null;
+	}
+
+	public long getCacheHits() {
+		return this.cacheHits;
+	}
+
+	public long getCacheMisses() {
+		return this.cacheMisses;
+	}
+
 }
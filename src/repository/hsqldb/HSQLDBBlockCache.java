@@ -0,0 +1,155 @@
+package repository.hsqldb;
+
+import java.nio.ByteBuffer;
+import java.util.HashMap;
+import java.util.Map;
+
+import data.block.BlockData;
+
+/**
+ * Recently committed block headers, shared by all repository sessions from the same factory.
+ * <p>
+ * Headers are held in a ring buffer indexed by height, plus lookups by signature and reference, so navigating between recent blocks (e.g. parent,
+ * child or retarget interval) during validation needs no database access.
+ * <p>
+ * Only committed blocks are cached. Sessions with uncommitted changes to blocks bypass the cache until they commit, at which point their changes are
+ * applied via {@link #update(int, Map)}.
+ */
+class HSQLDBBlockCache {
+
+	/** Number of most recent block heights to keep. */
+	static final int CAPACITY = 500;
+
+	private final BlockData[] blocks = new BlockData[CAPACITY];
+	private final Map<ByteBuffer, BlockData> blocksBySignature = new HashMap<ByteBuffer, BlockData>();
+	private final Map<ByteBuffer, BlockData> blocksByReference = new HashMap<ByteBuffer, BlockData>();
+
+	/** Highest cached height, used to avoid old blocks evicting recent ones. */
+	private int highestHeight = 0;
+
+	/** Incremented whenever blocks are removed, so lookups that raced with a commit don't cache stale blocks. */
+	private long version = 0;
+
+	private long hits = 0;
+	private long misses = 0;
+
+	synchronized BlockData fromHeight(int height) {
+		BlockData blockData = this.blocks[height % CAPACITY];
+		if (blockData == null || blockData.getHeight() != height)
+			return this.miss();
+
+		return this.hit(blockData);
+	}
+
+	synchronized BlockData fromSignature(byte[] signature) {
+		BlockData blockData = this.blocksBySignature.get(ByteBuffer.wrap(signature));
+		if (blockData == null)
+			return this.miss();
+
+		return this.hit(blockData);
+	}
+
+	synchronized BlockData fromReference(byte[] reference) {
+		BlockData blockData = this.blocksByReference.get(ByteBuffer.wrap(reference));
+		if (blockData == null)
+			return this.miss();
+
+		return this.hit(blockData);
+	}
+
+	/** Returns version to pass to {@link #put(BlockData, long)} after fetching block from database. */
+	synchronized long getVersion() {
+		return this.version;
+	}
+
+	/**
+	 * Cache block fetched from database, unless blocks have been removed since <tt>version</tt> was obtained.
+	 *
+	 * @param blockData
+	 *            can be null, in which case nothing is cached
+	 * @param version
+	 *            from {@link #getVersion()} before database was queried
+	 */
+	synchronized void put(BlockData blockData, long version) {
+		if (blockData == null || version != this.version)
+			return;
+
+		this.add(blockData);
+	}
+
+	/**
+	 * Apply committed changes to blocks.
+	 *
+	 * @param lowestHeight
+	 *            lowest height of any saved or deleted block; cached blocks at or above this height are removed
+	 * @param savedBlocks
+	 *            blocks saved, and not subsequently deleted, keyed by height
+	 */
+	synchronized void update(int lowestHeight, Map<Integer, BlockData> savedBlocks) {
+		for (int i = 0; i < CAPACITY; ++i)
+			if (this.blocks[i] != null && this.blocks[i].getHeight() >= lowestHeight)
+				this.remove(i);
+
+		this.highestHeight = Math.min(this.highestHeight, lowestHeight - 1);
+		++this.version;
+
+		for (BlockData blockData : savedBlocks.values())
+			this.add(blockData);
+	}
+
+	long getHits() {
+		return this.hits;
+	}
+
+	long getMisses() {
+		return this.misses;
+	}
+
+	private void add(BlockData blockData) {
+		// Only blocks linked into blockchain
+		if (blockData.getHeight() == null || blockData.getSignature() == null)
+			return;
+
+		int height = blockData.getHeight();
+
+		// Don't let older blocks evict more recent ones
+		if (height <= this.highestHeight - CAPACITY)
+			return;
+
+		int index = height % CAPACITY;
+		if (this.blocks[index] != null)
+			this.remove(index);
+
+		// Keep private copy in case caller modifies original
+		blockData = new BlockData(blockData);
+
+		this.blocks[index] = blockData;
+		this.blocksBySignature.put(ByteBuffer.wrap(blockData.getSignature()), blockData);
+		if (blockData.getReference() != null)
+			this.blocksByReference.put(ByteBuffer.wrap(blockData.getReference()), blockData);
+
+		this.highestHeight = Math.max(this.highestHeight, height);
+	}
+
+	private void remove(int index) {
+		BlockData blockData = this.blocks[index];
+
+		this.blocks[index] = null;
+		this.blocksBySignature.remove(ByteBuffer.wrap(blockData.getSignature()));
+		if (blockData.getReference() != null)
+			this.blocksByReference.remove(ByteBuffer.wrap(blockData.getReference()));
+	}
+
+	private BlockData hit(BlockData blockData) {
+		++this.hits;
+
+		// Return copy so caller can't modify cached state
+		return new BlockData(blockData);
+	}
+
+	private BlockData miss() {
+		++this.misses;
+		return null;
+	}
+
+}
@@ -4,7 +4,6 @@ import java.math.BigDecimal;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Timestamp;
-import java.util.ArrayList;
 import java.util.Calendar;
 import java.util.List;
 
@@ -13,7 +12,6 @@ import data.block.BlockTransactionData;
 import data.transaction.TransactionData;
 import repository.BlockRepository;
 import repository.DataException;
-import repository.TransactionRepository;
 
 public class HSQLDBBlockRepository implements BlockRepository {
 
@@ -53,8 +51,18 @@ public class HSQLDBBlockRepository implements BlockRepository {
 
 	@Override
 	public BlockData fromSignature(byte[] signature) throws DataException {
+		// Use shared recent blocks if possible
+		HSQLDBBlockCache blockCache = this.repository.getBlockCache();
+		if (blockCache != null) {
+			BlockData blockData = blockCache.fromSignature(signature);
+			if (blockData != null)
+				return blockData;
+		}
+
+		long cacheVersion = blockCache != null ? blockCache.getVersion() : 0;
+
 		try (ResultSet resultSet = this.repository.checkedExecute("SELECT " + BLOCK_DB_COLUMNS + " FROM Blocks WHERE signature = ?", signature)) {
-			return getBlockFromResultSet(resultSet);
+			return this.cacheBlock(blockCache, cacheVersion, getBlockFromResultSet(resultSet));
 		} catch (SQLException e) {
 			throw new DataException("Error loading data from DB", e);
 		}
@@ -62,8 +70,23 @@ public class HSQLDBBlockRepository implements BlockRepository {
 
 	@Override
 	public BlockData fromReference(byte[] reference) throws DataException {
+		// Use shared recent blocks if possible
+		HSQLDBBlockCache blockCache = this.repository.getBlockCache();
+		if (blockCache != null) {
+			BlockData blockData = blockCache.fromReference(reference);
+			if (blockData != null)
+				return blockData;
+
+			// Chain tip has no child
+			HSQLDBChainTip.Snapshot chainTip = this.repository.getChainTip();
+			if (chainTip != null && chainTip.hasSignature(reference))
+				return null;
+		}
+
+		long cacheVersion = blockCache != null ? blockCache.getVersion() : 0;
+
 		try (ResultSet resultSet = this.repository.checkedExecute("SELECT " + BLOCK_DB_COLUMNS + " FROM Blocks WHERE reference = ?", reference)) {
-			return getBlockFromResultSet(resultSet);
+			return this.cacheBlock(blockCache, cacheVersion, getBlockFromResultSet(resultSet));
 		} catch (SQLException e) {
 			throw new DataException("Error loading data from DB", e);
 		}
@@ -71,13 +94,36 @@ public class HSQLDBBlockRepository implements BlockRepository {
 
 	@Override
 	public BlockData fromHeight(int height) throws DataException {
+		// Use shared recent blocks if possible
+		HSQLDBBlockCache blockCache = this.repository.getBlockCache();
+		if (blockCache != null) {
+			BlockData blockData = blockCache.fromHeight(height);
+			if (blockData != null)
+				return blockData;
+
+			// Nothing above chain tip
+			HSQLDBChainTip.Snapshot chainTip = this.repository.getChainTip();
+			if (chainTip != null && height > chainTip.getHeight())
+				return null;
+		}
+
+		long cacheVersion = blockCache != null ? blockCache.getVersion() : 0;
+
 		try (ResultSet resultSet = this.repository.checkedExecute("SELECT " + BLOCK_DB_COLUMNS + " FROM Blocks WHERE height = ?", height)) {
-			return getBlockFromResultSet(resultSet);
+			return this.cacheBlock(blockCache, cacheVersion, getBlockFromResultSet(resultSet));
 		} catch (SQLException e) {
 			throw new DataException("Error loading data from DB", e);
 		}
 	}
 
+	/** Add block fetched from database to shared recent blocks, if available. Returns <tt>blockData</tt> for convenience. */
+	private BlockData cacheBlock(HSQLDBBlockCache blockCache, long cacheVersion, BlockData blockData) {
+		if (blockCache != null)
+			blockCache.put(blockData, cacheVersion);
+
+		return blockData;
+	}
+
 	@Override
 	public int getHeightFromSignature(byte[] signature) throws DataException {
 		try (ResultSet resultSet = this.repository.checkedExecute("SELECT height FROM Blocks WHERE signature = ?", signature)) {
@@ -90,8 +136,24 @@ public class HSQLDBBlockRepository implements BlockRepository {
 		}
 	}
 
+	@Override
+	public BlockData fromTransactionSignature(byte[] transactionSignature) throws DataException {
+		try (ResultSet resultSet = this.repository.checkedExecute("SELECT " + BLOCK_DB_COLUMNS
+				+ " FROM BlockTransactions JOIN Blocks ON Blocks.signature = BlockTransactions.block_signature WHERE transaction_signature = ? LIMIT 1",
+				transactionSignature)) {
+			return getBlockFromResultSet(resultSet);
+		} catch (SQLException e) {
+			throw new DataException("Unable to fetch transaction's block from repository", e);
+		}
+	}
+
 	@Override
 	public int getBlockchainHeight() throws DataException {
+		// Use shared chain tip if possible
+		HSQLDBChainTip.Snapshot chainTip = this.repository.getChainTip();
+		if (chainTip != null)
+			return chainTip.getHeight();
+
 		try (ResultSet resultSet = this.repository.checkedExecute("SELECT MAX(height) FROM Blocks")) {
 			if (resultSet == null)
 				return 0;
@@ -104,29 +166,32 @@ public class HSQLDBBlockRepository implements BlockRepository {
 
 	@Override
 	public BlockData getLastBlock() throws DataException {
-		return fromHeight(getBlockchainHeight());
-	}
-
-	@Override
-	public List<TransactionData> getTransactionsFromSignature(byte[] signature) throws DataException {
-		List<TransactionData> transactions = new ArrayList<TransactionData>();
-
-		try (ResultSet resultSet = this.repository.checkedExecute("SELECT transaction_signature FROM BlockTransactions WHERE block_signature = ?", signature)) {
-			if (resultSet == null)
-				return transactions; // No transactions in this block
+		// Use shared chain tip if possible
+		HSQLDBChainTip.Snapshot chainTip = this.repository.getChainTip();
+		if (chainTip != null)
+			return chainTip.getBlockData();
 
-			TransactionRepository transactionRepo = this.repository.getTransactionRepository();
+		return this.fetchLastBlock();
+	}
 
-			// NB: do-while loop because .checkedExecute() implicitly calls ResultSet.next() for us
-			do {
-				byte[] transactionSignature = resultSet.getBytes(1);
-				transactions.add(transactionRepo.fromSignature(transactionSignature));
-			} while (resultSet.next());
+	/**
+	 * Fetch highest block from database, bypassing shared chain tip.
+	 * 
+	 * @return highest block's data, or null if there are no blocks
+	 * @throws DataException
+	 */
+	// NB: no visibility modifier so only callable from within same package
+	BlockData fetchLastBlock() throws DataException {
+		try (ResultSet resultSet = this.repository.checkedExecute("SELECT " + BLOCK_DB_COLUMNS + " FROM Blocks ORDER BY height DESC LIMIT 1")) {
+			return getBlockFromResultSet(resultSet);
 		} catch (SQLException e) {
-			throw new DataException("Unable to fetch block's transactions from repository", e);
+			throw new DataException("Error loading data from DB", e);
 		}
+	}
 
-		return transactions;
+	@Override
+	public List<TransactionData> getTransactionsFromSignature(byte[] signature) throws DataException {
+		return this.repository.getTransactionRepository().fromBlockSignature(signature);
 	}
 
 	@Override
@@ -145,6 +210,8 @@ public class HSQLDBBlockRepository implements BlockRepository {
 		} catch (SQLException e) {
 			throw new DataException("Unable to save Block into repository", e);
 		}
+
+		this.repository.blockSaved(blockData);
 	}
 
 	@Override
@@ -154,6 +221,8 @@ public class HSQLDBBlockRepository implements BlockRepository {
 		} catch (SQLException e) {
 			throw new DataException("Unable to delete Block from repository", e);
 		}
+
+		this.repository.blockDeleted(blockData);
 	}
 
 	@Override
@@ -161,7 +230,7 @@ public class HSQLDBBlockRepository implements BlockRepository {
 		HSQLDBSaver saveHelper = new HSQLDBSaver("BlockTransactions");
 
 		saveHelper.bind("block_signature", blockTransactionData.getBlockSignature()).bind("sequence", blockTransactionData.getSequence())
-				.bind("transaction_signature", blockTransactionData.getTransactionSignature());
+				.bind("transaction_signature", blockTransactionData.getTransactionSignature()).bind("block_height", blockTransactionData.getBlockHeight());
 
 		try {
 			saveHelper.execute(this.repository);
@@ -0,0 +1,70 @@
+package repository.hsqldb;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicReference;
+
+import data.block.BlockData;
+
+/**
+ * Latest committed blockchain tip, shared by all repository sessions from the same factory.
+ * <p>
+ * Readers get an immutable snapshot without locking or database access. The snapshot is replaced wholesale whenever a session commits changes to
+ * blocks.
+ */
+class HSQLDBChainTip {
+
+	/** Immutable chain tip. <tt>blockData</tt> is null if there are no blocks. */
+	static class Snapshot {
+		private final BlockData blockData;
+
+		private Snapshot(BlockData blockData) {
+			// Keep private copy in case caller modifies original
+			this.blockData = blockData == null ? null : new BlockData(blockData);
+		}
+
+		int getHeight() {
+			return this.blockData == null ? 0 : this.blockData.getHeight();
+		}
+
+		/** Returns whether tip's block has given signature. */
+		boolean hasSignature(byte[] signature) {
+			return this.blockData != null && Arrays.equals(this.blockData.getSignature(), signature);
+		}
+
+		/** Returns copy of tip's block data, or null if there are no blocks. */
+		BlockData getBlockData() {
+			return this.blockData == null ? null : new BlockData(this.blockData);
+		}
+	}
+
+	private final AtomicReference<Snapshot> snapshot = new AtomicReference<Snapshot>();
+
+	/**
+	 * Returns current chain tip snapshot.
+	 * 
+	 * @return snapshot, or null if not yet known
+	 */
+	Snapshot get() {
+		return this.snapshot.get();
+	}
+
+	/**
+	 * Set initial chain tip, unless a snapshot has already been published.
+	 * <p>
+	 * Used by readers so a concurrent commit's newer tip is never overwritten by older data.
+	 */
+	void setIfUnknown(BlockData blockData) {
+		this.snapshot.compareAndSet(null, new Snapshot(blockData));
+	}
+
+	/**
+	 * Replace chain tip after commit.
+	 * <p>
+	 * Caller must fetch <tt>blockData</tt> from the database after committing, while synchronized on this object, so that concurrent commits publish
+	 * their tips in the same order that they were read.
+	 */
+	void set(BlockData blockData) {
+		this.snapshot.set(new Snapshot(blockData));
+	}
+
+}
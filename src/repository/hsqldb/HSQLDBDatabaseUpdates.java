@@ -7,6 +7,22 @@ import java.sql.Statement;
 
 public class HSQLDBDatabaseUpdates {
 
+	/**
+	 * Secondary indexes that aren't used when validating or processing blocks, so can be dropped during bulk loads and rebuilt afterwards.
+	 * <p>
+	 * Index name and table/columns, matching definitions in {@link #databaseUpdating(Connection)}.
+	 */
+	private static final String[][] DEFERRABLE_INDEXES = {
+		{ "BlockGeneratorIndex", "Blocks (generator)" },
+		{ "TransactionTypeIndex", "Transactions (type)" },
+		{ "TransactionCreationIndex", "Transactions (creation)" },
+		{ "TransactionCreatorIndex", "Transactions (creator)" },
+		{ "AssetOrderCreatorIndex", "AssetOrders (creator, is_closed)" },
+		{ "PollOwnerIndex", "Polls (owner)" },
+		{ "AccountQoraReceiptHeightIndex", "AccountQoraReceipts (height)" },
+		{ "AccountBalanceHistoryHeightIndex", "AccountBalanceHistory (height)" }
+	};
+
 	/**
 	 * Apply any incremental changes to database schema.
 	 * 
@@ -17,6 +33,82 @@ public class HSQLDBDatabaseUpdates {
 			incrementDatabaseVersion(connection);
 	}
 
+	/**
+	 * Enables/disables bulk-load mode for whole database, recording mode in <tt>DatabaseInfo</tt> so it can be undone by
+	 * {@link #resetBulkLoad(Connection)} if bulk load is interrupted.
+	 * 
+	 * @throws SQLException
+	 */
+	// NB: no visibility modifier so only callable from within same package
+	static void setBulkLoad(Connection connection, boolean bulkLoad) throws SQLException {
+		try (Statement stmt = connection.createStatement()) {
+			if (bulkLoad) {
+				// Record mode while redo log still enabled
+				stmt.execute("UPDATE DatabaseInfo SET bulk_load = TRUE");
+				connection.commit();
+
+				dropDeferrableIndexes(stmt);
+
+				// No redo log, so saved changes only survive a crash after a CHECKPOINT
+				stmt.execute("SET FILES LOG FALSE");
+				stmt.execute("CHECKPOINT");
+			} else {
+				createDeferrableIndexes(stmt);
+
+				stmt.execute("SET FILES LOG TRUE");
+				stmt.execute("UPDATE DatabaseInfo SET bulk_load = FALSE");
+				connection.commit();
+				stmt.execute("CHECKPOINT");
+			}
+		}
+	}
+
+	/**
+	 * Disables bulk-load mode if database was left in it, e.g. by a crash during block import, returning whether it was.
+	 * <p>
+	 * Otherwise database would run without redo log or secondary indexes.
+	 * 
+	 * @return true if bulk-load mode was disabled
+	 * @throws SQLException
+	 */
+	// NB: no visibility modifier so only callable from within same package
+	static boolean resetBulkLoad(Connection connection) throws SQLException {
+		try (Statement stmt = connection.createStatement()) {
+			if (!stmt.execute("SELECT bulk_load FROM DatabaseInfo"))
+				return false;
+
+			try (ResultSet resultSet = stmt.getResultSet()) {
+				if (!resultSet.next() || !resultSet.getBoolean(1))
+					return false;
+			}
+		}
+
+		setBulkLoad(connection, false);
+		return true;
+	}
+
+	/**
+	 * Drops secondary indexes not needed for block processing, if they exist.
+	 * 
+	 * @throws SQLException
+	 */
+	// NB: no visibility modifier so only callable from within same package
+	static void dropDeferrableIndexes(Statement stmt) throws SQLException {
+		for (String[] index : DEFERRABLE_INDEXES)
+			stmt.execute("DROP INDEX " + index[0] + " IF EXISTS");
+	}
+
+	/**
+	 * (Re)creates secondary indexes dropped by {@link #dropDeferrableIndexes(Statement)}, if they don't exist.
+	 * 
+	 * @throws SQLException
+	 */
+	// NB: no visibility modifier so only callable from within same package
+	static void createDeferrableIndexes(Statement stmt) throws SQLException {
+		for (String[] index : DEFERRABLE_INDEXES)
+			stmt.execute("CREATE INDEX IF NOT EXISTS " + index[0] + " ON " + index[1]);
+	}
+
 	/**
 	 * Increment database's schema version.
 	 * 
@@ -371,6 +463,41 @@ public class HSQLDBDatabaseUpdates {
 									+ "PRIMARY KEY (signature), FOREIGN KEY (signature) REFERENCES Transactions (signature) ON DELETE CASCADE)");
 					break;
 
+				case 28:
+					// Denormalize block height onto transaction-block mapping to avoid joining with Blocks
+					stmt.execute("ALTER TABLE BlockTransactions ADD COLUMN block_height INTEGER");
+					stmt.execute("UPDATE BlockTransactions SET block_height = (SELECT height FROM Blocks WHERE Blocks.signature = BlockTransactions.block_signature)");
+					stmt.execute("ALTER TABLE BlockTransactions ALTER COLUMN block_height SET NOT NULL");
+					// For finding a transaction's block/height using transaction's signature
+					stmt.execute("CREATE INDEX BlockTransactionSignatureIndex ON BlockTransactions (transaction_signature, block_height)");
+					break;
+
+				case 29:
+					// QORA received by accounts per block, for calculating generating balances
+					stmt.execute("CREATE TABLE AccountQoraReceipts (account QoraAddress, height INTEGER, amount QoraAmount NOT NULL, PRIMARY KEY (account, height))");
+					// For removing receipts when orphaning a block
+					stmt.execute("CREATE INDEX AccountQoraReceiptHeightIndex ON AccountQoraReceipts (height)");
+					// Receipts are only recorded for blocks processed from now on
+					stmt.execute("CREATE TABLE AccountQoraReceiptsInfo (start_height INTEGER NOT NULL)");
+					stmt.execute("INSERT INTO AccountQoraReceiptsInfo (start_height) SELECT COALESCE(MAX(height), 0) + 1 FROM Blocks");
+					break;
+
+				case 30:
+					// Account balances before/after each block that changed them, for historic balance lookups
+					stmt.execute("CREATE TABLE AccountBalanceHistory (account QoraAddress, asset_id AssetID, height INTEGER, "
+							+ "previous_balance QoraAmount NOT NULL, balance QoraAmount NOT NULL, PRIMARY KEY (account, asset_id, height))");
+					// For removing history when orphaning a block
+					stmt.execute("CREATE INDEX AccountBalanceHistoryHeightIndex ON AccountBalanceHistory (height)");
+					// History is only recorded for blocks processed from now on
+					stmt.execute("CREATE TABLE AccountBalanceHistoryInfo (start_height INTEGER NOT NULL)");
+					stmt.execute("INSERT INTO AccountBalanceHistoryInfo (start_height) SELECT COALESCE(MAX(height), 0) + 1 FROM Blocks");
+					break;
+
+				case 31:
+					// Whether database was left in bulk-load mode, e.g. by an interrupted block import
+					stmt.execute("ALTER TABLE DatabaseInfo ADD COLUMN bulk_load BOOLEAN DEFAULT FALSE NOT NULL");
+					break;
+
 				default:
 					// nothing to do
 					return false;
@@ -6,11 +6,15 @@ import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
+import java.util.LinkedHashMap;
+import java.util.Map;
 import java.util.TimeZone;
+import java.util.TreeMap;
 
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
+import data.block.BlockData;
 import repository.ATRepository;
 import repository.AccountRepository;
 import repository.AssetRepository;
@@ -28,64 +32,227 @@ public class HSQLDBRepository implements Repository {
 
 	public static final TimeZone UTC = TimeZone.getTimeZone("UTC");
 
+	/** Maximum number of PreparedStatements kept open, per connection, for reuse. */
+	private static final int STATEMENT_CACHE_SIZE = 100;
+
 	protected Connection connection;
 
+	/**
+	 * PreparedStatement cached against this repository's connection, along with the most recent ResultSet it produced (if any).
+	 * <p>
+	 * A cached statement cannot be re-executed while its previous ResultSet is still open, as that would close the ResultSet prematurely.
+	 */
+	private static class CachedStatement {
+		private final PreparedStatement preparedStatement;
+		private ResultSet resultSet;
+
+		private CachedStatement(PreparedStatement preparedStatement) {
+			this.preparedStatement = preparedStatement;
+		}
+
+		private boolean isBusy() throws SQLException {
+			return this.resultSet != null && !this.resultSet.isClosed();
+		}
+	}
+
+	/** Cache of PreparedStatements, keyed by SQL, in least-recently-used order. */
+	private final Map<String, CachedStatement> statementCache = new LinkedHashMap<String, CachedStatement>(STATEMENT_CACHE_SIZE, 0.75f, true) {
+		private static final long serialVersionUID = -4853285287620325327L;
+
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<String, CachedStatement> eldest) {
+			if (this.size() <= STATEMENT_CACHE_SIZE)
+				return false;
+
+			// Statement with pending batched rows is retained until flushed
+			if (eldest.getValue().preparedStatement == batchStatement)
+				return false;
+
+			closeCachedStatement(eldest.getValue());
+			return true;
+		}
+	};
+
+	private long statementCacheHits = 0;
+	private long statementCacheMisses = 0;
+
+	// Batched writes
+	private boolean batchWrites = false;
+	private PreparedStatement batchStatement = null;
+	private String batchSql = null;
+	private String batchTable = null;
+	private int batchCount = 0;
+
+	// Whether this session has written to the database since last commit/rollback
+	private boolean hasUncommittedWrites = false;
+
+	// Per-session sub-repositories, created on first use
+	private HSQLDBATRepository atRepository;
+	private HSQLDBAssetRepository assetRepository;
+	private HSQLDBBlockRepository blockRepository;
+	private HSQLDBNameRepository nameRepository;
+	private HSQLDBTransactionRepository transactionRepository;
+	private HSQLDBVotingRepository votingRepository;
+
+	// Per-session account repository, holding write-behind account cache, so always created
+	private final HSQLDBAccountRepository accountRepository;
+
+	// Chain tip and recent blocks shared with other sessions
+	private final HSQLDBChainTip chainTip;
+	private final HSQLDBBlockCache blockCache;
+
+	// Whether this session has uncommitted changes to blocks: lowest height changed and blocks saved, keyed by height
+	private boolean blocksChanged = false;
+	private int lowestChangedHeight = Integer.MAX_VALUE;
+	private final Map<Integer, BlockData> savedBlocks = new TreeMap<Integer, BlockData>();
+
 	// NB: no visibility modifier so only callable from within same package
-	HSQLDBRepository(Connection connection) {
+	HSQLDBRepository(Connection connection, HSQLDBChainTip chainTip, HSQLDBBlockCache blockCache) {
 		this.connection = connection;
+		this.chainTip = chainTip;
+		this.blockCache = blockCache;
+		this.accountRepository = new HSQLDBAccountRepository(this);
 	}
 
 	@Override
 	public ATRepository getATRepository() {
-		return new HSQLDBATRepository(this);
+		if (this.atRepository == null)
+			this.atRepository = new HSQLDBATRepository(this);
+
+		return this.atRepository;
 	}
 
 	@Override
 	public AccountRepository getAccountRepository() {
-		return new HSQLDBAccountRepository(this);
+		return this.accountRepository;
 	}
 
 	@Override
 	public AssetRepository getAssetRepository() {
-		return new HSQLDBAssetRepository(this);
+		if (this.assetRepository == null)
+			this.assetRepository = new HSQLDBAssetRepository(this);
+
+		return this.assetRepository;
 	}
 
 	@Override
 	public BlockRepository getBlockRepository() {
-		return new HSQLDBBlockRepository(this);
+		if (this.blockRepository == null)
+			this.blockRepository = new HSQLDBBlockRepository(this);
+
+		return this.blockRepository;
 	}
 
 	@Override
 	public NameRepository getNameRepository() {
-		return new HSQLDBNameRepository(this);
+		if (this.nameRepository == null)
+			this.nameRepository = new HSQLDBNameRepository(this);
+
+		return this.nameRepository;
 	}
 
 	@Override
 	public TransactionRepository getTransactionRepository() {
-		return new HSQLDBTransactionRepository(this);
+		if (this.transactionRepository == null)
+			this.transactionRepository = new HSQLDBTransactionRepository(this);
+
+		return this.transactionRepository;
 	}
 
 	@Override
 	public VotingRepository getVotingRepository() {
-		return new HSQLDBVotingRepository(this);
+		if (this.votingRepository == null)
+			this.votingRepository = new HSQLDBVotingRepository(this);
+
+		return this.votingRepository;
+	}
+
+	@Override
+	public void setBatchWrites(boolean batchWrites) throws DataException {
+		try {
+			if (!batchWrites)
+				this.flushBatch();
+		} catch (SQLException e) {
+			throw new DataException("Unable to flush batched writes", e);
+		}
+
+		this.batchWrites = batchWrites;
 	}
 
 	@Override
 	public void saveChanges() throws DataException {
+		// Write cached account changes, batched together
+		boolean wasBatchingWrites = this.batchWrites;
+		this.batchWrites = true;
+		try {
+			this.accountRepository.flushCache();
+		} finally {
+			this.batchWrites = wasBatchingWrites;
+		}
+
 		try {
+			this.flushBatch();
 			this.connection.commit();
 		} catch (SQLException e) {
 			throw new DataException("commit error", e);
 		}
+
+		this.hasUncommittedWrites = false;
+
+		this.accountRepository.clearCache();
+
+		// Publish new chain tip and recent blocks to all sessions
+		if (this.blocksChanged) {
+			synchronized (this.chainTip) {
+				this.chainTip.set(((HSQLDBBlockRepository) this.getBlockRepository()).fetchLastBlock());
+				this.blockCache.update(this.lowestChangedHeight, this.savedBlocks);
+			}
+
+			this.resetBlocksChanged();
+		}
 	}
 
 	@Override
 	public void discardChanges() throws DataException {
+		this.accountRepository.clearCache();
+		this.resetBlocksChanged();
+
 		try {
+			this.clearBatch();
+			this.batchWrites = false;
 			this.connection.rollback();
 		} catch (SQLException e) {
 			throw new DataException("rollback error", e);
 		}
+
+		this.hasUncommittedWrites = false;
+	}
+
+	@Override
+	public boolean hasUncommittedChanges() {
+		return this.hasUncommittedWrites || this.batchCount > 0 || this.blocksChanged || this.accountRepository.hasCachedChanges();
+	}
+
+	@Override
+	public void setBulkLoad(boolean bulkLoad) throws DataException {
+		// HSQLDB commits any open transaction before changing files settings or indexes
+		if (this.hasUncommittedChanges())
+			throw new IllegalStateException("Can't change bulk-load mode with unsaved changes");
+
+		try {
+			HSQLDBDatabaseUpdates.setBulkLoad(this.connection, bulkLoad);
+		} catch (SQLException e) {
+			throw new DataException("Unable to change bulk-load mode", e);
+		}
+	}
+
+	@Override
+	public void checkpoint() throws DataException {
+		try (Statement stmt = this.connection.createStatement()) {
+			stmt.execute("CHECKPOINT");
+		} catch (SQLException e) {
+			throw new DataException("Unable to checkpoint repository", e);
+		}
 	}
 
 	@Override
@@ -96,6 +263,19 @@ public class HSQLDBRepository implements Repository {
 			return;
 		}
 
+		// Batched rows and cached account changes were never committed so simply drop them
+		this.clearBatch();
+		this.accountRepository.clearCache();
+
+		// Release cached statements before connection goes back to the pool
+		for (CachedStatement cachedStatement : this.statementCache.values())
+			closeCachedStatement(cachedStatement);
+		this.statementCache.clear();
+
+		LOGGER.debug("Statement cache hits: " + this.statementCacheHits + ", misses: " + this.statementCacheMisses);
+		LOGGER.debug("Account cache hits: " + this.accountRepository.getCacheHits() + ", misses: " + this.accountRepository.getCacheMisses());
+		LOGGER.debug("Shared block cache hits: " + this.blockCache.getHits() + ", misses: " + this.blockCache.getMisses());
+
 		try (Statement stmt = this.connection.createStatement()) {
 			// Diagnostic check for uncommitted changes
 			if (!stmt.execute("SELECT transaction, transaction_size FROM information_schema.system_sessions")) // TRANSACTION_SIZE() broken?
@@ -123,10 +303,269 @@ public class HSQLDBRepository implements Repository {
 	public void rebuild() throws DataException {
 	}
 
+	// Statement cache
+
+	/**
+	 * Returns number of times a PreparedStatement was reused from this repository's statement cache.
+	 */
+	public long getStatementCacheHits() {
+		return this.statementCacheHits;
+	}
+
+	/**
+	 * Returns number of times a PreparedStatement had to be freshly prepared by this repository.
+	 */
+	public long getStatementCacheMisses() {
+		return this.statementCacheMisses;
+	}
+
+	/**
+	 * Fetch cached PreparedStatement for SQL, preparing and caching a new one if necessary.
+	 * 
+	 * @param sql
+	 * @return CachedStatement
+	 * @throws SQLException
+	 */
+	private CachedStatement getCachedStatement(String sql) throws SQLException {
+		CachedStatement cachedStatement = this.statementCache.get(sql);
+
+		if (cachedStatement != null) {
+			++this.statementCacheHits;
+			return cachedStatement;
+		}
+
+		++this.statementCacheMisses;
+		cachedStatement = new CachedStatement(this.connection.prepareStatement(sql));
+		this.statementCache.put(sql, cachedStatement);
+		return cachedStatement;
+	}
+
+	/**
+	 * Return PreparedStatement for SQL, reusing a previously prepared statement where possible.
+	 * <p>
+	 * Returned statement is owned by this repository and <b>must not</b> be closed by the caller.<br>
+	 * Suitable for statements that do not leave a ResultSet open, e.g. INSERT/UPDATE/DELETE.
+	 * 
+	 * @param sql
+	 * @return PreparedStatement
+	 * @throws SQLException
+	 */
+	// NB: no visibility modifier so only callable from within same package
+	PreparedStatement prepareStatement(String sql) throws SQLException {
+		return this.getCachedStatement(sql).preparedStatement;
+	}
+
+	private void closeCachedStatement(CachedStatement cachedStatement) {
+		try {
+			// Don't pull the rug out from under a ResultSet that is still in use
+			if (cachedStatement.isBusy())
+				cachedStatement.preparedStatement.closeOnCompletion();
+			else
+				cachedStatement.preparedStatement.close();
+		} catch (SQLException e) {
+			LOGGER.debug("Unable to close cached statement", e);
+		}
+	}
+
+	// Chain tip
+
+	/**
+	 * Returns chain tip snapshot, as last committed by any session.
+	 * <p>
+	 * If this session has uncommitted changes to blocks then the shared snapshot doesn't reflect them, so null is returned and caller should query
+	 * database instead.
+	 * 
+	 * @return snapshot, or null if caller should query database
+	 * @throws DataException
+	 */
+	// NB: no visibility modifier so only callable from within same package
+	HSQLDBChainTip.Snapshot getChainTip() throws DataException {
+		if (this.blocksChanged)
+			return null;
+
+		HSQLDBChainTip.Snapshot snapshot = this.chainTip.get();
+		if (snapshot != null)
+			return snapshot;
+
+		// First use - initialize from database
+		this.chainTip.setIfUnknown(((HSQLDBBlockRepository) this.getBlockRepository()).fetchLastBlock());
+		return this.chainTip.get();
+	}
+
+	/**
+	 * Returns recent blocks cache, as last committed by any session.
+	 * <p>
+	 * If this session has uncommitted changes to blocks then the shared cache doesn't reflect them, so null is returned and caller should query
+	 * database instead.
+	 * 
+	 * @return cache, or null if caller should query database
+	 */
+	// NB: no visibility modifier so only callable from within same package
+	HSQLDBBlockCache getBlockCache() {
+		if (this.blocksChanged)
+			return null;
+
+		return this.blockCache;
+	}
+
+	/**
+	 * Notes that this session has saved block, so chain tip and recent blocks need republishing on commit.
+	 */
+	// NB: no visibility modifier so only callable from within same package
+	void blockSaved(BlockData blockData) {
+		this.blockChanged(blockData);
+
+		if (blockData.getHeight() != null)
+			this.savedBlocks.put(blockData.getHeight(), new BlockData(blockData));
+	}
+
+	/**
+	 * Notes that this session has deleted block, so chain tip and recent blocks need republishing on commit.
+	 */
+	// NB: no visibility modifier so only callable from within same package
+	void blockDeleted(BlockData blockData) {
+		this.blockChanged(blockData);
+
+		if (blockData.getHeight() != null)
+			this.savedBlocks.remove(blockData.getHeight());
+	}
+
+	private void blockChanged(BlockData blockData) {
+		this.blocksChanged = true;
+
+		// Unknown height means any cached block could be affected
+		int height = blockData.getHeight() != null ? blockData.getHeight() : 0;
+		this.lowestChangedHeight = Math.min(this.lowestChangedHeight, height);
+	}
+
+	private void resetBlocksChanged() {
+		this.blocksChanged = false;
+		this.lowestChangedHeight = Integer.MAX_VALUE;
+		this.savedBlocks.clear();
+	}
+
+	// Batched writes
+
+	/**
+	 * Record that this session has written directly to the database, e.g. via {@link HSQLDBSaver}, so {@link #hasUncommittedChanges()} is accurate.
+	 */
+	// NB: no visibility modifier so only callable from within same package
+	void uncommittedWrite() {
+		this.hasUncommittedWrites = true;
+	}
+
+	/**
+	 * Returns whether writes, e.g. via {@link HSQLDBSaver}, should be batched.
+	 */
+	// NB: no visibility modifier so only callable from within same package
+	boolean isBatchingWrites() {
+		return this.batchWrites;
+	}
+
+	/**
+	 * Return PreparedStatement for a batchable write to <tt>table</tt>.
+	 * <p>
+	 * Only consecutive writes using the same SQL are batched together, so any pending batch using different SQL is flushed first to preserve ordering.
+	 * 
+	 * @param table
+	 * @param sql
+	 * @return PreparedStatement, owned by this repository
+	 * @throws SQLException
+	 */
+	// NB: no visibility modifier so only callable from within same package
+	PreparedStatement prepareBatchStatement(String table, String sql) throws SQLException {
+		if (this.batchSql != null && !this.batchSql.equals(sql))
+			this.flushBatch();
+
+		return this.prepareStatement(sql);
+	}
+
+	/**
+	 * Add row, already bound to PreparedStatement from {@link #prepareBatchStatement(String, String)}, to pending batch.
+	 * 
+	 * @param table
+	 * @param sql
+	 * @param preparedStatement
+	 * @throws SQLException
+	 */
+	// NB: no visibility modifier so only callable from within same package
+	void addBatch(String table, String sql, PreparedStatement preparedStatement) throws SQLException {
+		preparedStatement.addBatch();
+		this.hasUncommittedWrites = true;
+
+		this.batchStatement = preparedStatement;
+		this.batchSql = sql;
+		this.batchTable = table;
+		++this.batchCount;
+	}
+
+	/**
+	 * Execute any pending batched rows.
+	 * 
+	 * @throws SQLException
+	 */
+	private void flushBatch() throws SQLException {
+		if (this.batchStatement == null)
+			return;
+
+		PreparedStatement preparedStatement = this.batchStatement;
+		int rowCount = this.batchCount;
+
+		this.batchStatement = null;
+		this.batchSql = null;
+		this.batchTable = null;
+		this.batchCount = 0;
+
+		LOGGER.trace("Flushing " + rowCount + " batched row(s)");
+		preparedStatement.executeBatch();
+	}
+
+	/**
+	 * Discard any pending batched rows.
+	 */
+	private void clearBatch() {
+		if (this.batchStatement == null)
+			return;
+
+		try {
+			this.batchStatement.clearBatch();
+		} catch (SQLException e) {
+			LOGGER.debug("Unable to clear batched rows", e);
+		}
+
+		this.batchStatement = null;
+		this.batchSql = null;
+		this.batchTable = null;
+		this.batchCount = 0;
+	}
+
+	/**
+	 * Flush pending batched rows if <tt>sql</tt> might depend on them.
+	 * <p>
+	 * Conservatively assumes dependency if pending batch's table name appears anywhere in <tt>sql</tt>.
+	 * 
+	 * @param sql
+	 * @throws SQLException
+	 */
+	private void flushBatchIfReferenced(String sql) throws SQLException {
+		if (this.batchTable == null)
+			return;
+
+		int tableLength = this.batchTable.length();
+		for (int i = 0; i + tableLength <= sql.length(); ++i)
+			if (sql.regionMatches(true, i, this.batchTable, 0, tableLength)) {
+				this.flushBatch();
+				return;
+			}
+	}
+
 	/**
 	 * Execute SQL and return ResultSet with but added checking.
 	 * <p>
 	 * <b>Note: calls ResultSet.next()</b> therefore returned ResultSet is already pointing to first row.
+	 * <p>
+	 * PreparedStatements are reused from this repository's statement cache, unless the cached statement's previous ResultSet is still open (e.g. nested
+	 * queries using the same SQL) in which case a one-off statement is used.
 	 * 
 	 * @param sql
 	 * @param objects
@@ -135,11 +574,24 @@ public class HSQLDBRepository implements Repository {
 	 */
 	@SuppressWarnings("resource")
 	public ResultSet checkedExecute(String sql, Object... objects) throws SQLException {
-		PreparedStatement preparedStatement = this.connection.prepareStatement(sql);
-		// Close the PreparedStatement when the ResultSet is closed otherwise there's a potential resource leak.
-		// We can't use try-with-resources here as closing the PreparedStatement on return would also prematurely close the ResultSet.
-		preparedStatement.closeOnCompletion();
-		return this.checkedExecuteResultSet(preparedStatement, objects);
+		this.flushBatchIfReferenced(sql);
+
+		CachedStatement cachedStatement = this.statementCache.get(sql);
+
+		if (cachedStatement != null && cachedStatement.isBusy()) {
+			++this.statementCacheMisses;
+
+			PreparedStatement preparedStatement = this.connection.prepareStatement(sql);
+			// Close the PreparedStatement when the ResultSet is closed otherwise there's a potential resource leak.
+			// We can't use try-with-resources here as closing the PreparedStatement on return would also prematurely close the ResultSet.
+			preparedStatement.closeOnCompletion();
+			return this.checkedExecuteResultSet(preparedStatement, objects);
+		}
+
+		cachedStatement = this.getCachedStatement(sql);
+		ResultSet resultSet = this.checkedExecuteResultSet(cachedStatement.preparedStatement, objects);
+		cachedStatement.resultSet = resultSet;
+		return resultSet;
 	}
 
 	/**
@@ -219,8 +671,9 @@ public class HSQLDBRepository implements Repository {
 	 * @throws SQLException
 	 */
 	public Long callIdentity() throws SQLException {
-		try (PreparedStatement preparedStatement = this.connection.prepareStatement("CALL IDENTITY()");
-				ResultSet resultSet = this.checkedExecuteResultSet(preparedStatement)) {
+		this.flushBatch();
+
+		try (ResultSet resultSet = this.checkedExecuteResultSet(this.prepareStatement("CALL IDENTITY()"))) {
 			if (resultSet == null)
 				return null;
 
@@ -246,8 +699,10 @@ public class HSQLDBRepository implements Repository {
 	 * @throws SQLException
 	 */
 	public boolean exists(String tableName, String whereClause, Object... objects) throws SQLException {
-		try (PreparedStatement preparedStatement = this.connection.prepareStatement("SELECT TRUE FROM " + tableName + " WHERE " + whereClause + " LIMIT 1");
-				ResultSet resultSet = this.checkedExecuteResultSet(preparedStatement, objects)) {
+		this.flushBatchIfReferenced(tableName + " " + whereClause);
+
+		try (ResultSet resultSet = this.checkedExecuteResultSet(this.prepareStatement("SELECT TRUE FROM " + tableName + " WHERE " + whereClause + " LIMIT 1"),
+				objects)) {
 			if (resultSet == null)
 				return false;
 
@@ -264,9 +719,11 @@ public class HSQLDBRepository implements Repository {
 	 * @throws SQLException
 	 */
 	public void delete(String tableName, String whereClause, Object... objects) throws SQLException {
-		try (PreparedStatement preparedStatement = this.connection.prepareStatement("DELETE FROM " + tableName + " WHERE " + whereClause)) {
-			this.checkedExecuteUpdateCount(preparedStatement, objects);
-		}
+		// Deletes might cascade so flush regardless of table
+		this.flushBatch();
+
+		this.hasUncommittedWrites = true;
+		this.checkedExecuteUpdateCount(this.prepareStatement("DELETE FROM " + tableName + " WHERE " + whereClause), objects);
 	}
 
 }
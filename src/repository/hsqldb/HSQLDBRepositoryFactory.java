@@ -5,6 +5,8 @@ import java.sql.DriverManager;
 import java.sql.SQLException;
 import java.util.Properties;
 
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
 import org.hsqldb.jdbc.JDBCPool;
 
 import repository.DataException;
@@ -13,8 +15,12 @@ import repository.RepositoryFactory;
 
 public class HSQLDBRepositoryFactory implements RepositoryFactory {
 
+	private static final Logger LOGGER = LogManager.getLogger(HSQLDBRepositoryFactory.class);
+
 	private String connectionUrl;
 	private JDBCPool connectionPool;
+	private final HSQLDBChainTip chainTip = new HSQLDBChainTip();
+	private final HSQLDBBlockCache blockCache = new HSQLDBBlockCache();
 
 	public HSQLDBRepositoryFactory(String connectionUrl) throws DataException {
 		// one-time initialization goes in here
@@ -34,6 +40,10 @@ public class HSQLDBRepositoryFactory implements RepositoryFactory {
 		// Perform DB updates?
 		try (final Connection connection = this.connectionPool.getConnection()) {
 			HSQLDBDatabaseUpdates.updateDatabase(connection);
+
+			// Don't run without redo log or secondary indexes if a bulk load was interrupted
+			if (HSQLDBDatabaseUpdates.resetBulkLoad(connection))
+				LOGGER.warn("Repository was left in bulk-load mode, e.g. by interrupted block import, so secondary indexes have been rebuilt");
 		} catch (SQLException e) {
 			throw new DataException("Repository initialization error", e);
 		}
@@ -42,7 +52,7 @@ public class HSQLDBRepositoryFactory implements RepositoryFactory {
 	@Override
 	public Repository getRepository() throws DataException {
 		try {
-			return new HSQLDBRepository(this.getConnection());
+			return new HSQLDBRepository(this.getConnection(), this.chainTip, this.blockCache);
 		} catch (SQLException e) {
 			throw new DataException("Repository initialization error", e);
 		}
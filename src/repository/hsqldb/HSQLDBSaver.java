@@ -8,6 +8,8 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Calendar;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * Database helper for building, and executing, INSERT INTO ... ON DUPLICATE KEY UPDATE ... statements.
@@ -17,10 +19,18 @@ import java.util.List;
  * {@code SaveHelper helper = new SaveHelper("TableName"); }<br>
  * {@code helper.bind("column_name", someColumnValue).bind("column2", columnValue2); }<br>
  * {@code helper.execute(repository); }<br>
+ * <p>
+ * Generated SQL is cached per table/column set and the corresponding PreparedStatement is reused via the repository's statement cache.
+ * <p>
+ * When the repository is in batch-write mode, consecutive saves with the same table/column set are accumulated and sent via
+ * {@link PreparedStatement#executeBatch()}.
  *
  */
 public class HSQLDBSaver {
 
+	/** Generated SQL, keyed by table and column names, shared across all savers. */
+	private static final Map<String, String> sqlCache = new ConcurrentHashMap<String, String>();
+
 	private String table;
 
 	private List<String> columns = new ArrayList<String>();
@@ -50,19 +60,32 @@ public class HSQLDBSaver {
 
 	/**
 	 * Build PreparedStatement using bound column-value pairs then execute it.
+	 * <p>
+	 * If repository is batching writes then the row is added to the repository's pending batch instead.
 	 * 
 	 * @param repository
 	 *
-	 * @return the result from {@link PreparedStatement#execute()}
+	 * @return the result from {@link PreparedStatement#execute()}, or false if batched
 	 * @throws SQLException
 	 */
 	public boolean execute(HSQLDBRepository repository) throws SQLException {
-		String sql = this.formatInsertWithPlaceholders();
-		try (PreparedStatement preparedStatement = repository.connection.prepareStatement(sql)) {
+		String sql = sqlCache.computeIfAbsent(this.table + ":" + String.join(",", this.columns), key -> this.formatInsertWithPlaceholders());
+
+		// Batch mode: defer execution until repository flushes
+		if (repository.isBatchingWrites()) {
+			PreparedStatement preparedStatement = repository.prepareBatchStatement(this.table, sql);
 			this.bindValues(preparedStatement);
+			repository.addBatch(this.table, sql, preparedStatement);
 
-			return preparedStatement.execute();
+			return false;
 		}
+
+		// NB: PreparedStatement is owned by repository's statement cache so we don't close it here
+		PreparedStatement preparedStatement = repository.prepareStatement(sql);
+		this.bindValues(preparedStatement);
+
+		repository.uncommittedWrite();
+		return preparedStatement.execute();
 	}
 
 	/**
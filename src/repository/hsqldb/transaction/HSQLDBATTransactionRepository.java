@@ -1,8 +1,10 @@
 package repository.hsqldb.transaction;
 
 import java.math.BigDecimal;
+import java.nio.ByteBuffer;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.util.Map;
 
 import data.transaction.ATTransactionData;
 import data.transaction.TransactionData;
@@ -12,35 +14,48 @@ import repository.hsqldb.HSQLDBSaver;
 
 public class HSQLDBATTransactionRepository extends HSQLDBTransactionRepository {
 
+	private static final String TRANSACTION_DB_COLUMNS = "AT_address, recipient, amount, asset_id, message";
+
 	public HSQLDBATTransactionRepository(HSQLDBRepository repository) {
 		this.repository = repository;
 	}
 
+	@Override
 	TransactionData fromBase(byte[] signature, byte[] reference, byte[] creatorPublicKey, long timestamp, BigDecimal fee) throws DataException {
-		try (ResultSet resultSet = this.repository
-				.checkedExecute("SELECT AT_address, recipient, amount, asset_id, message FROM ATTransactions WHERE signature = ?", signature)) {
+		try (ResultSet resultSet = this.repository.checkedExecute("SELECT " + TRANSACTION_DB_COLUMNS + " FROM ATTransactions WHERE signature = ?", signature)) {
 			if (resultSet == null)
 				return null;
 
-			String atAddress = resultSet.getString(1);
-			String recipient = resultSet.getString(2);
+			return this.fromResultSet(resultSet, signature, reference, creatorPublicKey, timestamp, fee);
+		} catch (SQLException e) {
+			throw new DataException("Unable to fetch AT transaction from repository", e);
+		}
+	}
+
+	@Override
+	TransactionData fromResultSet(ResultSet resultSet, byte[] signature, byte[] reference, byte[] creatorPublicKey, long timestamp, BigDecimal fee)
+			throws SQLException, DataException {
+		String atAddress = resultSet.getString(1);
+		String recipient = resultSet.getString(2);
 
-			BigDecimal amount = resultSet.getBigDecimal(3);
-			if (resultSet.wasNull())
-				amount = null;
+		BigDecimal amount = resultSet.getBigDecimal(3);
+		if (resultSet.wasNull())
+			amount = null;
 
-			Long assetId = resultSet.getLong(4);
-			if (resultSet.wasNull())
-				assetId = null;
+		Long assetId = resultSet.getLong(4);
+		if (resultSet.wasNull())
+			assetId = null;
 
-			byte[] message = resultSet.getBytes(5);
-			if (resultSet.wasNull())
-				message = null;
+		byte[] message = resultSet.getBytes(5);
+		if (resultSet.wasNull())
+			message = null;
 
-			return new ATTransactionData(atAddress, recipient, amount, assetId, message, fee, timestamp, reference, signature);
-		} catch (SQLException e) {
-			throw new DataException("Unable to fetch AT transaction from repository", e);
-		}
+		return new ATTransactionData(atAddress, recipient, amount, assetId, message, fee, timestamp, reference, signature);
+	}
+
+	@Override
+	void fromBlockSignature(byte[] blockSignature, Map<ByteBuffer, TransactionBase> transactionBases) throws DataException {
+		this.fromBlockSignature("ATTransactions", TRANSACTION_DB_COLUMNS, blockSignature, transactionBases);
 	}
 
 	@Override
@@ -1,9 +1,11 @@
 package repository.hsqldb.transaction;
 
 import java.math.BigDecimal;
+import java.nio.ByteBuffer;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.util.List;
+import java.util.Map;
 
 import data.PaymentData;
 import data.transaction.ArbitraryTransactionData;
@@ -15,30 +17,44 @@ import repository.hsqldb.HSQLDBSaver;
 
 public class HSQLDBArbitraryTransactionRepository extends HSQLDBTransactionRepository {
 
+	private static final String TRANSACTION_DB_COLUMNS = "sender, version, service, data_hash";
+
 	public HSQLDBArbitraryTransactionRepository(HSQLDBRepository repository) {
 		this.repository = repository;
 	}
 
+	@Override
 	TransactionData fromBase(byte[] signature, byte[] reference, byte[] creatorPublicKey, long timestamp, BigDecimal fee) throws DataException {
-		try (ResultSet resultSet = this.repository.checkedExecute("SELECT sender, version, service, data_hash from ArbitraryTransactions WHERE signature = ?",
+		try (ResultSet resultSet = this.repository.checkedExecute("SELECT " + TRANSACTION_DB_COLUMNS + " FROM ArbitraryTransactions WHERE signature = ?",
 				signature)) {
 			if (resultSet == null)
 				return null;
 
-			byte[] senderPublicKey = resultSet.getBytes(1);
-			int version = resultSet.getInt(2);
-			int service = resultSet.getInt(3);
-			byte[] dataHash = resultSet.getBytes(4);
-
-			List<PaymentData> payments = this.getPaymentsFromSignature(signature);
-
-			return new ArbitraryTransactionData(version, senderPublicKey, service, dataHash, DataType.DATA_HASH, payments, fee, timestamp, reference,
-					signature);
+			return this.fromResultSet(resultSet, signature, reference, creatorPublicKey, timestamp, fee);
 		} catch (SQLException e) {
 			throw new DataException("Unable to fetch arbitrary transaction from repository", e);
 		}
 	}
 
+	@Override
+	TransactionData fromResultSet(ResultSet resultSet, byte[] signature, byte[] reference, byte[] creatorPublicKey, long timestamp, BigDecimal fee)
+			throws SQLException, DataException {
+		byte[] senderPublicKey = resultSet.getBytes(1);
+		int version = resultSet.getInt(2);
+		int service = resultSet.getInt(3);
+		byte[] dataHash = resultSet.getBytes(4);
+
+		List<PaymentData> payments = this.getPaymentsFromSignature(signature);
+
+		return new ArbitraryTransactionData(version, senderPublicKey, service, dataHash, DataType.DATA_HASH, payments, fee, timestamp, reference,
+				signature);
+	}
+
+	@Override
+	void fromBlockSignature(byte[] blockSignature, Map<ByteBuffer, TransactionBase> transactionBases) throws DataException {
+		this.fromBlockSignatureWithPayments("ArbitraryTransactions", TRANSACTION_DB_COLUMNS, blockSignature, transactionBases);
+	}
+
 	@Override
 	public void save(TransactionData transactionData) throws DataException {
 		ArbitraryTransactionData arbitraryTransactionData = (ArbitraryTransactionData) transactionData;
@@ -1,8 +1,10 @@
 package repository.hsqldb.transaction;
 
 import java.math.BigDecimal;
+import java.nio.ByteBuffer;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.util.Map;
 
 import data.transaction.BuyNameTransactionData;
 import data.transaction.TransactionData;
@@ -12,27 +14,41 @@ import repository.hsqldb.HSQLDBSaver;
 
 public class HSQLDBBuyNameTransactionRepository extends HSQLDBTransactionRepository {
 
+	private static final String TRANSACTION_DB_COLUMNS = "name, amount, seller, name_reference";
+
 	public HSQLDBBuyNameTransactionRepository(HSQLDBRepository repository) {
 		this.repository = repository;
 	}
 
+	@Override
 	TransactionData fromBase(byte[] signature, byte[] reference, byte[] buyerPublicKey, long timestamp, BigDecimal fee) throws DataException {
-		try (ResultSet resultSet = this.repository.checkedExecute("SELECT name, amount, seller, name_reference FROM BuyNameTransactions WHERE signature = ?",
+		try (ResultSet resultSet = this.repository.checkedExecute("SELECT " + TRANSACTION_DB_COLUMNS + " FROM BuyNameTransactions WHERE signature = ?",
 				signature)) {
 			if (resultSet == null)
 				return null;
 
-			String name = resultSet.getString(1);
-			BigDecimal amount = resultSet.getBigDecimal(2);
-			String seller = resultSet.getString(3);
-			byte[] nameReference = resultSet.getBytes(4);
-
-			return new BuyNameTransactionData(buyerPublicKey, name, amount, seller, nameReference, fee, timestamp, reference, signature);
+			return this.fromResultSet(resultSet, signature, reference, buyerPublicKey, timestamp, fee);
 		} catch (SQLException e) {
 			throw new DataException("Unable to fetch buy name transaction from repository", e);
 		}
 	}
 
+	@Override
+	TransactionData fromResultSet(ResultSet resultSet, byte[] signature, byte[] reference, byte[] buyerPublicKey, long timestamp, BigDecimal fee)
+			throws SQLException, DataException {
+		String name = resultSet.getString(1);
+		BigDecimal amount = resultSet.getBigDecimal(2);
+		String seller = resultSet.getString(3);
+		byte[] nameReference = resultSet.getBytes(4);
+
+		return new BuyNameTransactionData(buyerPublicKey, name, amount, seller, nameReference, fee, timestamp, reference, signature);
+	}
+
+	@Override
+	void fromBlockSignature(byte[] blockSignature, Map<ByteBuffer, TransactionBase> transactionBases) throws DataException {
+		this.fromBlockSignature("BuyNameTransactions", TRANSACTION_DB_COLUMNS, blockSignature, transactionBases);
+	}
+
 	@Override
 	public void save(TransactionData transactionData) throws DataException {
 		BuyNameTransactionData buyNameTransactionData = (BuyNameTransactionData) transactionData;
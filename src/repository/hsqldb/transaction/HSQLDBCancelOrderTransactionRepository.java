@@ -1,8 +1,10 @@
 package repository.hsqldb.transaction;
 
 import java.math.BigDecimal;
+import java.nio.ByteBuffer;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.util.Map;
 
 import data.transaction.CancelOrderTransactionData;
 import data.transaction.TransactionData;
@@ -12,23 +14,38 @@ import repository.hsqldb.HSQLDBSaver;
 
 public class HSQLDBCancelOrderTransactionRepository extends HSQLDBTransactionRepository {
 
+	private static final String TRANSACTION_DB_COLUMNS = "asset_order_id";
+
 	public HSQLDBCancelOrderTransactionRepository(HSQLDBRepository repository) {
 		this.repository = repository;
 	}
 
+	@Override
 	TransactionData fromBase(byte[] signature, byte[] reference, byte[] creatorPublicKey, long timestamp, BigDecimal fee) throws DataException {
-		try (ResultSet resultSet = this.repository.checkedExecute("SELECT asset_order_id FROM CancelAssetOrderTransactions WHERE signature = ?", signature)) {
+		try (ResultSet resultSet = this.repository.checkedExecute("SELECT " + TRANSACTION_DB_COLUMNS + " FROM CancelAssetOrderTransactions WHERE signature = ?",
+				signature)) {
 			if (resultSet == null)
 				return null;
 
-			byte[] assetOrderId = resultSet.getBytes(1);
-
-			return new CancelOrderTransactionData(creatorPublicKey, assetOrderId, fee, timestamp, reference, signature);
+			return this.fromResultSet(resultSet, signature, reference, creatorPublicKey, timestamp, fee);
 		} catch (SQLException e) {
 			throw new DataException("Unable to fetch cancel order transaction from repository", e);
 		}
 	}
 
+	@Override
+	TransactionData fromResultSet(ResultSet resultSet, byte[] signature, byte[] reference, byte[] creatorPublicKey, long timestamp, BigDecimal fee)
+			throws SQLException, DataException {
+		byte[] assetOrderId = resultSet.getBytes(1);
+
+		return new CancelOrderTransactionData(creatorPublicKey, assetOrderId, fee, timestamp, reference, signature);
+	}
+
+	@Override
+	void fromBlockSignature(byte[] blockSignature, Map<ByteBuffer, TransactionBase> transactionBases) throws DataException {
+		this.fromBlockSignature("CancelAssetOrderTransactions", TRANSACTION_DB_COLUMNS, blockSignature, transactionBases);
+	}
+
 	@Override
 	public void save(TransactionData transactionData) throws DataException {
 		CancelOrderTransactionData cancelOrderTransactionData = (CancelOrderTransactionData) transactionData;
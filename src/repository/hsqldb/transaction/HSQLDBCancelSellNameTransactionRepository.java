@@ -1,8 +1,10 @@
 package repository.hsqldb.transaction;
 
 import java.math.BigDecimal;
+import java.nio.ByteBuffer;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.util.Map;
 
 import data.transaction.CancelSellNameTransactionData;
 import data.transaction.TransactionData;
@@ -12,23 +14,38 @@ import repository.hsqldb.HSQLDBSaver;
 
 public class HSQLDBCancelSellNameTransactionRepository extends HSQLDBTransactionRepository {
 
+	private static final String TRANSACTION_DB_COLUMNS = "name";
+
 	public HSQLDBCancelSellNameTransactionRepository(HSQLDBRepository repository) {
 		this.repository = repository;
 	}
 
+	@Override
 	TransactionData fromBase(byte[] signature, byte[] reference, byte[] ownerPublicKey, long timestamp, BigDecimal fee) throws DataException {
-		try (ResultSet resultSet = this.repository.checkedExecute("SELECT name FROM CancelSellNameTransactions WHERE signature = ?", signature)) {
+		try (ResultSet resultSet = this.repository.checkedExecute("SELECT " + TRANSACTION_DB_COLUMNS + " FROM CancelSellNameTransactions WHERE signature = ?",
+				signature)) {
 			if (resultSet == null)
 				return null;
 
-			String name = resultSet.getString(1);
-
-			return new CancelSellNameTransactionData(ownerPublicKey, name, fee, timestamp, reference, signature);
+			return this.fromResultSet(resultSet, signature, reference, ownerPublicKey, timestamp, fee);
 		} catch (SQLException e) {
 			throw new DataException("Unable to fetch cancel sell name transaction from repository", e);
 		}
 	}
 
+	@Override
+	TransactionData fromResultSet(ResultSet resultSet, byte[] signature, byte[] reference, byte[] ownerPublicKey, long timestamp, BigDecimal fee)
+			throws SQLException, DataException {
+		String name = resultSet.getString(1);
+
+		return new CancelSellNameTransactionData(ownerPublicKey, name, fee, timestamp, reference, signature);
+	}
+
+	@Override
+	void fromBlockSignature(byte[] blockSignature, Map<ByteBuffer, TransactionBase> transactionBases) throws DataException {
+		this.fromBlockSignature("CancelSellNameTransactions", TRANSACTION_DB_COLUMNS, blockSignature, transactionBases);
+	}
+
 	@Override
 	public void save(TransactionData transactionData) throws DataException {
 		CancelSellNameTransactionData cancelSellNameTransactionData = (CancelSellNameTransactionData) transactionData;
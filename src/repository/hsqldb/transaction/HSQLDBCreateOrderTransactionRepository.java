@@ -1,8 +1,10 @@
 package repository.hsqldb.transaction;
 
 import java.math.BigDecimal;
+import java.nio.ByteBuffer;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.util.Map;
 
 import data.transaction.CreateOrderTransactionData;
 import data.transaction.TransactionData;
@@ -12,27 +14,41 @@ import repository.hsqldb.HSQLDBSaver;
 
 public class HSQLDBCreateOrderTransactionRepository extends HSQLDBTransactionRepository {
 
+	private static final String TRANSACTION_DB_COLUMNS = "have_asset_id, amount, want_asset_id, price";
+
 	public HSQLDBCreateOrderTransactionRepository(HSQLDBRepository repository) {
 		this.repository = repository;
 	}
 
+	@Override
 	TransactionData fromBase(byte[] signature, byte[] reference, byte[] creatorPublicKey, long timestamp, BigDecimal fee) throws DataException {
-		try (ResultSet resultSet = this.repository
-				.checkedExecute("SELECT have_asset_id, amount, want_asset_id, price FROM CreateAssetOrderTransactions WHERE signature = ?", signature)) {
+		try (ResultSet resultSet = this.repository.checkedExecute("SELECT " + TRANSACTION_DB_COLUMNS + " FROM CreateAssetOrderTransactions WHERE signature = ?",
+				signature)) {
 			if (resultSet == null)
 				return null;
 
-			long haveAssetId = resultSet.getLong(1);
-			BigDecimal amount = resultSet.getBigDecimal(2);
-			long wantAssetId = resultSet.getLong(3);
-			BigDecimal price = resultSet.getBigDecimal(4);
-
-			return new CreateOrderTransactionData(creatorPublicKey, haveAssetId, wantAssetId, amount, price, fee, timestamp, reference, signature);
+			return this.fromResultSet(resultSet, signature, reference, creatorPublicKey, timestamp, fee);
 		} catch (SQLException e) {
 			throw new DataException("Unable to fetch create order transaction from repository", e);
 		}
 	}
 
+	@Override
+	TransactionData fromResultSet(ResultSet resultSet, byte[] signature, byte[] reference, byte[] creatorPublicKey, long timestamp, BigDecimal fee)
+			throws SQLException, DataException {
+		long haveAssetId = resultSet.getLong(1);
+		BigDecimal amount = resultSet.getBigDecimal(2);
+		long wantAssetId = resultSet.getLong(3);
+		BigDecimal price = resultSet.getBigDecimal(4);
+
+		return new CreateOrderTransactionData(creatorPublicKey, haveAssetId, wantAssetId, amount, price, fee, timestamp, reference, signature);
+	}
+
+	@Override
+	void fromBlockSignature(byte[] blockSignature, Map<ByteBuffer, TransactionBase> transactionBases) throws DataException {
+		this.fromBlockSignature("CreateAssetOrderTransactions", TRANSACTION_DB_COLUMNS, blockSignature, transactionBases);
+	}
+
 	@Override
 	public void save(TransactionData transactionData) throws DataException {
 		CreateOrderTransactionData createOrderTransactionData = (CreateOrderTransactionData) transactionData;
@@ -1,10 +1,13 @@
 package repository.hsqldb.transaction;
 
 import java.math.BigDecimal;
+import java.nio.ByteBuffer;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 import data.transaction.CreatePollTransactionData;
 import data.transaction.TransactionData;
@@ -15,38 +18,93 @@ import repository.hsqldb.HSQLDBSaver;
 
 public class HSQLDBCreatePollTransactionRepository extends HSQLDBTransactionRepository {
 
+	private static final String TRANSACTION_DB_COLUMNS = "owner, poll_name, description";
+
+	/** Poll options fetched while bulk-loading a block's transactions, keyed by transaction signature. */
+	private Map<ByteBuffer, List<PollOptionData>> blockPollOptions;
+
 	public HSQLDBCreatePollTransactionRepository(HSQLDBRepository repository) {
 		this.repository = repository;
 	}
 
+	@Override
 	TransactionData fromBase(byte[] signature, byte[] reference, byte[] creatorPublicKey, long timestamp, BigDecimal fee) throws DataException {
-		try (ResultSet resultSet = this.repository.checkedExecute("SELECT owner, poll_name, description FROM CreatePollTransactions WHERE signature = ?",
+		try (ResultSet resultSet = this.repository.checkedExecute("SELECT " + TRANSACTION_DB_COLUMNS + " FROM CreatePollTransactions WHERE signature = ?",
 				signature)) {
 			if (resultSet == null)
 				return null;
 
-			String owner = resultSet.getString(1);
-			String pollName = resultSet.getString(2);
-			String description = resultSet.getString(3);
+			return this.fromResultSet(resultSet, signature, reference, creatorPublicKey, timestamp, fee);
+		} catch (SQLException e) {
+			throw new DataException("Unable to fetch create poll transaction from repository", e);
+		}
+	}
+
+	@Override
+	TransactionData fromResultSet(ResultSet resultSet, byte[] signature, byte[] reference, byte[] creatorPublicKey, long timestamp, BigDecimal fee)
+			throws SQLException, DataException {
+		String owner = resultSet.getString(1);
+		String pollName = resultSet.getString(2);
+		String description = resultSet.getString(3);
+
+		List<PollOptionData> pollOptions = this.getPollOptionsFromSignature(signature);
+		if (pollOptions == null)
+			return null;
 
-			try (ResultSet optionsResultSet = this.repository
-					.checkedExecute("SELECT option_name FROM CreatePollTransactionOptions where signature = ? ORDER BY option_index ASC", signature)) {
-				if (optionsResultSet == null)
-					return null;
+		return new CreatePollTransactionData(creatorPublicKey, owner, pollName, description, pollOptions, fee, timestamp, reference, signature);
+	}
 
-				List<PollOptionData> pollOptions = new ArrayList<PollOptionData>();
+	private List<PollOptionData> getPollOptionsFromSignature(byte[] signature) throws SQLException {
+		// Use options already fetched during bulk load, if any
+		if (this.blockPollOptions != null)
+			return this.blockPollOptions.get(ByteBuffer.wrap(signature));
 
+		try (ResultSet optionsResultSet = this.repository
+				.checkedExecute("SELECT option_name FROM CreatePollTransactionOptions where signature = ? ORDER BY option_index ASC", signature)) {
+			if (optionsResultSet == null)
+				return null;
+
+			List<PollOptionData> pollOptions = new ArrayList<PollOptionData>();
+
+			// NOTE: do-while because checkedExecute() above has already called rs.next() for us
+			do {
+				String optionName = optionsResultSet.getString(1);
+
+				pollOptions.add(new PollOptionData(optionName));
+			} while (optionsResultSet.next());
+
+			return pollOptions;
+		}
+	}
+
+	@Override
+	void fromBlockSignature(byte[] blockSignature, Map<ByteBuffer, TransactionBase> transactionBases) throws DataException {
+		// Fetch options for all block's polls in one query
+		this.blockPollOptions = new HashMap<ByteBuffer, List<PollOptionData>>();
+
+		try (ResultSet resultSet = this.repository.checkedExecute("SELECT signature, option_name FROM CreatePollTransactionOptions "
+				+ "JOIN BlockTransactions ON BlockTransactions.transaction_signature = CreatePollTransactionOptions.signature "
+				+ "WHERE block_signature = ? ORDER BY signature, option_index ASC", blockSignature)) {
+			if (resultSet != null)
 				// NOTE: do-while because checkedExecute() above has already called rs.next() for us
 				do {
-					String optionName = optionsResultSet.getString(1);
+					ByteBuffer signature = ByteBuffer.wrap(resultSet.getBytes(1));
+					String optionName = resultSet.getString(2);
+
+					List<PollOptionData> pollOptions = this.blockPollOptions.get(signature);
+					if (pollOptions == null) {
+						pollOptions = new ArrayList<PollOptionData>();
+						this.blockPollOptions.put(signature, pollOptions);
+					}
 
 					pollOptions.add(new PollOptionData(optionName));
-				} while (optionsResultSet.next());
+				} while (resultSet.next());
 
-				return new CreatePollTransactionData(creatorPublicKey, owner, pollName, description, pollOptions, fee, timestamp, reference, signature);
-			}
+			this.fromBlockSignature("CreatePollTransactions", TRANSACTION_DB_COLUMNS, blockSignature, transactionBases);
 		} catch (SQLException e) {
-			throw new DataException("Unable to fetch create poll transaction from repository", e);
+			throw new DataException("Unable to fetch block's poll options from repository", e);
+		} finally {
+			this.blockPollOptions = null;
 		}
 	}
 
@@ -1,8 +1,10 @@
 package repository.hsqldb.transaction;
 
 import java.math.BigDecimal;
+import java.nio.ByteBuffer;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.util.Map;
 
 import data.transaction.DeployATTransactionData;
 import data.transaction.TransactionData;
@@ -12,35 +14,49 @@ import repository.hsqldb.HSQLDBSaver;
 
 public class HSQLDBDeployATTransactionRepository extends HSQLDBTransactionRepository {
 
+	private static final String TRANSACTION_DB_COLUMNS = "AT_name, description, AT_type, AT_tags, creation_bytes, amount, AT_address";
+
 	public HSQLDBDeployATTransactionRepository(HSQLDBRepository repository) {
 		this.repository = repository;
 	}
 
+	@Override
 	TransactionData fromBase(byte[] signature, byte[] reference, byte[] creatorPublicKey, long timestamp, BigDecimal fee) throws DataException {
-		try (ResultSet resultSet = this.repository.checkedExecute(
-				"SELECT AT_name, description, AT_type, AT_tags, creation_bytes, amount, AT_address FROM DeployATTransactions WHERE signature = ?", signature)) {
+		try (ResultSet resultSet = this.repository.checkedExecute("SELECT " + TRANSACTION_DB_COLUMNS + " FROM DeployATTransactions WHERE signature = ?",
+				signature)) {
 			if (resultSet == null)
 				return null;
 
-			String name = resultSet.getString(1);
-			String description = resultSet.getString(2);
-			String ATType = resultSet.getString(3);
-			String tags = resultSet.getString(4);
-			byte[] creationBytes = resultSet.getBytes(5);
-			BigDecimal amount = resultSet.getBigDecimal(6).setScale(8);
-
-			// Special null-checking for AT address
-			String ATAddress = resultSet.getString(7);
-			if (resultSet.wasNull())
-				ATAddress = null;
-
-			return new DeployATTransactionData(ATAddress, creatorPublicKey, name, description, ATType, tags, creationBytes, amount, fee, timestamp, reference,
-					signature);
+			return this.fromResultSet(resultSet, signature, reference, creatorPublicKey, timestamp, fee);
 		} catch (SQLException e) {
 			throw new DataException("Unable to fetch deploy AT transaction from repository", e);
 		}
 	}
 
+	@Override
+	TransactionData fromResultSet(ResultSet resultSet, byte[] signature, byte[] reference, byte[] creatorPublicKey, long timestamp, BigDecimal fee)
+			throws SQLException, DataException {
+		String name = resultSet.getString(1);
+		String description = resultSet.getString(2);
+		String ATType = resultSet.getString(3);
+		String tags = resultSet.getString(4);
+		byte[] creationBytes = resultSet.getBytes(5);
+		BigDecimal amount = resultSet.getBigDecimal(6).setScale(8);
+
+		// Special null-checking for AT address
+		String ATAddress = resultSet.getString(7);
+		if (resultSet.wasNull())
+			ATAddress = null;
+
+		return new DeployATTransactionData(ATAddress, creatorPublicKey, name, description, ATType, tags, creationBytes, amount, fee, timestamp, reference,
+				signature);
+	}
+
+	@Override
+	void fromBlockSignature(byte[] blockSignature, Map<ByteBuffer, TransactionBase> transactionBases) throws DataException {
+		this.fromBlockSignature("DeployATTransactions", TRANSACTION_DB_COLUMNS, blockSignature, transactionBases);
+	}
+
 	@Override
 	public void save(TransactionData transactionData) throws DataException {
 		DeployATTransactionData deployATTransactionData = (DeployATTransactionData) transactionData;
@@ -1,8 +1,10 @@
 package repository.hsqldb.transaction;
 
 import java.math.BigDecimal;
+import java.nio.ByteBuffer;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.util.Map;
 
 import data.transaction.IssueAssetTransactionData;
 import data.transaction.TransactionData;
@@ -12,35 +14,49 @@ import repository.hsqldb.HSQLDBSaver;
 
 public class HSQLDBIssueAssetTransactionRepository extends HSQLDBTransactionRepository {
 
+	private static final String TRANSACTION_DB_COLUMNS = "issuer, owner, asset_name, description, quantity, is_divisible, asset_id";
+
 	public HSQLDBIssueAssetTransactionRepository(HSQLDBRepository repository) {
 		this.repository = repository;
 	}
 
+	@Override
 	TransactionData fromBase(byte[] signature, byte[] reference, byte[] creatorPublicKey, long timestamp, BigDecimal fee) throws DataException {
-		try (ResultSet resultSet = this.repository.checkedExecute(
-				"SELECT issuer, owner, asset_name, description, quantity, is_divisible, asset_id FROM IssueAssetTransactions WHERE signature = ?", signature)) {
+		try (ResultSet resultSet = this.repository.checkedExecute("SELECT " + TRANSACTION_DB_COLUMNS + " FROM IssueAssetTransactions WHERE signature = ?",
+				signature)) {
 			if (resultSet == null)
 				return null;
 
-			byte[] issuerPublicKey = resultSet.getBytes(1);
-			String owner = resultSet.getString(2);
-			String assetName = resultSet.getString(3);
-			String description = resultSet.getString(4);
-			long quantity = resultSet.getLong(5);
-			boolean isDivisible = resultSet.getBoolean(6);
-
-			// Special null-checking for asset ID
-			Long assetId = resultSet.getLong(7);
-			if (resultSet.wasNull())
-				assetId = null;
-
-			return new IssueAssetTransactionData(assetId, issuerPublicKey, owner, assetName, description, quantity, isDivisible, fee, timestamp, reference,
-					signature);
+			return this.fromResultSet(resultSet, signature, reference, creatorPublicKey, timestamp, fee);
 		} catch (SQLException e) {
 			throw new DataException("Unable to fetch issue asset transaction from repository", e);
 		}
 	}
 
+	@Override
+	TransactionData fromResultSet(ResultSet resultSet, byte[] signature, byte[] reference, byte[] creatorPublicKey, long timestamp, BigDecimal fee)
+			throws SQLException, DataException {
+		byte[] issuerPublicKey = resultSet.getBytes(1);
+		String owner = resultSet.getString(2);
+		String assetName = resultSet.getString(3);
+		String description = resultSet.getString(4);
+		long quantity = resultSet.getLong(5);
+		boolean isDivisible = resultSet.getBoolean(6);
+
+		// Special null-checking for asset ID
+		Long assetId = resultSet.getLong(7);
+		if (resultSet.wasNull())
+			assetId = null;
+
+		return new IssueAssetTransactionData(assetId, issuerPublicKey, owner, assetName, description, quantity, isDivisible, fee, timestamp, reference,
+				signature);
+	}
+
+	@Override
+	void fromBlockSignature(byte[] blockSignature, Map<ByteBuffer, TransactionBase> transactionBases) throws DataException {
+		this.fromBlockSignature("IssueAssetTransactions", TRANSACTION_DB_COLUMNS, blockSignature, transactionBases);
+	}
+
 	@Override
 	public void save(TransactionData transactionData) throws DataException {
 		IssueAssetTransactionData issueAssetTransactionData = (IssueAssetTransactionData) transactionData;
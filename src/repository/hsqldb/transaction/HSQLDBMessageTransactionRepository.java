@@ -1,8 +1,10 @@
 package repository.hsqldb.transaction;
 
 import java.math.BigDecimal;
+import java.nio.ByteBuffer;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.util.Map;
 
 import data.transaction.MessageTransactionData;
 import data.transaction.TransactionData;
@@ -12,37 +14,51 @@ import repository.hsqldb.HSQLDBSaver;
 
 public class HSQLDBMessageTransactionRepository extends HSQLDBTransactionRepository {
 
+	private static final String TRANSACTION_DB_COLUMNS = "version, sender, recipient, is_text, is_encrypted, amount, asset_id, data";
+
 	public HSQLDBMessageTransactionRepository(HSQLDBRepository repository) {
 		this.repository = repository;
 	}
 
+	@Override
 	TransactionData fromBase(byte[] signature, byte[] reference, byte[] creatorPublicKey, long timestamp, BigDecimal fee) throws DataException {
-		try (ResultSet resultSet = this.repository.checkedExecute(
-				"SELECT version, sender, recipient, is_text, is_encrypted, amount, asset_id, data FROM MessageTransactions WHERE signature = ?", signature)) {
+		try (ResultSet resultSet = this.repository.checkedExecute("SELECT " + TRANSACTION_DB_COLUMNS + " FROM MessageTransactions WHERE signature = ?",
+				signature)) {
 			if (resultSet == null)
 				return null;
 
-			int version = resultSet.getInt(1);
-			byte[] senderPublicKey = resultSet.getBytes(2);
-			String recipient = resultSet.getString(3);
-			boolean isText = resultSet.getBoolean(4);
-			boolean isEncrypted = resultSet.getBoolean(5);
-			BigDecimal amount = resultSet.getBigDecimal(6);
-
-			// Special null-checking for asset ID
-			Long assetId = resultSet.getLong(7);
-			if (resultSet.wasNull())
-				assetId = null;
-
-			byte[] data = resultSet.getBytes(8);
-
-			return new MessageTransactionData(version, senderPublicKey, recipient, assetId, amount, data, isText, isEncrypted, fee, timestamp, reference,
-					signature);
+			return this.fromResultSet(resultSet, signature, reference, creatorPublicKey, timestamp, fee);
 		} catch (SQLException e) {
 			throw new DataException("Unable to fetch message transaction from repository", e);
 		}
 	}
 
+	@Override
+	TransactionData fromResultSet(ResultSet resultSet, byte[] signature, byte[] reference, byte[] creatorPublicKey, long timestamp, BigDecimal fee)
+			throws SQLException, DataException {
+		int version = resultSet.getInt(1);
+		byte[] senderPublicKey = resultSet.getBytes(2);
+		String recipient = resultSet.getString(3);
+		boolean isText = resultSet.getBoolean(4);
+		boolean isEncrypted = resultSet.getBoolean(5);
+		BigDecimal amount = resultSet.getBigDecimal(6);
+
+		// Special null-checking for asset ID
+		Long assetId = resultSet.getLong(7);
+		if (resultSet.wasNull())
+			assetId = null;
+
+		byte[] data = resultSet.getBytes(8);
+
+		return new MessageTransactionData(version, senderPublicKey, recipient, assetId, amount, data, isText, isEncrypted, fee, timestamp, reference,
+				signature);
+	}
+
+	@Override
+	void fromBlockSignature(byte[] blockSignature, Map<ByteBuffer, TransactionBase> transactionBases) throws DataException {
+		this.fromBlockSignature("MessageTransactions", TRANSACTION_DB_COLUMNS, blockSignature, transactionBases);
+	}
+
 	@Override
 	public void save(TransactionData transactionData) throws DataException {
 		MessageTransactionData messageTransactionData = (MessageTransactionData) transactionData;
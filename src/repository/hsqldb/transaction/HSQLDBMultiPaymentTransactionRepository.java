@@ -1,9 +1,11 @@
 package repository.hsqldb.transaction;
 
 import java.math.BigDecimal;
+import java.nio.ByteBuffer;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.util.List;
+import java.util.Map;
 
 import data.PaymentData;
 import data.transaction.MultiPaymentTransactionData;
@@ -14,25 +16,40 @@ import repository.hsqldb.HSQLDBSaver;
 
 public class HSQLDBMultiPaymentTransactionRepository extends HSQLDBTransactionRepository {
 
+	private static final String TRANSACTION_DB_COLUMNS = "sender";
+
 	public HSQLDBMultiPaymentTransactionRepository(HSQLDBRepository repository) {
 		this.repository = repository;
 	}
 
+	@Override
 	TransactionData fromBase(byte[] signature, byte[] reference, byte[] creatorPublicKey, long timestamp, BigDecimal fee) throws DataException {
-		try (ResultSet resultSet = this.repository.checkedExecute("SELECT sender from MultiPaymentTransactions WHERE signature = ?", signature)) {
+		try (ResultSet resultSet = this.repository.checkedExecute("SELECT " + TRANSACTION_DB_COLUMNS + " FROM MultiPaymentTransactions WHERE signature = ?",
+				signature)) {
 			if (resultSet == null)
 				return null;
 
-			byte[] senderPublicKey = resultSet.getBytes(1);
-
-			List<PaymentData> payments = this.getPaymentsFromSignature(signature);
-
-			return new MultiPaymentTransactionData(senderPublicKey, payments, fee, timestamp, reference, signature);
+			return this.fromResultSet(resultSet, signature, reference, creatorPublicKey, timestamp, fee);
 		} catch (SQLException e) {
 			throw new DataException("Unable to fetch multi-payment transaction from repository", e);
 		}
 	}
 
+	@Override
+	TransactionData fromResultSet(ResultSet resultSet, byte[] signature, byte[] reference, byte[] creatorPublicKey, long timestamp, BigDecimal fee)
+			throws SQLException, DataException {
+		byte[] senderPublicKey = resultSet.getBytes(1);
+
+		List<PaymentData> payments = this.getPaymentsFromSignature(signature);
+
+		return new MultiPaymentTransactionData(senderPublicKey, payments, fee, timestamp, reference, signature);
+	}
+
+	@Override
+	void fromBlockSignature(byte[] blockSignature, Map<ByteBuffer, TransactionBase> transactionBases) throws DataException {
+		this.fromBlockSignatureWithPayments("MultiPaymentTransactions", TRANSACTION_DB_COLUMNS, blockSignature, transactionBases);
+	}
+
 	@Override
 	public void save(TransactionData transactionData) throws DataException {
 		MultiPaymentTransactionData multiPaymentTransactionData = (MultiPaymentTransactionData) transactionData;
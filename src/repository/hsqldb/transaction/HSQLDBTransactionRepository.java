@@ -1,12 +1,16 @@
 package repository.hsqldb.transaction;
 
 import java.math.BigDecimal;
+import java.nio.ByteBuffer;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Timestamp;
 import java.util.ArrayList;
 import java.util.Calendar;
+import java.util.EnumMap;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 import data.PaymentData;
 import data.block.BlockData;
@@ -20,45 +24,16 @@ import repository.hsqldb.HSQLDBSaver;
 public class HSQLDBTransactionRepository implements TransactionRepository {
 
 	protected HSQLDBRepository repository;
-	private HSQLDBGenesisTransactionRepository genesisTransactionRepository;
-	private HSQLDBPaymentTransactionRepository paymentTransactionRepository;
-	private HSQLDBRegisterNameTransactionRepository registerNameTransactionRepository;
-	private HSQLDBUpdateNameTransactionRepository updateNameTransactionRepository;
-	private HSQLDBSellNameTransactionRepository sellNameTransactionRepository;
-	private HSQLDBCancelSellNameTransactionRepository cancelSellNameTransactionRepository;
-	private HSQLDBBuyNameTransactionRepository buyNameTransactionRepository;
-	private HSQLDBCreatePollTransactionRepository createPollTransactionRepository;
-	private HSQLDBVoteOnPollTransactionRepository voteOnPollTransactionRepository;
-	private HSQLDBArbitraryTransactionRepository arbitraryTransactionRepository;
-	private HSQLDBIssueAssetTransactionRepository issueAssetTransactionRepository;
-	private HSQLDBTransferAssetTransactionRepository transferAssetTransactionRepository;
-	private HSQLDBCreateOrderTransactionRepository createOrderTransactionRepository;
-	private HSQLDBCancelOrderTransactionRepository cancelOrderTransactionRepository;
-	private HSQLDBMultiPaymentTransactionRepository multiPaymentTransactionRepository;
-	private HSQLDBDeployATTransactionRepository deployATTransactionRepository;
-	private HSQLDBMessageTransactionRepository messageTransactionRepository;
-	private HSQLDBATTransactionRepository atTransactionRepository;
+
+	/** Transaction-type-specific repositories, created on first use. Only used by top-level instance, not by type-specific subclasses. */
+	private Map<TransactionType, HSQLDBTransactionRepository> typeRepositories;
+
+	/** Payments fetched while bulk-loading a block's transactions, keyed by transaction signature. */
+	private Map<ByteBuffer, List<PaymentData>> blockPayments;
 
 	public HSQLDBTransactionRepository(HSQLDBRepository repository) {
 		this.repository = repository;
-		this.genesisTransactionRepository = new HSQLDBGenesisTransactionRepository(repository);
-		this.paymentTransactionRepository = new HSQLDBPaymentTransactionRepository(repository);
-		this.registerNameTransactionRepository = new HSQLDBRegisterNameTransactionRepository(repository);
-		this.updateNameTransactionRepository = new HSQLDBUpdateNameTransactionRepository(repository);
-		this.sellNameTransactionRepository = new HSQLDBSellNameTransactionRepository(repository);
-		this.cancelSellNameTransactionRepository = new HSQLDBCancelSellNameTransactionRepository(repository);
-		this.buyNameTransactionRepository = new HSQLDBBuyNameTransactionRepository(repository);
-		this.createPollTransactionRepository = new HSQLDBCreatePollTransactionRepository(repository);
-		this.voteOnPollTransactionRepository = new HSQLDBVoteOnPollTransactionRepository(repository);
-		this.arbitraryTransactionRepository = new HSQLDBArbitraryTransactionRepository(repository);
-		this.issueAssetTransactionRepository = new HSQLDBIssueAssetTransactionRepository(repository);
-		this.transferAssetTransactionRepository = new HSQLDBTransferAssetTransactionRepository(repository);
-		this.createOrderTransactionRepository = new HSQLDBCreateOrderTransactionRepository(repository);
-		this.cancelOrderTransactionRepository = new HSQLDBCancelOrderTransactionRepository(repository);
-		this.multiPaymentTransactionRepository = new HSQLDBMultiPaymentTransactionRepository(repository);
-		this.deployATTransactionRepository = new HSQLDBDeployATTransactionRepository(repository);
-		this.messageTransactionRepository = new HSQLDBMessageTransactionRepository(repository);
-		this.atTransactionRepository = new HSQLDBATTransactionRepository(repository);
+		this.typeRepositories = new EnumMap<TransactionType, HSQLDBTransactionRepository>(TransactionType.class);
 	}
 
 	protected HSQLDBTransactionRepository() {
@@ -104,63 +79,232 @@ public class HSQLDBTransactionRepository implements TransactionRepository {
 
 	private TransactionData fromBase(TransactionType type, byte[] signature, byte[] reference, byte[] creatorPublicKey, long timestamp, BigDecimal fee)
 			throws DataException {
+		return this.getTypeRepository(type).fromBase(signature, reference, creatorPublicKey, timestamp, fee);
+	}
+
+	private HSQLDBTransactionRepository getTypeRepository(TransactionType type) throws DataException {
+		HSQLDBTransactionRepository typeRepository = this.typeRepositories.get(type);
+
+		if (typeRepository == null) {
+			typeRepository = this.newTypeRepository(type);
+			this.typeRepositories.put(type, typeRepository);
+		}
+
+		return typeRepository;
+	}
+
+	private HSQLDBTransactionRepository newTypeRepository(TransactionType type) throws DataException {
 		switch (type) {
 			case GENESIS:
-				return this.genesisTransactionRepository.fromBase(signature, reference, creatorPublicKey, timestamp, fee);
+				return new HSQLDBGenesisTransactionRepository(this.repository);
 
 			case PAYMENT:
-				return this.paymentTransactionRepository.fromBase(signature, reference, creatorPublicKey, timestamp, fee);
+				return new HSQLDBPaymentTransactionRepository(this.repository);
 
 			case REGISTER_NAME:
-				return this.registerNameTransactionRepository.fromBase(signature, reference, creatorPublicKey, timestamp, fee);
+				return new HSQLDBRegisterNameTransactionRepository(this.repository);
 
 			case UPDATE_NAME:
-				return this.updateNameTransactionRepository.fromBase(signature, reference, creatorPublicKey, timestamp, fee);
+				return new HSQLDBUpdateNameTransactionRepository(this.repository);
 
 			case SELL_NAME:
-				return this.sellNameTransactionRepository.fromBase(signature, reference, creatorPublicKey, timestamp, fee);
+				return new HSQLDBSellNameTransactionRepository(this.repository);
 
 			case CANCEL_SELL_NAME:
-				return this.cancelSellNameTransactionRepository.fromBase(signature, reference, creatorPublicKey, timestamp, fee);
+				return new HSQLDBCancelSellNameTransactionRepository(this.repository);
 
 			case BUY_NAME:
-				return this.buyNameTransactionRepository.fromBase(signature, reference, creatorPublicKey, timestamp, fee);
+				return new HSQLDBBuyNameTransactionRepository(this.repository);
 
 			case CREATE_POLL:
-				return this.createPollTransactionRepository.fromBase(signature, reference, creatorPublicKey, timestamp, fee);
+				return new HSQLDBCreatePollTransactionRepository(this.repository);
 
 			case VOTE_ON_POLL:
-				return this.voteOnPollTransactionRepository.fromBase(signature, reference, creatorPublicKey, timestamp, fee);
+				return new HSQLDBVoteOnPollTransactionRepository(this.repository);
 
 			case ARBITRARY:
-				return this.arbitraryTransactionRepository.fromBase(signature, reference, creatorPublicKey, timestamp, fee);
+				return new HSQLDBArbitraryTransactionRepository(this.repository);
 
 			case ISSUE_ASSET:
-				return this.issueAssetTransactionRepository.fromBase(signature, reference, creatorPublicKey, timestamp, fee);
+				return new HSQLDBIssueAssetTransactionRepository(this.repository);
 
 			case TRANSFER_ASSET:
-				return this.transferAssetTransactionRepository.fromBase(signature, reference, creatorPublicKey, timestamp, fee);
+				return new HSQLDBTransferAssetTransactionRepository(this.repository);
 
 			case CREATE_ASSET_ORDER:
-				return this.createOrderTransactionRepository.fromBase(signature, reference, creatorPublicKey, timestamp, fee);
+				return new HSQLDBCreateOrderTransactionRepository(this.repository);
 
 			case CANCEL_ASSET_ORDER:
-				return this.cancelOrderTransactionRepository.fromBase(signature, reference, creatorPublicKey, timestamp, fee);
+				return new HSQLDBCancelOrderTransactionRepository(this.repository);
 
 			case MULTIPAYMENT:
-				return this.multiPaymentTransactionRepository.fromBase(signature, reference, creatorPublicKey, timestamp, fee);
+				return new HSQLDBMultiPaymentTransactionRepository(this.repository);
 
 			case DEPLOY_AT:
-				return this.deployATTransactionRepository.fromBase(signature, reference, creatorPublicKey, timestamp, fee);
+				return new HSQLDBDeployATTransactionRepository(this.repository);
 
 			case MESSAGE:
-				return this.messageTransactionRepository.fromBase(signature, reference, creatorPublicKey, timestamp, fee);
+				return new HSQLDBMessageTransactionRepository(this.repository);
 
 			case AT:
-				return this.atTransactionRepository.fromBase(signature, reference, creatorPublicKey, timestamp, fee);
+				return new HSQLDBATTransactionRepository(this.repository);
 
 			default:
-				throw new DataException("Unsupported transaction type [" + type.name() + "] during fetch from HSQLDB repository");
+				throw new DataException("Unsupported transaction type [" + type.name() + "] in HSQLDB repository");
+		}
+	}
+
+	/**
+	 * Build type-specific transaction data from base transaction info and a type-specific row.
+	 * <p>
+	 * Overridden by type-specific subclasses.
+	 * 
+	 * @param resultSet
+	 *            positioned on type-specific row
+	 * @return transaction data, or null if type-specific data (e.g. poll options) is missing
+	 * @throws SQLException
+	 * @throws DataException
+	 */
+	TransactionData fromResultSet(ResultSet resultSet, byte[] signature, byte[] reference, byte[] creatorPublicKey, long timestamp, BigDecimal fee)
+			throws SQLException, DataException {
+		throw new DataException("Unsupported transaction type during fetch from HSQLDB repository");
+	}
+
+	TransactionData fromBase(byte[] signature, byte[] reference, byte[] creatorPublicKey, long timestamp, BigDecimal fee) throws DataException {
+		throw new DataException("Unsupported transaction type during fetch from HSQLDB repository");
+	}
+
+	/** Base transaction info, from Transactions table, used when bulk-loading a block's transactions. */
+	static class TransactionBase {
+		final TransactionType type;
+		final byte[] signature;
+		final byte[] reference;
+		final byte[] creatorPublicKey;
+		final long timestamp;
+		final BigDecimal fee;
+		TransactionData transactionData;
+
+		TransactionBase(TransactionType type, byte[] signature, byte[] reference, byte[] creatorPublicKey, long timestamp, BigDecimal fee) {
+			this.type = type;
+			this.signature = signature;
+			this.reference = reference;
+			this.creatorPublicKey = creatorPublicKey;
+			this.timestamp = timestamp;
+			this.fee = fee;
+		}
+	}
+
+	@Override
+	public List<TransactionData> fromBlockSignature(byte[] blockSignature) throws DataException {
+		List<TransactionBase> transactionBases = new ArrayList<TransactionBase>();
+		Map<TransactionType, Map<ByteBuffer, TransactionBase>> transactionBasesByType = new EnumMap<TransactionType, Map<ByteBuffer, TransactionBase>>(
+				TransactionType.class);
+
+		// Fetch base info for all block's transactions in one query
+		try (ResultSet resultSet = this.repository.checkedExecute("SELECT Transactions.signature, type, reference, creator, creation, fee "
+				+ "FROM BlockTransactions JOIN Transactions ON Transactions.signature = BlockTransactions.transaction_signature "
+				+ "WHERE block_signature = ? ORDER BY sequence ASC", blockSignature)) {
+			if (resultSet == null)
+				return new ArrayList<TransactionData>(); // No transactions in this block
+
+			// NB: do-while loop because .checkedExecute() implicitly calls ResultSet.next() for us
+			do {
+				byte[] signature = resultSet.getBytes(1);
+				TransactionType type = TransactionType.valueOf(resultSet.getInt(2));
+				byte[] reference = resultSet.getBytes(3);
+				byte[] creatorPublicKey = resultSet.getBytes(4);
+				long timestamp = resultSet.getTimestamp(5, Calendar.getInstance(HSQLDBRepository.UTC)).getTime();
+				BigDecimal fee = resultSet.getBigDecimal(6).setScale(8);
+
+				TransactionBase transactionBase = new TransactionBase(type, signature, reference, creatorPublicKey, timestamp, fee);
+				transactionBases.add(transactionBase);
+
+				Map<ByteBuffer, TransactionBase> typeBases = transactionBasesByType.get(type);
+				if (typeBases == null) {
+					typeBases = new HashMap<ByteBuffer, TransactionBase>();
+					transactionBasesByType.put(type, typeBases);
+				}
+				typeBases.put(ByteBuffer.wrap(signature), transactionBase);
+			} while (resultSet.next());
+		} catch (SQLException e) {
+			throw new DataException("Unable to fetch block's transactions from repository", e);
+		}
+
+		// Fetch type-specific info using one query per transaction type present in block
+		for (Map.Entry<TransactionType, Map<ByteBuffer, TransactionBase>> entry : transactionBasesByType.entrySet())
+			this.getTypeRepository(entry.getKey()).fromBlockSignature(blockSignature, entry.getValue());
+
+		List<TransactionData> transactions = new ArrayList<TransactionData>(transactionBases.size());
+		for (TransactionBase transactionBase : transactionBases)
+			transactions.add(transactionBase.transactionData);
+
+		return transactions;
+	}
+
+	/**
+	 * Fill in type-specific transaction data for a block's transactions of one type.
+	 * <p>
+	 * Overridden by type-specific subclasses.
+	 * 
+	 * @param blockSignature
+	 * @param transactionBases
+	 *            block's transactions of this type, keyed by signature
+	 * @throws DataException
+	 */
+	void fromBlockSignature(byte[] blockSignature, Map<ByteBuffer, TransactionBase> transactionBases) throws DataException {
+		throw new DataException("Unsupported transaction type during fetch from HSQLDB repository");
+	}
+
+	/**
+	 * Fill in type-specific transaction data for a block's transactions using one query against type-specific table.
+	 * 
+	 * @param tableName
+	 *            type-specific table, e.g. "PaymentTransactions"
+	 * @param columns
+	 *            type-specific columns, in the order expected by {@link #fromResultSet}
+	 * @param blockSignature
+	 * @param transactionBases
+	 * @throws DataException
+	 */
+	protected void fromBlockSignature(String tableName, String columns, byte[] blockSignature, Map<ByteBuffer, TransactionBase> transactionBases)
+			throws DataException {
+		// Transaction's signature is appended as last column
+		String sql = "SELECT " + columns + ", " + tableName + ".signature FROM " + tableName + " JOIN BlockTransactions ON BlockTransactions.transaction_signature = "
+				+ tableName + ".signature WHERE block_signature = ?";
+
+		try (ResultSet resultSet = this.repository.checkedExecute(sql, blockSignature)) {
+			if (resultSet == null)
+				return;
+
+			int signatureColumn = resultSet.getMetaData().getColumnCount();
+
+			// NB: do-while loop because .checkedExecute() implicitly calls ResultSet.next() for us
+			do {
+				TransactionBase transactionBase = transactionBases.get(ByteBuffer.wrap(resultSet.getBytes(signatureColumn)));
+
+				transactionBase.transactionData = this.fromResultSet(resultSet, transactionBase.signature, transactionBase.reference,
+						transactionBase.creatorPublicKey, transactionBase.timestamp, transactionBase.fee);
+			} while (resultSet.next());
+		} catch (SQLException e) {
+			throw new DataException("Unable to fetch block's transactions from repository", e);
+		}
+	}
+
+	/**
+	 * Fill in type-specific transaction data, including payments, for a block's transactions.
+	 * <p>
+	 * Payments for all block's transactions are fetched in one query beforehand.
+	 * 
+	 * @see #fromBlockSignature(String, String, byte[], Map)
+	 */
+	protected void fromBlockSignatureWithPayments(String tableName, String columns, byte[] blockSignature, Map<ByteBuffer, TransactionBase> transactionBases)
+			throws DataException {
+		this.blockPayments = this.getPaymentsFromBlockSignature(blockSignature);
+
+		try {
+			this.fromBlockSignature(tableName, columns, blockSignature, transactionBases);
+		} finally {
+			this.blockPayments = null;
 		}
 	}
 
@@ -174,6 +318,12 @@ public class HSQLDBTransactionRepository implements TransactionRepository {
 	 * @throws DataException
 	 */
 	protected List<PaymentData> getPaymentsFromSignature(byte[] signature) throws DataException {
+		// Use payments already fetched during bulk load, if any
+		if (this.blockPayments != null) {
+			List<PaymentData> payments = this.blockPayments.get(ByteBuffer.wrap(signature));
+			return payments != null ? payments : new ArrayList<PaymentData>();
+		}
+
 		List<PaymentData> payments = new ArrayList<PaymentData>();
 
 		try (ResultSet resultSet = this.repository.checkedExecute("SELECT recipient, amount, asset_id FROM SharedTransactionPayments WHERE signature = ?",
@@ -196,6 +346,44 @@ public class HSQLDBTransactionRepository implements TransactionRepository {
 		}
 	}
 
+	/**
+	 * Returns payments associated with all transactions in a block, keyed by transaction signature.
+	 * 
+	 * @param blockSignature
+	 * @return map of transaction signature to list of payments
+	 * @throws DataException
+	 */
+	private Map<ByteBuffer, List<PaymentData>> getPaymentsFromBlockSignature(byte[] blockSignature) throws DataException {
+		Map<ByteBuffer, List<PaymentData>> blockPayments = new HashMap<ByteBuffer, List<PaymentData>>();
+
+		try (ResultSet resultSet = this.repository.checkedExecute("SELECT signature, recipient, amount, asset_id FROM SharedTransactionPayments "
+				+ "JOIN BlockTransactions ON BlockTransactions.transaction_signature = SharedTransactionPayments.signature WHERE block_signature = ?",
+				blockSignature)) {
+			if (resultSet == null)
+				return blockPayments;
+
+			// NOTE: do-while because checkedExecute() above has already called rs.next() for us
+			do {
+				ByteBuffer signature = ByteBuffer.wrap(resultSet.getBytes(1));
+				String recipient = resultSet.getString(2);
+				BigDecimal amount = resultSet.getBigDecimal(3);
+				long assetId = resultSet.getLong(4);
+
+				List<PaymentData> payments = blockPayments.get(signature);
+				if (payments == null) {
+					payments = new ArrayList<PaymentData>();
+					blockPayments.put(signature, payments);
+				}
+
+				payments.add(new PaymentData(recipient, assetId, amount));
+			} while (resultSet.next());
+
+			return blockPayments;
+		} catch (SQLException e) {
+			throw new DataException("Unable to fetch block's payments from repository", e);
+		}
+	}
+
 	protected void savePayments(byte[] signature, List<PaymentData> payments) throws DataException {
 		for (PaymentData paymentData : payments) {
 			HSQLDBSaver saver = new HSQLDBSaver("SharedTransactionPayments");
@@ -216,9 +404,8 @@ public class HSQLDBTransactionRepository implements TransactionRepository {
 		if (signature == null)
 			return 0;
 
-		// Fetch height using join via block's transactions
-		try (ResultSet resultSet = this.repository.checkedExecute(
-				"SELECT height from BlockTransactions JOIN Blocks ON Blocks.signature = BlockTransactions.block_signature WHERE transaction_signature = ? LIMIT 1",
+		// Fetch height directly from block's transactions, no join required
+		try (ResultSet resultSet = this.repository.checkedExecute("SELECT block_height from BlockTransactions WHERE transaction_signature = ? LIMIT 1",
 				signature)) {
 
 			if (resultSet == null)
@@ -235,18 +422,8 @@ public class HSQLDBTransactionRepository implements TransactionRepository {
 		if (signature == null)
 			return null;
 
-		// Fetch block signature (if any)
-		try (ResultSet resultSet = this.repository.checkedExecute("SELECT block_signature from BlockTransactions WHERE transaction_signature = ? LIMIT 1",
-				signature)) {
-			if (resultSet == null)
-				return null;
-
-			byte[] blockSignature = resultSet.getBytes(1);
-
-			return this.repository.getBlockRepository().fromSignature(blockSignature);
-		} catch (SQLException | DataException e) {
-			throw new DataException("Unable to fetch transaction's block from repository", e);
-		}
+		// Fetch block (if any) in one query
+		return this.repository.getBlockRepository().fromTransactionSignature(signature);
 	}
 
 	@Override
@@ -262,82 +439,7 @@ public class HSQLDBTransactionRepository implements TransactionRepository {
 		}
 
 		// Now call transaction-type-specific save() method
-		switch (transactionData.getType()) {
-			case GENESIS:
-				this.genesisTransactionRepository.save(transactionData);
-				break;
-
-			case PAYMENT:
-				this.paymentTransactionRepository.save(transactionData);
-				break;
-
-			case REGISTER_NAME:
-				this.registerNameTransactionRepository.save(transactionData);
-				break;
-
-			case UPDATE_NAME:
-				this.updateNameTransactionRepository.save(transactionData);
-				break;
-
-			case SELL_NAME:
-				this.sellNameTransactionRepository.save(transactionData);
-				break;
-
-			case CANCEL_SELL_NAME:
-				this.cancelSellNameTransactionRepository.save(transactionData);
-				break;
-
-			case BUY_NAME:
-				this.buyNameTransactionRepository.save(transactionData);
-				break;
-
-			case CREATE_POLL:
-				this.createPollTransactionRepository.save(transactionData);
-				break;
-
-			case VOTE_ON_POLL:
-				this.voteOnPollTransactionRepository.save(transactionData);
-				break;
-
-			case ARBITRARY:
-				this.arbitraryTransactionRepository.save(transactionData);
-				break;
-
-			case ISSUE_ASSET:
-				this.issueAssetTransactionRepository.save(transactionData);
-				break;
-
-			case TRANSFER_ASSET:
-				this.transferAssetTransactionRepository.save(transactionData);
-				break;
-
-			case CREATE_ASSET_ORDER:
-				this.createOrderTransactionRepository.save(transactionData);
-				break;
-
-			case CANCEL_ASSET_ORDER:
-				this.cancelOrderTransactionRepository.save(transactionData);
-				break;
-
-			case MULTIPAYMENT:
-				this.multiPaymentTransactionRepository.save(transactionData);
-				break;
-
-			case DEPLOY_AT:
-				this.deployATTransactionRepository.save(transactionData);
-				break;
-
-			case MESSAGE:
-				this.messageTransactionRepository.save(transactionData);
-				break;
-
-			case AT:
-				this.atTransactionRepository.save(transactionData);
-				break;
-
-			default:
-				throw new DataException("Unsupported transaction type [" + transactionData.getType().name() + "] during save into HSQLDB repository");
-		}
+		this.getTypeRepository(transactionData.getType()).save(transactionData);
 	}
 
 	@Override
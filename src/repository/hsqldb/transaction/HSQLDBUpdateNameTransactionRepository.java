@@ -1,8 +1,10 @@
 package repository.hsqldb.transaction;
 
 import java.math.BigDecimal;
+import java.nio.ByteBuffer;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.util.Map;
 
 import data.transaction.UpdateNameTransactionData;
 import data.transaction.TransactionData;
@@ -12,27 +14,41 @@ import repository.hsqldb.HSQLDBSaver;
 
 public class HSQLDBUpdateNameTransactionRepository extends HSQLDBTransactionRepository {
 
+	private static final String TRANSACTION_DB_COLUMNS = "new_owner, name, new_data, name_reference";
+
 	public HSQLDBUpdateNameTransactionRepository(HSQLDBRepository repository) {
 		this.repository = repository;
 	}
 
+	@Override
 	TransactionData fromBase(byte[] signature, byte[] reference, byte[] ownerPublicKey, long timestamp, BigDecimal fee) throws DataException {
-		try (ResultSet resultSet = this.repository
-				.checkedExecute("SELECT new_owner, name, new_data, name_reference FROM UpdateNameTransactions WHERE signature = ?", signature)) {
+		try (ResultSet resultSet = this.repository.checkedExecute("SELECT " + TRANSACTION_DB_COLUMNS + " FROM UpdateNameTransactions WHERE signature = ?",
+				signature)) {
 			if (resultSet == null)
 				return null;
 
-			String newOwner = resultSet.getString(1);
-			String name = resultSet.getString(2);
-			String newData = resultSet.getString(3);
-			byte[] nameReference = resultSet.getBytes(4);
-
-			return new UpdateNameTransactionData(ownerPublicKey, newOwner, name, newData, nameReference, fee, timestamp, reference, signature);
+			return this.fromResultSet(resultSet, signature, reference, ownerPublicKey, timestamp, fee);
 		} catch (SQLException e) {
 			throw new DataException("Unable to fetch update name transaction from repository", e);
 		}
 	}
 
+	@Override
+	TransactionData fromResultSet(ResultSet resultSet, byte[] signature, byte[] reference, byte[] ownerPublicKey, long timestamp, BigDecimal fee)
+			throws SQLException, DataException {
+		String newOwner = resultSet.getString(1);
+		String name = resultSet.getString(2);
+		String newData = resultSet.getString(3);
+		byte[] nameReference = resultSet.getBytes(4);
+
+		return new UpdateNameTransactionData(ownerPublicKey, newOwner, name, newData, nameReference, fee, timestamp, reference, signature);
+	}
+
+	@Override
+	void fromBlockSignature(byte[] blockSignature, Map<ByteBuffer, TransactionBase> transactionBases) throws DataException {
+		this.fromBlockSignature("UpdateNameTransactions", TRANSACTION_DB_COLUMNS, blockSignature, transactionBases);
+	}
+
 	@Override
 	public void save(TransactionData transactionData) throws DataException {
 		UpdateNameTransactionData updateNameTransactionData = (UpdateNameTransactionData) transactionData;
@@ -1,8 +1,10 @@
 package repository.hsqldb.transaction;
 
 import java.math.BigDecimal;
+import java.nio.ByteBuffer;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.util.Map;
 
 import data.transaction.VoteOnPollTransactionData;
 import data.transaction.TransactionData;
@@ -12,30 +14,44 @@ import repository.hsqldb.HSQLDBSaver;
 
 public class HSQLDBVoteOnPollTransactionRepository extends HSQLDBTransactionRepository {
 
+	private static final String TRANSACTION_DB_COLUMNS = "poll_name, option_index, previous_option_index";
+
 	public HSQLDBVoteOnPollTransactionRepository(HSQLDBRepository repository) {
 		this.repository = repository;
 	}
 
+	@Override
 	TransactionData fromBase(byte[] signature, byte[] reference, byte[] creatorPublicKey, long timestamp, BigDecimal fee) throws DataException {
-		try (ResultSet resultSet = this.repository
-				.checkedExecute("SELECT poll_name, option_index, previous_option_index FROM VoteOnPollTransactions WHERE signature = ?", signature)) {
+		try (ResultSet resultSet = this.repository.checkedExecute("SELECT " + TRANSACTION_DB_COLUMNS + " FROM VoteOnPollTransactions WHERE signature = ?",
+				signature)) {
 			if (resultSet == null)
 				return null;
 
-			String pollName = resultSet.getString(1);
-			int optionIndex = resultSet.getInt(2);
-
-			// Special null-checking for previous option index
-			Integer previousOptionIndex = resultSet.getInt(3);
-			if (resultSet.wasNull())
-				previousOptionIndex = null;
-
-			return new VoteOnPollTransactionData(creatorPublicKey, pollName, optionIndex, previousOptionIndex, fee, timestamp, reference, signature);
+			return this.fromResultSet(resultSet, signature, reference, creatorPublicKey, timestamp, fee);
 		} catch (SQLException e) {
 			throw new DataException("Unable to fetch vote on poll transaction from repository", e);
 		}
 	}
 
+	@Override
+	TransactionData fromResultSet(ResultSet resultSet, byte[] signature, byte[] reference, byte[] creatorPublicKey, long timestamp, BigDecimal fee)
+			throws SQLException, DataException {
+		String pollName = resultSet.getString(1);
+		int optionIndex = resultSet.getInt(2);
+
+		// Special null-checking for previous option index
+		Integer previousOptionIndex = resultSet.getInt(3);
+		if (resultSet.wasNull())
+			previousOptionIndex = null;
+
+		return new VoteOnPollTransactionData(creatorPublicKey, pollName, optionIndex, previousOptionIndex, fee, timestamp, reference, signature);
+	}
+
+	@Override
+	void fromBlockSignature(byte[] blockSignature, Map<ByteBuffer, TransactionBase> transactionBases) throws DataException {
+		this.fromBlockSignature("VoteOnPollTransactions", TRANSACTION_DB_COLUMNS, blockSignature, transactionBases);
+	}
+
 	@Override
 	public void save(TransactionData transactionData) throws DataException {
 		VoteOnPollTransactionData voteOnPollTransactionData = (VoteOnPollTransactionData) transactionData;
@@ -0,0 +1,69 @@
+package repository.overlay;
+
+import java.util.List;
+
+import data.at.ATData;
+import data.at.ATStateData;
+import repository.ATRepository;
+import repository.DataException;
+
+/** Read-only pass-through, as ATs are deployed, and their states saved, using the base repository. */
+public class OverlayATRepository implements ATRepository {
+
+	private final ATRepository baseRepository;
+
+	// NB: no visibility modifier so only callable from within same package
+	OverlayATRepository(ATRepository baseRepository) {
+		this.baseRepository = baseRepository;
+	}
+
+	// CIYAM AutomatedTransactions
+
+	@Override
+	public ATData fromATAddress(String atAddress) throws DataException {
+		return this.baseRepository.fromATAddress(atAddress);
+	}
+
+	@Override
+	public void save(ATData atData) throws DataException {
+		throw new OverlayUnsupportedException("Overlay repository doesn't support saving ATs");
+	}
+
+	@Override
+	public void delete(String atAddress) throws DataException {
+		throw new OverlayUnsupportedException("Overlay repository doesn't support deleting ATs");
+	}
+
+	// AT States
+
+	@Override
+	public ATStateData getATState(String atAddress, int height) throws DataException {
+		return this.baseRepository.getATState(atAddress, height);
+	}
+
+	@Override
+	public List<ATStateData> getBlockATStatesFromHeight(int height) throws DataException {
+		return this.baseRepository.getBlockATStatesFromHeight(height);
+	}
+
+	@Override
+	public void save(ATStateData atStateData) throws DataException {
+		throw new OverlayUnsupportedException("Overlay repository doesn't support saving AT states");
+	}
+
+	@Override
+	public void delete(String atAddress, int height) throws DataException {
+		throw new OverlayUnsupportedException("Overlay repository doesn't support deleting AT states");
+	}
+
+	@Override
+	public void deleteATStates(int height) throws DataException {
+		throw new OverlayUnsupportedException("Overlay repository doesn't support deleting AT states");
+	}
+
+	@Override
+	public void deleteATStatesAbove(int height) throws DataException {
+		throw new OverlayUnsupportedException("Overlay repository doesn't support deleting AT states");
+	}
+
+}
@@ -0,0 +1,186 @@
+package repository.overlay;
+
+import java.math.BigDecimal;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+import data.account.AccountBalanceData;
+import data.account.AccountData;
+import repository.AccountRepository;
+import repository.DataException;
+
+public class OverlayAccountRepository implements AccountRepository {
+
+	private final AccountRepository baseRepository;
+
+	/** Saved accounts, keyed by address. */
+	private final Map<String, AccountData> savedAccounts = new HashMap<String, AccountData>();
+	/** Deleted accounts, which also deletes their balances. */
+	private final Set<String> deletedAccounts = new HashSet<String>();
+	/** Saved balances, keyed by address then asset ID. Null balance means deleted. */
+	private final Map<String, Map<Long, BigDecimal>> balances = new HashMap<String, Map<Long, BigDecimal>>();
+
+	// NB: no visibility modifier so only callable from within same package
+	OverlayAccountRepository(AccountRepository baseRepository) {
+		this.baseRepository = baseRepository;
+	}
+
+	// General account
+
+	@Override
+	public void create(String address) throws DataException {
+		if (this.getAccount(address) != null)
+			return;
+
+		this.save(new AccountData(address));
+	}
+
+	@Override
+	public AccountData getAccount(String address) throws DataException {
+		AccountData accountData = this.savedAccounts.get(address);
+		if (accountData != null)
+			return new AccountData(accountData.getAddress(), accountData.getReference());
+
+		if (this.deletedAccounts.contains(address))
+			return null;
+
+		return this.baseRepository.getAccount(address);
+	}
+
+	@Override
+	public void save(AccountData accountData) throws DataException {
+		// Keep private copy in case caller modifies original
+		this.savedAccounts.put(accountData.getAddress(), new AccountData(accountData.getAddress(), accountData.getReference()));
+	}
+
+	@Override
+	public void delete(String address) throws DataException {
+		this.savedAccounts.remove(address);
+		this.deletedAccounts.add(address);
+
+		// Balances are deleted along with account
+		this.balances.remove(address);
+	}
+
+	// Account balances
+
+	@Override
+	public AccountBalanceData getBalance(String address, long assetId) throws DataException {
+		Map<Long, BigDecimal> accountBalances = this.balances.get(address);
+		if (accountBalances != null && accountBalances.containsKey(assetId)) {
+			BigDecimal balance = accountBalances.get(assetId);
+			return balance == null ? null : new AccountBalanceData(address, assetId, balance);
+		}
+
+		if (this.deletedAccounts.contains(address))
+			return null;
+
+		return this.baseRepository.getBalance(address, assetId);
+	}
+
+	@Override
+	public void save(AccountBalanceData accountBalanceData) throws DataException {
+		this.getBalances(accountBalanceData.getAddress()).put(accountBalanceData.getAssetId(), accountBalanceData.getBalance());
+	}
+
+	@Override
+	public void delete(String address, long assetId) throws DataException {
+		this.getBalances(address).put(assetId, null);
+	}
+
+	private Map<Long, BigDecimal> getBalances(String address) {
+		Map<Long, BigDecimal> accountBalances = this.balances.get(address);
+
+		if (accountBalances == null) {
+			accountBalances = new HashMap<Long, BigDecimal>();
+			this.balances.put(address, accountBalances);
+		}
+
+		return accountBalances;
+	}
+
+	// Balance history
+
+	@Override
+	public void startBalanceHistory() throws DataException {
+		throw new OverlayUnsupportedException("Overlay repository doesn't support balance history");
+	}
+
+	@Override
+	public void saveBalanceHistory(int height) throws DataException {
+		throw new OverlayUnsupportedException("Overlay repository doesn't support balance history");
+	}
+
+	@Override
+	public void deleteBalanceHistory(int height) throws DataException {
+		throw new OverlayUnsupportedException("Overlay repository doesn't support balance history");
+	}
+
+	@Override
+	public void deleteBalanceHistoryAbove(int height) throws DataException {
+		throw new OverlayUnsupportedException("Overlay repository doesn't support balance history");
+	}
+
+	@Override
+	public BigDecimal getBalanceAtHeight(String address, long assetId, int height) throws DataException {
+		return this.baseRepository.getBalanceAtHeight(address, assetId, height);
+	}
+
+	// QORA receipts
+
+	@Override
+	public void saveQoraReceipt(String address, int height, BigDecimal amount) throws DataException {
+		throw new OverlayUnsupportedException("Overlay repository doesn't support QORA receipts");
+	}
+
+	@Override
+	public void deleteQoraReceipts(int height) throws DataException {
+		throw new OverlayUnsupportedException("Overlay repository doesn't support QORA receipts");
+	}
+
+	@Override
+	public void deleteQoraReceiptsAbove(int height) throws DataException {
+		throw new OverlayUnsupportedException("Overlay repository doesn't support QORA receipts");
+	}
+
+	@Override
+	public BigDecimal getQoraReceipts(String address, int minHeight) throws DataException {
+		return this.baseRepository.getQoraReceipts(address, minHeight);
+	}
+
+	@Override
+	public int getQoraReceiptsStartHeight() throws DataException {
+		return this.baseRepository.getQoraReceiptsStartHeight();
+	}
+
+	// Overlay
+
+	boolean hasChanges() {
+		return !this.savedAccounts.isEmpty() || !this.deletedAccounts.isEmpty() || !this.balances.isEmpty();
+	}
+
+	void clear() {
+		this.savedAccounts.clear();
+		this.deletedAccounts.clear();
+		this.balances.clear();
+	}
+
+	void apply() throws DataException {
+		for (String address : this.deletedAccounts)
+			this.baseRepository.delete(address);
+
+		// Accounts before balances, as balances need their account
+		for (AccountData accountData : this.savedAccounts.values())
+			this.baseRepository.save(accountData);
+
+		for (Map.Entry<String, Map<Long, BigDecimal>> addressEntry : this.balances.entrySet())
+			for (Map.Entry<Long, BigDecimal> assetEntry : addressEntry.getValue().entrySet())
+				if (assetEntry.getValue() == null)
+					this.baseRepository.delete(addressEntry.getKey(), assetEntry.getKey());
+				else
+					this.baseRepository.save(new AccountBalanceData(addressEntry.getKey(), assetEntry.getKey(), assetEntry.getValue()));
+	}
+
+}
@@ -0,0 +1,220 @@
+package repository.overlay;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import data.assets.AssetData;
+import data.assets.OrderData;
+import data.assets.TradeData;
+import repository.AssetRepository;
+import repository.DataException;
+
+public class OverlayAssetRepository implements AssetRepository {
+
+	/** Same ordering as base repository's open orders: lowest price first, then oldest first. */
+	private static final Comparator<OrderData> OPEN_ORDER_COMPARATOR = Comparator.comparing(OrderData::getPrice).thenComparingLong(OrderData::getTimestamp);
+
+	private final AssetRepository baseRepository;
+
+	private final Map<Long, AssetData> savedAssets = new HashMap<Long, AssetData>();
+	private final Set<Long> deletedAssets = new HashSet<Long>();
+
+	private final Map<ByteBuffer, OrderData> savedOrders = new LinkedHashMap<ByteBuffer, OrderData>();
+	private final Set<ByteBuffer> deletedOrders = new HashSet<ByteBuffer>();
+
+	private final List<TradeData> savedTrades = new ArrayList<TradeData>();
+
+	// NB: no visibility modifier so only callable from within same package
+	OverlayAssetRepository(AssetRepository baseRepository) {
+		this.baseRepository = baseRepository;
+	}
+
+	// Assets
+
+	@Override
+	public AssetData fromAssetId(long assetId) throws DataException {
+		AssetData assetData = this.savedAssets.get(assetId);
+		if (assetData != null)
+			return copyOf(assetData);
+
+		if (this.deletedAssets.contains(assetId))
+			return null;
+
+		return this.baseRepository.fromAssetId(assetId);
+	}
+
+	@Override
+	public AssetData fromAssetName(String assetName) throws DataException {
+		for (AssetData assetData : this.savedAssets.values())
+			if (assetData.getName().equals(assetName))
+				return copyOf(assetData);
+
+		AssetData assetData = this.baseRepository.fromAssetName(assetName);
+		if (assetData == null)
+			return null;
+
+		// Base asset might have been renamed or deleted since
+		if (this.savedAssets.containsKey(assetData.getAssetId()) || this.deletedAssets.contains(assetData.getAssetId()))
+			return null;
+
+		return assetData;
+	}
+
+	@Override
+	public boolean assetExists(long assetId) throws DataException {
+		return this.fromAssetId(assetId) != null;
+	}
+
+	@Override
+	public boolean assetExists(String assetName) throws DataException {
+		return this.fromAssetName(assetName) != null;
+	}
+
+	/** Not supported for new assets as their asset IDs are assigned by base repository. */
+	@Override
+	public void save(AssetData assetData) throws DataException {
+		if (assetData.getAssetId() == null)
+			throw new OverlayUnsupportedException("Overlay repository can't assign asset IDs");
+
+		this.deletedAssets.remove(assetData.getAssetId());
+		this.savedAssets.put(assetData.getAssetId(), copyOf(assetData));
+	}
+
+	@Override
+	public void delete(long assetId) throws DataException {
+		this.savedAssets.remove(assetId);
+		this.deletedAssets.add(assetId);
+	}
+
+	private static AssetData copyOf(AssetData assetData) {
+		return new AssetData(assetData.getAssetId(), assetData.getOwner(), assetData.getName(), assetData.getDescription(), assetData.getQuantity(),
+				assetData.getIsDivisible(), assetData.getReference());
+	}
+
+	// Orders
+
+	@Override
+	public OrderData fromOrderId(byte[] orderId) throws DataException {
+		ByteBuffer key = ByteBuffer.wrap(orderId);
+
+		OrderData orderData = this.savedOrders.get(key);
+		if (orderData != null)
+			return copyOf(orderData);
+
+		if (this.deletedOrders.contains(key))
+			return null;
+
+		return this.baseRepository.fromOrderId(orderId);
+	}
+
+	@Override
+	public List<OrderData> getOpenOrders(long haveAssetId, long wantAssetId) throws DataException {
+		List<OrderData> orders = new ArrayList<OrderData>();
+
+		// Base orders, unless superseded
+		for (OrderData orderData : this.baseRepository.getOpenOrders(haveAssetId, wantAssetId)) {
+			ByteBuffer key = ByteBuffer.wrap(orderData.getOrderId());
+
+			if (!this.savedOrders.containsKey(key) && !this.deletedOrders.contains(key))
+				orders.add(orderData);
+		}
+
+		for (OrderData orderData : this.savedOrders.values())
+			if (orderData.getHaveAssetId() == haveAssetId && orderData.getWantAssetId() == wantAssetId && !orderData.getIsClosed()
+					&& !orderData.getIsFulfilled())
+				orders.add(copyOf(orderData));
+
+		// Stable sort, so base orders with equal price and timestamp keep their relative order
+		orders.sort(OPEN_ORDER_COMPARATOR);
+
+		return orders;
+	}
+
+	@Override
+	public void save(OrderData orderData) throws DataException {
+		ByteBuffer key = ByteBuffer.wrap(orderData.getOrderId());
+
+		this.deletedOrders.remove(key);
+		this.savedOrders.put(key, copyOf(orderData));
+	}
+
+	@Override
+	public void delete(byte[] orderId) throws DataException {
+		ByteBuffer key = ByteBuffer.wrap(orderId);
+
+		this.savedOrders.remove(key);
+		this.deletedOrders.add(key);
+	}
+
+	private static OrderData copyOf(OrderData orderData) {
+		return new OrderData(orderData.getOrderId(), orderData.getCreatorPublicKey(), orderData.getHaveAssetId(), orderData.getWantAssetId(),
+				orderData.getAmount(), orderData.getFulfilled(), orderData.getPrice(), orderData.getTimestamp(), orderData.getIsClosed(),
+				orderData.getIsFulfilled());
+	}
+
+	// Trades
+
+	@Override
+	public List<TradeData> getOrdersTrades(byte[] orderId) throws DataException {
+		List<TradeData> trades = this.baseRepository.getOrdersTrades(orderId);
+
+		for (TradeData tradeData : this.savedTrades)
+			if (Arrays.equals(tradeData.getInitiator(), orderId))
+				trades.add(tradeData);
+
+		return trades;
+	}
+
+	@Override
+	public void save(TradeData tradeData) throws DataException {
+		// TradeData is immutable so no need to copy
+		this.savedTrades.add(tradeData);
+	}
+
+	@Override
+	public void delete(TradeData tradeData) throws DataException {
+		throw new OverlayUnsupportedException("Overlay repository doesn't support deleting trades");
+	}
+
+	// Overlay
+
+	boolean hasChanges() {
+		return !this.savedAssets.isEmpty() || !this.deletedAssets.isEmpty() || !this.savedOrders.isEmpty() || !this.deletedOrders.isEmpty()
+				|| !this.savedTrades.isEmpty();
+	}
+
+	void clear() {
+		this.savedAssets.clear();
+		this.deletedAssets.clear();
+		this.savedOrders.clear();
+		this.deletedOrders.clear();
+		this.savedTrades.clear();
+	}
+
+	void apply() throws DataException {
+		for (long assetId : this.deletedAssets)
+			this.baseRepository.delete(assetId);
+
+		for (AssetData assetData : this.savedAssets.values())
+			this.baseRepository.save(assetData);
+
+		for (ByteBuffer orderId : this.deletedOrders)
+			this.baseRepository.delete(orderId.array());
+
+		// Orders before trades, as trades refer to orders
+		for (OrderData orderData : this.savedOrders.values())
+			this.baseRepository.save(orderData);
+
+		for (TradeData tradeData : this.savedTrades)
+			this.baseRepository.save(tradeData);
+	}
+
+}
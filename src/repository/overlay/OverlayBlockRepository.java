@@ -0,0 +1,81 @@
+package repository.overlay;
+
+import java.util.List;
+
+import data.block.BlockData;
+import data.block.BlockTransactionData;
+import data.transaction.TransactionData;
+import repository.BlockRepository;
+import repository.DataException;
+
+/** Read-only pass-through, as blocks are saved using the base repository. */
+public class OverlayBlockRepository implements BlockRepository {
+
+	private final BlockRepository baseRepository;
+
+	// NB: no visibility modifier so only callable from within same package
+	OverlayBlockRepository(BlockRepository baseRepository) {
+		this.baseRepository = baseRepository;
+	}
+
+	@Override
+	public BlockData fromSignature(byte[] signature) throws DataException {
+		return this.baseRepository.fromSignature(signature);
+	}
+
+	@Override
+	public BlockData fromReference(byte[] reference) throws DataException {
+		return this.baseRepository.fromReference(reference);
+	}
+
+	@Override
+	public BlockData fromHeight(int height) throws DataException {
+		return this.baseRepository.fromHeight(height);
+	}
+
+	@Override
+	public int getHeightFromSignature(byte[] signature) throws DataException {
+		return this.baseRepository.getHeightFromSignature(signature);
+	}
+
+	@Override
+	public BlockData fromTransactionSignature(byte[] transactionSignature) throws DataException {
+		return this.baseRepository.fromTransactionSignature(transactionSignature);
+	}
+
+	@Override
+	public int getBlockchainHeight() throws DataException {
+		return this.baseRepository.getBlockchainHeight();
+	}
+
+	@Override
+	public BlockData getLastBlock() throws DataException {
+		return this.baseRepository.getLastBlock();
+	}
+
+	@Override
+	public List<TransactionData> getTransactionsFromSignature(byte[] signature) throws DataException {
+		return this.baseRepository.getTransactionsFromSignature(signature);
+	}
+
+	@Override
+	public void save(BlockData blockData) throws DataException {
+		throw new OverlayUnsupportedException("Overlay repository doesn't support saving blocks");
+	}
+
+	@Override
+	public void delete(BlockData blockData) throws DataException {
+		throw new OverlayUnsupportedException("Overlay repository doesn't support deleting blocks");
+	}
+
+	@Override
+	public void save(BlockTransactionData blockTransactionData) throws DataException {
+		throw new OverlayUnsupportedException("Overlay repository doesn't support saving block transactions");
+	}
+
+	@Override
+	public void delete(BlockTransactionData blockTransactionData) throws DataException {
+		throw new OverlayUnsupportedException("Overlay repository doesn't support deleting block transactions");
+	}
+
+}
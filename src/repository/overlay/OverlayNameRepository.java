@@ -0,0 +1,77 @@
+package repository.overlay;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+import data.naming.NameData;
+import repository.DataException;
+import repository.NameRepository;
+
+public class OverlayNameRepository implements NameRepository {
+
+	private final NameRepository baseRepository;
+
+	private final Map<String, NameData> savedNames = new HashMap<String, NameData>();
+	private final Set<String> deletedNames = new HashSet<String>();
+
+	// NB: no visibility modifier so only callable from within same package
+	OverlayNameRepository(NameRepository baseRepository) {
+		this.baseRepository = baseRepository;
+	}
+
+	@Override
+	public NameData fromName(String name) throws DataException {
+		NameData nameData = this.savedNames.get(name);
+		if (nameData != null)
+			return copyOf(nameData);
+
+		if (this.deletedNames.contains(name))
+			return null;
+
+		return this.baseRepository.fromName(name);
+	}
+
+	@Override
+	public boolean nameExists(String name) throws DataException {
+		return this.fromName(name) != null;
+	}
+
+	@Override
+	public void save(NameData nameData) throws DataException {
+		this.deletedNames.remove(nameData.getName());
+		this.savedNames.put(nameData.getName(), copyOf(nameData));
+	}
+
+	@Override
+	public void delete(String name) throws DataException {
+		this.savedNames.remove(name);
+		this.deletedNames.add(name);
+	}
+
+	private static NameData copyOf(NameData nameData) {
+		return new NameData(nameData.getRegistrantPublicKey(), nameData.getOwner(), nameData.getName(), nameData.getData(), nameData.getRegistered(),
+				nameData.getUpdated(), nameData.getReference(), nameData.getIsForSale(), nameData.getSalePrice());
+	}
+
+	// Overlay
+
+	boolean hasChanges() {
+		return !this.savedNames.isEmpty() || !this.deletedNames.isEmpty();
+	}
+
+	void clear() {
+		this.savedNames.clear();
+		this.deletedNames.clear();
+	}
+
+	void apply() throws DataException {
+		for (String name : this.deletedNames)
+			this.baseRepository.delete(name);
+
+		for (NameData nameData : this.savedNames.values())
+			this.baseRepository.save(nameData);
+	}
+
+}
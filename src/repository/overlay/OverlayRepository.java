@@ -0,0 +1,157 @@
+package repository.overlay;
+
+import repository.ATRepository;
+import repository.AccountRepository;
+import repository.AssetRepository;
+import repository.BlockRepository;
+import repository.DataException;
+import repository.NameRepository;
+import repository.Repository;
+import repository.TransactionRepository;
+import repository.VotingRepository;
+
+/**
+ * Copy-on-write view of another repository.
+ * <p>
+ * Reads pass through to the <i>base</i> repository unless overridden by earlier writes, which are held in memory so the base repository is never
+ * modified. Held writes can later be applied to the base repository in one go using {@link #apply()}, e.g. to process a block using the state
+ * changes recorded while validating it.
+ * <p>
+ * Only the writes made while processing transactions are supported. Others, like saving blocks, balance history or newly issued assets (whose IDs
+ * are assigned by the base repository), throw {@link OverlayUnsupportedException} so callers can fall back to using the base repository.
+ * <p>
+ * Not thread-safe.
+ */
+public class OverlayRepository implements Repository {
+
+	private final Repository baseRepository;
+
+	private final OverlayATRepository atRepository;
+	private final OverlayAccountRepository accountRepository;
+	private final OverlayAssetRepository assetRepository;
+	private final OverlayBlockRepository blockRepository;
+	private final OverlayNameRepository nameRepository;
+	private final OverlayTransactionRepository transactionRepository;
+	private final OverlayVotingRepository votingRepository;
+
+	public OverlayRepository(Repository baseRepository) {
+		this.baseRepository = baseRepository;
+
+		this.atRepository = new OverlayATRepository(baseRepository.getATRepository());
+		this.accountRepository = new OverlayAccountRepository(baseRepository.getAccountRepository());
+		this.assetRepository = new OverlayAssetRepository(baseRepository.getAssetRepository());
+		this.blockRepository = new OverlayBlockRepository(baseRepository.getBlockRepository());
+		this.nameRepository = new OverlayNameRepository(baseRepository.getNameRepository());
+		this.transactionRepository = new OverlayTransactionRepository(baseRepository.getTransactionRepository());
+		this.votingRepository = new OverlayVotingRepository(baseRepository.getVotingRepository());
+	}
+
+	public Repository getBaseRepository() {
+		return this.baseRepository;
+	}
+
+	@Override
+	public ATRepository getATRepository() {
+		return this.atRepository;
+	}
+
+	@Override
+	public AccountRepository getAccountRepository() {
+		return this.accountRepository;
+	}
+
+	@Override
+	public AssetRepository getAssetRepository() {
+		return this.assetRepository;
+	}
+
+	@Override
+	public BlockRepository getBlockRepository() {
+		return this.blockRepository;
+	}
+
+	@Override
+	public NameRepository getNameRepository() {
+		return this.nameRepository;
+	}
+
+	@Override
+	public TransactionRepository getTransactionRepository() {
+		return this.transactionRepository;
+	}
+
+	@Override
+	public VotingRepository getVotingRepository() {
+		return this.votingRepository;
+	}
+
+	@Override
+	public void setBatchWrites(boolean batchWrites) throws DataException {
+		// Writes are always held in memory
+	}
+
+	/** Not supported: use {@link #apply()} to write held changes into base repository. */
+	@Override
+	public void saveChanges() throws DataException {
+		throw new OverlayUnsupportedException("Overlay repository changes can only be applied to base repository");
+	}
+
+	/** Forgets held writes. Base repository is unaffected. */
+	@Override
+	public void discardChanges() throws DataException {
+		this.transactionRepository.clear();
+		this.accountRepository.clear();
+		this.assetRepository.clear();
+		this.nameRepository.clear();
+		this.votingRepository.clear();
+	}
+
+	@Override
+	public boolean hasUncommittedChanges() {
+		return this.transactionRepository.hasChanges() || this.accountRepository.hasChanges() || this.assetRepository.hasChanges()
+				|| this.nameRepository.hasChanges() || this.votingRepository.hasChanges();
+	}
+
+	@Override
+	public void setBulkLoad(boolean bulkLoad) throws DataException {
+		throw new OverlayUnsupportedException("Overlay repository doesn't support bulk loading");
+	}
+
+	@Override
+	public void checkpoint() throws DataException {
+		throw new OverlayUnsupportedException("Overlay repository changes can only be applied to base repository");
+	}
+
+	/** Forgets held writes but leaves base repository open, as it belongs to the caller. */
+	@Override
+	public void close() throws DataException {
+		this.discardChanges();
+	}
+
+	@Override
+	public void rebuild() throws DataException {
+		throw new OverlayUnsupportedException("Overlay repository cannot be rebuilt");
+	}
+
+	/**
+	 * Writes held changes into base repository, using base repository's usual save/delete methods, then forgets them.
+	 * <p>
+	 * Base repository's changes are not saved - that's up to the caller.
+	 *
+	 * @throws DataException
+	 */
+	public void apply() throws DataException {
+		// Transactions first as other records can refer to them, e.g. orders
+		this.transactionRepository.applySaves();
+
+		this.accountRepository.apply();
+		this.assetRepository.apply();
+		this.nameRepository.apply();
+		this.votingRepository.apply();
+
+		this.transactionRepository.applyDeletes();
+
+		this.discardChanges();
+	}
+
+}
@@ -0,0 +1,112 @@
+package repository.overlay;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import data.block.BlockData;
+import data.transaction.TransactionData;
+import repository.DataException;
+import repository.TransactionRepository;
+
+public class OverlayTransactionRepository implements TransactionRepository {
+
+	private final TransactionRepository baseRepository;
+
+	/**
+	 * Saved transactions, keyed by signature.
+	 * <p>
+	 * Unlike other overlay repositories, transaction data is held by reference as there's no general way to copy it. This matches the usual
+	 * pattern of transactions saving their own, otherwise unchanging, transaction data.
+	 */
+	private final Map<ByteBuffer, TransactionData> savedTransactions = new LinkedHashMap<ByteBuffer, TransactionData>();
+	private final Map<ByteBuffer, TransactionData> deletedTransactions = new LinkedHashMap<ByteBuffer, TransactionData>();
+
+	// NB: no visibility modifier so only callable from within same package
+	OverlayTransactionRepository(TransactionRepository baseRepository) {
+		this.baseRepository = baseRepository;
+	}
+
+	@Override
+	public TransactionData fromSignature(byte[] signature) throws DataException {
+		ByteBuffer key = ByteBuffer.wrap(signature);
+
+		TransactionData transactionData = this.savedTransactions.get(key);
+		if (transactionData != null)
+			return transactionData;
+
+		if (this.deletedTransactions.containsKey(key))
+			return null;
+
+		return this.baseRepository.fromSignature(signature);
+	}
+
+	@Override
+	public TransactionData fromReference(byte[] reference) throws DataException {
+		for (TransactionData transactionData : this.savedTransactions.values())
+			if (Arrays.equals(transactionData.getReference(), reference))
+				return transactionData;
+
+		TransactionData transactionData = this.baseRepository.fromReference(reference);
+		if (transactionData == null || this.deletedTransactions.containsKey(ByteBuffer.wrap(transactionData.getSignature())))
+			return null;
+
+		return transactionData;
+	}
+
+	@Override
+	public int getHeightFromSignature(byte[] signature) throws DataException {
+		// Transactions saved to overlay aren't in any block yet
+		return this.baseRepository.getHeightFromSignature(signature);
+	}
+
+	@Override
+	public BlockData getBlockDataFromSignature(byte[] signature) throws DataException {
+		return this.baseRepository.getBlockDataFromSignature(signature);
+	}
+
+	@Override
+	public List<TransactionData> fromBlockSignature(byte[] blockSignature) throws DataException {
+		return this.baseRepository.fromBlockSignature(blockSignature);
+	}
+
+	@Override
+	public void save(TransactionData transactionData) throws DataException {
+		ByteBuffer key = ByteBuffer.wrap(transactionData.getSignature());
+
+		this.deletedTransactions.remove(key);
+		this.savedTransactions.put(key, transactionData);
+	}
+
+	@Override
+	public void delete(TransactionData transactionData) throws DataException {
+		ByteBuffer key = ByteBuffer.wrap(transactionData.getSignature());
+
+		this.savedTransactions.remove(key);
+		this.deletedTransactions.put(key, transactionData);
+	}
+
+	// Overlay
+
+	boolean hasChanges() {
+		return !this.savedTransactions.isEmpty() || !this.deletedTransactions.isEmpty();
+	}
+
+	void clear() {
+		this.savedTransactions.clear();
+		this.deletedTransactions.clear();
+	}
+
+	void applySaves() throws DataException {
+		for (TransactionData transactionData : this.savedTransactions.values())
+			this.baseRepository.save(transactionData);
+	}
+
+	void applyDeletes() throws DataException {
+		for (TransactionData transactionData : this.deletedTransactions.values())
+			this.baseRepository.delete(transactionData);
+	}
+
+}
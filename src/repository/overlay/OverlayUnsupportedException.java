@@ -0,0 +1,17 @@
+package repository.overlay;
+
+/**
+ * Thrown by {@link OverlayRepository} for writes it can't hold, e.g. saving blocks or assigning asset IDs.
+ * <p>
+ * Callers can catch this, rather than any <tt>UnsupportedOperationException</tt>, to fall back to using the base repository without hiding
+ * unrelated bugs.
+ */
+public class OverlayUnsupportedException extends RuntimeException {
+
+	private static final long serialVersionUID = 6512377298512497193L;
+
+	public OverlayUnsupportedException(String message) {
+		super(message);
+	}
+
+}
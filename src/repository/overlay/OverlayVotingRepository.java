@@ -0,0 +1,159 @@
+package repository.overlay;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import data.voting.PollData;
+import data.voting.PollOptionData;
+import data.voting.VoteOnPollData;
+import repository.DataException;
+import repository.VotingRepository;
+
+public class OverlayVotingRepository implements VotingRepository {
+
+	private final VotingRepository baseRepository;
+
+	private final Map<String, PollData> savedPolls = new HashMap<String, PollData>();
+	/** Deleted polls, which also deletes their votes. */
+	private final Set<String> deletedPolls = new HashSet<String>();
+	/** Saved votes, keyed by poll name then voter's public key. Null vote means deleted. */
+	private final Map<String, Map<ByteBuffer, VoteOnPollData>> votes = new HashMap<String, Map<ByteBuffer, VoteOnPollData>>();
+
+	// NB: no visibility modifier so only callable from within same package
+	OverlayVotingRepository(VotingRepository baseRepository) {
+		this.baseRepository = baseRepository;
+	}
+
+	// Polls
+
+	@Override
+	public PollData fromPollName(String pollName) throws DataException {
+		PollData pollData = this.savedPolls.get(pollName);
+		if (pollData != null)
+			return copyOf(pollData);
+
+		if (this.deletedPolls.contains(pollName))
+			return null;
+
+		return this.baseRepository.fromPollName(pollName);
+	}
+
+	@Override
+	public boolean pollExists(String pollName) throws DataException {
+		return this.fromPollName(pollName) != null;
+	}
+
+	@Override
+	public void save(PollData pollData) throws DataException {
+		this.deletedPolls.remove(pollData.getPollName());
+		this.savedPolls.put(pollData.getPollName(), copyOf(pollData));
+	}
+
+	@Override
+	public void delete(String pollName) throws DataException {
+		this.savedPolls.remove(pollName);
+		this.deletedPolls.add(pollName);
+
+		// Votes are deleted along with poll
+		this.votes.remove(pollName);
+	}
+
+	private static PollData copyOf(PollData pollData) {
+		// PollOptionData is immutable so only the list needs copying
+		return new PollData(pollData.getCreatorPublicKey(), pollData.getOwner(), pollData.getPollName(), pollData.getDescription(),
+				new ArrayList<PollOptionData>(pollData.getPollOptions()), pollData.getPublished());
+	}
+
+	// Votes
+
+	@Override
+	public List<VoteOnPollData> getVotes(String pollName) throws DataException {
+		Map<ByteBuffer, VoteOnPollData> pollVotes = this.votes.get(pollName);
+
+		List<VoteOnPollData> votes = new ArrayList<VoteOnPollData>();
+
+		// Base votes, unless superseded
+		if (!this.deletedPolls.contains(pollName))
+			for (VoteOnPollData voteOnPollData : this.baseRepository.getVotes(pollName))
+				if (pollVotes == null || !pollVotes.containsKey(ByteBuffer.wrap(voteOnPollData.getVoterPublicKey())))
+					votes.add(voteOnPollData);
+
+		if (pollVotes != null)
+			for (VoteOnPollData voteOnPollData : pollVotes.values())
+				if (voteOnPollData != null)
+					votes.add(voteOnPollData);
+
+		return votes;
+	}
+
+	@Override
+	public VoteOnPollData getVote(String pollName, byte[] voterPublicKey) throws DataException {
+		Map<ByteBuffer, VoteOnPollData> pollVotes = this.votes.get(pollName);
+		ByteBuffer key = ByteBuffer.wrap(voterPublicKey);
+
+		if (pollVotes != null && pollVotes.containsKey(key))
+			return pollVotes.get(key);
+
+		if (this.deletedPolls.contains(pollName))
+			return null;
+
+		return this.baseRepository.getVote(pollName, voterPublicKey);
+	}
+
+	@Override
+	public void save(VoteOnPollData voteOnPollData) throws DataException {
+		// VoteOnPollData is immutable so no need to copy
+		this.getPollVotes(voteOnPollData.getPollName()).put(ByteBuffer.wrap(voteOnPollData.getVoterPublicKey()), voteOnPollData);
+	}
+
+	@Override
+	public void delete(String pollName, byte[] voterPublicKey) throws DataException {
+		this.getPollVotes(pollName).put(ByteBuffer.wrap(voterPublicKey), null);
+	}
+
+	private Map<ByteBuffer, VoteOnPollData> getPollVotes(String pollName) {
+		Map<ByteBuffer, VoteOnPollData> pollVotes = this.votes.get(pollName);
+
+		if (pollVotes == null) {
+			pollVotes = new LinkedHashMap<ByteBuffer, VoteOnPollData>();
+			this.votes.put(pollName, pollVotes);
+		}
+
+		return pollVotes;
+	}
+
+	// Overlay
+
+	boolean hasChanges() {
+		return !this.savedPolls.isEmpty() || !this.deletedPolls.isEmpty() || !this.votes.isEmpty();
+	}
+
+	void clear() {
+		this.savedPolls.clear();
+		this.deletedPolls.clear();
+		this.votes.clear();
+	}
+
+	void apply() throws DataException {
+		for (String pollName : this.deletedPolls)
+			this.baseRepository.delete(pollName);
+
+		// Polls before votes, as votes need their poll
+		for (PollData pollData : this.savedPolls.values())
+			this.baseRepository.save(pollData);
+
+		for (Map.Entry<String, Map<ByteBuffer, VoteOnPollData>> pollEntry : this.votes.entrySet())
+			for (Map.Entry<ByteBuffer, VoteOnPollData> voteEntry : pollEntry.getValue().entrySet())
+				if (voteEntry.getValue() == null)
+					this.baseRepository.delete(pollEntry.getKey(), voteEntry.getKey().array());
+				else
+					this.baseRepository.save(voteEntry.getValue());
+	}
+
+}
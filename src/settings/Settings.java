@@ -2,10 +2,14 @@ package settings;
 
 import java.io.File;
 import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.NavigableMap;
 import java.util.Set;
+import java.util.TreeMap;
 
 import org.json.simple.JSONArray;
 import org.json.simple.JSONObject;
@@ -15,6 +19,7 @@ import com.google.common.base.Charsets;
 import com.google.common.io.Files;
 
 import qora.block.GenesisBlock;
+import utils.Base58;
 
 public class Settings {
 
@@ -23,6 +28,10 @@ public class Settings {
 	private long genesisTimestamp = GenesisBlock.GENESIS_TIMESTAMP;
 	private int maxBytePerFee = 1024;
 	private String userpath = "";
+	private int signatureVerificationThreads = Runtime.getRuntime().availableProcessors();
+	private int transactionValidationThreads = 1;
+	private String blockStorePath = "blockstore";
+	private NavigableMap<Integer, byte[]> checkpoints = new TreeMap<Integer, byte[]>();
 
 	// RPC
 	private int rpcPort = 9085;
@@ -117,6 +126,24 @@ public class Settings {
 			}
 		}
 		
+		if (json.containsKey("signatureverificationthreads"))
+			this.signatureVerificationThreads = ((Long) json.get("signatureverificationthreads")).intValue();
+
+		if (json.containsKey("transactionvalidationthreads"))
+			this.transactionValidationThreads = ((Long) json.get("transactionvalidationthreads")).intValue();
+
+		if (json.containsKey("blockstorepath"))
+			this.blockStorePath = (String) json.get("blockstorepath");
+
+		if (json.containsKey("checkpoints")) {
+			this.checkpoints = new TreeMap<Integer, byte[]>();
+
+			for (Object entry : (JSONArray) json.get("checkpoints")) {
+				JSONObject checkpoint = (JSONObject) entry;
+				this.checkpoints.put(((Long) checkpoint.get("height")).intValue(), Base58.decode((String) checkpoint.get("signature")));
+			}
+		}
+
 		// RPC
 		if(json.containsKey("rpcport"))
 		{
@@ -164,6 +191,35 @@ public class Settings {
 		return this.userpath;
 	}
 
+	/** Number of threads used to verify a block's signatures in parallel. 1 means verify on calling thread only. */
+	public int getSignatureVerificationThreads() {
+		return this.signatureVerificationThreads;
+	}
+
+	/**
+	 * Number of threads used to speculatively validate a block's independent transactions in parallel. 1 means validate all transactions serially.
+	 * <p>
+	 * Each thread uses its own repository session.
+	 */
+	public int getTransactionValidationThreads() {
+		return this.transactionValidationThreads;
+	}
+
+	/** Directory for store of serialized blocks, relative to userpath unless absolute. See {@link repository.BlockStore}. */
+	public Path getBlockStorePath() {
+		return Paths.get(this.userpath).resolve(this.blockStorePath);
+	}
+
+	/**
+	 * Trusted blocks, as block signatures keyed by height. Blocks at these heights must have these signatures, and blocks leading to a checkpoint
+	 * are validated with fewer checks. See {@link qora.block.BlockChain#isCheckpointed(byte[])}.
+	 * <p>
+	 * None by default, as checkpoints must come from a fully validated node, so are supplied in settings JSON.
+	 */
+	public NavigableMap<Integer, byte[]> getCheckpoints() {
+		return this.checkpoints;
+	}
+
 	public int getRpcPort()
 	{
 		return this.rpcPort;
@@ -90,7 +90,9 @@ public class ATTests extends Common {
 
 				int sequence = 0;
 
-				BlockTransactionData blockTransactionData = new BlockTransactionData(blockSignature, sequence, signature);
+				int blockHeight = repository.getBlockRepository().getHeightFromSignature(blockSignature);
+
+				BlockTransactionData blockTransactionData = new BlockTransactionData(blockSignature, sequence, signature, blockHeight);
 				repository.getBlockRepository().save(blockTransactionData);
 			}
 
@@ -0,0 +1,84 @@
+package test;
+
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.Random;
+
+import test.utils.LegacyBase58;
+import utils.Base58;
+
+public class Base58Tests {
+
+	@Test
+	public void testBase58Compatibility() {
+		Random random = new Random(1);
+
+		for (int n = 0; n < 5000; ++n) {
+			byte[] bytes = new byte[random.nextInt(200)];
+			random.nextBytes(bytes);
+
+			// Exercise leading zero bytes too
+			int zeroCount = random.nextInt(4) == 0 ? Math.min(random.nextInt(5), bytes.length) : 0;
+			for (int i = 0; i < zeroCount; ++i)
+				bytes[i] = 0;
+
+			String expected = LegacyBase58.encode(bytes);
+			String encoded = Base58.encode(bytes);
+			assertEquals(expected, encoded);
+
+			if (bytes.length == 0) {
+				assertNull(Base58.decode(encoded));
+				continue;
+			}
+
+			assertArrayEquals(LegacyBase58.decode(encoded), Base58.decode(encoded));
+			assertArrayEquals(bytes, Base58.decode(encoded));
+
+			byte[] output = new byte[bytes.length];
+			assertTrue(Base58.decode(encoded, output));
+			assertArrayEquals(bytes, output);
+
+			// Wrong buffer sizes
+			assertFalse(Base58.decode(encoded, new byte[bytes.length - 1]));
+			assertFalse(Base58.decode(encoded, new byte[bytes.length + 1]));
+		}
+	}
+
+	@Test
+	public void testBase58FixedLengths() {
+		Random random = new Random(2);
+
+		for (int length : new int[] { 25, 64, 128 })
+			for (int n = 0; n < 1000; ++n) {
+				byte[] bytes = new byte[length];
+				random.nextBytes(bytes);
+
+				String encoded = Base58.encode(bytes);
+				assertEquals(LegacyBase58.encode(bytes), encoded);
+
+				byte[] output = new byte[length];
+				assertTrue(Base58.decode(encoded, output));
+				assertArrayEquals(bytes, output);
+			}
+
+		// Address
+		String address = "QUD9y7NZqTtNwvSAUfewd7zKUGoVivVnTW";
+		byte[] addressBytes = new byte[25];
+		assertTrue(Base58.decode(address, addressBytes));
+		assertArrayEquals(LegacyBase58.decode(address), addressBytes);
+		assertEquals(address, Base58.encode(addressBytes));
+	}
+
+	@Test
+	public void testBase58Invalid() {
+		assertThrows(NumberFormatException.class, () -> Base58.decode("QUD9y7NZqTtNwvSAUfewd7zKUGoVivVn0W"));
+		assertThrows(NumberFormatException.class, () -> Base58.decode("QUD9y7NZqTtNwvSAUfewd7zKUGoVivVn\u00e9W"));
+
+		assertFalse(Base58.decode("QUD9y7NZqTtNwvSAUfewd7zKUGoVivVn0W", new byte[25]));
+		assertFalse(Base58.decode("", new byte[25]));
+		assertFalse(Base58.decode("zzzzzzzzzzzzzzzzzzzzzzzzzzzzzzzzz", new byte[24]));
+		assertFalse(Base58.decode("11111111111111111111111111", new byte[25]));
+	}
+
+}
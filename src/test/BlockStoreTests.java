@@ -0,0 +1,223 @@
+package test;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.Random;
+import java.util.stream.Stream;
+
+import repository.BlockStore;
+import repository.DataException;
+
+public class BlockStoreTests {
+
+	private static final int SEGMENT_SIZE = 64 * 1024;
+
+	private Path directory;
+
+	@BeforeEach
+	public void createDirectory() throws IOException {
+		this.directory = Files.createTempDirectory("blockstore");
+	}
+
+	@AfterEach
+	public void deleteDirectory() throws IOException {
+		try (Stream<Path> paths = Files.walk(this.directory)) {
+			paths.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+		}
+	}
+
+	@Test
+	public void testSaveAndReopen() throws DataException {
+		final int blockCount = 100;
+
+		// Enough blocks to need several segments
+		try (BlockStore blockStore = new BlockStore(this.directory, SEGMENT_SIZE)) {
+			for (int height = 1; height <= blockCount; ++height)
+				blockStore.save(height, signature(height), blockBytes(height));
+
+			assertStored(blockStore, 1, blockCount);
+		}
+
+		assertTrue(this.directory.resolve("blocks-00001.dat").toFile().exists(), "Blocks should span segments");
+
+		// Index rebuilt from segments
+		try (BlockStore blockStore = new BlockStore(this.directory, SEGMENT_SIZE)) {
+			assertStored(blockStore, 1, blockCount);
+			assertNull(blockStore.fromHeight(blockCount + 1, signature(blockCount + 1)));
+
+			// Continue appending
+			blockStore.save(blockCount + 1, signature(blockCount + 1), blockBytes(blockCount + 1));
+			assertStored(blockStore, 1, blockCount + 1);
+		}
+	}
+
+	@Test
+	public void testSignatureMismatch() throws DataException {
+		try (BlockStore blockStore = new BlockStore(this.directory, SEGMENT_SIZE)) {
+			blockStore.save(1, signature(1), blockBytes(1));
+
+			// e.g. block stored but repository changes discarded then different block processed
+			assertNull(blockStore.fromHeight(1, signature(2)));
+		}
+	}
+
+	@Test
+	public void testTruncate() throws DataException {
+		try (BlockStore blockStore = new BlockStore(this.directory, SEGMENT_SIZE)) {
+			for (int height = 1; height <= 50; ++height)
+				blockStore.save(height, signature(height), blockBytes(height));
+
+			// Orphan back into first segment
+			blockStore.truncate(5);
+			assertStored(blockStore, 1, 4);
+			assertNull(blockStore.fromHeight(5, signature(5)));
+			assertFalse(this.directory.resolve("blocks-00001.dat").toFile().exists(), "Later segments should be deleted");
+
+			// Replacement blocks, shorter than originals so stale records follow them
+			for (int height = 5; height <= 6; ++height)
+				blockStore.save(height, signature(-height), new byte[] { (byte) height });
+
+			assertNull(blockStore.fromHeight(5, signature(5)));
+			assertArrayEquals(new byte[] { 5 }, blockStore.fromHeight(5, signature(-5)));
+
+			// Saving at existing height replaces following blocks
+			blockStore.save(6, signature(6), blockBytes(6));
+			assertStored(blockStore, 6, 6);
+		}
+
+		try (BlockStore blockStore = new BlockStore(this.directory, SEGMENT_SIZE)) {
+			assertStored(blockStore, 1, 4);
+			assertArrayEquals(new byte[] { 5 }, blockStore.fromHeight(5, signature(-5)));
+			assertStored(blockStore, 6, 6);
+
+			// Stale records shouldn't have been indexed
+			assertNull(blockStore.fromHeight(7, signature(7)));
+		}
+	}
+
+	@Test
+	public void testNonConsecutiveSave() throws DataException {
+		try (BlockStore blockStore = new BlockStore(this.directory, SEGMENT_SIZE)) {
+			for (int height = 1; height <= 10; ++height)
+				blockStore.save(height, signature(height), blockBytes(height));
+
+			// Gap, e.g. store disabled for a while, so skipped heights aren't stored
+			blockStore.save(20, signature(20), blockBytes(20));
+			assertStored(blockStore, 1, 10);
+			assertNotStored(blockStore, 11, 19);
+			assertStored(blockStore, 20, 20);
+		}
+
+		try (BlockStore blockStore = new BlockStore(this.directory, SEGMENT_SIZE)) {
+			assertStored(blockStore, 1, 10);
+			assertNotStored(blockStore, 11, 19);
+			assertStored(blockStore, 20, 20);
+
+			// Replacing block beyond gap removes gap too
+			blockStore.save(15, signature(15), blockBytes(15));
+			assertStored(blockStore, 1, 10);
+			assertNotStored(blockStore, 11, 14);
+			assertStored(blockStore, 15, 15);
+			assertNull(blockStore.fromHeight(20, signature(20)));
+
+			// Replacing blocks below gap
+			blockStore.save(8, signature(8), blockBytes(8));
+			assertStored(blockStore, 1, 8);
+			assertNull(blockStore.fromHeight(15, signature(15)));
+
+			blockStore.save(9, signature(9), blockBytes(9));
+			assertStored(blockStore, 1, 9);
+		}
+	}
+
+	@Test
+	public void testDiscardedTruncate() throws DataException {
+		try (BlockStore blockStore = new BlockStore(this.directory, SEGMENT_SIZE)) {
+			for (int height = 1; height <= 50; ++height)
+				blockStore.save(height, signature(height), blockBytes(height));
+
+			// Orphaning removes stored blocks but orphaning's repository changes are then discarded, so next block follows original chain
+			blockStore.truncate(20);
+			blockStore.save(51, signature(51), blockBytes(51));
+
+			assertStored(blockStore, 1, 19);
+			assertNotStored(blockStore, 20, 50);
+			assertStored(blockStore, 51, 51);
+		}
+
+		try (BlockStore blockStore = new BlockStore(this.directory, SEGMENT_SIZE)) {
+			assertStored(blockStore, 1, 19);
+			assertNotStored(blockStore, 20, 50);
+			assertStored(blockStore, 51, 51);
+		}
+	}
+
+	@Test
+	public void testDamagedRecords() throws DataException, IOException {
+		try (BlockStore blockStore = new BlockStore(this.directory, SEGMENT_SIZE)) {
+			for (int height = 1; height <= 10; ++height)
+				blockStore.save(height, signature(height), blockBytes(height));
+		}
+
+		// Damage block bytes of first record, and height of third record
+		try (RandomAccessFile file = new RandomAccessFile(this.directory.resolve("blocks-00000.dat").toFile(), "rw")) {
+			file.seek(recordLength(1) - 1);
+			int b = file.read();
+			file.seek(recordLength(1) - 1);
+			file.write(b ^ 1);
+
+			file.seek(recordLength(1) + recordLength(2));
+			file.writeInt(99);
+		}
+
+		try (BlockStore blockStore = new BlockStore(this.directory, SEGMENT_SIZE)) {
+			// Checksum mismatch
+			assertNull(blockStore.fromHeight(1, signature(1)));
+			assertStored(blockStore, 2, 2);
+
+			// Damaged height skips heights, then following record is out-of-sequence so it and those following are discarded
+			assertNull(blockStore.fromHeight(3, signature(3)));
+			assertNull(blockStore.fromHeight(4, signature(4)));
+
+			blockStore.save(3, signature(3), blockBytes(3));
+			assertStored(blockStore, 2, 3);
+		}
+	}
+
+	private static void assertStored(BlockStore blockStore, int fromHeight, int toHeight) {
+		for (int height = fromHeight; height <= toHeight; ++height)
+			assertArrayEquals(blockBytes(height), blockStore.fromHeight(height, signature(height)), "Block at height " + height + " differs");
+	}
+
+	private static void assertNotStored(BlockStore blockStore, int fromHeight, int toHeight) {
+		for (int height = fromHeight; height <= toHeight; ++height)
+			assertNull(blockStore.fromHeight(height, signature(height)), "Block at height " + height + " shouldn't be stored");
+	}
+
+	private static int recordLength(int height) {
+		return 16 + signature(height).length + blockBytes(height).length;
+	}
+
+	private static byte[] signature(int height) {
+		byte[] signature = new byte[128];
+		new Random(height).nextBytes(signature);
+		return signature;
+	}
+
+	/** Returns block bytes, of varying length, for height. */
+	private static byte[] blockBytes(int height) {
+		Random random = new Random(-height);
+		byte[] blockBytes = new byte[1000 + random.nextInt(4000)];
+		random.nextBytes(blockBytes);
+		return blockBytes;
+	}
+
+}
@@ -3,9 +3,20 @@ package test;
 import org.junit.jupiter.api.Test;
 import static org.junit.jupiter.api.Assertions.*;
 
+import java.security.MessageDigest;
+import java.util.Arrays;
+import java.util.Random;
+
 import com.google.common.hash.HashCode;
 
+import org.whispersystems.curve25519.java.sc_muladd;
+import org.whispersystems.curve25519.java.sc_reduce;
+
+import qora.crypto.BrokenMD160;
 import qora.crypto.Crypto;
+import qora.crypto.Ed25519;
+import test.utils.LegacyBrokenMD160;
+import utils.Pair;
 
 public class CryptoTests {
 
@@ -35,4 +46,210 @@ public class CryptoTests {
 		assertEquals(expected, Crypto.toAddress(publicKey));
 	}
 
+	@Test
+	public void testCryptoAddressCache() {
+		byte[] publicKey = HashCode.fromString("775ada64a48a30b3bfc4f1db16bca512d4088704975a62bde78781ce0cba90d6").asBytes();
+		String expected = "QUD9y7NZqTtNwvSAUfewd7zKUGoVivVnTW";
+
+		assertEquals(expected, Crypto.toAddress(publicKey));
+
+		long hits = Crypto.getAddressCacheStats().hitCount();
+		assertEquals(expected, Crypto.toAddress(publicKey.clone()));
+		assertEquals(hits + 1, Crypto.getAddressCacheStats().hitCount());
+
+		// Modifying caller's array shouldn't affect cached address
+		publicKey[0] ^= 1;
+		assertNotEquals(expected, Crypto.toAddress(publicKey));
+		publicKey[0] ^= 1;
+		assertEquals(expected, Crypto.toAddress(publicKey));
+	}
+
+	@Test
+	@SuppressWarnings("deprecation")
+	public void testBrokenMD160Vectors() {
+		// Digests produced by original implementation, including its broken handling of bytes with top bit set
+		Object[][] vectors = {
+			{ 0, "9c1185a5c5e9fc54612808977ee8f548b2258d31" },
+			{ 1, "f291ba5015df348c80853fa5bb0f7946f5c9e1b3" },
+			{ 3, "dc5419616bda39c9eb266520ce78129ff7ce2ad2" },
+			{ 20, "fd4288dcf8aad42f26970c303e7482da1cdfb34c" },
+			{ 31, "1d011a2cbb902456a3c2c63012cb9440c812ff54" },
+			{ 32, "20526dc78d8888912b740855e3dd2f89b7ea7279" },
+			{ 33, "113c7546b6f4a3cae9bee3ecb97a26ca91292313" },
+			{ 55, "deafd9e4187d68bae78f26082ee49dbd9f85f385" },
+			{ 56, "2a958d018955650e4480f72b2689e04a043393a0" },
+			{ 57, "043495c3a3be73efca4b5e23ab03f3706ff1755f" },
+			{ 63, "1678173b28e2313776ad04e94dff56eeb65215bc" },
+			{ 64, "549313accabb70daf03581a966cbd75d283ba52c" },
+			{ 65, "e4600d947278683c2866c09f5cf434fbc6b85e53" },
+			{ 100, "03f6136311a41c1244efd0fc9c45a092bd627271" },
+			{ 119, "77448838f2bbb21099bcc8e6b953cc03ae3a780e" },
+			{ 120, "41ccbced690d1d54aa34baa0acae7db408183691" },
+			{ 128, "425983b018cc0e98fa373dde5387c7a2db8a9676" },
+			{ 200, "7973838e6991b46d284ebd0d703ab485a3cc92f6" },
+		};
+
+		BrokenMD160 brokenMD160 = new BrokenMD160();
+		for (Object[] vector : vectors) {
+			byte[] input = createBrokenMD160Input((Integer) vector[0]);
+
+			brokenMD160.reset();
+			assertEquals((String) vector[1], HashCode.fromBytes(brokenMD160.digest(input)).toString(), "Digest mismatch for length " + vector[0]);
+		}
+	}
+
+	@Test
+	@SuppressWarnings("deprecation")
+	public void testBrokenMD160Compatibility() {
+		Random random = new Random(4);
+
+		BrokenMD160 brokenMD160 = new BrokenMD160();
+		for (int n = 0; n < 2000; ++n) {
+			byte[] input = new byte[random.nextInt(300)];
+			random.nextBytes(input);
+
+			LegacyBrokenMD160 legacy = new LegacyBrokenMD160();
+			byte[] expected = legacy.digest(input);
+
+			// Reused instance, whole input
+			brokenMD160.reset();
+			assertArrayEquals(expected, brokenMD160.digest(input));
+
+			// Fresh instance, input split into random chunks using all update() variants
+			BrokenMD160 chunked = new BrokenMD160();
+			int offset = 0;
+			while (offset < input.length) {
+				int len = Math.min(random.nextInt(100), input.length - offset);
+
+				switch (random.nextInt(3)) {
+					case 0:
+						chunked.update(Arrays.copyOfRange(input, offset, offset + len));
+						break;
+
+					case 1:
+						chunked.update(input, offset, len);
+						break;
+
+					default:
+						for (int i = offset; i < offset + len; ++i)
+							chunked.update(input[i]);
+						break;
+				}
+
+				offset += len;
+			}
+			assertArrayEquals(expected, chunked.digestBin());
+		}
+	}
+
+	@Test
+	public void testEd25519BatchVerify() throws Exception {
+		final int count = 20;
+
+		byte[][] signatures = new byte[count][];
+		byte[][] messages = new byte[count][];
+		byte[][] publicKeys = new byte[count][];
+		createSignatures(signatures, messages, publicKeys, new Random(1));
+
+		boolean[] expected = new boolean[count];
+		Arrays.fill(expected, true);
+		assertArrayEquals(expected, Ed25519.verifyBatch(signatures, messages, publicKeys));
+
+		// Corrupt some signatures, messages and keys
+		signatures[3][5] ^= 1;
+		expected[3] = false;
+		messages[7][0] ^= 1;
+		expected[7] = false;
+		signatures[11][40] ^= 1;
+		expected[11] = false;
+		publicKeys[15] = publicKeys[16];
+		expected[15] = false;
+
+		assertArrayEquals(expected, Ed25519.verifyBatch(signatures, messages, publicKeys));
+	}
+
+	@Test
+	public void testEd25519BatchVerifySmallOrder() throws Exception {
+		byte[][] signatures = new byte[2][];
+		byte[][] messages = new byte[2][];
+		byte[][] publicKeys = new byte[2][];
+		createSignatures(signatures, messages, publicKeys, new Random(4));
+
+		// Replace 2nd signature with one whose R is (0, -1), of order 2, and s chosen so s.B - h.A is identity, i.e. off by a small-order point
+		byte[] seed = new byte[32];
+		new Random(5).nextBytes(seed);
+		Pair<byte[], byte[]> keyPair = Ed25519.createKeyPair(seed);
+
+		byte[] signature = new byte[64];
+		signature[0] = (byte) 0xec;
+		Arrays.fill(signature, 1, 31, (byte) 0xff);
+		signature[31] = (byte) 0x7f;
+
+		MessageDigest sha512 = MessageDigest.getInstance("SHA-512");
+		sha512.update(signature, 0, 32);
+		sha512.update(keyPair.getB());
+		sha512.update(messages[1]);
+		byte[] h = sha512.digest();
+		sc_reduce.sc_reduce(h);
+
+		byte[] s = new byte[32];
+		sc_muladd.sc_muladd(s, h, keyPair.getA(), new byte[32]);
+		System.arraycopy(s, 0, signature, 32, 32);
+
+		signatures[1] = signature;
+		publicKeys[1] = keyPair.getB();
+
+		assertFalse(Ed25519.verify(signatures[1], messages[1], publicKeys[1]));
+
+		// Without small-order checks, batch would pass whenever random z for 2nd signature was even
+		for (int n = 0; n < 40; ++n)
+			assertArrayEquals(new boolean[] { true, false }, Ed25519.verifyBatch(signatures, messages, publicKeys));
+	}
+
+	@Test
+	public void testEd25519VerifyCachedPublicKeys() throws Exception {
+		final int count = 100;
+
+		byte[][] signatures = new byte[count][];
+		byte[][] messages = new byte[count][];
+		byte[][] publicKeys = new byte[count][];
+		createSignatures(signatures, messages, publicKeys, new Random(3));
+
+		// Second pass uses decoded public key cache
+		for (int n = 0; n < 2; ++n)
+			for (int i = 0; i < count; ++i)
+				assertTrue(Ed25519.verify(signatures[i], messages[i], publicKeys[i]));
+
+		// Corrupted signatures and messages still fail with cached public keys
+		signatures[0][1] ^= 1;
+		assertFalse(Ed25519.verify(signatures[0], messages[0], publicKeys[0]));
+
+		messages[1][0] ^= 1;
+		assertFalse(Ed25519.verify(signatures[1], messages[1], publicKeys[1]));
+
+		// Cached key isn't used for a different public key
+		assertFalse(Ed25519.verify(signatures[2], messages[2], publicKeys[3]));
+	}
+
+	private static void createSignatures(byte[][] signatures, byte[][] messages, byte[][] publicKeys, Random random) throws Exception {
+		for (int i = 0; i < signatures.length; ++i) {
+			byte[] seed = new byte[32];
+			random.nextBytes(seed);
+			Pair<byte[], byte[]> keyPair = Ed25519.createKeyPair(seed);
+
+			messages[i] = new byte[100 + i % 50];
+			random.nextBytes(messages[i]);
+			publicKeys[i] = keyPair.getB();
+			signatures[i] = Ed25519.sign(keyPair, messages[i]);
+		}
+	}
+
+	private static byte[] createBrokenMD160Input(int length) {
+		byte[] input = new byte[length];
+		for (int i = 0; i < length; ++i)
+			input[i] = (byte) (i * 37 + length);
+
+		return input;
+	}
+
 }
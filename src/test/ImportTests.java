@@ -0,0 +1,503 @@
+package test;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Stream;
+
+import org.json.simple.JSONArray;
+import org.json.simple.JSONObject;
+
+import com.google.common.hash.HashCode;
+import com.google.common.primitives.Bytes;
+
+import data.account.AccountBalanceData;
+import data.account.AccountData;
+import data.at.ATStateData;
+import data.block.BlockData;
+import data.transaction.PaymentTransactionData;
+import data.transaction.TransactionData;
+import qora.account.PrivateKeyAccount;
+import qora.assets.Asset;
+import qora.block.Block;
+import qora.block.BlockChain;
+import qora.block.BlockImporter;
+import qora.transaction.PaymentTransaction;
+import repository.BlockStore;
+import repository.DataException;
+import repository.Repository;
+import repository.RepositoryManager;
+import repository.hsqldb.HSQLDBRepositoryFactory;
+import settings.Settings;
+import transform.TransformationException;
+import transform.block.BlockTransformer;
+import utils.Base58;
+import utils.Triple;
+
+// Don't extend Common as we want to use in-memory databases
+public class ImportTests {
+
+	private static final String sourceConnectionUrl = "jdbc:hsqldb:mem:db/import-source;create=true";
+	private static final String destinationConnectionUrl = "jdbc:hsqldb:mem:db/import-destination;create=true";
+
+	private static final byte[] generatorSeed = HashCode.fromString("0123456789abcdeffedcba98765432100123456789abcdeffedcba9876543210").asBytes();
+	private static final byte[] senderSeed = HashCode.fromString("0123456789abcdef0123456789abcdef0123456789abcdef0123456789abcdef").asBytes();
+	private static final byte[] recipientSeed = HashCode.fromString("fedcba9876543210fedcba9876543210fedcba9876543210fedcba9876543210").asBytes();
+
+	/** Sender's initial last reference, same length as a signature so transactions can be serialized. */
+	private static final byte[] senderReference = Bytes.concat(senderSeed, senderSeed);
+
+	private static final BigDecimal initialGeneratorBalance = BigDecimal.valueOf(1_000_000_000L).setScale(8);
+	private static final BigDecimal initialSenderBalance = BigDecimal.valueOf(1_000_000L).setScale(8);
+
+	private Path blockStorePath = null;
+	private Path databasePath = null;
+
+	@AfterEach
+	public void closeRepository() throws DataException, IOException {
+		BlockChain.setCheckpointedChain(Collections.emptySet());
+		RepositoryManager.closeRepositoryFactory();
+		RepositoryManager.closeBlockStore();
+
+		for (Path directory : Arrays.asList(this.blockStorePath, this.databasePath))
+			if (directory != null)
+				try (Stream<Path> paths = Files.walk(directory)) {
+					paths.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+				}
+	}
+
+	@Test
+	public void testImportBlocks() throws DataException, IOException, TransformationException {
+		final int blockCount = 10;
+
+		// Build chain in source repository, keeping each block's bytes
+		List<byte[]> blocks;
+		BlockData sourceLastBlockData;
+		BigDecimal sourceRecipientBalance;
+
+		createRepository(sourceConnectionUrl);
+		try (final Repository repository = RepositoryManager.getRepository()) {
+			blocks = forgeBlocks(repository, blockCount);
+
+			PrivateKeyAccount recipient = new PrivateKeyAccount(repository, recipientSeed);
+			sourceLastBlockData = repository.getBlockRepository().getLastBlock();
+			sourceRecipientBalance = recipient.getConfirmedBalance(Asset.QORA);
+		}
+		RepositoryManager.closeRepositoryFactory();
+
+		// Import into fresh repository, with same initial accounts, also storing serialized blocks
+		this.blockStorePath = Files.createTempDirectory("blockstore");
+		RepositoryManager.setBlockStore(new BlockStore(this.blockStorePath));
+		createRepository(destinationConnectionUrl);
+		BlockImporter blockImporter = new BlockImporter();
+
+		// Partial dump, as if interrupted
+		assertEquals(blockCount / 2, blockImporter.importBlocks(new ByteArrayInputStream(createDump(blocks.subList(0, blockCount / 2))), 3));
+
+		// Restart with whole dump, skipping blocks already imported
+		assertEquals(blockCount - blockCount / 2, blockImporter.importBlocks(new ByteArrayInputStream(createDump(blocks)), 3));
+
+		// Nothing more to import
+		assertEquals(0, blockImporter.importBlocks(new ByteArrayInputStream(createDump(blocks)), 3));
+
+		try (final Repository repository = RepositoryManager.getRepository()) {
+			BlockData lastBlockData = repository.getBlockRepository().getLastBlock();
+			assertEquals(sourceLastBlockData.getHeight(), lastBlockData.getHeight());
+			assertArrayEquals(sourceLastBlockData.getSignature(), lastBlockData.getSignature());
+
+			PrivateKeyAccount recipient = new PrivateKeyAccount(repository, recipientSeed);
+			assertEquals(0, sourceRecipientBalance.compareTo(recipient.getConfirmedBalance(Asset.QORA)));
+
+			// Stored blocks are exactly as in dump
+			for (int i = 0; i < blockCount; ++i) {
+				BlockData blockData = repository.getBlockRepository().fromHeight(i + 2);
+				assertArrayEquals(blocks.get(i), RepositoryManager.getBlockStore().fromHeight(blockData.getHeight(), blockData.getSignature()));
+			}
+
+			// Orphaning removes stored block
+			new Block(repository, lastBlockData).orphan();
+			assertNull(RepositoryManager.getBlockStore().fromHeight(lastBlockData.getHeight(), lastBlockData.getSignature()));
+			repository.discardChanges();
+
+			// Leaving bulk-load mode again is harmless, e.g. if secondary indexes already rebuilt
+			repository.setBulkLoad(false);
+		}
+	}
+
+	@Test
+	public void testInterruptedBulkLoad() throws DataException, IOException, SQLException {
+		// File-based as in-memory databases don't survive repository shutdown
+		this.databasePath = Files.createTempDirectory("bulkload");
+		String connectionUrl = "jdbc:hsqldb:file:" + this.databasePath.resolve("blockchain") + ";create=true";
+
+		RepositoryManager.setRepositoryFactory(new HSQLDBRepositoryFactory(connectionUrl));
+		try (final Repository repository = RepositoryManager.getRepository()) {
+			repository.setBulkLoad(true);
+		}
+
+		assertTrue(isBulkLoad(connectionUrl));
+		assertFalse(isRedoLogged(connectionUrl));
+		assertFalse(hasIndex(connectionUrl, "TRANSACTIONCREATORINDEX"));
+
+		// Never left bulk-load mode, e.g. import killed
+		RepositoryManager.closeRepositoryFactory();
+
+		// Reopening repository leaves bulk-load mode
+		RepositoryManager.setRepositoryFactory(new HSQLDBRepositoryFactory(connectionUrl));
+
+		assertFalse(isBulkLoad(connectionUrl));
+		assertTrue(isRedoLogged(connectionUrl));
+		assertTrue(hasIndex(connectionUrl, "TRANSACTIONCREATORINDEX"));
+	}
+
+	@Test
+	public void testImportCheckpointed() throws DataException, IOException, TransformationException {
+		final int blockCount = 10;
+
+		List<byte[]> blocks;
+		createRepository(sourceConnectionUrl);
+		try (final Repository repository = RepositoryManager.getRepository()) {
+			blocks = forgeBlocks(repository, blockCount);
+		}
+		RepositoryManager.closeRepositoryFactory();
+
+		// Checkpoint at height 6, i.e. 5th forged block
+		byte[] checkpointSignature = BlockTransformer.fromBytes(blocks.get(4)).getA().getSignature();
+
+		createRepository(destinationConnectionUrl);
+		Settings.test(checkpointsJSON(6, checkpointSignature));
+
+		assertArrayEquals(checkpointSignature, BlockChain.getCheckpointSignature(6));
+		assertNull(BlockChain.getCheckpointSignature(5));
+
+		// Blocks only lead to checkpoint once dump has been scanned
+		assertFalse(BlockChain.isCheckpointed(checkpointSignature));
+
+		// Forged blocks at heights 2 to 6
+		assertEquals(5, BlockImporter.scanCheckpointedChain(new ByteArrayInputStream(createDump(blocks))));
+		assertTrue(BlockChain.isCheckpointed(BlockTransformer.fromBytes(blocks.get(0)).getA().getSignature()));
+		assertTrue(BlockChain.isCheckpointed(checkpointSignature));
+		assertFalse(BlockChain.isCheckpointed(BlockTransformer.fromBytes(blocks.get(5)).getA().getSignature()));
+
+		Path dumpPath = Files.createTempFile("blocks", ".dump");
+		try {
+			Files.write(dumpPath, createDump(blocks));
+			assertEquals(blockCount, new BlockImporter().importBlocks(dumpPath, 3));
+		} finally {
+			Files.delete(dumpPath);
+		}
+
+		// Scanned blocks are forgotten after import
+		assertFalse(BlockChain.isCheckpointed(checkpointSignature));
+		RepositoryManager.closeRepositoryFactory();
+
+		// Chain not leading to checkpoint is rejected at checkpoint height
+		createRepository(destinationConnectionUrl.replace("import-destination", "import-mismatch"));
+		Settings.test(checkpointsJSON(4, checkpointSignature));
+
+		DataException e = assertThrows(DataException.class, () -> new BlockImporter().importBlocks(new ByteArrayInputStream(createDump(blocks)), 3));
+		assertTrue(e.getMessage().contains(Block.ValidationResult.CHECKPOINT_MISMATCH.name()), e.getMessage());
+
+		try (final Repository repository = RepositoryManager.getRepository()) {
+			assertEquals(3, repository.getBlockRepository().getBlockchainHeight());
+		}
+	}
+
+	@Test
+	public void testImportCheckpointedFork() throws DataException, IOException, TransformationException {
+		final int blockCount = 10;
+
+		List<byte[]> blocks;
+		createRepository(sourceConnectionUrl);
+		try (final Repository repository = RepositoryManager.getRepository()) {
+			blocks = forgeBlocks(repository, blockCount);
+		}
+		RepositoryManager.closeRepositoryFactory();
+
+		byte[] checkpointSignature = BlockTransformer.fromBytes(blocks.get(4)).getA().getSignature();
+
+		createRepository(destinationConnectionUrl);
+		Settings.test(checkpointsJSON(6, checkpointSignature));
+
+		// Validly signed block below checkpoint but from a fork, with generating balance generator isn't entitled to
+		Triple<BlockData, List<TransactionData>, List<ATStateData>> blockInfo = BlockTransformer.fromBytes(blocks.get(1));
+		BlockData blockData = blockInfo.getA();
+		BlockData forkBlockData = new BlockData(blockData.getVersion(), blockData.getReference(), blockData.getTransactionCount(), blockData.getTotalFees(),
+				null, null, blockData.getTimestamp(), blockData.getGeneratingBalance().multiply(BigDecimal.TEN), blockData.getGeneratorPublicKey(), null,
+				blockData.getATCount(), blockData.getATFees());
+
+		List<byte[]> forkBlocks = new ArrayList<byte[]>(blocks);
+		byte[] forkSignature;
+		try (final Repository repository = RepositoryManager.getRepository()) {
+			PrivateKeyAccount generator = new PrivateKeyAccount(repository, generatorSeed);
+			forkBlockData.setGeneratorSignature(generator.sign(BlockTransformer.getBytesForGeneratorSignature(forkBlockData)));
+
+			Block forkBlock = new Block(repository, forkBlockData, blockInfo.getB(), blockInfo.getC());
+			forkBlockData.setTransactionsSignature(generator.sign(BlockTransformer.getBytesForTransactionsSignature(forkBlock)));
+			forkSignature = Bytes.concat(forkBlockData.getGeneratorSignature(), forkBlockData.getTransactionsSignature());
+			forkBlockData.setSignature(forkSignature);
+
+			forkBlocks.set(1, BlockTransformer.toBytes(forkBlock));
+		}
+
+		// Fork block doesn't lead to checkpoint, nor do blocks before it, as following block references a different block
+		assertEquals(3, BlockImporter.scanCheckpointedChain(new ByteArrayInputStream(createDump(forkBlocks))));
+		assertFalse(BlockChain.isCheckpointed(forkSignature));
+		assertFalse(BlockChain.isCheckpointed(BlockTransformer.fromBytes(blocks.get(0)).getA().getSignature()));
+
+		// So fork block gets generator checks
+		DataException e = assertThrows(DataException.class, () -> new BlockImporter().importBlocks(new ByteArrayInputStream(createDump(forkBlocks)), 3));
+		assertTrue(e.getMessage().contains(Block.ValidationResult.GENERATING_BALANCE_INCORRECT.name()), e.getMessage());
+
+		try (final Repository repository = RepositoryManager.getRepository()) {
+			assertEquals(2, repository.getBlockRepository().getBlockchainHeight());
+		}
+	}
+
+	@Test
+	public void testImportCheckpointedForgedPayment() throws DataException, IOException, TransformationException {
+		final int blockCount = 10;
+
+		List<byte[]> blocks;
+		createRepository(sourceConnectionUrl);
+		try (final Repository repository = RepositoryManager.getRepository()) {
+			blocks = forgeBlocks(repository, blockCount);
+		}
+		RepositoryManager.closeRepositoryFactory();
+
+		byte[] checkpointSignature = BlockTransformer.fromBytes(blocks.get(4)).getA().getSignature();
+
+		createRepository(destinationConnectionUrl);
+		Settings.test(checkpointsJSON(6, checkpointSignature));
+
+		// Block below checkpoint with same references and signatures, but payment amount changed
+		Triple<BlockData, List<TransactionData>, List<ATStateData>> blockInfo = BlockTransformer.fromBytes(blocks.get(1));
+		PaymentTransactionData paymentData = (PaymentTransactionData) blockInfo.getB().get(0);
+		PaymentTransactionData forgedPaymentData = new PaymentTransactionData(paymentData.getSenderPublicKey(), paymentData.getRecipient(),
+				paymentData.getAmount().multiply(BigDecimal.TEN), paymentData.getFee(), paymentData.getTimestamp(), paymentData.getReference(),
+				paymentData.getSignature());
+
+		List<byte[]> forgedBlocks = new ArrayList<byte[]>(blocks);
+		try (final Repository repository = RepositoryManager.getRepository()) {
+			Block forgedBlock = new Block(repository, blockInfo.getA(), Arrays.asList(forgedPaymentData), blockInfo.getC());
+			forgedBlocks.set(1, BlockTransformer.toBytes(forgedBlock));
+		}
+
+		DataException e = assertThrows(DataException.class, () -> new BlockImporter().importBlocks(new ByteArrayInputStream(createDump(forgedBlocks)), 3));
+		assertTrue(e.getMessage().contains("Invalid block signature"), e.getMessage());
+
+		try (final Repository repository = RepositoryManager.getRepository()) {
+			assertEquals(2, repository.getBlockRepository().getBlockchainHeight());
+		}
+	}
+
+	@Test
+	public void testRollbackTo() throws DataException, IOException, TransformationException {
+		final int keptCount = 3;
+		final int orphanCount = 7;
+
+		this.blockStorePath = Files.createTempDirectory("blockstore");
+		RepositoryManager.setBlockStore(new BlockStore(this.blockStorePath));
+		createRepository(sourceConnectionUrl);
+
+		List<byte[]> blocks;
+		List<BigDecimal> keptBalances;
+		BlockData keptLastBlockData;
+		List<BigDecimal> finalBalances;
+
+		try (final Repository repository = RepositoryManager.getRepository()) {
+			blocks = forgeBlocks(repository, keptCount);
+			keptBalances = getBalances(repository);
+			keptLastBlockData = repository.getBlockRepository().getLastBlock();
+
+			blocks.addAll(forgeBlocks(repository, orphanCount));
+			finalBalances = getBalances(repository);
+		}
+
+		assertEquals(orphanCount, BlockChain.rollbackTo(keptLastBlockData.getHeight()));
+
+		try (final Repository repository = RepositoryManager.getRepository()) {
+			BlockData lastBlockData = repository.getBlockRepository().getLastBlock();
+			assertArrayEquals(keptLastBlockData.getSignature(), lastBlockData.getSignature());
+			assertEquals(keptBalances, getBalances(repository));
+
+			// History for orphaned blocks deleted
+			PrivateKeyAccount recipient = new PrivateKeyAccount(repository, recipientSeed);
+			assertEquals(0, repository.getAccountRepository().getQoraReceipts(recipient.getAddress(), lastBlockData.getHeight() + 1).signum());
+			assertFalse(repository.hasUncommittedChanges());
+
+			// Orphaned blocks removed from block store, but not kept blocks
+			BlockStore blockStore = RepositoryManager.getBlockStore();
+			assertArrayEquals(blocks.get(keptCount - 1), blockStore.fromHeight(lastBlockData.getHeight(), lastBlockData.getSignature()));
+			byte[] orphanedSignature = BlockTransformer.fromBytes(blocks.get(keptCount)).getA().getSignature();
+			assertNull(blockStore.fromHeight(lastBlockData.getHeight() + 1, orphanedSignature));
+		}
+
+		// Nothing more to orphan
+		assertEquals(0, BlockChain.rollbackTo(keptLastBlockData.getHeight()));
+
+		// Orphaned blocks can be processed again
+		assertEquals(orphanCount, new BlockImporter().importBlocks(new ByteArrayInputStream(createDump(blocks)), 3));
+
+		try (final Repository repository = RepositoryManager.getRepository()) {
+			assertEquals(finalBalances, getBalances(repository));
+		}
+
+		assertThrows(IllegalArgumentException.class, () -> BlockChain.rollbackTo(0));
+	}
+
+	@Test
+	public void testImportBadDump() throws DataException, IOException, TransformationException {
+		createRepository(destinationConnectionUrl);
+		BlockImporter blockImporter = new BlockImporter();
+
+		// Truncated dump
+		byte[] truncatedDump = Arrays.copyOf(createDump(Arrays.asList(new byte[] { 1, 2, 3, 4 })), 6);
+		assertThrows(IOException.class, () -> blockImporter.importBlocks(new ByteArrayInputStream(truncatedDump), 1));
+
+		// Unparseable block
+		assertThrows(DataException.class, () -> blockImporter.importBlocks(new ByteArrayInputStream(createDump(Arrays.asList(new byte[] { 1, 2, 3, 4 }))), 1));
+
+		// Repository left usable, with nothing imported
+		try (final Repository repository = RepositoryManager.getRepository()) {
+			assertEquals(1, repository.getBlockRepository().getBlockchainHeight());
+			assertFalse(repository.hasUncommittedChanges());
+		}
+	}
+
+	/** Forges blocks, each with a payment, returning each block's bytes. */
+	private static List<byte[]> forgeBlocks(Repository repository, int blockCount) throws DataException, TransformationException {
+		List<byte[]> blocks = new ArrayList<byte[]>();
+
+		PrivateKeyAccount generator = new PrivateKeyAccount(repository, generatorSeed);
+		PrivateKeyAccount sender = new PrivateKeyAccount(repository, senderSeed);
+		PrivateKeyAccount recipient = new PrivateKeyAccount(repository, recipientSeed);
+
+		BlockData parentBlockData = repository.getBlockRepository().getLastBlock();
+		byte[] reference = sender.getLastReference();
+
+		for (int i = 0; i < blockCount; ++i) {
+			PaymentTransactionData paymentData = new PaymentTransactionData(sender.getPublicKey(), recipient.getAddress(), BigDecimal.TEN.setScale(8),
+					BigDecimal.ONE.setScale(8), parentBlockData.getTimestamp() + 1_000, reference);
+			new PaymentTransaction(repository, paymentData).sign(sender);
+			reference = paymentData.getSignature();
+
+			Block block = new Block(repository, parentBlockData, generator);
+			block.addTransaction(paymentData);
+			block.sign();
+
+			assertEquals(Block.ValidationResult.OK, block.isValid(), "Block is invalid");
+			block.process();
+			repository.saveChanges();
+
+			blocks.add(BlockTransformer.toBytes(block));
+			parentBlockData = block.getBlockData();
+		}
+
+		return blocks;
+	}
+
+	/** Returns generator's, sender's and recipient's QORA balances. */
+	private static List<BigDecimal> getBalances(Repository repository) throws DataException {
+		List<BigDecimal> balances = new ArrayList<BigDecimal>();
+
+		for (byte[] seed : Arrays.asList(generatorSeed, senderSeed, recipientSeed))
+			balances.add(new PrivateKeyAccount(repository, seed).getConfirmedBalance(Asset.QORA));
+
+		return balances;
+	}
+
+	/** Creates repository with genesis block and test accounts. */
+	private static void createRepository(String connectionUrl) throws DataException {
+		RepositoryManager.setRepositoryFactory(new HSQLDBRepositoryFactory(connectionUrl));
+
+		Settings.test(new JSONObject());
+		BlockChain.validate();
+
+		try (final Repository repository = RepositoryManager.getRepository()) {
+			assertEquals(1, repository.getBlockRepository().getBlockchainHeight(), "Blockchain should only have genesis block for this test");
+
+			PrivateKeyAccount generator = new PrivateKeyAccount(repository, generatorSeed);
+			repository.getAccountRepository().save(new AccountData(generator.getAddress(), generatorSeed));
+			repository.getAccountRepository().save(new AccountBalanceData(generator.getAddress(), Asset.QORA, initialGeneratorBalance));
+
+			PrivateKeyAccount sender = new PrivateKeyAccount(repository, senderSeed);
+			repository.getAccountRepository().save(new AccountData(sender.getAddress(), senderReference));
+			repository.getAccountRepository().save(new AccountBalanceData(sender.getAddress(), Asset.QORA, initialSenderBalance));
+
+			repository.saveChanges();
+		}
+	}
+
+	@SuppressWarnings("unchecked")
+	private static JSONObject checkpointsJSON(int height, byte[] signature) {
+		JSONObject checkpoint = new JSONObject();
+		checkpoint.put("height", Long.valueOf(height));
+		checkpoint.put("signature", Base58.encode(signature));
+
+		JSONArray checkpoints = new JSONArray();
+		checkpoints.add(checkpoint);
+
+		JSONObject settingsJSON = new JSONObject();
+		settingsJSON.put("checkpoints", checkpoints);
+		return settingsJSON;
+	}
+
+	private static boolean isBulkLoad(String connectionUrl) throws SQLException {
+		try (Connection connection = DriverManager.getConnection(connectionUrl);
+				ResultSet resultSet = connection.createStatement().executeQuery("SELECT bulk_load FROM DatabaseInfo")) {
+			assertTrue(resultSet.next());
+			return resultSet.getBoolean(1);
+		}
+	}
+
+	private static boolean isRedoLogged(String connectionUrl) throws SQLException {
+		try (Connection connection = DriverManager.getConnection(connectionUrl);
+				ResultSet resultSet = connection.createStatement()
+						.executeQuery("SELECT property_value FROM INFORMATION_SCHEMA.SYSTEM_PROPERTIES WHERE property_name = 'hsqldb.log_data'")) {
+			assertTrue(resultSet.next());
+			return Boolean.parseBoolean(resultSet.getString(1));
+		}
+	}
+
+	private static boolean hasIndex(String connectionUrl, String indexName) throws SQLException {
+		try (Connection connection = DriverManager.getConnection(connectionUrl);
+				ResultSet resultSet = connection.createStatement()
+						.executeQuery("SELECT COUNT(*) FROM INFORMATION_SCHEMA.SYSTEM_INDEXINFO WHERE index_name = '" + indexName + "'")) {
+			assertTrue(resultSet.next());
+			return resultSet.getInt(1) > 0;
+		}
+	}
+
+	/** Returns block dump: each block's bytes preceded by length. */
+	private static byte[] createDump(List<byte[]> blocks) throws IOException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		DataOutputStream out = new DataOutputStream(bytes);
+
+		for (byte[] blockBytes : blocks) {
+			out.writeInt(blockBytes.length);
+			out.write(blockBytes);
+		}
+
+		out.flush();
+		return bytes.toByteArray();
+	}
+
+}
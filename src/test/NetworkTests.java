@@ -0,0 +1,431 @@
+package test;
+
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+import com.google.common.primitives.Ints;
+import com.sun.management.ThreadMXBean;
+
+import qora.crypto.Crypto;
+import qora.network.BlockRequestPipeline;
+import qora.network.PeerConnection;
+import qora.network.PeerTransport;
+import utils.Pair;
+
+public class NetworkTests {
+
+	private static final InetSocketAddress LOOPBACK = new InetSocketAddress(InetAddress.getLoopbackAddress(), 0);
+
+	/** Listener that records messages and disconnections, optionally echoing messages back. */
+	private static class RecordingListener implements PeerTransport.Listener {
+		private final boolean echo;
+		private final List<byte[]> messages = new ArrayList<byte[]>();
+		private final CountDownLatch connected = new CountDownLatch(1);
+		private final CountDownLatch disconnected = new CountDownLatch(1);
+		private final AtomicReference<IOException> disconnectCause = new AtomicReference<IOException>();
+
+		public RecordingListener(boolean echo) {
+			this.echo = echo;
+		}
+
+		@Override
+		public void onConnected(PeerConnection peer) {
+			this.connected.countDown();
+		}
+
+		@Override
+		public void onMessage(PeerConnection peer, int type, int id, ByteBuffer data) {
+			byte[] bytes = new byte[data.remaining()];
+			data.duplicate().get(bytes);
+
+			synchronized (this.messages) {
+				this.messages.add(createMessage(type, id != PeerConnection.NO_ID, id, bytes));
+				this.messages.notifyAll();
+			}
+
+			if (this.echo)
+				try {
+					peer.send(type, id != PeerConnection.NO_ID, id, data);
+				} catch (IOException e) {
+					fail("Couldn't echo message");
+				}
+		}
+
+		@Override
+		public void onDisconnected(PeerConnection peer, IOException cause) {
+			this.disconnectCause.set(cause);
+			this.disconnected.countDown();
+		}
+
+		public List<byte[]> awaitMessages(int count) throws InterruptedException {
+			long deadline = System.currentTimeMillis() + 10000;
+
+			synchronized (this.messages) {
+				while (this.messages.size() < count && System.currentTimeMillis() < deadline)
+					this.messages.wait(100);
+
+				return new ArrayList<byte[]>(this.messages);
+			}
+		}
+	}
+
+	@Test
+	public void testFraming() throws Exception {
+		Random random = new Random(1);
+
+		List<byte[]> messages = new ArrayList<byte[]>();
+		messages.add(createMessage(9, true, 12345, new byte[0])); // ping
+		messages.add(createMessage(3, false, 0, Ints.toByteArray(1000))); // height, no id
+		messages.add(createMessage(4, true, 999999, randomBytes(random, 128))); // get signatures
+		messages.add(createMessage(7, true, 42, randomBytes(random, 1500 * 1024))); // big block, needing large buffer
+		messages.add(createMessage(9, false, 0, new byte[0]));
+		messages.add(createMessage(5, true, 7, randomBytes(random, 100 * 1024)));
+
+		RecordingListener listener = new RecordingListener(true);
+
+		try (PeerTransport transport = new PeerTransport(listener)) {
+			transport.start();
+			InetSocketAddress address = transport.listen(LOOPBACK);
+
+			// Old-style blocking peer
+			try (Socket socket = new Socket(address.getAddress(), address.getPort())) {
+				OutputStream out = socket.getOutputStream();
+
+				// Send first message a byte at a time, to test partial frames
+				for (byte b : messages.get(0)) {
+					out.write(b);
+					out.flush();
+				}
+
+				for (int i = 1; i < messages.size(); ++i)
+					out.write(messages.get(i));
+				out.flush();
+
+				// Messages received intact
+				List<byte[]> received = listener.awaitMessages(messages.size());
+				assertEquals(messages.size(), received.size());
+				for (int i = 0; i < messages.size(); ++i)
+					assertArrayEquals(messages.get(i), received.get(i), "Message " + i + " differs");
+
+				// Echoed messages are framed exactly as old-style peer would frame them
+				DataInputStream in = new DataInputStream(socket.getInputStream());
+				for (int i = 0; i < messages.size(); ++i) {
+					byte[] echoed = new byte[messages.get(i).length];
+					in.readFully(echoed);
+					assertArrayEquals(messages.get(i), echoed, "Echoed message " + i + " differs");
+				}
+			}
+
+			assertTrue(listener.disconnected.await(10, TimeUnit.SECONDS));
+		}
+	}
+
+	@Test
+	public void testBadMessages() throws Exception {
+		byte[] badChecksum = createMessage(7, true, 1, new byte[] { 1, 2, 3 });
+		badChecksum[badChecksum.length - 1] ^= 1;
+
+		byte[] badMagic = createMessage(9, false, 0, new byte[0]);
+		badMagic[0] ^= 1;
+
+		byte[] badLength = createMessage(9, false, 0, new byte[0]);
+		System.arraycopy(Ints.toByteArray(PeerConnection.MAX_DATA_SIZE + 1), 0, badLength, badLength.length - 4, 4);
+
+		for (byte[] message : Arrays.asList(badChecksum, badMagic, badLength)) {
+			RecordingListener listener = new RecordingListener(false);
+
+			try (PeerTransport transport = new PeerTransport(listener)) {
+				transport.start();
+				InetSocketAddress address = transport.listen(LOOPBACK);
+
+				try (Socket socket = new Socket(address.getAddress(), address.getPort())) {
+					socket.getOutputStream().write(message);
+					socket.getOutputStream().flush();
+
+					// Transport should drop connection, with cause
+					assertTrue(listener.disconnected.await(10, TimeUnit.SECONDS));
+					assertNotNull(listener.disconnectCause.get());
+					assertTrue(listener.awaitMessages(0).isEmpty());
+				}
+			}
+		}
+	}
+
+	@Test
+	public void testLoopbackAllocation() throws Exception {
+		final int count = 200_000;
+		final int dataLength = 100;
+
+		AtomicInteger receivedCount = new AtomicInteger();
+		AtomicLong receivedChecksum = new AtomicLong();
+		AtomicLong serverThreadId = new AtomicLong();
+		CountDownLatch allReceived = new CountDownLatch(1);
+
+		PeerTransport.Listener serverListener = new PeerTransport.Listener() {
+			@Override
+			public void onConnected(PeerConnection peer) {
+				serverThreadId.set(Thread.currentThread().getId());
+			}
+
+			@Override
+			public void onMessage(PeerConnection peer, int type, int id, ByteBuffer data) {
+				receivedChecksum.addAndGet(id + data.get(data.position()));
+
+				if (receivedCount.incrementAndGet() == count)
+					allReceived.countDown();
+			}
+
+			@Override
+			public void onDisconnected(PeerConnection peer, IOException cause) {
+			}
+		};
+
+		RecordingListener clientListener = new RecordingListener(false);
+
+		try (PeerTransport server = new PeerTransport(serverListener); PeerTransport client = new PeerTransport(clientListener)) {
+			server.start();
+			client.start();
+
+			PeerConnection peer = client.connect(server.listen(LOOPBACK));
+			assertTrue(clientListener.connected.await(10, TimeUnit.SECONDS));
+
+			ByteBuffer data = ByteBuffer.allocateDirect(dataLength);
+			for (int i = 0; i < dataLength; ++i)
+				data.put(i, (byte) i);
+
+			// Warm up JIT
+			for (int i = 0; i < 100_000; ++i)
+				peer.send(9, true, 1, data);
+
+			while (receivedCount.get() < 100_000)
+				Thread.sleep(10);
+
+			receivedCount.set(0);
+			receivedChecksum.set(0);
+
+			ThreadMXBean threadBean = (ThreadMXBean) ManagementFactory.getThreadMXBean();
+			long senderThreadId = Thread.currentThread().getId();
+			long senderBefore = threadBean.getThreadAllocatedBytes(senderThreadId);
+			long receiverBefore = threadBean.getThreadAllocatedBytes(serverThreadId.get());
+
+			long expectedChecksum = 0;
+			for (int i = 0; i < count; ++i) {
+				data.put(0, (byte) i);
+				peer.send(9, true, i, data);
+				expectedChecksum += i + (byte) i;
+			}
+
+			assertTrue(allReceived.await(60, TimeUnit.SECONDS));
+
+			long senderAllocated = threadBean.getThreadAllocatedBytes(senderThreadId) - senderBefore;
+			long receiverAllocated = threadBean.getThreadAllocatedBytes(serverThreadId.get()) - receiverBefore;
+
+			assertEquals(expectedChecksum, receivedChecksum.get());
+
+			// Framing shouldn't allocate per message, beyond occasional buffers and selector bookkeeping
+			assertTrue(senderAllocated / count < 16, "Sender allocated " + senderAllocated / count + " bytes per message");
+			assertTrue(receiverAllocated / count < 16, "Receiver allocated " + receiverAllocated / count + " bytes per message");
+		}
+	}
+
+	@Test
+	public void testBlockRequestPipeline() throws Exception {
+		final int blockCount = 50;
+		final int window = 8;
+
+		List<Integer> requestedHeights = Collections.synchronizedList(new ArrayList<Integer>());
+		AtomicInteger maxOutstanding = new AtomicInteger();
+		AtomicInteger bogusCount = new AtomicInteger();
+
+		// Stand-in peer replies to each window of GET_BLOCK requests in reverse order, with unknown-id and duplicate BLOCK messages mixed in
+		PeerTransport.Listener serverListener = new PeerTransport.Listener() {
+			private final List<Pair<Integer, Integer>> outstanding = new ArrayList<Pair<Integer, Integer>>();
+
+			@Override
+			public void onConnected(PeerConnection peer) {
+			}
+
+			@Override
+			public void onMessage(PeerConnection peer, int type, int id, ByteBuffer data) {
+				assertEquals(BlockRequestPipeline.GET_BLOCK_TYPE, type);
+
+				int height = data.getInt(data.position());
+				requestedHeights.add(height);
+				this.outstanding.add(new Pair<Integer, Integer>(id, height));
+				maxOutstanding.set(Math.max(maxOutstanding.get(), this.outstanding.size()));
+
+				if (this.outstanding.size() < window && requestedHeights.size() < blockCount)
+					return;
+
+				try {
+					for (int i = this.outstanding.size() - 1; i >= 1; --i)
+						sendBlock(peer, this.outstanding.get(i));
+
+					// Duplicate response, so id no longer outstanding
+					if (this.outstanding.size() > 1) {
+						sendBlock(peer, this.outstanding.get(this.outstanding.size() - 1));
+						bogusCount.incrementAndGet();
+					}
+
+					// Message id never requested
+					sendBlock(peer, new Pair<Integer, Integer>(0, height));
+					bogusCount.incrementAndGet();
+
+					// Earliest block last, releasing whole window
+					sendBlock(peer, this.outstanding.get(0));
+				} catch (IOException e) {
+					fail("Couldn't send block");
+				}
+
+				this.outstanding.clear();
+			}
+
+			@Override
+			public void onDisconnected(PeerConnection peer, IOException cause) {
+			}
+
+			private void sendBlock(PeerConnection peer, Pair<Integer, Integer> request) throws IOException {
+				byte[] blockBytes = blockBytes(request.getB());
+
+				ByteBuffer data = ByteBuffer.allocate(4 + blockBytes.length);
+				data.putInt(request.getB());
+				data.put(blockBytes);
+				data.flip();
+
+				peer.send(BlockRequestPipeline.BLOCK_TYPE, true, request.getA(), data);
+			}
+		};
+
+		Object lock = new Object();
+		List<Pair<Integer, byte[]>> readyBlocks = new ArrayList<Pair<Integer, byte[]>>();
+		AtomicInteger discardedCount = new AtomicInteger();
+
+		BlockRequestPipeline pipeline = new BlockRequestPipeline(window, (claimedHeight, blockBytes) -> readyBlocks.add(new Pair<Integer, byte[]>(claimedHeight, blockBytes)));
+
+		PeerTransport.Listener clientListener = new PeerTransport.Listener() {
+			@Override
+			public void onConnected(PeerConnection peer) {
+			}
+
+			@Override
+			public void onMessage(PeerConnection peer, int type, int id, ByteBuffer data) {
+				synchronized (lock) {
+					if (!pipeline.onBlock(id, data))
+						discardedCount.incrementAndGet();
+
+					lock.notifyAll();
+				}
+			}
+
+			@Override
+			public void onDisconnected(PeerConnection peer, IOException cause) {
+			}
+		};
+
+		try (PeerTransport server = new PeerTransport(serverListener); PeerTransport client = new PeerTransport(clientListener)) {
+			server.start();
+			client.start();
+
+			PeerConnection peer = client.connect(server.listen(LOOPBACK));
+
+			for (int height = 1; height <= blockCount; ++height)
+				pipeline.addSignature(signature(height));
+
+			synchronized (lock) {
+				int processedCount = 0;
+				long deadline = System.currentTimeMillis() + 10000;
+
+				while (processedCount < blockCount && System.currentTimeMillis() < deadline) {
+					// "Process" ready blocks, then refill window
+					for (; processedCount < readyBlocks.size(); ++processedCount) {
+						assertTrue(pipeline.getUnprocessedCount() <= window);
+						pipeline.blockProcessed();
+					}
+
+					pipeline.fillWindow(peer);
+					lock.wait(100);
+				}
+			}
+
+			// Blocks passed on in order, exactly once
+			assertEquals(blockCount, readyBlocks.size());
+			for (int i = 0; i < blockCount; ++i) {
+				assertEquals(i + 1, readyBlocks.get(i).getA().intValue());
+				assertArrayEquals(blockBytes(i + 1), readyBlocks.get(i).getB(), "Block at height " + (i + 1) + " differs");
+			}
+
+			// Each block requested once, in order, never exceeding window
+			for (int i = 0; i < blockCount; ++i)
+				assertEquals(i + 1, requestedHeights.get(i).intValue());
+			assertEquals(blockCount, requestedHeights.size());
+			assertEquals(window, maxOutstanding.get());
+
+			assertEquals(bogusCount.get(), discardedCount.get());
+			assertEquals(0, pipeline.getUnprocessedCount());
+			assertFalse(pipeline.hasPendingSignatures());
+			assertArrayEquals(signature(blockCount), pipeline.getLastRequestedSignature());
+		}
+	}
+
+	/** Frames message the same way as v1 peers. */
+	private static byte[] createMessage(int type, boolean hasId, int id, byte[] data) {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+
+		bytes.write(0x12);
+		bytes.write(0x34);
+		bytes.write(0x56);
+		bytes.write(0x78);
+		bytes.write(Ints.toByteArray(type), 0, 4);
+		bytes.write(hasId ? 1 : 0);
+
+		if (hasId)
+			bytes.write(Ints.toByteArray(id), 0, 4);
+
+		bytes.write(Ints.toByteArray(data.length), 0, 4);
+
+		if (data.length > 0) {
+			bytes.write(Crypto.digest(data), 0, 4);
+			bytes.write(data, 0, data.length);
+		}
+
+		return bytes.toByteArray();
+	}
+
+	/** Returns signature, starting with height so stand-in peer knows which block to send. */
+	private static byte[] signature(int height) {
+		byte[] signature = randomBytes(new Random(height), 128);
+		System.arraycopy(Ints.toByteArray(height), 0, signature, 0, 4);
+		return signature;
+	}
+
+	private static byte[] blockBytes(int height) {
+		return randomBytes(new Random(-height), 1000 + height);
+	}
+
+	private static byte[] randomBytes(Random random, int length) {
+		byte[] bytes = new byte[length];
+		random.nextBytes(bytes);
+		return bytes;
+	}
+
+}
@@ -1,14 +1,19 @@
 package test;
 
+import java.math.BigDecimal;
+
 import org.junit.jupiter.api.Test;
 import static org.junit.jupiter.api.Assertions.*;
 
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
+import data.account.AccountBalanceData;
+import repository.AccountRepository;
 import repository.DataException;
 import repository.Repository;
 import repository.RepositoryManager;
+import repository.hsqldb.HSQLDBRepository;
 
 public class RepositoryTests extends Common {
 
@@ -54,4 +59,92 @@ public class RepositoryTests extends Common {
 		}
 	}
 
+	@Test
+	public void testSubRepositoryReuse() throws DataException {
+		try (final Repository repository = RepositoryManager.getRepository()) {
+			assertSame(repository.getAccountRepository(), repository.getAccountRepository());
+			assertSame(repository.getBlockRepository(), repository.getBlockRepository());
+			assertSame(repository.getTransactionRepository(), repository.getTransactionRepository());
+		}
+	}
+
+	@Test
+	public void testStatementCache() throws DataException {
+		try (final Repository repository = RepositoryManager.getRepository()) {
+			HSQLDBRepository hsqldb = (HSQLDBRepository) repository;
+
+			repository.getAccountRepository().getAccount("QUD9y7NZqTtNwvSAUfewd7zKUGoVivVnTW");
+			long hits = hsqldb.getStatementCacheHits();
+			long misses = hsqldb.getStatementCacheMisses();
+
+			// Same SQL again should reuse cached statement
+			repository.getAccountRepository().getAccount("QegT2Ws5YjLQzEZ9YMzWsAZMBE8cAygHZN");
+			assertEquals(hits + 1, hsqldb.getStatementCacheHits());
+			assertEquals(misses, hsqldb.getStatementCacheMisses());
+		}
+	}
+
+	@Test
+	public void testBatchWrites() throws DataException {
+		String address1 = "QTestBatchWrites1111111111111111111";
+		String address2 = "QTestBatchWrites2222222222222222222";
+
+		try (final Repository repository = RepositoryManager.getRepository()) {
+			AccountRepository accountRepository = repository.getAccountRepository();
+
+			repository.setBatchWrites(true);
+			accountRepository.create(address1);
+			accountRepository.create(address2);
+
+			// Reading from same table should flush pending batch
+			assertNotNull(accountRepository.getAccount(address1));
+			assertNotNull(accountRepository.getAccount(address2));
+
+			// Discarding changes should also drop pending batch
+			accountRepository.save(new AccountBalanceData(address1, 0L, BigDecimal.ONE));
+			repository.discardChanges();
+
+			assertNull(accountRepository.getAccount(address1));
+			assertNull(accountRepository.getBalance(address1, 0L));
+		}
+	}
+
+	@Test
+	public void testAccountCache() throws DataException {
+		String address = "QTestAccountCache111111111111111111";
+		BigDecimal balance = BigDecimal.valueOf(123L).setScale(8);
+
+		try (final Repository repository = RepositoryManager.getRepository()) {
+			AccountRepository accountRepository = repository.getAccountRepository();
+
+			accountRepository.create(address);
+			accountRepository.save(new AccountBalanceData(address, 0L, balance));
+
+			// Unsaved changes should be visible within same repository session
+			assertEquals(0, balance.compareTo(accountRepository.getBalance(address, 0L).getBalance()));
+
+			// ...but dropped if changes are discarded
+			repository.discardChanges();
+			assertNull(accountRepository.getAccount(address));
+			assertNull(accountRepository.getBalance(address, 0L));
+
+			accountRepository.create(address);
+			accountRepository.save(new AccountBalanceData(address, 0L, balance));
+			repository.saveChanges();
+		}
+
+		// Saved changes should be visible to other repository sessions
+		try (final Repository repository = RepositoryManager.getRepository()) {
+			AccountRepository accountRepository = repository.getAccountRepository();
+
+			assertNotNull(accountRepository.getAccount(address));
+			assertEquals(0, balance.compareTo(accountRepository.getBalance(address, 0L).getBalance()));
+
+			accountRepository.delete(address);
+			assertNull(accountRepository.getBalance(address, 0L));
+
+			repository.saveChanges();
+		}
+	}
+
 }
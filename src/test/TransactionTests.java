@@ -5,11 +5,14 @@ import static org.junit.jupiter.api.Assertions.*;
 import org.junit.jupiter.api.AfterEach;
 
 import java.io.UnsupportedEncodingException;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
 import java.math.BigDecimal;
 import java.math.RoundingMode;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.Objects;
 
 import org.json.simple.JSONObject;
 
@@ -34,6 +37,7 @@ import data.transaction.MultiPaymentTransactionData;
 import data.transaction.PaymentTransactionData;
 import data.transaction.RegisterNameTransactionData;
 import data.transaction.SellNameTransactionData;
+import data.transaction.TransactionData;
 import data.transaction.TransferAssetTransactionData;
 import data.transaction.UpdateNameTransactionData;
 import data.transaction.VoteOnPollTransactionData;
@@ -69,6 +73,8 @@ import repository.Repository;
 import repository.RepositoryFactory;
 import repository.RepositoryManager;
 import repository.hsqldb.HSQLDBRepositoryFactory;
+import repository.overlay.OverlayRepository;
+import repository.overlay.OverlayUnsupportedException;
 import settings.Settings;
 
 // Don't extend Common as we want to use an in-memory database
@@ -154,6 +160,21 @@ public class TransactionTests {
 		return paymentTransaction;
 	}
 
+	/** Forges and processes new block containing <tt>transactions</tt>, in order. */
+	private Block processBlock(Transaction... transactions) throws DataException {
+		Block block = new Block(repository, parentBlockData, generator);
+		for (Transaction transaction : transactions)
+			block.addTransaction(transaction.getTransactionData());
+		block.sign();
+
+		assertEquals(Block.ValidationResult.OK, block.isValid(), "Block is invalid");
+
+		block.process();
+		repository.saveChanges();
+
+		return block;
+	}
+
 	@Test
 	public void testPaymentTransaction() throws DataException {
 		createTestAccounts(null);
@@ -214,6 +235,229 @@ public class TransactionTests {
 		assertTrue(initialGeneratorBalance.compareTo(actualBalance) == 0, "Generator's new balance incorrect");
 	}
 
+	@Test
+	public void testChainTip() throws DataException {
+		createTestAccounts(null);
+
+		Account recipient = new PublicKeyAccount(repository, recipientSeed);
+		Block block = processBlock(createPayment(sender, recipient.getAddress()));
+		int height = block.getBlockData().getHeight();
+
+		// Check new block is chain tip, as seen by other repository sessions too
+		assertEquals(height, repository.getBlockRepository().getBlockchainHeight());
+		try (final Repository otherRepository = RepositoryManager.getRepository()) {
+			assertEquals(height, otherRepository.getBlockRepository().getBlockchainHeight());
+			assertTrue(Arrays.equals(block.getSignature(), otherRepository.getBlockRepository().getLastBlock().getSignature()), "Chain tip incorrect");
+		}
+
+		// Orphan block
+		block.orphan();
+		repository.saveChanges();
+
+		// Parent should be chain tip again
+		assertEquals(parentBlockData.getHeight().intValue(), repository.getBlockRepository().getBlockchainHeight());
+		try (final Repository otherRepository = RepositoryManager.getRepository()) {
+			assertEquals(parentBlockData.getHeight().intValue(), otherRepository.getBlockRepository().getBlockchainHeight());
+			assertTrue(Arrays.equals(parentBlockData.getSignature(), otherRepository.getBlockRepository().getLastBlock().getSignature()),
+					"Chain tip not reverted");
+		}
+	}
+
+	@Test
+	public void testQoraReceipts() throws DataException {
+		createTestAccounts(null);
+
+		Account recipient = new PublicKeyAccount(repository, recipientSeed);
+		Block block = processBlock(createPayment(sender, recipient.getAddress()));
+		int height = block.getBlockData().getHeight();
+
+		// Recently received amount should not count towards recipient's generating balance
+		assertTrue(genericPaymentAmount.compareTo(accountRepository.getQoraReceipts(recipient.getAddress(), height)) == 0, "Recipient's QORA receipts incorrect");
+		assertTrue(BigDecimal.ZERO.compareTo(recipient.getGeneratingBalance()) == 0, "Recipient's generating balance incorrect");
+
+		// Sender didn't receive anything
+		BigDecimal expectedBalance = initialSenderBalance.subtract(genericPaymentAmount).subtract(BigDecimal.ONE);
+		assertTrue(BigDecimal.ZERO.compareTo(accountRepository.getQoraReceipts(sender.getAddress(), height)) == 0, "Sender's QORA receipts incorrect");
+		assertTrue(expectedBalance.compareTo(sender.getGeneratingBalance()) == 0, "Sender's generating balance incorrect");
+
+		// Orphan block
+		block.orphan();
+		repository.saveChanges();
+
+		// Recipient's receipts should be gone
+		assertTrue(BigDecimal.ZERO.compareTo(accountRepository.getQoraReceipts(recipient.getAddress(), height)) == 0, "Recipient's QORA receipts not reverted");
+	}
+
+	@Test
+	public void testBalanceHistory() throws DataException {
+		createTestAccounts(null);
+
+		Account recipient = new PublicKeyAccount(repository, recipientSeed);
+		Block block = processBlock(createPayment(sender, recipient.getAddress()));
+		int height = block.getBlockData().getHeight();
+
+		// Balances with 2 confirmations should be from before block
+		assertTrue(initialSenderBalance.compareTo(sender.getBalance(Asset.QORA, 2)) == 0, "Sender's 2-confirmation balance incorrect");
+		assertTrue(BigDecimal.ZERO.compareTo(recipient.getBalance(Asset.QORA, 2)) == 0, "Recipient's 2-confirmation balance incorrect");
+		assertTrue(genericPaymentAmount.compareTo(accountRepository.getBalanceAtHeight(recipient.getAddress(), Asset.QORA, height)) == 0,
+				"Recipient's balance at height incorrect");
+
+		// Orphan block
+		block.orphan();
+		repository.saveChanges();
+
+		// Balance history should be gone too
+		assertTrue(initialSenderBalance.compareTo(accountRepository.getBalanceAtHeight(sender.getAddress(), Asset.QORA, parentBlockData.getHeight())) == 0,
+				"Sender's balance history not reverted");
+		assertTrue(BigDecimal.ZERO.compareTo(accountRepository.getBalanceAtHeight(recipient.getAddress(), Asset.QORA, height)) == 0,
+				"Recipient's balance history not reverted");
+	}
+
+	@Test
+	public void testBlockCache() throws DataException {
+		createTestAccounts(null);
+
+		Account recipient = new PublicKeyAccount(repository, recipientSeed);
+		Block block = processBlock(createPayment(sender, recipient.getAddress()));
+
+		// Check new block is seen by other repository sessions too
+		try (final Repository otherRepository = RepositoryManager.getRepository()) {
+			assertTrue(Arrays.equals(block.getSignature(), otherRepository.getBlockRepository().fromSignature(block.getSignature()).getSignature()),
+					"Block by signature incorrect");
+			assertTrue(Arrays.equals(block.getSignature(), otherRepository.getBlockRepository().fromHeight(block.getBlockData().getHeight()).getSignature()),
+					"Block at height incorrect");
+			assertTrue(Arrays.equals(block.getSignature(), otherRepository.getBlockRepository().fromReference(parentBlockData.getSignature()).getSignature()),
+					"Parent's child incorrect");
+		}
+
+		// Orphan block
+		block.orphan();
+		repository.saveChanges();
+
+		// Orphaned block should be gone for other repository sessions too
+		try (final Repository otherRepository = RepositoryManager.getRepository()) {
+			assertNull(otherRepository.getBlockRepository().fromSignature(block.getSignature()), "Orphaned block still present");
+			assertNull(otherRepository.getBlockRepository().fromHeight(parentBlockData.getHeight() + 1), "Orphaned block still present at height");
+			assertNull(otherRepository.getBlockRepository().fromReference(parentBlockData.getSignature()), "Parent still has child");
+		}
+	}
+
+	@Test
+	public void testTransactionBlockLookup() throws DataException {
+		createTestAccounts(null);
+
+		Account recipient = new PublicKeyAccount(repository, recipientSeed);
+		Transaction paymentTransaction = createPayment(sender, recipient.getAddress());
+		Block block = processBlock(paymentTransaction);
+
+		// Check transaction's block/height lookups
+		assertEquals(block.getBlockData().getHeight().intValue(), paymentTransaction.getHeight());
+		assertTrue(Arrays.equals(block.getSignature(), paymentTransaction.getBlock().getSignature()), "Transaction's block incorrect");
+
+		// Orphan block
+		block.orphan();
+		repository.saveChanges();
+
+		// Transaction should no longer be in a block
+		assertEquals(0, paymentTransaction.getHeight());
+		assertNull(paymentTransaction.getBlock(), "Orphaned transaction still has block");
+	}
+
+	@Test
+	public void testBlockTransactionsBulkLoad() throws DataException {
+		// Create poll transaction requires GenesisBlock's timestamp is set to something after BlockChain.VOTING_RELEASE_TIMESTAMP
+		createTestAccounts(BlockChain.getVotingReleaseTimestamp() + 1_000L);
+
+		Account recipient = new PublicKeyAccount(repository, recipientSeed);
+		BigDecimal fee = BigDecimal.ONE;
+		long timestamp = parentBlockData.getTimestamp() + 1_000;
+		List<Transaction> transactions = new ArrayList<Transaction>();
+
+		// Payment
+		transactions.add(createPayment(sender, recipient.getAddress()));
+		reference = transactions.get(transactions.size() - 1).getTransactionData().getSignature();
+
+		// Poll, with options
+		List<PollOptionData> pollOptions = new ArrayList<PollOptionData>();
+		pollOptions.add(new PollOptionData("abort"));
+		pollOptions.add(new PollOptionData("retry"));
+		pollOptions.add(new PollOptionData("fail"));
+
+		CreatePollTransactionData createPollTransactionData = new CreatePollTransactionData(sender.getPublicKey(), recipient.getAddress(), "test poll",
+				"test poll description", pollOptions, fee, timestamp, reference);
+		Transaction createPollTransaction = new CreatePollTransaction(repository, createPollTransactionData);
+		createPollTransaction.sign(sender);
+		transactions.add(createPollTransaction);
+		reference = createPollTransactionData.getSignature();
+
+		// Multi-payment, with payments
+		List<PaymentData> payments = new ArrayList<PaymentData>();
+		for (int i = 0; i < 3; ++i) {
+			byte[] seed = recipientSeed.clone();
+			seed[0] += i;
+			payments.add(new PaymentData(new PublicKeyAccount(repository, seed).getAddress(), Asset.QORA, BigDecimal.valueOf(1_000L + i).setScale(8)));
+		}
+
+		MultiPaymentTransactionData multiPaymentTransactionData = new MultiPaymentTransactionData(sender.getPublicKey(), payments, fee, timestamp, reference);
+		Transaction multiPaymentTransaction = new MultiPaymentTransaction(repository, multiPaymentTransactionData);
+		multiPaymentTransaction.sign(sender);
+		transactions.add(multiPaymentTransaction);
+		reference = multiPaymentTransactionData.getSignature();
+
+		// Another payment
+		transactions.add(createPayment(sender, recipient.getAddress()));
+
+		Block block = processBlock(transactions.toArray(new Transaction[0]));
+
+		// Bulk-loaded transactions should be in sequence order and match transactions loaded individually
+		List<TransactionData> blockTransactions = repository.getBlockRepository().getTransactionsFromSignature(block.getSignature());
+		assertEquals(transactions.size(), blockTransactions.size());
+
+		for (int sequence = 0; sequence < transactions.size(); ++sequence) {
+			TransactionData blockTransactionData = blockTransactions.get(sequence);
+			assertTrue(Arrays.equals(transactions.get(sequence).getTransactionData().getSignature(), blockTransactionData.getSignature()),
+					"Transaction out of sequence");
+
+			TransactionData transactionData = repository.getTransactionRepository().fromSignature(blockTransactionData.getSignature());
+			assertDataEquals(transactionData, blockTransactionData, blockTransactionData.getType().name());
+		}
+	}
+
+	/** Asserts data objects have equal fields, comparing lists and nested data objects element by element and field by field. */
+	private static void assertDataEquals(Object expected, Object actual, String path) {
+		if (expected instanceof List && actual instanceof List) {
+			List<?> expectedList = (List<?>) expected;
+			List<?> actualList = (List<?>) actual;
+			assertEquals(expectedList.size(), actualList.size(), path + " size");
+
+			for (int i = 0; i < expectedList.size(); ++i)
+				assertDataEquals(expectedList.get(i), actualList.get(i), path + "[" + i + "]");
+
+			return;
+		}
+
+		if (expected == null || actual == null || !expected.getClass().getName().startsWith("data.")) {
+			assertTrue(Objects.deepEquals(expected, actual), path + " differs");
+			return;
+		}
+
+		assertEquals(expected.getClass(), actual.getClass(), path + " class");
+
+		for (Class<?> dataClass = expected.getClass(); dataClass != Object.class; dataClass = dataClass.getSuperclass())
+			for (Field field : dataClass.getDeclaredFields()) {
+				if (Modifier.isStatic(field.getModifiers()))
+					continue;
+
+				field.setAccessible(true);
+
+				try {
+					assertDataEquals(field.get(expected), field.get(actual), path + "." + field.getName());
+				} catch (IllegalAccessException e) {
+					fail("Couldn't access " + path + "." + field.getName());
+				}
+			}
+	}
+
 	@Test
 	public void testRegisterNameTransaction() throws DataException {
 		createTestAccounts(null);
@@ -1056,6 +1300,218 @@ public class TransactionTests {
 		assertTrue(expectedBalance.compareTo(actualBalance) == 0);
 	}
 
+	@Test
+	public void testBlockSignatureVerification() throws DataException {
+		createTestAccounts(null);
+
+		// Forge new block with several transactions so signatures are verified in parallel
+		Block block = new Block(repository, parentBlockData, generator);
+		for (int i = 0; i < 10; ++i) {
+			Account recipient = new PublicKeyAccount(repository, new byte[] { (byte) i });
+			Transaction paymentTransaction = createPayment(sender, recipient.getAddress());
+			block.addTransaction(paymentTransaction.getTransactionData());
+		}
+		block.sign();
+
+		assertTrue(block.isSignatureValid(), "Block signatures invalid");
+
+		// Corrupt one transaction's signature
+		TransactionData transactionData = block.getTransactions().get(5).getTransactionData();
+		byte[] signature = transactionData.getSignature().clone();
+		signature[0] ^= 1;
+		transactionData.setSignature(signature);
+
+		assertFalse(block.isSignatureValid(), "Block with invalid transaction signature should be invalid");
+	}
+
+	@Test
+	public void testParallelTransactionValidation() throws DataException {
+		createTestAccounts(null);
+
+		// Extra senders, each with their own balance, so their payments don't depend on each other
+		final int senderCount = 200;
+		List<PrivateKeyAccount> senders = new ArrayList<PrivateKeyAccount>();
+		for (int i = 0; i < senderCount; ++i) {
+			byte[] seed = senderSeed.clone();
+			seed[0] = (byte) i;
+			seed[1] = (byte) (i >> 8);
+			PrivateKeyAccount extraSender = new PrivateKeyAccount(repository, seed);
+
+			accountRepository.save(new AccountData(extraSender.getAddress(), reference));
+			accountRepository.save(new AccountBalanceData(extraSender.getAddress(), Asset.QORA, initialSenderBalance));
+			senders.add(extraSender);
+		}
+		repository.saveChanges();
+
+		// All paying same recipient, which doesn't affect validity of other payments
+		PrivateKeyAccount recipient = new PrivateKeyAccount(repository, recipientSeed);
+		List<Transaction> payments = new ArrayList<Transaction>();
+		for (PrivateKeyAccount extraSender : senders)
+			payments.add(createPayment(extraSender, recipient.getAddress()));
+
+		// Recipient's first reference comes from first payment received, so recipient's own payment depends on earlier payments
+		long timestamp = parentBlockData.getTimestamp() + 1_000;
+		PaymentTransactionData recipientPaymentData = new PaymentTransactionData(recipient.getPublicKey(), sender.getAddress(), genericPaymentAmount,
+				BigDecimal.ONE, timestamp, payments.get(0).getTransactionData().getSignature());
+		Transaction recipientPayment = new PaymentTransaction(repository, recipientPaymentData);
+		recipientPayment.sign(recipient);
+
+		// Valid block, including dependent payment
+		List<Transaction> transactions = new ArrayList<Transaction>(payments);
+		transactions.add(recipientPayment);
+		assertParallelValidationMatches(Block.ValidationResult.OK, transactions);
+
+		// Dependent payment before the payments it depends on
+		transactions.add(0, transactions.remove(transactions.size() - 1));
+		assertParallelValidationMatches(Block.ValidationResult.TRANSACTION_INVALID, transactions);
+
+		// Independent but invalid payment, due to insufficient balance
+		transactions = new ArrayList<Transaction>(payments);
+		PaymentTransactionData overspendData = new PaymentTransactionData(senders.get(100).getPublicKey(), recipient.getAddress(),
+				initialSenderBalance, BigDecimal.ONE, timestamp, reference);
+		Transaction overspend = new PaymentTransaction(repository, overspendData);
+		overspend.sign(senders.get(100));
+		transactions.set(100, overspend);
+		assertParallelValidationMatches(Block.ValidationResult.TRANSACTION_INVALID, transactions);
+	}
+
+	/** Validate block containing <tt>transactions</tt> both serially and in parallel, checking results match <tt>expectedResult</tt>. */
+	@SuppressWarnings("unchecked")
+	private void assertParallelValidationMatches(Block.ValidationResult expectedResult, List<Transaction> transactions) throws DataException {
+		Block block = new Block(repository, parentBlockData, generator);
+		for (Transaction transaction : transactions)
+			block.addTransaction(transaction.getTransactionData());
+		block.sign();
+
+		for (int threads : new int[] { 1, 4 }) {
+			JSONObject settingsJSON = new JSONObject();
+			settingsJSON.put("transactionvalidationthreads", Long.valueOf(threads));
+			Settings.test(settingsJSON);
+
+			assertEquals(expectedResult, block.isValid(), "Block validity incorrect with " + threads + " thread(s)");
+			assertFalse(repository.hasUncommittedChanges(), "Block validation should discard changes");
+		}
+
+		Settings.test(new JSONObject());
+	}
+
+	@Test
+	public void testOverlayRepository() throws DataException {
+		createTestAccounts(null);
+
+		OverlayRepository overlayRepository = new OverlayRepository(repository);
+		AccountRepository overlayAccountRepository = overlayRepository.getAccountRepository();
+		Account recipient = new PublicKeyAccount(repository, recipientSeed);
+
+		// Reads pass through to base repository
+		assertEquals(initialSenderBalance, overlayAccountRepository.getBalance(sender.getAddress(), Asset.QORA).getBalance());
+		assertNull(overlayAccountRepository.getAccount(recipient.getAddress()));
+
+		// Writes are only visible via overlay
+		overlayAccountRepository.save(new AccountBalanceData(sender.getAddress(), Asset.QORA, BigDecimal.ONE.setScale(8)));
+		overlayAccountRepository.create(recipient.getAddress());
+		overlayAccountRepository.delete(generator.getAddress(), Asset.QORA);
+
+		assertEquals(BigDecimal.ONE.setScale(8), overlayAccountRepository.getBalance(sender.getAddress(), Asset.QORA).getBalance());
+		assertNotNull(overlayAccountRepository.getAccount(recipient.getAddress()));
+		assertNull(overlayAccountRepository.getBalance(generator.getAddress(), Asset.QORA));
+
+		assertTrue(overlayRepository.hasUncommittedChanges());
+		assertFalse(repository.hasUncommittedChanges(), "Overlay shouldn't write to base repository");
+		assertEquals(initialSenderBalance, accountRepository.getBalance(sender.getAddress(), Asset.QORA).getBalance());
+		assertNull(accountRepository.getAccount(recipient.getAddress()));
+
+		// Operations needing base repository aren't supported
+		assertThrows(OverlayUnsupportedException.class,
+				() -> overlayRepository.getAssetRepository().save(new AssetData(sender.getAddress(), "test", "test", 1L, false, reference)));
+
+		// Apply
+		overlayRepository.apply();
+		assertFalse(overlayRepository.hasUncommittedChanges());
+		repository.saveChanges();
+
+		assertEquals(BigDecimal.ONE.setScale(8), accountRepository.getBalance(sender.getAddress(), Asset.QORA).getBalance());
+		assertNotNull(accountRepository.getAccount(recipient.getAddress()));
+		assertNull(accountRepository.getBalance(generator.getAddress(), Asset.QORA));
+	}
+
+	@Test
+	public void testValidatedBlockProcessing() throws DataException {
+		createTestAccounts(null);
+
+		// Payment to recipient, then recipient's payment back, which depends on the first
+		PrivateKeyAccount recipient = new PrivateKeyAccount(repository, recipientSeed);
+		Transaction payment = createPayment(sender, recipient.getAddress());
+
+		long timestamp = parentBlockData.getTimestamp() + 1_000;
+		PaymentTransactionData returnPaymentData = new PaymentTransactionData(recipient.getPublicKey(), sender.getAddress(), BigDecimal.TEN.setScale(8),
+				BigDecimal.ONE, timestamp, payment.getTransactionData().getSignature());
+		Transaction returnPayment = new PaymentTransaction(repository, returnPaymentData);
+		returnPayment.sign(recipient);
+
+		Block block = new Block(repository, parentBlockData, generator);
+		block.addTransaction(payment.getTransactionData());
+		block.addTransaction(returnPaymentData);
+		block.sign();
+
+		// Validation shouldn't write to repository
+		assertEquals(Block.ValidationResult.OK, block.isValid(), "Block is invalid");
+		assertFalse(repository.hasUncommittedChanges(), "Block validation shouldn't write to repository");
+
+		// Process using changes from validation
+		block.process();
+		repository.saveChanges();
+
+		List<Object> validatedState = getAccountsState(sender, recipient, generator);
+		assertNotNull(repository.getTransactionRepository().fromSignature(returnPaymentData.getSignature()));
+
+		// Orphan then process again, this time without validating first, so transactions are processed as usual
+		block.orphan();
+		repository.saveChanges();
+		assertFalse(validatedState.equals(getAccountsState(sender, recipient, generator)));
+
+		block = new Block(repository, parentBlockData, generator);
+		block.addTransaction(payment.getTransactionData());
+		block.addTransaction(returnPaymentData);
+		block.sign();
+		block.process();
+		repository.saveChanges();
+
+		assertEquals(validatedState, getAccountsState(sender, recipient, generator));
+
+		// Changes from validation aren't used if repository has changed since
+		block.orphan();
+		repository.saveChanges();
+
+		block = new Block(repository, parentBlockData, generator);
+		block.addTransaction(payment.getTransactionData());
+		block.addTransaction(returnPaymentData);
+		block.sign();
+		assertEquals(Block.ValidationResult.OK, block.isValid(), "Block is invalid");
+
+		accountRepository.save(new AccountBalanceData(recipient.getAddress(), Asset.QORA, BigDecimal.ONE.setScale(8)));
+
+		block.process();
+		repository.saveChanges();
+
+		// Recipient's balance reflects change made after validation
+		BigDecimal expectedBalance = BigDecimal.ONE.add(genericPaymentAmount).subtract(BigDecimal.TEN).subtract(BigDecimal.ONE);
+		assertEquals(0, expectedBalance.compareTo(accountRepository.getBalance(recipient.getAddress(), Asset.QORA).getBalance()));
+	}
+
+	/** Returns QORA balances and last references of <tt>accounts</tt>, for comparison. */
+	private List<Object> getAccountsState(Account... accounts) throws DataException {
+		List<Object> state = new ArrayList<Object>();
+
+		for (Account account : accounts) {
+			state.add(account.getConfirmedBalance(Asset.QORA));
+			byte[] lastReference = account.getLastReference();
+			state.add(lastReference == null ? null : HashCode.fromBytes(lastReference));
+		}
+
+		return state;
+	}
+
 	@Test
 	public void testMultiPaymentTransaction() throws DataException {
 		createTestAccounts(null);
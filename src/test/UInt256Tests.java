@@ -0,0 +1,161 @@
+package test;
+
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.math.BigInteger;
+import java.util.Arrays;
+import java.util.Random;
+
+import utils.UInt256;
+
+public class UInt256Tests {
+
+	private static final BigInteger TWO_TO_256 = BigInteger.ONE.shiftLeft(256);
+	private static final BigInteger MAX_LONG = BigInteger.valueOf(Long.MAX_VALUE);
+
+	@Test
+	public void testConversions() {
+		Random random = new Random(1);
+
+		for (int n = 0; n < 10000; ++n) {
+			BigInteger value = randomValue(random);
+			UInt256 uint = UInt256.valueOf(value);
+
+			assertEquals(value, uint.toBigInteger());
+			assertEquals(value.bitLength(), uint.bitLength());
+			assertEquals(value.signum() == 0, uint.isZero());
+
+			byte[] bytes = new byte[UInt256.BYTE_LENGTH];
+			byte[] valueBytes = value.toByteArray();
+			int length = Math.min(valueBytes.length, bytes.length);
+			System.arraycopy(valueBytes, valueBytes.length - length, bytes, bytes.length - length, length);
+			assertEquals(uint, UInt256.fromBytes(bytes));
+		}
+
+		assertThrows(ArithmeticException.class, () -> UInt256.valueOf(TWO_TO_256));
+		assertThrows(ArithmeticException.class, () -> UInt256.valueOf(BigInteger.ONE.negate()));
+		assertThrows(IllegalArgumentException.class, () -> UInt256.fromBytes(new byte[31]));
+	}
+
+	@Test
+	public void testArithmetic() {
+		Random random = new Random(2);
+
+		for (int n = 0; n < 100000; ++n) {
+			BigInteger a = randomValue(random);
+			BigInteger b = randomValue(random);
+			UInt256 ua = UInt256.valueOf(a);
+			UInt256 ub = UInt256.valueOf(b);
+
+			assertEquals(Integer.signum(a.compareTo(b)), Integer.signum(ua.compareTo(ub)));
+
+			// Multiply
+			long multiplier = randomLong(random);
+			BigInteger product = a.multiply(BigInteger.valueOf(multiplier));
+			if (product.compareTo(TWO_TO_256) < 0)
+				assertEquals(product, ua.multiplyExact(multiplier).toBigInteger());
+			else
+				assertThrows(ArithmeticException.class, () -> ua.multiplyExact(multiplier));
+
+			// Divide
+			if (b.signum() == 0) {
+				assertThrows(ArithmeticException.class, () -> ua.divideSaturated(ub));
+				continue;
+			}
+
+			BigInteger quotient = a.divide(b);
+			assertEquals(quotient.min(MAX_LONG).longValueExact(), ua.divideSaturated(ub), a + " / " + b);
+		}
+
+		assertThrows(IllegalArgumentException.class, () -> UInt256.valueOf(BigInteger.ONE).multiplyExact(-1));
+	}
+
+	@Test
+	public void testForgingTargets() {
+		Random random = new Random(3);
+
+		byte[] maxTargetBytes = new byte[UInt256.BYTE_LENGTH];
+		Arrays.fill(maxTargetBytes, Byte.MAX_VALUE);
+		BigInteger maxTarget = new BigInteger(1, maxTargetBytes);
+
+		for (int n = 0; n < 100000; ++n) {
+			// Similar range to Block.calcBaseTarget() and Account.getGeneratingBalance()
+			BigInteger unitTarget = maxTarget.divide(BigInteger.valueOf(1 + random.nextInt(Integer.MAX_VALUE) * 500L));
+			long generatingBalance = random.nextInt(4) == 0 ? random.nextInt(100) : random.nextLong() >>> (1 + random.nextInt(63));
+			long guesses = 1 + random.nextInt(1000);
+
+			byte[] hashBytes = new byte[UInt256.BYTE_LENGTH];
+			random.nextBytes(hashBytes);
+			BigInteger hash = new BigInteger(1, hashBytes);
+			UInt256 hashValue = UInt256.fromBytes(hashBytes);
+
+			BigInteger target = unitTarget.multiply(BigInteger.valueOf(generatingBalance));
+			UInt256 uintTarget = multiplyOrNull(UInt256.valueOf(unitTarget), generatingBalance);
+			assertEquals(target.compareTo(TWO_TO_256) >= 0, uintTarget == null);
+
+			// Block validation
+			boolean accepted = hash.compareTo(target.multiply(BigInteger.valueOf(guesses))) < 0
+					&& hash.compareTo(target.multiply(BigInteger.valueOf(guesses - 1))) >= 0;
+
+			UInt256 upper = multiplyOrNull(uintTarget, guesses);
+			UInt256 lower = multiplyOrNull(uintTarget, guesses - 1);
+			boolean uintAccepted = (upper == null || hashValue.compareTo(upper) < 0) && lower != null && hashValue.compareTo(lower) >= 0;
+
+			assertEquals(accepted, uintAccepted);
+
+			// Forging delay
+			if (target.signum() != 0) {
+				long seconds = uintTarget == null ? 0 : hashValue.divideSaturated(uintTarget);
+				assertEquals(hash.divide(target).min(MAX_LONG).longValueExact(), seconds);
+			}
+		}
+	}
+
+	private static UInt256 multiplyOrNull(UInt256 value, long multiplier) {
+		if (multiplier == 0)
+			return UInt256.ZERO;
+
+		if (value == null)
+			return null;
+
+		try {
+			return value.multiplyExact(multiplier);
+		} catch (ArithmeticException e) {
+			return null;
+		}
+	}
+
+	/** Returns random value with random bit length, to exercise every word and carry. */
+	private static BigInteger randomValue(Random random) {
+		switch (random.nextInt(8)) {
+			case 0:
+				return BigInteger.ZERO;
+
+			case 1:
+				// All ones, or all ones in lowest bits
+				return BigInteger.ONE.shiftLeft(1 + random.nextInt(256)).subtract(BigInteger.ONE);
+
+			case 2:
+				// Single bit
+				return BigInteger.ONE.shiftLeft(random.nextInt(256));
+
+			default:
+				return new BigInteger(1 + random.nextInt(256), random);
+		}
+	}
+
+	private static long randomLong(Random random) {
+		switch (random.nextInt(4)) {
+			case 0:
+				return random.nextInt(3);
+
+			case 1:
+				return Long.MAX_VALUE - random.nextInt(3);
+
+			default:
+				return random.nextLong() >>> (1 + random.nextInt(63));
+		}
+	}
+
+}
@@ -31,6 +31,7 @@ import transform.TransformationException;
 import transform.Transformer;
 import transform.transaction.TransactionTransformer;
 import utils.Base58;
+import utils.Pair;
 import utils.Triple;
 import utils.Serialization;
 
@@ -194,6 +195,34 @@ public class BlockTransformer extends Transformer {
 		return new Triple<BlockData, List<TransactionData>, List<ATStateData>>(blockData, transactions, atStates);
 	}
 
+	/**
+	 * Extract block's reference and signature from serialized bytes, without parsing the rest of block.
+	 * 
+	 * @param bytes
+	 * @return reference and signature
+	 * @throws TransformationException
+	 */
+	public static Pair<byte[], byte[]> getReferenceAndSignature(byte[] bytes) throws TransformationException {
+		if (bytes.length < BASE_LENGTH)
+			throw new TransformationException("Byte data too short for Block");
+
+		ByteBuffer byteBuffer = ByteBuffer.wrap(bytes);
+		byteBuffer.position(VERSION_LENGTH + TIMESTAMP_LENGTH);
+
+		byte[] reference = new byte[BLOCK_REFERENCE_LENGTH];
+		byteBuffer.get(reference);
+
+		byteBuffer.position(byteBuffer.position() + GENERATING_BALANCE_LENGTH + GENERATOR_LENGTH);
+
+		byte[] transactionsSignature = new byte[TRANSACTIONS_SIGNATURE_LENGTH];
+		byteBuffer.get(transactionsSignature);
+
+		byte[] generatorSignature = new byte[GENERATOR_SIGNATURE_LENGTH];
+		byteBuffer.get(generatorSignature);
+
+		return new Pair<byte[], byte[]>(reference, Bytes.concat(generatorSignature, transactionsSignature));
+	}
+
 	public static int getDataLength(Block block) throws TransformationException {
 		BlockData blockData = block.getBlockData();
 		int blockLength = BASE_LENGTH;
@@ -384,6 +413,19 @@ public class BlockTransformer extends Transformer {
 	}
 
 	public static byte[] getBytesForTransactionsSignature(Block block) throws TransformationException {
+		return getBytesForTransactionsSignature(block, true);
+	}
+
+	/**
+	 * Returns bytes used for block's transactions signature.
+	 * 
+	 * @param block
+	 * @param checkTransactionSignatures
+	 *            false if caller has already verified each transaction's signature
+	 * @return bytes
+	 * @throws TransformationException
+	 */
+	public static byte[] getBytesForTransactionsSignature(Block block, boolean checkTransactionSignatures) throws TransformationException {
 		try {
 			List<Transaction> transactions = block.getTransactions();
 
@@ -396,7 +438,7 @@ public class BlockTransformer extends Transformer {
 				if (block.getBlockData().getVersion() < 4 && transaction.getTransactionData().getType() == TransactionType.AT)
 					continue;
 
-				if (!transaction.isSignatureValid())
+				if (checkTransactionSignatures && !transaction.isSignatureValid())
 					throw new TransformationException("Transaction signature invalid when building block's transactions signature");
 
 				bytes.write(transaction.getTransactionData().getSignature());
@@ -16,9 +16,7 @@
  */
 package utils;
 
-import java.io.UnsupportedEncodingException;
 import java.math.BigInteger;
-import java.util.Arrays;
 
 /**
  * Provides Base-58 encoding and decoding
@@ -41,6 +39,13 @@ public class Base58 {
             INDEXES[ALPHABET[i]] = i;
     }
 
+    /** Largest power of 58 that fits in 32 bits, so five Base58 digits are handled per limb operation */
+    private static final long LIMB_BASE = 58L * 58 * 58 * 58 * 58;
+    private static final int DIGITS_PER_LIMB = 5;
+
+    /** Powers of 58 for partial groups of digits */
+    private static final long[] POWERS = { 1, 58, 58 * 58, 58 * 58 * 58, 58 * 58 * 58 * 58, LIMB_BASE };
+
     /**
      * Encodes a byte array as a Base58 string
      *
@@ -55,49 +60,58 @@ public class Base58 {
         if (bytes.length == 0)
             return "";
         //
-        // Make a copy of the input since we will be modifying it as we go along
-        //
-        byte[] input = Arrays.copyOf(bytes, bytes.length);
-        //
         // Count the number of leading zeroes (we will need to prefix the encoded result
         // with this many zero characters)
         //
         int zeroCount = 0;
-        while (zeroCount < input.length && input[zeroCount] == 0)
+        while (zeroCount < bytes.length && bytes[zeroCount] == 0)
             zeroCount++;
         //
-        // Encode the input starting with the first non-zero byte
+        // Pack the remaining bytes into big-endian 32-bit limbs, leaving the input untouched
+        //
+        int byteCount = bytes.length - zeroCount;
+        int limbCount = (byteCount + 3) / 4;
+        int[] limbs = new int[limbCount];
+        for (int i=zeroCount; i<bytes.length; i++) {
+            int position = bytes.length - 1 - i;
+            limbs[limbCount - 1 - (position >> 2)] |= (bytes[i] & 0xff) << ((position & 3) << 3);
+        }
+        //
+        // Each byte needs at most log(256)/log(58) = 1.366 digits, plus the last group of digits may be padded
         //
-        int offset = zeroCount;
-        byte[] encoded = new byte[input.length*2];
+        char[] encoded = new char[zeroCount + byteCount * 137 / 100 + 1 + DIGITS_PER_LIMB];
         int encodedOffset = encoded.length;
-        while (offset < input.length) {
-            byte mod = divMod58(input, offset);
-            if (input[offset] == 0)
-                offset++;
-            encoded[--encodedOffset] = (byte)ALPHABET[mod];
+        //
+        // Repeatedly divide by 58^5, each remainder producing five digits
+        //
+        int limbOffset = 0;
+        while (limbOffset < limbCount) {
+            long remainder = 0;
+            for (int i=limbOffset; i<limbCount; i++) {
+                long temp = (remainder << 32) | (limbs[i] & 0xffffffffL);
+                limbs[i] = (int)(temp / LIMB_BASE);
+                remainder = temp % LIMB_BASE;
+            }
+            while (limbOffset < limbCount && limbs[limbOffset] == 0)
+                limbOffset++;
+
+            for (int i=0; i<DIGITS_PER_LIMB; i++) {
+                encoded[--encodedOffset] = ALPHABET[(int)(remainder % 58)];
+                remainder /= 58;
+            }
         }
         //
         // Strip any leading zero values in the encoded result
         //
-        while (encodedOffset < encoded.length && encoded[encodedOffset] == (byte)ALPHABET[0])
+        while (encodedOffset < encoded.length && encoded[encodedOffset] == ALPHABET[0])
             encodedOffset++;
         //
         // Now add the number of leading zeroes that we found in the input array
         //
         for (int i=0; i<zeroCount; i++)
-            encoded[--encodedOffset] = (byte)ALPHABET[0];
-        //
-        // Create the return string from the encoded bytes
-        //
-        String encodedResult;
-        try {
-            byte[] stringBytes = Arrays.copyOfRange(encoded, encodedOffset, encoded.length);
-            encodedResult = new String(stringBytes, "US-ASCII");
-        } catch (UnsupportedEncodingException exc) {
-            encodedResult = "";             // Should never happen
-        }
-        return encodedResult;
+            encoded[--encodedOffset] = ALPHABET[0];
+
+        return new String(encoded, encodedOffset, encoded.length - encodedOffset);
     }
 
     /**
@@ -113,90 +127,146 @@ public class Base58 {
         //
         if (string.length() == 0)
             return null;
-        //
-        // Convert the input string to a byte sequence
-        //
-        byte[] input = new byte[string.length()];
-        for (int i=0; i<string.length(); i++) {
-            int codePoint = string.codePointAt(i);
-            int digit = -1;
-            if (codePoint>=0 && codePoint<INDEXES.length)
-                digit = INDEXES[codePoint];
-            if (digit < 0)
-            	throw new NumberFormatException(
-            			String.format("Illegal character %c at index %d",
-                        string.charAt(i), i));
-            input[i] = (byte)digit;
-        }
+
+        int illegalIndex = indexOfIllegalCharacter(string);
+        if (illegalIndex >= 0)
+            throw new NumberFormatException(
+                    String.format("Illegal character %c at index %d",
+                    string.charAt(illegalIndex), illegalIndex));
         //
         // Count the number of leading zero characters
         //
-        int zeroCount = 0;
-        while (zeroCount < input.length && input[zeroCount] == 0)
-            zeroCount++;
+        int zeroCount = countLeadingZeroDigits(string);
         //
-        // Convert from Base58 encoding starting with the first non-zero character
+        // Each digit needs at most log(58)/log(2^32) = 0.183 limbs, so this many limbs can't overflow
         //
-        byte[] decoded = new byte[input.length];
-        int decodedOffset = decoded.length;
-        int offset = zeroCount;
-        while (offset < input.length) {
-            byte mod = divMod256(input, offset);
-            if (input[offset] == 0)
-                offset++;
-            decoded[--decodedOffset] = mod;
-        }
-        //
-        // Strip leading zeroes from the decoded result
-        //
-        while (decodedOffset < decoded.length && decoded[decodedOffset] == 0)
-            decodedOffset++;
+        int[] limbs = new int[(string.length() - zeroCount) * 3 / 16 + 1];
+        toLimbs(string, zeroCount, limbs);
         //
         // Return the decoded result prefixed with the number of leading zeroes
         // that were in the original string
         //
-        byte[] output = Arrays.copyOfRange(decoded, decodedOffset-zeroCount, decoded.length);
+        int byteCount = significantByteCount(limbs);
+        byte[] output = new byte[zeroCount + byteCount];
+        fromLimbs(limbs, output, zeroCount, byteCount);
         return output;
     }
 
     /**
-     * Divide the current number by 58 and return the remainder.  The input array
-     * is updated for the next round.
+     * Decodes a Base58 string of known decoded length, e.g. an address or signature, into caller-supplied buffer
+     * <p>
+     * Strings too long for the buffer are rejected before any arithmetic is done and the working limbs are sized
+     * to the buffer, not the string, so this is faster than {@link #decode(String)} as well as avoiding a copy.
      *
-     * @param       number          Number array
-     * @param       offset          Offset within the array
-     * @return                      The remainder
+     * @param       string                  Encoded string
+     * @param       output                  Buffer to receive decoded bytes, filled entirely on success
+     * @return                              <tt>true</tt> if string is valid Base58 and decodes to exactly
+     *                                      <tt>output.length</tt> bytes, <tt>false</tt> otherwise
      */
-    private static byte divMod58(byte[] number, int offset) {
-        int remainder = 0;
-        for (int i=offset; i<number.length; i++) {
-            int digit = (int)number[i]&0xff;
-            int temp = remainder*256 + digit;
-            number[i] = (byte)(temp/58);
-            remainder = temp%58;
+    public static boolean decode(String string, byte[] output) {
+        if (string.length() == 0 || string.length() > output.length * 137 / 100 + 1)
+            return false;
+
+        if (indexOfIllegalCharacter(string) >= 0)
+            return false;
+
+        int zeroCount = countLeadingZeroDigits(string);
+        if (zeroCount > output.length)
+            return false;
+
+        int[] limbs = new int[(output.length - zeroCount + 3) / 4];
+        if (!toLimbs(string, zeroCount, limbs))
+            return false;
+
+        int byteCount = significantByteCount(limbs);
+        if (zeroCount + byteCount != output.length)
+            return false;
+
+        fromLimbs(limbs, output, zeroCount, byteCount);
+        return true;
+    }
+
+    /** Returns index of first character not in alphabet, or -1 if all are valid */
+    private static int indexOfIllegalCharacter(String string) {
+        for (int i=0; i<string.length(); i++) {
+            char c = string.charAt(i);
+            if (c >= INDEXES.length || INDEXES[c] < 0)
+                return i;
         }
-        return (byte)remainder;
+        return -1;
+    }
+
+    private static int countLeadingZeroDigits(String string) {
+        int zeroCount = 0;
+        while (zeroCount < string.length() && string.charAt(zeroCount) == ALPHABET[0])
+            zeroCount++;
+        return zeroCount;
     }
 
     /**
-     * Divide the current number by 256 and return the remainder.  The input array
-     * is updated for the next round.
+     * Convert validated string, starting at <tt>offset</tt>, into big-endian 32-bit limbs.
+     * <p>
+     * Digits are consumed five at a time, each group multiplied into the limbs with a single pass.
      *
-     * @param       number          Number array
-     * @param       offset          Offset within the array
-     * @return                      The remainder
+     * @return                              <tt>false</tt> if value doesn't fit in <tt>limbs</tt>
      */
-    private static byte divMod256(byte[] number, int offset) {
-        int remainder = 0;
-        for (int i=offset; i<number.length; i++) {
-            int digit = (int)number[i]&0xff;
-            int temp = remainder*58 + digit;
-            number[i] = (byte)(temp/256);
-            remainder = temp%256;
+    private static boolean toLimbs(String string, int offset, int[] limbs) {
+        int digitCount = string.length() - offset;
+        //
+        // First group takes any digits left over so the rest are whole groups
+        //
+        int groupLength = digitCount % DIGITS_PER_LIMB;
+        if (groupLength == 0)
+            groupLength = DIGITS_PER_LIMB;
+        //
+        // Lowest index of limb in use, so passes only touch limbs holding part of the value so far
+        //
+        int limbOffset = limbs.length;
+        for (int i=offset; i<string.length(); i+=groupLength, groupLength=DIGITS_PER_LIMB) {
+            long group = 0;
+            for (int j=i; j<i+groupLength; j++)
+                group = group * 58 + INDEXES[string.charAt(j)];
+
+            long multiplier = POWERS[groupLength];
+            long carry = group;
+            for (int j=limbs.length-1; j>=limbOffset; j--) {
+                long temp = (limbs[j] & 0xffffffffL) * multiplier + carry;
+                limbs[j] = (int)temp;
+                carry = temp >>> 32;
+            }
+
+            if (carry != 0) {
+                if (limbOffset == 0)
+                    return false;
+
+                limbs[--limbOffset] = (int)carry;
+            }
         }
-        return (byte)remainder;
+        return true;
     }
-    
+
+    /** Returns number of bytes needed to hold value in limbs, ignoring leading zero bytes */
+    private static int significantByteCount(int[] limbs) {
+        int byteCount = limbs.length * 4;
+        for (int limb : limbs) {
+            if (limb != 0)
+                return byteCount - Integer.numberOfLeadingZeros(limb) / 8;
+            byteCount -= 4;
+        }
+        return 0;
+    }
+
+    /** Write least significant <tt>byteCount</tt> bytes of limbs to <tt>output</tt>, prefixed by <tt>zeroCount</tt> zeroes */
+    private static void fromLimbs(int[] limbs, byte[] output, int zeroCount, int byteCount) {
+        for (int i=0; i<zeroCount; i++)
+            output[i] = 0;
+
+        for (int i=0; i<byteCount; i++) {
+            int position = byteCount - 1 - i;
+            output[zeroCount + i] = (byte)(limbs[limbs.length - 1 - (position >> 2)] >>> ((position & 3) << 3));
+        }
+    }
+
 	public static String encode(BigInteger id) {
 		byte[] array = id.toByteArray();
 		return encode(array);
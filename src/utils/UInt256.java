@@ -0,0 +1,310 @@
+package utils;
+
+import java.math.BigInteger;
+import java.util.Arrays;
+
+/**
+ * Immutable unsigned 256-bit integer, held as four longs.
+ * <p>
+ * Only supports the few operations needed for forging targets and block hashes, but without the allocations and generality of {@link BigInteger}.
+ */
+public final class UInt256 implements Comparable<UInt256> {
+
+	public static final int BYTE_LENGTH = 32;
+
+	private static final int WORD_COUNT = 4;
+	private static final long INT_MASK = 0xffffffffL;
+
+	public static final UInt256 ZERO = new UInt256(new long[WORD_COUNT]);
+
+	/** Most significant word first, like big-endian bytes. */
+	private final long[] words;
+
+	private UInt256(long[] words) {
+		this.words = words;
+	}
+
+	/**
+	 * Returns unsigned integer from 32 big-endian bytes, e.g. a SHA-256 digest.
+	 *
+	 * @param bytes
+	 * @return UInt256
+	 * @throws IllegalArgumentException
+	 *             if <tt>bytes</tt> isn't 32 bytes long
+	 */
+	public static UInt256 fromBytes(byte[] bytes) {
+		if (bytes.length != BYTE_LENGTH)
+			throw new IllegalArgumentException("UInt256 needs " + BYTE_LENGTH + " bytes, not " + bytes.length);
+
+		long[] words = new long[WORD_COUNT];
+		for (int w = 0; w < WORD_COUNT; ++w) {
+			long word = 0;
+			for (int i = w * 8; i < w * 8 + 8; ++i)
+				word = (word << 8) | (bytes[i] & 0xffL);
+
+			words[w] = word;
+		}
+
+		return new UInt256(words);
+	}
+
+	/**
+	 * Returns unsigned integer with same value as <tt>value</tt>.
+	 *
+	 * @param value
+	 * @return UInt256
+	 * @throws ArithmeticException
+	 *             if <tt>value</tt> is negative or needs more than 256 bits
+	 */
+	public static UInt256 valueOf(BigInteger value) {
+		if (value.signum() < 0 || value.bitLength() > WORD_COUNT * 64)
+			throw new ArithmeticException("Value out of UInt256 range");
+
+		long[] words = new long[WORD_COUNT];
+		for (int i = 0; i < WORD_COUNT; ++i)
+			words[WORD_COUNT - 1 - i] = value.shiftRight(i * 64).longValue();
+
+		return new UInt256(words);
+	}
+
+	public BigInteger toBigInteger() {
+		byte[] bytes = new byte[BYTE_LENGTH];
+		for (int i = 0; i < BYTE_LENGTH; ++i)
+			bytes[i] = (byte) (this.words[i >>> 3] >>> (56 - (i & 7) * 8));
+
+		return new BigInteger(1, bytes);
+	}
+
+	public boolean isZero() {
+		for (long word : this.words)
+			if (word != 0)
+				return false;
+
+		return true;
+	}
+
+	/** Returns number of bits needed to represent this value, i.e. position of highest set bit plus one, or zero if value is zero. */
+	public int bitLength() {
+		return bitLength(this.words);
+	}
+
+	/**
+	 * Returns <tt>this * multiplier</tt>.
+	 *
+	 * @param multiplier
+	 *            must not be negative
+	 * @return UInt256
+	 * @throws ArithmeticException
+	 *             if result doesn't fit in 256 bits
+	 * @throws IllegalArgumentException
+	 *             if <tt>multiplier</tt> is negative
+	 */
+	public UInt256 multiplyExact(long multiplier) {
+		if (multiplier < 0)
+			throw new IllegalArgumentException("UInt256 multiplier can't be negative");
+
+		long[] product = multiplyUnsigned(this.words, multiplier);
+		if (product == null)
+			throw new ArithmeticException("UInt256 overflow");
+
+		return new UInt256(product);
+	}
+
+	/**
+	 * Returns <tt>this / divisor</tt>, rounded down, or <tt>Long.MAX_VALUE</tt> if the quotient doesn't fit in a long.
+	 * <p>
+	 * Uses a single 128-bit by 64-bit division, using the divisor's top 64 bits, then corrects the estimate. So this is much cheaper than general
+	 * 256-bit division, which isn't needed when the quotient is known to be small, e.g. hash divided by forging target.
+	 *
+	 * @param divisor
+	 * @return quotient, saturated to <tt>Long.MAX_VALUE</tt>
+	 * @throws ArithmeticException
+	 *             if <tt>divisor</tt> is zero
+	 */
+	public long divideSaturated(UInt256 divisor) {
+		int divisorBitLength = divisor.bitLength();
+		if (divisorBitLength == 0)
+			throw new ArithmeticException("UInt256 division by zero");
+
+		// Quotient is less than 2^(shift + 1)
+		int shift = this.bitLength() - divisorBitLength;
+		if (shift < 0)
+			return 0;
+
+		// Quotient is at least 2^(shift - 1) so won't fit in a long
+		if (shift >= Long.SIZE)
+			return Long.MAX_VALUE;
+
+		// Only top 64 bits of divisor, and corresponding 128 bits of dividend, are needed to estimate quotient
+		int discardedBits = Math.max(0, divisorBitLength - Long.SIZE);
+		long dividendHigh = shiftedWord(this.words, discardedBits, WORD_COUNT - 2);
+		long dividendLow = shiftedWord(this.words, discardedBits, WORD_COUNT - 1);
+		long divisorTop = shiftedWord(divisor.words, discardedBits, WORD_COUNT - 1);
+
+		// Estimate is never too small, and is too big by at most 2 when divisor bits are discarded
+		long quotient = divideUnsigned128(dividendHigh, dividendLow, divisorTop);
+
+		if (discardedBits > 0) {
+			long[] product = multiplyUnsigned(divisor.words, quotient);
+
+			while (product == null || compare(product, this.words) > 0) {
+				--quotient;
+				product = multiplyUnsigned(divisor.words, quotient);
+			}
+		}
+
+		// Unsigned quotient too big for (signed) long?
+		if (quotient < 0)
+			return Long.MAX_VALUE;
+
+		return quotient;
+	}
+
+	@Override
+	public int compareTo(UInt256 other) {
+		return compare(this.words, other.words);
+	}
+
+	@Override
+	public boolean equals(Object other) {
+		if (other == this)
+			return true;
+
+		if (!(other instanceof UInt256))
+			return false;
+
+		return Arrays.equals(this.words, ((UInt256) other).words);
+	}
+
+	@Override
+	public int hashCode() {
+		return Arrays.hashCode(this.words);
+	}
+
+	@Override
+	public String toString() {
+		return this.toBigInteger().toString();
+	}
+
+	// Word-array helpers
+
+	private static int bitLength(long[] words) {
+		for (int i = 0; i < WORD_COUNT; ++i)
+			if (words[i] != 0)
+				return (WORD_COUNT - i) * 64 - Long.numberOfLeadingZeros(words[i]);
+
+		return 0;
+	}
+
+	private static int compare(long[] a, long[] b) {
+		for (int i = 0; i < WORD_COUNT; ++i)
+			if (a[i] != b[i])
+				return Long.compareUnsigned(a[i], b[i]);
+
+		return 0;
+	}
+
+	/** Returns word at <tt>index</tt> of <tt>words &gt;&gt;&gt; shift</tt>. */
+	private static long shiftedWord(long[] words, int shift, int index) {
+		int sourceIndex = index - (shift >>> 6);
+		int bitShift = shift & 63;
+
+		if (sourceIndex < 0)
+			return 0;
+
+		long word = words[sourceIndex] >>> bitShift;
+
+		if (bitShift != 0 && sourceIndex > 0)
+			word |= words[sourceIndex - 1] << (64 - bitShift);
+
+		return word;
+	}
+
+	/** Returns <tt>words * multiplier</tt>, treating <tt>multiplier</tt> as unsigned, or null if result doesn't fit in 256 bits. */
+	private static long[] multiplyUnsigned(long[] words, long multiplier) {
+		long[] product = new long[WORD_COUNT];
+		long carry = 0;
+
+		for (int i = WORD_COUNT - 1; i >= 0; --i) {
+			long low = words[i] * multiplier;
+			long high = unsignedMultiplyHigh(words[i], multiplier);
+
+			low += carry;
+			if (Long.compareUnsigned(low, carry) < 0)
+				++high;
+
+			product[i] = low;
+			carry = high;
+		}
+
+		return carry == 0 ? product : null;
+	}
+
+	/**
+	 * Returns unsigned quotient of unsigned 128-bit <tt>(high, low)</tt> divided by unsigned <tt>divisor</tt>, where <tt>high &lt; divisor</tt> so
+	 * quotient fits in 64 bits.
+	 * <p>
+	 * Based on "divlu" from Hacker's Delight, using 32-bit digits.
+	 */
+	private static long divideUnsigned128(long high, long low, long divisor) {
+		final long base = 1L << 32;
+
+		// Normalize so divisor's top bit is set
+		int normalizeShift = Long.numberOfLeadingZeros(divisor);
+		divisor <<= normalizeShift;
+		long divisorHigh = divisor >>> 32;
+		long divisorLow = divisor & INT_MASK;
+
+		long dividendHigh = normalizeShift == 0 ? high : (high << normalizeShift) | (low >>> (64 - normalizeShift));
+		long dividendLow = low << normalizeShift;
+		long dividendLow1 = dividendLow >>> 32;
+		long dividendLow0 = dividendLow & INT_MASK;
+
+		// First quotient digit
+		long quotient1 = Long.divideUnsigned(dividendHigh, divisorHigh);
+		long remainder = dividendHigh - quotient1 * divisorHigh;
+
+		while (quotient1 >= base || Long.compareUnsigned(quotient1 * divisorLow, (remainder << 32) | dividendLow1) > 0) {
+			--quotient1;
+			remainder += divisorHigh;
+
+			if (remainder >= base)
+				break;
+		}
+
+		// Second quotient digit
+		long partial = (dividendHigh << 32) + dividendLow1 - quotient1 * divisor;
+
+		long quotient0 = Long.divideUnsigned(partial, divisorHigh);
+		remainder = partial - quotient0 * divisorHigh;
+
+		while (quotient0 >= base || Long.compareUnsigned(quotient0 * divisorLow, (remainder << 32) | dividendLow0) > 0) {
+			--quotient0;
+			remainder += divisorHigh;
+
+			if (remainder >= base)
+				break;
+		}
+
+		return (quotient1 << 32) + quotient0;
+	}
+
+	/** Returns high 64 bits of unsigned 128-bit product of <tt>a</tt> and <tt>b</tt>. */
+	private static long unsignedMultiplyHigh(long a, long b) {
+		long aLow = a & INT_MASK;
+		long aHigh = a >>> 32;
+		long bLow = b & INT_MASK;
+		long bHigh = b >>> 32;
+
+		long lowLow = aLow * bLow;
+		long highLow = aHigh * bLow;
+		long lowHigh = aLow * bHigh;
+		long highHigh = aHigh * bHigh;
+
+		// Can't overflow as each term is at most (2^32 - 1)^2
+		long middle = (lowLow >>> 32) + (highLow & INT_MASK) + lowHigh;
+
+		return highHigh + (highLow >>> 32) + (middle >>> 32);
+	}
+
+}
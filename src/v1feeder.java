@@ -1,57 +1,33 @@
-import java.io.BufferedReader;
-import java.io.ByteArrayOutputStream;
-import java.io.DataInputStream;
 import java.io.IOException;
-import java.io.OutputStream;
-import java.math.BigDecimal;
 import java.net.InetSocketAddress;
-import java.net.Socket;
-import java.net.SocketException;
-import java.net.SocketTimeoutException;
-import java.nio.BufferUnderflowException;
 import java.nio.ByteBuffer;
 import java.nio.charset.Charset;
-import java.nio.file.Files;
-import java.nio.file.Path;
 import java.nio.file.Paths;
-import java.util.ArrayList;
-import java.util.Arrays;
-import java.util.HashMap;
-import java.util.List;
-import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
 
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
-import org.json.simple.JSONArray;
-import org.json.simple.JSONObject;
-import org.json.simple.JSONValue;
-import org.json.simple.parser.ParseException;
 
-import com.google.common.hash.HashCode;
-import com.google.common.primitives.Bytes;
 import com.google.common.primitives.Ints;
 
-import data.at.ATData;
-import data.at.ATStateData;
 import data.block.BlockData;
-import data.transaction.ATTransactionData;
-import data.transaction.TransactionData;
-import qora.assets.Asset;
 import qora.block.Block;
 import qora.block.Block.ValidationResult;
 import qora.block.BlockChain;
-import qora.crypto.Crypto;
+import qora.block.BlockImporter;
+import qora.network.BlockRequestPipeline;
+import qora.network.PeerConnection;
+import qora.network.PeerTransport;
+import repository.BlockStore;
 import repository.DataException;
 import repository.Repository;
 import repository.RepositoryManager;
+import settings.Settings;
 import transform.TransformationException;
-import transform.block.BlockTransformer;
-import transform.transaction.ATTransactionTransformer;
-import utils.Base58;
-import utils.Pair;
-import utils.Triple;
 
-public class v1feeder extends Thread {
+public class v1feeder extends Thread implements PeerTransport.Listener {
 
 	private static final Logger LOGGER = LogManager.getLogger(v1feeder.class);
 
@@ -60,135 +36,162 @@ public class v1feeder extends Thread {
 	private static final int PING_INTERVAL = 10 * 1000; // milliseconds
 	private static final int DEFAULT_PORT = 9084;
 
-	private static final int MAGIC_LENGTH = 4;
-	// private static final int TYPE_LENGTH = 4;
-	private static final int HAS_ID_LENGTH = 1;
-	// private static final int ID_LENGTH = 4;
-	// private static final int DATA_SIZE_LENGTH = 4;
-	private static final int CHECKSUM_LENGTH = 4;
-
 	private static final int SIGNATURE_LENGTH = 128;
 
-	private static final byte[] MAINNET_MAGIC = { 0x12, 0x34, 0x56, 0x78 };
-
 	// private static final int GET_PEERS_TYPE = 1;
 	// private static final int PEERS_TYPE = 2;
 	private static final int HEIGHT_TYPE = 3;
 	private static final int GET_SIGNATURES_TYPE = 4;
 	private static final int SIGNATURES_TYPE = 5;
-	private static final int GET_BLOCK_TYPE = 6;
-	private static final int BLOCK_TYPE = 7;
+	private static final int BLOCK_TYPE = BlockRequestPipeline.BLOCK_TYPE;
 	// private static final int TRANSACTION_TYPE = 8;
 	private static final int PING_TYPE = 9;
 	private static final int VERSION_TYPE = 10;
 	// private static final int FIND_MYSELF_TYPE = 11;
 
-	private Socket socket;
-	private OutputStream out;
+	private PeerTransport transport;
+	private PeerConnection peer;
 
-	private static final int IDLE_STATE = 0;
-	private static final int AWAITING_HEADERS_STATE = 1;
-	private static final int HAVE_HEADERS_STATE = 2;
-	private static final int AWAITING_BLOCK_STATE = 3;
-	private static final int HAVE_BLOCK_STATE = 4;
-	private int feederState = IDLE_STATE;
-	private int messageId = -1;
+	/*
+	 * Messages are received by the transport thread, and the main loop below runs on this thread, so shared state is guarded by 'lock'.
+	 * The main loop waits on 'lock' until a message arrives, a block is processed, or the connection closes.
+	 */
+	private final Object lock = new Object();
+	private boolean isConnected = false;
+	private IOException disconnectCause = null;
+	private boolean isDisconnected = false;
+	private long lastMessageTimestamp = System.currentTimeMillis();
+
+	private static final int DEFAULT_WINDOW = 20;
+	private static final int METRICS_INTERVAL = 10 * 1000; // milliseconds
 
 	private long lastPingTimestamp = System.currentTimeMillis();
-	private List<byte[]> signatures = new ArrayList<byte[]>();
+	private boolean awaitingSignatures = false;
+	private boolean peerHasNoMoreSignatures = false;
+
+	/** Blocks received in order from pipeline are handed to a single block-processing thread, so network latency overlaps block processing. */
+	private final BlockRequestPipeline pipeline;
+	private final ExecutorService blockProcessor = Executors.newSingleThreadExecutor();
+	private volatile RuntimeException processingError = null;
 
-	private static Map<Pair<String, Integer>, BigDecimal> legacyATFees;
-	private static Map<Integer, List<TransactionData>> legacyATTransactions;
+	// Metrics, only accessed by block-processing thread
+	private long metricsTimestamp = System.currentTimeMillis();
+	private int metricsBlockCount = 0;
+	private int totalBlockCount = 0;
+
+	private static BlockImporter blockImporter;
+
+	private v1feeder(String address, int port, int window) throws InterruptedException {
+		this.pipeline = new BlockRequestPipeline(window, (claimedHeight, blockBytes) -> blockProcessor.execute(() -> processBlock(claimedHeight, blockBytes)));
 
-	private v1feeder(String address, int port) throws InterruptedException {
 		try {
-			for (int i = 0; i < 10; ++i)
-				try {
-					// Create new socket for connection to peer
-					this.socket = new Socket();
+			this.transport = new PeerTransport(this);
+			this.transport.start();
 
-					// Collate this.address and destination port
-					InetSocketAddress socketAddress = new InetSocketAddress(address, port);
+			// Collate this.address and destination port
+			InetSocketAddress socketAddress = new InetSocketAddress(address, port);
 
-					// Attempt to connect, with timeout from settings
-					this.socket.connect(socketAddress, CONNECTION_TIMEOUT);
-					break;
-				} catch (SocketTimeoutException e) {
-					LOGGER.info("Timed out trying to connect to " + address + " - retrying");
-					Thread.sleep(1000);
-					this.socket = null;
-				} catch (Exception e) {
-					LOGGER.error("Failed to connect to " + address, e);
-					return;
-				}
+			for (int i = 0; i < 10; ++i) {
+				this.peer = this.transport.connect(socketAddress);
 
-			// No connection after retries?
-			if (this.socket == null)
-				return;
+				// Wait for connection attempt to complete, with timeout
+				synchronized (this.lock) {
+					long deadline = System.currentTimeMillis() + CONNECTION_TIMEOUT;
+
+					while (!this.isConnected && !this.isDisconnected && System.currentTimeMillis() < deadline)
+						this.lock.wait(deadline - System.currentTimeMillis());
+
+					if (this.isConnected)
+						break;
+
+					if (this.isDisconnected) {
+						LOGGER.error("Failed to connect to " + address, this.disconnectCause);
+						break;
+					}
+				}
 
-			// Enable TCP keep-alive packets
-			this.socket.setKeepAlive(true);
+				LOGGER.info("Timed out trying to connect to " + address + " - retrying");
+				this.peer.close();
+				Thread.sleep(1000);
 
-			// Inactivity timeout
-			this.socket.setSoTimeout(INACTIVITY_TIMEOUT);
+				synchronized (this.lock) {
+					// Ignore disconnection of abandoned attempt
+					this.isDisconnected = false;
+					this.disconnectCause = null;
+				}
+			}
 
-			// Grab reference to output stream
-			this.out = socket.getOutputStream();
+			// No connection after retries?
+			if (!this.isConnected) {
+				this.transport.close();
+				return;
+			}
 
 			// Start main communication thread
 			this.start();
-		} catch (SocketException e) {
-			LOGGER.error("Failed to set socket timeout for address " + address, e);
 		} catch (IOException e) {
-			LOGGER.error("Failed to get output stream for address " + address, e);
+			LOGGER.error("Failed to connect to " + address, e);
+
+			if (this.transport != null)
+				this.transport.close();
 		}
 	}
 
-	private byte[] createMessage(int type, boolean hasId, Integer id, byte[] data) throws IOException {
-		if (data == null)
-			data = new byte[0];
+	// Peer transport callbacks, called by transport thread
 
-		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
-
-		bytes.write(MAINNET_MAGIC);
-
-		bytes.write(Ints.toByteArray(type));
+	@Override
+	public void onConnected(PeerConnection peer) {
+		synchronized (this.lock) {
+			if (peer != this.peer)
+				return;
 
-		byte[] hasIdBytes = new byte[] { (byte) (hasId ? 1 : 0) };
-		bytes.write(hasIdBytes);
+			this.isConnected = true;
+			this.lastMessageTimestamp = System.currentTimeMillis();
+			this.lock.notifyAll();
+		}
+	}
 
-		if (hasId) {
-			if (id == null)
-				id = (int) ((Math.random() * 1000000) + 1);
+	@Override
+	public void onMessage(PeerConnection peer, int type, int id, ByteBuffer data) {
+		synchronized (this.lock) {
+			this.lastMessageTimestamp = System.currentTimeMillis();
+
+			try {
+				processMessage(type, id, data);
+			} catch (IOException e) {
+				LOGGER.info("Unable to reply to peer", e);
+			}
 
-			bytes.write(Ints.toByteArray(id));
+			this.lock.notifyAll();
 		}
+	}
 
-		bytes.write(Ints.toByteArray(data.length));
-
-		if (data.length > 0) {
-			byte[] checksum = Crypto.digest(data);
-			bytes.write(checksum, 0, CHECKSUM_LENGTH);
+	@Override
+	public void onDisconnected(PeerConnection peer, IOException cause) {
+		synchronized (this.lock) {
+			if (peer != this.peer)
+				return;
 
-			bytes.write(data);
+			this.isDisconnected = true;
+			this.disconnectCause = cause;
+			this.lock.notifyAll();
 		}
+	}
 
-		LOGGER.trace("Creating message type [" + type + "] with " + (hasId ? "id [" + id + "]" : "no id") + " and data length " + data.length);
+	private void sendMessage(int type, boolean hasId, Integer id, byte[] data) throws IOException {
+		if (hasId && id == null)
+			id = (int) ((Math.random() * 1000000) + 1);
 
-		return bytes.toByteArray();
-	}
+		LOGGER.trace("Sending message type [" + type + "] with " + (hasId ? "id [" + id + "]" : "no id") + " and data length "
+				+ (data == null ? 0 : data.length));
 
-	private void sendMessage(byte[] message) throws IOException {
-		synchronized (this.out) {
-			this.out.write(message);
-			this.out.flush();
-		}
+		this.peer.send(type, hasId, hasId ? id : 0, data == null ? null : ByteBuffer.wrap(data));
 	}
 
-	private void processMessage(int type, int id, byte[] data) throws IOException {
-		LOGGER.trace("Received message type [" + type + "] with id [" + id + "] and data length " + data.length);
+	/** Processes message from peer. <tt>byteBuffer</tt> is only valid during this call. */
+	private void processMessage(int type, int id, ByteBuffer byteBuffer) throws IOException {
+		LOGGER.trace("Received message type [" + type + "] with id [" + id + "] and data length " + byteBuffer.remaining());
 
-		ByteBuffer byteBuffer = ByteBuffer.wrap(data);
 		switch (type) {
 			case HEIGHT_TYPE:
 				int height = byteBuffer.getInt();
@@ -197,93 +200,36 @@ public class v1feeder extends Thread {
 				break;
 
 			case SIGNATURES_TYPE:
-				// shove into list
+				// shove into pipeline
 				int numSignatures = byteBuffer.getInt();
 
-				if (numSignatures == 0)
-					throw new RuntimeException("No signatures from peer - are we up to date?");
+				awaitingSignatures = false;
+
+				// Wait for any outstanding blocks to be processed before giving up
+				if (numSignatures == 0) {
+					peerHasNoMoreSignatures = true;
+					break;
+				}
+
+				LOGGER.trace("Received " + numSignatures + " signature(s) to process");
 
 				while (numSignatures-- > 0) {
 					byte[] signature = new byte[SIGNATURE_LENGTH];
 					byteBuffer.get(signature);
-					signatures.add(signature);
+					pipeline.addSignature(signature);
 				}
 
-				LOGGER.trace("We now have " + signatures.size() + " signature(s) to process");
-
-				feederState = HAVE_HEADERS_STATE;
 				break;
 
 			case BLOCK_TYPE:
-				// If messageId doesn't match then discard
-				if (id != this.messageId)
-					break;
-
-				// read block and process
-				int claimedHeight = byteBuffer.getInt();
-
-				LOGGER.info("Received block allegedly at height " + claimedHeight);
-
-				byte[] blockBytes = new byte[byteBuffer.remaining()];
-				byteBuffer.get(blockBytes);
-
-				Triple<BlockData, List<TransactionData>, List<ATStateData>> blockInfo = null;
-
-				try {
-					blockInfo = BlockTransformer.fromBytes(blockBytes);
-				} catch (TransformationException e) {
-					LOGGER.error("Couldn't parse block bytes from peer", e);
-					throw new RuntimeException("Couldn't parse block bytes from peer", e);
-				}
-
-				try (final Repository repository = RepositoryManager.getRepository()) {
-					BlockData blockData = blockInfo.getA();
-
-					// Adjust AT state data to include fees
-					List<ATStateData> atStates = new ArrayList<ATStateData>();
-					for (ATStateData atState : blockInfo.getC()) {
-						BigDecimal fees = legacyATFees.get(new Pair<String, Integer>(atState.getATAddress(), claimedHeight));
-						ATData atData = repository.getATRepository().fromATAddress(atState.getATAddress());
-
-						atStates.add(new ATStateData(atState.getATAddress(), claimedHeight, atData.getCreation(), null, atState.getStateHash(), fees));
-					}
-
-					// AT-Transaction injection goes here!
-					List<TransactionData> transactions = blockInfo.getB();
-					List<TransactionData> atTransactions = legacyATTransactions.get(claimedHeight);
-					if (atTransactions != null) {
-						transactions.addAll(0, atTransactions);
-						blockData.setTransactionCount(blockData.getTransactionCount() + atTransactions.size());
-					}
-
-					Block block = new Block(repository, blockData, transactions, atStates);
-
-					if (!block.isSignatureValid()) {
-						LOGGER.error("Invalid block signature");
-						throw new RuntimeException("Invalid block signature");
-					}
-
-					ValidationResult result = block.isValid();
-
-					if (result != ValidationResult.OK) {
-						LOGGER.error("Invalid block, validation result: " + result.name());
-						throw new RuntimeException("Invalid block, validation result: " + result.name());
-					}
-
-					block.process();
-					repository.saveChanges();
-				} catch (DataException e) {
-					LOGGER.error("Unable to process block", e);
-					throw new RuntimeException("Unable to process block", e);
-				}
-
-				feederState = HAVE_BLOCK_STATE;
+				// Buffer, then pass any now-contiguous blocks for processing
+				if (!pipeline.onBlock(id, byteBuffer))
+					LOGGER.trace("Discarding block with unexpected message id [" + id + "]");
 				break;
 
 			case PING_TYPE:
 				LOGGER.trace("Sending pong for ping [" + id + "]");
-				byte[] pongMessage = createMessage(PING_TYPE, true, id, null);
-				sendMessage(pongMessage);
+				sendMessage(PING_TYPE, true, id, null);
 				break;
 
 			case VERSION_TYPE:
@@ -298,109 +244,120 @@ public class v1feeder extends Thread {
 				break;
 
 			default:
-				LOGGER.trace("Discarding message type [" + type + "] with id [" + id + "] and data length " + data.length);
+				LOGGER.trace("Discarding message type [" + type + "] with id [" + id + "] and data length " + byteBuffer.remaining());
 		}
 	}
 
-	private int parseBuffer(byte[] buffer, int bufferEnd) throws IOException {
-		int newBufferEnd = bufferEnd;
+	/** Validates and processes block, called in blockchain order by block-processing thread. */
+	private void processBlock(int claimedHeight, byte[] blockBytes) {
+		// Don't process any more blocks after a failure
+		if (processingError != null)
+			return;
 
 		try {
-			ByteBuffer byteBuffer = ByteBuffer.wrap(buffer, 0, bufferEnd);
-
-			// Check magic
-			byte[] magic = new byte[MAGIC_LENGTH];
-			byteBuffer.get(magic);
-			if (!Arrays.equals(magic, MAINNET_MAGIC)) {
-				// bad data - discard whole buffer
-				return 0;
-			}
+			try (final Repository repository = RepositoryManager.getRepository()) {
+				Block block;
 
-			int type = byteBuffer.getInt();
+				try {
+					block = blockImporter.toBlock(repository, blockBytes, claimedHeight);
+				} catch (TransformationException e) {
+					LOGGER.error("Couldn't parse block bytes from peer", e);
+					throw new RuntimeException("Couldn't parse block bytes from peer", e);
+				}
 
-			byte[] hasId = new byte[HAS_ID_LENGTH];
-			byteBuffer.get(hasId);
+				if (!block.isSignatureValid()) {
+					LOGGER.error("Invalid block signature");
+					throw new RuntimeException("Invalid block signature");
+				}
 
-			int id = -1;
-			if (hasId[0] == (byte) 1)
-				id = byteBuffer.getInt();
+				ValidationResult result = block.isValid();
 
-			int dataSize = byteBuffer.getInt();
-			byte[] data = new byte[dataSize];
-			if (dataSize > 0) {
-				byte[] checksum = new byte[CHECKSUM_LENGTH];
-				byteBuffer.get(checksum);
+				if (result != ValidationResult.OK) {
+					LOGGER.error("Invalid block, validation result: " + result.name());
+					throw new RuntimeException("Invalid block, validation result: " + result.name());
+				}
 
-				byteBuffer.get(data);
+				block.process();
+				repository.saveChanges();
+			} catch (DataException e) {
+				LOGGER.error("Unable to process block", e);
+				throw new RuntimeException("Unable to process block", e);
+			}
+		} catch (RuntimeException e) {
+			processingError = e;
+			return;
+		} finally {
+			pipeline.blockProcessed();
+
+			// Wake main loop to refill request window
+			synchronized (this.lock) {
+				this.lock.notifyAll();
 			}
+		}
+
+		LOGGER.trace("Processed block at height " + claimedHeight);
+		updateMetrics(claimedHeight);
+	}
 
-			// We have a full message - remove from buffer
-			int nextMessageOffset = byteBuffer.position();
-			newBufferEnd = bufferEnd - nextMessageOffset;
-			byteBuffer = null;
+	private void updateMetrics(int height) {
+		++metricsBlockCount;
+		++totalBlockCount;
 
-			System.arraycopy(buffer, nextMessageOffset, buffer, 0, newBufferEnd);
+		long now = System.currentTimeMillis();
+		if (now - metricsTimestamp < METRICS_INTERVAL)
+			return;
 
-			// Process message
-			processMessage(type, id, data);
-		} catch (BufferUnderflowException e) {
-			// Not enough data
-		}
+		double blocksPerSecond = metricsBlockCount * 1000.0 / (now - metricsTimestamp);
+		LOGGER.info(String.format("Height %d: %.1f blocks/sec, %d blocks processed, %d requested but unprocessed", height, blocksPerSecond, totalBlockCount,
+				pipeline.getUnprocessedCount()));
 
-		return newBufferEnd;
+		metricsTimestamp = now;
+		metricsBlockCount = 0;
 	}
 
 	@Override
 	public void run() {
 		try {
-			DataInputStream in = new DataInputStream(socket.getInputStream());
-			byte[] buffer = new byte[2 * 1024 * 1024]; // 2MB
-			int bufferEnd = 0;
-
 			// Send our height
 			try (final Repository repository = RepositoryManager.getRepository()) {
 				int height = repository.getBlockRepository().getBlockchainHeight();
 				LOGGER.trace("Sending our height " + height + " to peer");
-				byte[] heightMessage = createMessage(HEIGHT_TYPE, false, null, Ints.toByteArray(height));
-				sendMessage(heightMessage);
+				sendMessage(HEIGHT_TYPE, false, null, Ints.toByteArray(height));
 			}
 
-			while (true) {
-				// Anything to read?
-				if (in.available() > 0) {
-					// read message
-					int numRead = in.read(buffer, bufferEnd, in.available());
-					if (numRead == -1) {
-						// input EOF
-						LOGGER.info("Socket EOF");
+			synchronized (this.lock) {
+				while (true) {
+					// Connection closed?
+					if (this.isDisconnected) {
+						LOGGER.info("Disconnected from peer", this.disconnectCause);
 						return;
 					}
 
-					bufferEnd += numRead;
-				}
+					long now = System.currentTimeMillis();
+					if (now - this.lastMessageTimestamp >= INACTIVITY_TIMEOUT)
+						throw new IOException("No messages from peer for " + INACTIVITY_TIMEOUT + "ms");
 
-				if (bufferEnd > 0) {
-					// attempt to parse
-					bufferEnd = parseBuffer(buffer, bufferEnd);
-				}
+					// Do we need to send a ping message?
+					if (now - lastPingTimestamp >= PING_INTERVAL) {
+						sendMessage(PING_TYPE, true, null, null);
+						lastPingTimestamp = now;
+					}
 
-				// Do we need to send a ping message?
-				if (System.currentTimeMillis() - lastPingTimestamp >= PING_INTERVAL) {
-					byte[] pingMessage = createMessage(PING_TYPE, true, null, null);
-					sendMessage(pingMessage);
-					lastPingTimestamp = System.currentTimeMillis();
-				}
+					// Stop if block processing failed
+					if (processingError != null)
+						throw processingError;
 
-				byte[] signature = null;
-				switch (feederState) {
-					case IDLE_STATE:
-						// Get signature from our highest block
-						try (final Repository repository = RepositoryManager.getRepository()) {
-							BlockData blockData = repository.getBlockRepository().getLastBlock();
+					// Need more signatures? Ask for those following the last block we requested, or our last block if none outstanding
+					if (!pipeline.hasPendingSignatures() && !awaitingSignatures && !peerHasNoMoreSignatures) {
+						byte[] signature = pipeline.getLastRequestedSignature();
 
-							if (blockData != null)
-								signature = blockData.getSignature();
-						}
+						if (signature == null)
+							try (final Repository repository = RepositoryManager.getRepository()) {
+								BlockData blockData = repository.getBlockRepository().getLastBlock();
+
+								if (blockData != null)
+									signature = blockData.getSignature();
+							}
 
 						// done?
 						if (signature == null) {
@@ -409,124 +366,55 @@ public class v1feeder extends Thread {
 						}
 
 						LOGGER.trace("Requesting more signatures...");
-						byte[] getSignaturesMessage = createMessage(GET_SIGNATURES_TYPE, true, null, signature);
-						sendMessage(getSignaturesMessage);
-						feederState = AWAITING_HEADERS_STATE;
-						break;
+						sendMessage(GET_SIGNATURES_TYPE, true, null, signature);
+						awaitingSignatures = true;
+					}
 
-					case HAVE_HEADERS_STATE:
-					case HAVE_BLOCK_STATE:
-						// request next block?
-						if (signatures.size() == 0) {
-							feederState = IDLE_STATE;
-							break;
-						}
+					// Peer has no more blocks for us and we've processed all we requested?
+					if (peerHasNoMoreSignatures && pipeline.getUnprocessedCount() == 0)
+						throw new RuntimeException("No signatures from peer - are we up to date?");
 
-						LOGGER.trace("Requesting next block...");
-						signature = signatures.remove(0);
-						this.messageId = (int) ((Math.random() * 1000000) + 1);
-						byte[] getBlockMessage = createMessage(GET_BLOCK_TYPE, true, this.messageId, signature);
-						sendMessage(getBlockMessage);
-						feederState = AWAITING_BLOCK_STATE;
-						break;
+					// Fill request window
+					pipeline.fillWindow(peer);
+
+					// Wait for message from peer, processed block or time to ping
+					this.lock.wait(Math.max(1, lastPingTimestamp + PING_INTERVAL - System.currentTimeMillis()));
 				}
 			}
-		} catch (IOException | DataException | RuntimeException e) {
+		} catch (IOException | DataException | RuntimeException | InterruptedException e) {
 			// give up
 			LOGGER.info("Exiting", e);
-		}
-
-		try {
-			this.socket.close();
-		} catch (IOException e) {
-			e.printStackTrace();
-		}
-	}
-
-	private static void readLegacyATs(String legacyATPathname) {
-		legacyATFees = new HashMap<Pair<String, Integer>, BigDecimal>();
-		legacyATTransactions = new HashMap<Integer, List<TransactionData>>();
-
-		Path path = Paths.get(legacyATPathname);
-
-		JSONArray json = null;
-
-		try (BufferedReader in = Files.newBufferedReader(path)) {
-			json = (JSONArray) JSONValue.parseWithException(in);
-		} catch (IOException | ParseException e) {
-			throw new RuntimeException("Couldn't read legacy AT JSON file");
-		}
-
-		for (Object o : json) {
-			JSONObject entry = (JSONObject) o;
-
-			int height = Integer.parseInt((String) entry.get("height"));
-			long timestamp = (Long) entry.get("timestamp");
-
-			JSONArray transactionEntries = (JSONArray) entry.get("transactions");
-
-			List<TransactionData> transactions = new ArrayList<TransactionData>();
-
-			for (Object t : transactionEntries) {
-				JSONObject transactionEntry = (JSONObject) t;
-
-				String recipient = (String) transactionEntry.get("recipient");
-				String sender = (String) transactionEntry.get("sender");
-				BigDecimal amount = new BigDecimal((String) transactionEntry.get("amount")).setScale(8);
-
-				if (recipient.equals("1111111111111111111111111")) {
-					// fee
-					legacyATFees.put(new Pair<String, Integer>(sender, height), amount);
-				} else {
-					// Actual AT Transaction
-					String messageString = (String) transactionEntry.get("message");
-					byte[] message = messageString.isEmpty() ? new byte[0] : HashCode.fromString(messageString).asBytes();
-					int sequence = ((Long) transactionEntry.get("seq")).intValue();
-					byte[] reference = Base58.decode((String) transactionEntry.get("reference"));
-
-					// reference is AT's deploy tx signature
-					// sender's public key is genesis account
-					// zero fee
-					// timestamp is block's timestamp
-					// signature = duplicated hash of transaction data
-
-					BigDecimal fee = BigDecimal.ZERO.setScale(8);
-
-					TransactionData transactionData = new ATTransactionData(sender, recipient, amount, Asset.QORA, message, fee, timestamp, reference);
-					byte[] digest;
-					try {
-						digest = Crypto.digest(ATTransactionTransformer.toBytes(transactionData));
-						byte[] signature = Bytes.concat(digest, digest);
-
-						transactionData = new ATTransactionData(sender, recipient, amount, Asset.QORA, message, fee, timestamp, reference, signature);
-					} catch (TransformationException e) {
-						throw new RuntimeException("Couldn't transform AT Transaction into bytes", e);
-					}
-
-					if (sequence > transactions.size())
-						transactions.add(transactionData);
-					else
-						transactions.add(sequence, transactionData);
-				}
+		} finally {
+			// Let block-processing thread finish any blocks already queued, unless it has failed
+			blockProcessor.shutdown();
+			try {
+				blockProcessor.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+			} catch (InterruptedException e) {
+				blockProcessor.shutdownNow();
 			}
 
-			if (!transactions.isEmpty())
-				legacyATTransactions.put(height, transactions);
+			this.transport.close();
 		}
 	}
 
 	public static void main(String[] args) {
-		if (args.length < 2 || args.length > 3) {
-			System.err.println("usage: v1feeder legacy-AT-json v1-node-address [port]");
-			System.err.println("example: v1feeder legacy-ATs.json 10.0.0.100 9084");
+		if (args.length < 2 || args.length > 4) {
+			System.err.println("usage: v1feeder legacy-AT-json v1-node-address [port [window]]");
+			System.err.println("example: v1feeder legacy-ATs.json 10.0.0.100 9084 " + DEFAULT_WINDOW);
+			System.err.println("window is maximum number of blocks requested but not yet processed, default " + DEFAULT_WINDOW);
 			System.exit(1);
 		}
 
 		String legacyATPathname = args[0];
-		readLegacyATs(legacyATPathname);
+		try {
+			blockImporter = new BlockImporter(Paths.get(legacyATPathname));
+		} catch (IOException e) {
+			throw new RuntimeException("Couldn't read legacy AT JSON file", e);
+		}
 
 		try {
 			test.Common.setRepository();
+			RepositoryManager.setBlockStore(new BlockStore(Settings.getInstance().getBlockStorePath()));
 		} catch (DataException e) {
 			LOGGER.error("Couldn't connect to repository", e);
 			System.exit(2);
@@ -542,9 +430,14 @@ public class v1feeder extends Thread {
 		// connect to v1 node
 		String address = args[1];
 		int port = args.length > 2 ? Integer.valueOf(args[2]) : DEFAULT_PORT;
+		int window = args.length > 3 ? Integer.valueOf(args[3]) : DEFAULT_WINDOW;
+		if (window < 1) {
+			System.err.println("window must be at least 1");
+			System.exit(1);
+		}
 
 		try {
-			new v1feeder(address, port).join();
+			new v1feeder(address, port, window).join();
 		} catch (InterruptedException e) {
 			e.printStackTrace();
 		}
@@ -556,6 +449,8 @@ public class v1feeder extends Thread {
 		} catch (DataException e) {
 			e.printStackTrace();
 		}
+
+		RepositoryManager.closeBlockStore();
 	}
 
 }